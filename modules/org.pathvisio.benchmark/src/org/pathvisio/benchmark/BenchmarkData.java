@@ -0,0 +1,175 @@
+/*******************************************************************************
+ * PathVisio, a tool for data visualization and analysis using biological pathways
+ * Copyright 2006-2019 BiGCaT Bioinformatics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.pathvisio.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.bridgedb.DataSource;
+import org.bridgedb.IDMapperException;
+import org.bridgedb.Xref;
+import org.bridgedb.bio.DataSourceTxt;
+import org.bridgedb.rdb.construct.DBConnector;
+import org.bridgedb.rdb.construct.DataDerby;
+import org.pathvisio.core.model.ConverterException;
+import org.pathvisio.core.model.Pathway;
+import org.pathvisio.core.preferences.PreferenceManager;
+import org.pathvisio.data.DataException;
+import org.pathvisio.data.ISample;
+import org.pathvisio.desktop.gex.SimpleGex;
+
+/**
+ * Input data shared by the benchmarks: the pathways in the source tree,
+ * and a generated dataset with matching pathways.
+ * All generated data comes from a fixed seed, so every run measures the same thing.
+ */
+class BenchmarkData
+{
+	/** names of the samples in the generated dataset */
+	static final String[] SAMPLES = { "fc", "p" };
+
+	private static boolean initialized = false;
+
+	static synchronized void init()
+	{
+		if (initialized) return;
+		DataSourceTxt.init();
+		PreferenceManager.init();
+		initialized = true;
+	}
+
+	/** top level directory of the source tree */
+	static File getBaseDir()
+	{
+		return new File(System.getProperty("pathvisio.basedir", "../.."));
+	}
+
+	static File getFile(String relativePath)
+	{
+		File f = new File(getBaseDir(), relativePath);
+		if (!f.exists()) throw new IllegalStateException("Benchmark input not found: " + f);
+		return f;
+	}
+
+	static Pathway readPathway(String relativePath) throws ConverterException
+	{
+		init();
+		Pathway pwy = new Pathway();
+		pwy.readFromXml(getFile(relativePath), false);
+		return pwy;
+	}
+
+	static File createTempDir(String prefix) throws IOException
+	{
+		File dir = File.createTempFile(prefix, "");
+		dir.delete();
+		if (!dir.mkdirs()) throw new IOException("Could not create " + dir);
+		return dir;
+	}
+
+	static void delete(File f)
+	{
+		File[] children = f.listFiles();
+		if (children != null) for (File c : children) delete(c);
+		f.delete();
+	}
+
+	/** the i-th gene of the generated dataset */
+	static Xref gene(int i)
+	{
+		return new Xref("" + (1000 + i), DataSource.getExistingBySystemCode("L"));
+	}
+
+	/**
+	 * Create a dataset with one row per gene, with a random fold change and p-value.
+	 * @return the dataset, opened for reading
+	 */
+	static SimpleGex createGex(File dir, int genes) throws DataException, SQLException, IDMapperException
+	{
+		init();
+		String dbName = new File(dir, "data").getAbsolutePath();
+		SimpleGex gex = new SimpleGex(dbName, true, new DataDerby());
+		gex.prepare();
+		gex.addSample(0, SAMPLES[0], ISample.NUMBER_EXPR);
+		gex.addSample(1, SAMPLES[1], ISample.NUMBER_PVAL);
+		Random random = new Random(42);
+		for (int i = 0; i < genes; ++i)
+		{
+			gex.addExpr(gene(i), "0", "" + random.nextGaussian(), i);
+			gex.addExpr(gene(i), "1", "" + random.nextDouble(), i);
+		}
+		// finalizing may move the database to another file
+		gex.finalize();
+		return new SimpleGex(gex.getDbName(), false, new DataDerby());
+	}
+
+	/**
+	 * Create a dataset with one row per gene and the given number of samples,
+	 * all random numbers, in a database of the given type.
+	 * @return the dataset, opened for reading
+	 */
+	static SimpleGex createGex(File dir, int genes, int samples, DBConnector connector) throws DataException, SQLException, IDMapperException
+	{
+		init();
+		String dbName = new File(dir, "data").getAbsolutePath();
+		SimpleGex gex = new SimpleGex(dbName, true, connector);
+		gex.prepare();
+		for (int s = 0; s < samples; ++s) gex.addSample(s, "s" + s, ISample.NUMBER_EXPR);
+		Random random = new Random(42);
+		for (int i = 0; i < genes; ++i)
+		{
+			for (int s = 0; s < samples; ++s) gex.addExpr(gene(i), "" + s, "" + random.nextGaussian(), i);
+		}
+		gex.finalize();
+		return new SimpleGex(gex.getDbName(), false, connector);
+	}
+
+	/**
+	 * Write pathways with random genes of the generated dataset,
+	 * plus some genes that are not in the dataset.
+	 */
+	static List<File> writePathways(File dir, int count, int size, int genes) throws IOException
+	{
+		init();
+		Random random = new Random(42);
+		List<File> result = new ArrayList<File>();
+		for (int p = 0; p < count; ++p)
+		{
+			File f = new File(dir, "pathway" + p + ".gpml");
+			PrintWriter out = new PrintWriter(f, "UTF-8");
+			out.println("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+			out.println("<Pathway xmlns=\"http://pathvisio.org/GPML/2013a\" Name=\"Pathway " + p + "\">");
+			for (int g = 0; g < size; ++g)
+			{
+				out.println("<DataNode TextLabel=\"g" + g + "\" GraphId=\"n" + g + "\" Type=\"GeneProduct\">");
+				out.println("<Graphics CenterX=\"" + (50 + 100 * (g % 10)) + "\" CenterY=\"" + (50 + 40 * (g / 10)) +
+						"\" Width=\"80\" Height=\"20\"/>");
+				out.println("<Xref Database=\"Entrez Gene\" ID=\"" + (1000 + random.nextInt(genes * 11 / 10)) + "\"/>");
+				out.println("</DataNode>");
+			}
+			out.println("</Pathway>");
+			out.close();
+			result.add(f);
+		}
+		return result;
+	}
+}
@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * PathVisio, a tool for data visualization and analysis using biological pathways
+ * Copyright 2006-2019 BiGCaT Bioinformatics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.pathvisio.benchmark;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.pathvisio.desktop.visualization.Criterion;
+import org.pathvisio.desktop.visualization.Criterion.CriterionException;
+
+/**
+ * Evaluating a criterion on rows of data, as done for every row by the statistics
+ * and for every data node by the visualizations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CriterionBenchmark
+{
+	static final int ROWS = 1000;
+
+	@Param({"[fc] > 1.0", "[fc] > 0.5 AND [p] < 0.05", "([fc] < -1.0 OR [fc] > 1.0) AND [p] <= 0.01"})
+	public String expression;
+
+	private Criterion criterion;
+	private Map<String, Object>[] rows;
+
+	@SuppressWarnings("unchecked")
+	@Setup
+	public void setUp()
+	{
+		criterion = new Criterion();
+		String error = criterion.setExpression(expression, Arrays.asList(BenchmarkData.SAMPLES));
+		if (error != null) throw new IllegalArgumentException(error);
+
+		Random random = new Random(42);
+		rows = new Map[ROWS];
+		for (int i = 0; i < ROWS; ++i)
+		{
+			rows[i] = new HashMap<String, Object>();
+			rows[i].put(BenchmarkData.SAMPLES[0], random.nextGaussian());
+			rows[i].put(BenchmarkData.SAMPLES[1], random.nextDouble());
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ROWS)
+	public int evaluate() throws CriterionException
+	{
+		int positive = 0;
+		for (Map<String, Object> row : rows)
+		{
+			if (criterion.evaluate(row)) positive++;
+		}
+		return positive;
+	}
+}
@@ -0,0 +1,105 @@
+/*******************************************************************************
+ * PathVisio, a tool for data visualization and analysis using biological pathways
+ * Copyright 2006-2019 BiGCaT Bioinformatics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.pathvisio.benchmark;
+
+import java.awt.Graphics2D;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.pathvisio.core.model.ConverterException;
+import org.pathvisio.core.model.Pathway;
+import org.pathvisio.core.view.VPathway;
+import org.pathvisio.core.view.VPathwayElement;
+
+/**
+ * Painting a whole pathway into an image, and finding the object under the mouse.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DrawBenchmark
+{
+	static final int POINTS = 1000;
+
+	@Param({"example-data/Hs_Apoptosis.gpml", "testData/WP248_2010a.gpml"})
+	public String file;
+
+	@Param({"100", "25"})
+	public double zoom;
+
+	private VPathway vpwy;
+	private BufferedImage image;
+	private Point2D[] points;
+
+	@Setup
+	public void setUp() throws ConverterException
+	{
+		Pathway pwy = BenchmarkData.readPathway(file);
+		vpwy = new VPathway(null);
+		vpwy.fromModel(pwy);
+		vpwy.setPctZoom(zoom);
+		image = new BufferedImage(vpwy.getVWidth(), vpwy.getVHeight(), BufferedImage.TYPE_INT_RGB);
+
+		Random random = new Random(42);
+		points = new Point2D[POINTS];
+		for (int i = 0; i < POINTS; ++i)
+		{
+			points[i] = new Point2D.Double(random.nextDouble() * vpwy.getVWidth(),
+					random.nextDouble() * vpwy.getVHeight());
+		}
+	}
+
+	@TearDown
+	public void tearDown()
+	{
+		vpwy.dispose();
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public void draw()
+	{
+		Graphics2D g = image.createGraphics();
+		vpwy.draw(g);
+		g.dispose();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(POINTS)
+	public int getObjectAt()
+	{
+		int hits = 0;
+		for (Point2D p : points)
+		{
+			VPathwayElement e = vpwy.getObjectAt(p);
+			if (e != null) hits++;
+		}
+		return hits;
+	}
+}
@@ -0,0 +1,139 @@
+/*******************************************************************************
+ * PathVisio, a tool for data visualization and analysis using biological pathways
+ * Copyright 2006-2019 BiGCaT Bioinformatics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.pathvisio.benchmark;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.bridgedb.Xref;
+import org.bridgedb.rdb.construct.DBConnector;
+import org.bridgedb.rdb.construct.DataDerby;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.pathvisio.data.RowCursor;
+import org.pathvisio.desktop.data.DBConnHsqldb;
+import org.pathvisio.desktop.gex.SimpleGex;
+
+/**
+ * Import and query time of an expression dataset in the Derby and the HSQLDB backend.
+ * The default size is 500,000 rows of 20 samples, 10 million values, which takes a while;
+ * pass for example -p rows=50000 for a quick comparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class GexBackendBenchmark
+{
+	static final int SAMPLES = 20;
+	static final int QUERY_SIZE = 100;
+
+	@Param({"derby", "hsqldb"})
+	public String backend;
+
+	@Param({"500000"})
+	public int rows;
+
+	private File dir;
+	private SimpleGex gex;
+	private List<Set<Xref>> queries;
+	private int imports = 0;
+
+	private DBConnector createConnector()
+	{
+		return "hsqldb".equals(backend) ? new DBConnHsqldb() : new DataDerby();
+	}
+
+	@Setup
+	public void setUp() throws Exception
+	{
+		dir = BenchmarkData.createTempDir("pv-benchmark");
+		File data = new File(dir, "query");
+		data.mkdir();
+		gex = BenchmarkData.createGex(data, rows, SAMPLES, createConnector());
+
+		// queries of the size of a typical pathway
+		Random random = new Random(42);
+		queries = new ArrayList<Set<Xref>>();
+		for (int q = 0; q < 10; ++q)
+		{
+			Set<Xref> refs = new HashSet<Xref>();
+			for (int i = 0; i < QUERY_SIZE; ++i) refs.add(BenchmarkData.gene(random.nextInt(rows)));
+			queries.add(refs);
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws Exception
+	{
+		gex.close();
+		BenchmarkData.delete(dir);
+	}
+
+	/** import the whole dataset, including finalizing it */
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	public String importData() throws Exception
+	{
+		File target = new File(dir, "import" + (imports++));
+		target.mkdir();
+		SimpleGex result = BenchmarkData.createGex(target, rows, SAMPLES, createConnector());
+		result.close();
+		return result.getDbName();
+	}
+
+	/** look up the data for ten pathways worth of genes */
+	@Benchmark
+	public int getData() throws Exception
+	{
+		int result = 0;
+		for (Set<Xref> refs : queries)
+		{
+			result += gex.getData(refs).size();
+		}
+		return result;
+	}
+
+	/** read one sample of the whole dataset */
+	@Benchmark
+	public double scan() throws Exception
+	{
+		double sum = 0;
+		RowCursor cursor = gex.scan(Collections.singletonList(gex.getSample(0)), 1000);
+		try
+		{
+			while (cursor.next()) sum += cursor.getDouble(0);
+		}
+		finally
+		{
+			cursor.close();
+		}
+		return sum;
+	}
+}
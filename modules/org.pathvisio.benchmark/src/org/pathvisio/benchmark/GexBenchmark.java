@@ -0,0 +1,166 @@
+/*******************************************************************************
+ * PathVisio, a tool for data visualization and analysis using biological pathways
+ * Copyright 2006-2019 BiGCaT Bioinformatics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.pathvisio.benchmark;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.bridgedb.IDMapperStack;
+import org.bridgedb.Xref;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.pathvisio.data.IRow;
+import org.pathvisio.data.RowCursor;
+import org.pathvisio.desktop.gex.CachedData;
+import org.pathvisio.desktop.gex.SimpleGex;
+import org.pathvisio.desktop.visualization.Criterion;
+import org.pathvisio.statistics.StatisticsResult;
+import org.pathvisio.statistics.ZScoreCalculator;
+
+/**
+ * Queries on a generated expression dataset, and statistics on generated pathways
+ * that refer to it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class GexBenchmark
+{
+	static final int GENES = 5000;
+	static final int PATHWAYS = 50;
+	static final int PATHWAY_SIZE = 100;
+
+	private File dir;
+	private File pwDir;
+	private SimpleGex gex;
+	private Criterion criterion;
+	private List<Set<Xref>> queries;
+
+	@Setup
+	public void setUp() throws Exception
+	{
+		dir = BenchmarkData.createTempDir("pv-benchmark");
+		pwDir = new File(dir, "pathways");
+		pwDir.mkdir();
+		gex = BenchmarkData.createGex(dir, GENES);
+		BenchmarkData.writePathways(pwDir, PATHWAYS, PATHWAY_SIZE, GENES);
+
+		criterion = new Criterion();
+		criterion.setExpression("[fc] > 1.0 AND [p] < 0.05", gex.getSampleNames());
+
+		// queries of the size of a typical pathway
+		Random random = new Random(42);
+		queries = new ArrayList<Set<Xref>>();
+		for (int q = 0; q < 10; ++q)
+		{
+			Set<Xref> refs = new HashSet<Xref>();
+			for (int i = 0; i < PATHWAY_SIZE; ++i) refs.add(BenchmarkData.gene(random.nextInt(GENES)));
+			queries.add(refs);
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws Exception
+	{
+		gex.close();
+		BenchmarkData.delete(dir);
+	}
+
+	/** look up the data for ten pathways worth of genes */
+	@Benchmark
+	public int getData() throws Exception
+	{
+		int rows = 0;
+		for (Set<Xref> refs : queries)
+		{
+			Collection<? extends IRow> result = gex.getData(refs);
+			rows += result.size();
+		}
+		return rows;
+	}
+
+	/** read the whole dataset, as done for the totals of the statistics */
+	@Benchmark
+	public int iterate() throws Exception
+	{
+		int rows = 0;
+		for (IRow row : gex.getIterator())
+		{
+			if (row != null) rows++;
+		}
+		return rows;
+	}
+
+	/** read one sample of the whole dataset with a cursor */
+	@Benchmark
+	public double scan() throws Exception
+	{
+		double sum = 0;
+		RowCursor cursor = gex.scan(Collections.singletonList(gex.findSample("fc")), 1000);
+		try
+		{
+			while (cursor.next()) sum += cursor.getDouble(0);
+		}
+		finally
+		{
+			cursor.close();
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public StatisticsResult zscoreAlternative() throws Exception
+	{
+		CachedData cache = new CachedData(gex);
+		try
+		{
+			return new ZScoreCalculator(criterion, pwDir, cache, new IDMapperStack(), null).calculateAlternative();
+		}
+		finally
+		{
+			cache.dispose();
+		}
+	}
+
+	/** includes the permutation test */
+	@Benchmark
+	public StatisticsResult zscoreMappFinder() throws Exception
+	{
+		CachedData cache = new CachedData(gex);
+		try
+		{
+			return new ZScoreCalculator(criterion, pwDir, cache, new IDMapperStack(), null).calculateMappFinder();
+		}
+		finally
+		{
+			cache.dispose();
+		}
+	}
+}
@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * PathVisio, a tool for data visualization and analysis using biological pathways
+ * Copyright 2006-2019 BiGCaT Bioinformatics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.pathvisio.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.pathvisio.core.model.ConverterException;
+import org.pathvisio.core.model.GpmlFormat;
+import org.pathvisio.core.model.Pathway;
+import org.pathvisio.core.model.PathwaySnapshot;
+
+/**
+ * Reading and writing GPML, from and to memory so that disk speed doesn't count.
+ * Reading a {@link PathwaySnapshot} of the same pathway is included for comparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class GpmlBenchmark
+{
+	@Param({
+		"example-data/Hs_Apoptosis.gpml",
+		"example-data/Hs_Cell_cycle_KEGG.gpml",
+		"testData/WP248_2010a.gpml",
+		"testData/WP248_2008a.gpml"})
+	public String file;
+
+	private byte[] bytes;
+	private Pathway pathway;
+	private byte[] snapshot;
+
+	@Setup
+	public void setUp() throws IOException, ConverterException
+	{
+		File f = BenchmarkData.getFile(file);
+		bytes = new byte[(int)f.length()];
+		InputStream in = new FileInputStream(f);
+		try
+		{
+			int pos = 0;
+			while (pos < bytes.length) pos += in.read(bytes, pos, bytes.length - pos);
+		}
+		finally
+		{
+			in.close();
+		}
+		pathway = BenchmarkData.readPathway(file);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		PathwaySnapshot.write(pathway, out);
+		snapshot = out.toByteArray();
+	}
+
+	@Benchmark
+	public Pathway read() throws ConverterException
+	{
+		Pathway result = new Pathway();
+		result.readFromXml(new ByteArrayInputStream(bytes), false);
+		return result;
+	}
+
+	@Benchmark
+	public int write() throws ConverterException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length);
+		GpmlFormat.writeToXml(pathway, out, false);
+		return out.size();
+	}
+
+	@Benchmark
+	public Pathway readSnapshot() throws ConverterException
+	{
+		return PathwaySnapshot.read(new ByteArrayInputStream(snapshot));
+	}
+
+	@Benchmark
+	public int writeSnapshot() throws ConverterException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream(snapshot.length);
+		PathwaySnapshot.write(pathway, out);
+		return out.size();
+	}
+}
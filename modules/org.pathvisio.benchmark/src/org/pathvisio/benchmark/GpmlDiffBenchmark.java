@@ -0,0 +1,57 @@
+/*******************************************************************************
+ * PathVisio, a tool for data visualization and analysis using biological pathways
+ * Copyright 2006-2019 BiGCaT Bioinformatics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.pathvisio.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.pathvisio.core.gpmldiff.BasicCost;
+import org.pathvisio.core.gpmldiff.BetterSim;
+import org.pathvisio.core.gpmldiff.PwyDoc;
+import org.pathvisio.core.gpmldiff.SearchNode;
+
+/**
+ * Finding the correspondence between two versions of the same pathway.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class GpmlDiffBenchmark
+{
+	private PwyDoc oldDoc;
+	private PwyDoc newDoc;
+
+	@Setup
+	public void setUp()
+	{
+		BenchmarkData.init();
+		oldDoc = PwyDoc.read(BenchmarkData.getFile("testData/WP248_2008a.gpml"));
+		newDoc = PwyDoc.read(BenchmarkData.getFile("testData/WP248_2010a.gpml"));
+	}
+
+	@Benchmark
+	public SearchNode findCorrespondence()
+	{
+		return oldDoc.findCorrespondence(newDoc, new BetterSim(), new BasicCost());
+	}
+}
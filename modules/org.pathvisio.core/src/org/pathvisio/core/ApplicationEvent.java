@@ -35,6 +35,10 @@ public class ApplicationEvent extends EventObject
 		APPLICATION_CLOSE, 
 
 		//TODO: what is difference between VPATHWAY_NEW and VPATHWAY_CREATED???
+		/**
+		 * for events when a VPathway is created. When a pathway is opened, the
+		 * VPathway is already shown while it is built, but this is only fired once it is complete.
+		 */
 		VPATHWAY_CREATED,
 		VPATHWAY_OPENED,
 		VPATHWAY_NEW,
@@ -35,6 +35,7 @@
 import org.pathvisio.core.model.Pathway;
 import org.pathvisio.core.model.PathwayExporter;
 import org.pathvisio.core.model.PathwayImporter;
+import org.pathvisio.core.model.PathwaySnapshot;
 import org.pathvisio.core.util.FileUtils;
 import org.pathvisio.core.util.Utils;
 import org.pathvisio.core.view.VPathway;
@@ -199,24 +200,78 @@ public void importPathway(File file) throws ConverterException
 			throw new ConverterException( "Could not determine importer for '" + FileUtils.getExtension(file.toString()) +  "' files" );
 	}
 
+	/** Maximum time the EDT is kept busy in one go while building a VPathway */
+	private static final long LOAD_STEP_MSEC = 40;
+
+	/** Number of elements built between checks of the step time */
+	private static final int LOAD_STEP_SIZE = 50;
+
 	/**
 	 * After loading a pathway from disk,
 	 * run createVPathway on EDT thread to prevent concurrentModificationException
+	 * <p>
+	 * If there is a wrapper, the VPathway is built in short steps on the EDT,
+	 * starting with the visible area, so that the window stays responsive and
+	 * the pathway is shown while the rest is built. This method returns, and
+	 * VPATHWAY_CREATED, PATHWAY_OPENED and VPATHWAY_OPENED are fired, after the VPathway is complete,
+	 * so listeners of those events can rely on all elements being there.
 	 */
 	private void newPathwayHelper(final Pathway pathway) throws ConverterException
 	{
 		try {
-			// switch back to EDT
+			if (wrapper == null)
+			{
+				// switch back to EDT
+				SwingUtilities.invokeAndWait(new Runnable()
+				{
+					public void run()
+					{
+						createVPathway(pathway);
+						firePathwayOpened(pathway);
+					}
+				});
+				return;
+			}
+
+			final VPathway[] loading = new VPathway[1];
 			SwingUtilities.invokeAndWait(new Runnable()
 			{
 				public void run()
 				{
-					createVPathway(pathway);
-					fireApplicationEvent(new ApplicationEvent(pathway, ApplicationEvent.Type.PATHWAY_OPENED));
-					if (vPathway != null)
+					loading[0] = startVPathway(pathway);
+				}
+			});
+
+			final boolean[] more = new boolean[] { true };
+			while (more[0])
+			{
+				SwingUtilities.invokeAndWait(new Runnable()
+				{
+					public void run()
 					{
-						fireApplicationEvent(new ApplicationEvent(vPathway, ApplicationEvent.Type.VPATHWAY_OPENED));
+						if (loading[0] != vPathway)
+						{
+							// replaced by another pathway in the meantime
+							more[0] = false;
+							return;
+						}
+						long end = System.currentTimeMillis() + LOAD_STEP_MSEC;
+						do
+						{
+							more[0] = vPathway.loadNext(LOAD_STEP_SIZE);
+						}
+						while (more[0] && System.currentTimeMillis() < end);
 					}
+				});
+			}
+
+			SwingUtilities.invokeAndWait(new Runnable()
+			{
+				public void run()
+				{
+					if (loading[0] != vPathway) return;
+					fireApplicationEvent(new ApplicationEvent(vPathway, ApplicationEvent.Type.VPATHWAY_CREATED));
+					firePathwayOpened(pathway);
 				}
 			});
 		} catch (InterruptedException e) {
@@ -226,11 +281,49 @@ public void run()
 		}
 	}
 
+	private void firePathwayOpened(Pathway pathway)
+	{
+		fireApplicationEvent(new ApplicationEvent(pathway, ApplicationEvent.Type.PATHWAY_OPENED));
+		if (vPathway != null)
+		{
+			fireApplicationEvent(new ApplicationEvent(vPathway, ApplicationEvent.Type.VPATHWAY_OPENED));
+		}
+	}
+
+	/**
+	 * Replace the current VPathway with a new one that is still loading,
+	 * with only the visible area built. Must be called on the EDT, and only if there is a wrapper.
+	 * @see VPathway#startLoading(Pathway)
+	 */
+	private VPathway startVPathway(Pathway p)
+	{
+		double zoom = replaceVPathway();
+		// the wrapper shows the new VPathway when loading starts,
+		// so the view rect below is the one of the new pathway
+		vPathway.startLoading(p);
+
+		vPathway.setPctZoom(zoom);
+		vPathway.loadArea(wrapper.getViewRect());
+		return vPathway;
+	}
+
 	public void openPathwayFromMemory(Pathway pathway) throws ConverterException
 	{
 		newPathwayHelper(pathway);
 	}
 	
+	private File snapshotCacheDir = null;
+
+	/**
+	 * Set a directory for snapshots of opened pathways, so that a pathway
+	 * that is opened again doesn't need to be parsed, see {@link PathwaySnapshot#readCached(File, File, boolean)}.
+	 * @param dir the cache directory, or null to always read the GPML (the default).
+	 */
+	public void setSnapshotCacheDir(File dir)
+	{
+		snapshotCacheDir = dir;
+	}
+
 	/**
 	 * Open a pathway from a gpml file
 	 */
@@ -239,8 +332,16 @@ public void openPathway(File pathwayFile) throws ConverterException
 		String pwf = pathwayFile.toString();
 
 		// initialize new JDOM gpml representation and read the file
-		final Pathway pathway = new Pathway();
-		pathway.readFromXml(new File(pwf), true);
+		final Pathway pathway;
+		if (snapshotCacheDir != null)
+		{
+			pathway = PathwaySnapshot.readCached(new File(pwf), snapshotCacheDir, true);
+		}
+		else
+		{
+			pathway = new Pathway();
+			pathway.readFromXml(new File(pwf), true);
+		}
 		//Only set the pathway field after the data is loaded
 		//(Exception thrown on error, this part will not be reached)
 		newPathwayHelper(pathway);
@@ -312,18 +413,7 @@ public void createVPathway(Pathway p)
 		}
 		else
 		{
-			double zoom = 100;
-			if(hasVPathway())
-			{
-				// save zoom Level
-				zoom = getActiveVPathway().getPctZoom();
-
-				disposeVPathway();
-			}
-
-			vPathway = wrapper.createVPathway();
-			vPathway.registerKeyboardActions(this);
-			vPathway.activateUndoManager(this);
+			double zoom = replaceVPathway();
 			vPathway.fromModel(p);
 
 			vPathway.setPctZoom(zoom);
@@ -331,6 +421,27 @@ public void createVPathway(Pathway p)
 		}
 	}
 
+	/**
+	 * Dispose the current VPathway, if any, and replace it with an empty one from the wrapper.
+	 * @return the zoom level of the old VPathway, to use for the new one.
+	 */
+	private double replaceVPathway()
+	{
+		double zoom = 100;
+		if(hasVPathway())
+		{
+			// save zoom Level
+			zoom = getActiveVPathway().getPctZoom();
+
+			disposeVPathway();
+		}
+
+		vPathway = wrapper.createVPathway();
+		vPathway.registerKeyboardActions(this);
+		vPathway.activateUndoManager(this);
+		return zoom;
+	}
+
 	/**
 	   used by undo manager
 	 */
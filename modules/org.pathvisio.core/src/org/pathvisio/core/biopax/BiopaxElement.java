@@ -17,9 +17,12 @@
 package org.pathvisio.core.biopax;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Random;
+import java.util.Set;
 
 import org.jdom2.Document;
 import org.jdom2.Element;
@@ -56,6 +59,12 @@ public BiopaxElement()
 	 */
 	private Map<Class<? extends BiopaxNode>, Map<String, Integer>> ordinal;
 
+	/**
+	 * Reverse index: biopax id -> pathway elements that refer to it.
+	 * Kept up to date by the parent Pathway, see {@link #addReference(String, PathwayElement)}.
+	 */
+	private Map<String, Set<PathwayElement>> referrers = new HashMap<String, Set<PathwayElement>>();
+
 	/**
 	 * Check if the pathway element that contains the biopax document has changed
 	 * and update the biopax hashmap if needed.
@@ -112,20 +121,67 @@ public void removeElement(BiopaxNode e) {
 	/**
 	 * Checks if there are any references to the given biopax
 	 * element in the pathway.
-	 * This method will do a linear search on all pathway elements,
-	 * so could be slow!
-	 * @param p
-	 * @param e
-	 * @return
 	 */
 	public boolean hasReferences(BiopaxNode e) {
-		//Check for references in child objects
+		return hasReferences(e.getId());
+	}
+
+	/**
+	 * Checks if there are any references to the biopax element
+	 * with the given id in the pathway.
+	 */
+	public boolean hasReferences(String id) {
+		return referrers.containsKey(id);
+	}
+
+	/**
+	 * Get the pathway elements that refer to the biopax element with the given id.
+	 * @return an unmodifiable set, empty if there are no references.
+	 */
+	public Set<PathwayElement> getReferringElements(String id) {
+		Set<PathwayElement> result = referrers.get(id);
+		if(result == null) return Collections.emptySet();
+		return Collections.unmodifiableSet(result);
+	}
+
+	/**
+	 * Register a reference from a pathway element to a biopax id.
+	 * Called by the parent Pathway when a reference is added, or when an element
+	 * with references is added to the pathway.
+	 */
+	public void addReference(String id, PathwayElement pwe) {
+		Set<PathwayElement> set = referrers.get(id);
+		if(set == null) {
+			set = new LinkedHashSet<PathwayElement>(4);
+			referrers.put(id, set);
+		}
+		set.add(pwe);
+	}
+
+	/**
+	 * Unregister a reference from a pathway element to a biopax id.
+	 * Called by the parent Pathway when a reference is removed, or when an element
+	 * with references is removed from the pathway.
+	 */
+	public void removeReference(String id, PathwayElement pwe) {
+		Set<PathwayElement> set = referrers.get(id);
+		if(set == null) return;
+		set.remove(pwe);
+		if(set.isEmpty()) referrers.remove(id);
+	}
+
+	/**
+	 * Build the reverse index from scratch, from the elements of the parent pathway.
+	 * Called by the parent Pathway when this element is added to it.
+	 */
+	public void rebuildReferences() {
+		referrers.clear();
+		if(parent == null) return;
 		for(PathwayElement pwe : parent.getDataObjects()) {
-			if(pwe.getBiopaxRefs().contains(e.getId())) {
-				return true;
+			for(String ref : pwe.getBiopaxRefs()) {
+				addReference(ref, pwe);
 			}
 		}
-		return false;
 	}
 
 	/**
@@ -337,6 +393,8 @@ public void copyValuesFrom(PathwayElement src) {
 		this.biopax = srcElement.biopax;
 		this.ordinal = srcElement.ordinal;
 		this.random = srcElement.random;
+		// references are rebuilt when this element is added to a pathway
+		this.referrers = new HashMap<String, Set<PathwayElement>>();
 	}
 
 }
@@ -20,8 +20,14 @@
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.swing.AbstractListModel;
+import javax.swing.SwingUtilities;
 
 import org.bridgedb.BridgeDb;
 import org.bridgedb.IDMapper;
@@ -266,6 +272,126 @@ public void initPreferred()
 		}
 	}
 
+	// the preferred databases, in the order in which initPreferred adds them
+	private static final GlobalPreference[] PREFERRED = {
+		GlobalPreference.DB_CONNECTSTRING_GDB,
+		GlobalPreference.DB_CONNECTSTRING_METADB,
+		GlobalPreference.DB_CONNECTSTRING_IDB
+	};
+
+	/**
+	 * Same as {@link #initPreferred()}, but the databases are opened side by side
+	 * in a background thread, so that the application can be used in the meantime.
+	 * Opening a large Derby database may take several seconds.
+	 * <p>
+	 * The databases are added on the event dispatch thread, in the same
+	 * order as initPreferred. A database is skipped if the user has selected
+	 * another one in the meantime.
+	 * @param whenDone called on the event dispatch thread after the databases have been added, may be null
+	 */
+	public void initPreferredInBackground(final Runnable whenDone)
+	{
+		final PreferenceManager prefs = PreferenceManager.getCurrent();
+		final String[] names = new String[PREFERRED.length];
+		for (int i = 0; i < PREFERRED.length; ++i)
+		{
+			String name = prefs.get(PREFERRED[i]);
+			if (!name.equals("") && !prefs.isDefault(PREFERRED[i])) names[i] = name;
+		}
+
+		Thread t = new Thread("Connect databases")
+		{
+			public void run()
+			{
+				final IDMapper[] mappers = connectAll(names);
+				SwingUtilities.invokeLater(new Runnable()
+				{
+					public void run()
+					{
+						for (int i = 0; i < PREFERRED.length; ++i)
+						{
+							if (mappers[i] != null) addPreferred(PREFERRED[i], mappers[i], names[i]);
+						}
+						if (whenDone != null) whenDone.run();
+					}
+				});
+			}
+		};
+		t.setDaemon(true);
+		t.start();
+	}
+
+	/**
+	 * Connect to all given databases at the same time.
+	 * @param names connection strings, may contain null
+	 * @return the connected mappers, null where the name was null or the connection failed.
+	 */
+	private static IDMapper[] connectAll(final String[] names)
+	{
+		ExecutorService executor = Executors.newFixedThreadPool(names.length);
+		List<Future<IDMapper>> futures = new ArrayList<Future<IDMapper>>();
+		for (final String name : names)
+		{
+			futures.add(name == null ? null : executor.submit(new Callable<IDMapper>()
+			{
+				public IDMapper call() throws IDMapperException
+				{
+					return BridgeDb.connect(name);
+				}
+			}));
+		}
+		executor.shutdown();
+
+		IDMapper[] result = new IDMapper[names.length];
+		for (int i = 0; i < names.length; ++i)
+		{
+			if (futures.get(i) == null) continue;
+			try
+			{
+				result[i] = futures.get(i).get();
+			}
+			catch (ExecutionException e)
+			{
+				Logger.log.error("Setting previous database " + names[i] + " failed.", e.getCause());
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Add a database opened by initPreferredInBackground, unless the user
+	 * has selected another one in the meantime.
+	 */
+	private void addPreferred(GlobalPreference pref, IDMapper mapper, String connectString)
+	{
+		IDMapper current;
+		if (pref == GlobalPreference.DB_CONNECTSTRING_GDB) current = genes;
+		else if (pref == GlobalPreference.DB_CONNECTSTRING_METADB) current = metabolites;
+		else current = interactions;
+
+		try
+		{
+			if (current != null || !connectString.equals(PreferenceManager.getCurrent().get(pref)))
+			{
+				Logger.log.infof("Not using previous database %s, another one was selected", connectString);
+				mapper.close();
+				return;
+			}
+			if (pref == GlobalPreference.DB_CONNECTSTRING_GDB) genes = mapper;
+			else if (pref == GlobalPreference.DB_CONNECTSTRING_METADB) metabolites = mapper;
+			else interactions = mapper;
+			addMapper(mapper, connectString);
+		}
+		catch (IDMapperException e)
+		{
+			Logger.log.error("Setting previous database " + connectString + " failed.", e);
+		}
+	}
+
 	public Object getElementAt(int arg0)
 	{
 		return currentGdb.getIDMapperAt(arg0);
@@ -16,9 +16,14 @@
  ******************************************************************************/
 package org.pathvisio.core.debug;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.PrintStream;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
 /**
 	Logs output to a stream, with the option to filter for types of messages
@@ -30,20 +35,36 @@
 		4: warn
 		5: error
 		6: fatal
+
+	Messages are written by the calling thread, unless the logger is
+	switched to asynchronous mode with {@link #setAsync(boolean)}. In that mode
+	callers only put the message in a queue, and a background thread
+	does the formatting and writing. Start PathVisio with
+	<code>-Dpathvisio.log.async=true</code> to switch it on from the start.
+	<p>
+	To avoid building a message that is discarded anyway, use the
+	methods with format arguments, e.g. <code>infof ("Loaded %s", pwy)</code>,
+	or check {@link #isInfoEnabled()} first.
 */
 public class Logger
 {
-	private boolean debugEnabled = true;
-	private boolean traceEnabled = false;
-	private boolean infoEnabled = true;
-	private boolean warnEnabled = true;
-	private boolean errorEnabled = true;
-	private boolean fatalEnabled = true;
+	private volatile boolean debugEnabled = true;
+	private volatile boolean traceEnabled = false;
+	private volatile boolean infoEnabled = true;
+	private volatile boolean warnEnabled = true;
+	private volatile boolean errorEnabled = true;
+	private volatile boolean fatalEnabled = true;
 
-	private PrintStream s = System.err;
+	private volatile PrintStream s = System.err;
 
 	public PrintStream getStream () { return s; }
-	public void setStream (PrintStream aStream) { s = aStream; }
+
+	/** Switch to another stream. Queued messages still go to the old stream. */
+	public void setStream (PrintStream aStream)
+	{
+		flush();
+		s = aStream;
+	}
 
 	/**
 	 * if dest is "STDERR" or "STDOUT", the
@@ -55,21 +76,22 @@ public void setDest(String dest)
 		if (dest != null) {
 			if (dest.equals ("STDERR"))
 			{
-				s = System.err;
+				setStream (System.err);
 			}
 			else if (dest.equals("STDOUT"))
 			{
-				s = System.out;
+				setStream (System.out);
 			}
 			else
 			{
 				try
 				{
-					s = new PrintStream (new File (dest));
+					// buffered, the stream is flushed after each message or batch of messages
+					setStream (new PrintStream (new BufferedOutputStream (new FileOutputStream (new File (dest)), BUFFER_SIZE)));
 				}
 				catch (FileNotFoundException e)
 				{
-					s = System.err;
+					setStream (System.err);
 					error ("Could not open log file " + dest + " for writing", e);
 				}
 			}
@@ -100,54 +122,265 @@ public void setLogLevel (boolean debug, boolean trace, boolean info,
 		fatalEnabled = fatal;
 	}
 
-	private static final String FORMAT_STRING = "[%10.3f] ";
+	public boolean isTraceEnabled() { return traceEnabled; }
+	public boolean isDebugEnabled() { return debugEnabled; }
+	public boolean isInfoEnabled() { return infoEnabled; }
+	public boolean isWarnEnabled() { return warnEnabled; }
+	public boolean isErrorEnabled() { return errorEnabled; }
+	public boolean isFatalEnabled() { return fatalEnabled; }
+
+	// no time stamp
+	private static final long NO_TIME = -1;
 
-	public void trace (String msg)
+	public void trace (String msg) { if (traceEnabled) write (logTimer.look(), "Trace: ", msg, null); }
+	public void debug (String msg) { if (debugEnabled) write (logTimer.look(), "Debug: ", msg, null); }
+	public void info  (String msg) { if (infoEnabled) write (logTimer.look(), "Info:  ", msg, null); }
+
+	public void warn  (String msg) { if (warnEnabled) write (NO_TIME, "Warn:  ", msg, null); }
+
+	public void warn  (String msg, Throwable e)
 	{
-		if (traceEnabled)
+		if (warnEnabled || debugEnabled)
 		{
-			s.printf (FORMAT_STRING , logTimer.look() / 1000.0f);
-			s.println ("Trace: " + msg);
+			write (NO_TIME, warnEnabled ? "Warn:  " : null, msg + "\n\t" + e.getMessage(), debugEnabled ? e : null);
 		}
 	}
 
-	public void debug (String msg)
+	public void error (String msg) { if (errorEnabled) write (NO_TIME, "Error: ", msg, null); }
+	public void error (String msg, Throwable e)
 	{
-		if (debugEnabled)
+		if (errorEnabled || debugEnabled)
 		{
-			s.printf (FORMAT_STRING , logTimer.look() / 1000.0f);
-			s.println ("Debug: " + msg);
+			write (NO_TIME, errorEnabled ? "Error: " : null,
+					msg + (e != null ? "\n\t" + e.toString() + ": " + e.getMessage() : ""), debugEnabled ? e : null);
 		}
 	}
+	public void fatal (String msg) { if (fatalEnabled) write (NO_TIME, "Fatal: ", msg, null); }
+
+	/*
+	 * Same as above, with a message built by String.format only if the level is enabled.
+	 * Not overloads of the methods above, because error (msg, null) would be ambiguous.
+	 * The one and two argument versions avoid the array for the arguments.
+	 */
+
+	public void tracef (String format, Object arg) { if (traceEnabled) trace (String.format (format, arg)); }
+	public void tracef (String format, Object arg1, Object arg2) { if (traceEnabled) trace (String.format (format, arg1, arg2)); }
+	public void tracef (String format, Object... args) { if (traceEnabled) trace (String.format (format, args)); }
+
+	public void debugf (String format, Object arg) { if (debugEnabled) debug (String.format (format, arg)); }
+	public void debugf (String format, Object arg1, Object arg2) { if (debugEnabled) debug (String.format (format, arg1, arg2)); }
+	public void debugf (String format, Object... args) { if (debugEnabled) debug (String.format (format, args)); }
+
+	public void infof  (String format, Object arg) { if (infoEnabled) info (String.format (format, arg)); }
+	public void infof  (String format, Object arg1, Object arg2) { if (infoEnabled) info (String.format (format, arg1, arg2)); }
+	public void infof  (String format, Object... args) { if (infoEnabled) info (String.format (format, args)); }
+
+	public void warnf  (String format, Object arg) { if (warnEnabled) warn (String.format (format, arg)); }
+	public void warnf  (String format, Object arg1, Object arg2) { if (warnEnabled) warn (String.format (format, arg1, arg2)); }
+	public void warnf  (String format, Object... args) { if (warnEnabled) warn (String.format (format, args)); }
 
-	public void info  (String msg)
+	public void errorf (String format, Object arg) { if (errorEnabled) error (String.format (format, arg)); }
+	public void errorf (String format, Object arg1, Object arg2) { if (errorEnabled) error (String.format (format, arg1, arg2)); }
+	public void errorf (String format, Object... args) { if (errorEnabled) error (String.format (format, args)); }
+
+	public void fatalf (String format, Object arg) { if (fatalEnabled) fatal (String.format (format, arg)); }
+	public void fatalf (String format, Object arg1, Object arg2) { if (fatalEnabled) fatal (String.format (format, arg1, arg2)); }
+	public void fatalf (String format, Object... args) { if (fatalEnabled) fatal (String.format (format, args)); }
+
+	/**
+	 * A message waiting to be written.
+	 * The time is taken when the message is logged, not when it is written.
+	 */
+	private static class Entry
 	{
-		if (infoEnabled)
+		final long time;
+		final String prefix; // null to write only the stack trace
+		final String msg;
+		final Throwable stackTrace;
+
+		Entry (long time, String prefix, String msg, Throwable stackTrace)
 		{
-			s.printf (FORMAT_STRING , logTimer.look() / 1000.0f);
-			s.println ("Info:  " + msg);
+			this.time = time;
+			this.prefix = prefix;
+			this.msg = msg;
+			this.stackTrace = stackTrace;
 		}
 	}
 
-	public void warn  (String msg) { if (warnEnabled) s.println ("Warn:  " + msg); }
+	private static final int BUFFER_SIZE = 1 << 16;
 
-	public void warn  (String msg, Throwable e)
+	// callers wait for the writer when this many messages are queued
+	private static final int MAX_QUEUED = 1 << 14;
+	// how long callers sleep while waiting for the writer
+	private static final long WAIT_NANOS = 100000;
+
+	private final ConcurrentLinkedQueue<Entry> queue = new ConcurrentLinkedQueue<Entry>();
+	private final AtomicInteger queued = new AtomicInteger();
+	private volatile Thread writer = null;
+	private volatile boolean writerSleeping = false;
+	private boolean shutdownHook = false;
+
+	private void write (long time, String prefix, String msg, Throwable stackTrace)
 	{
-		if (warnEnabled) {	s.println ("Warn:  " + msg + "\n\t" + e.getMessage()); 	}
-		if (debugEnabled) {	e.printStackTrace(s); }
+		Thread w = writer;
+		if (w == null)
+		{
+			PrintStream out = s;
+			writeEntry (out, time, prefix, msg, stackTrace);
+			out.flush();
+			return;
+		}
+		// back pressure, to limit memory use when messages come in faster than they can be written
+		while (queued.get() >= MAX_QUEUED)
+		{
+			LockSupport.unpark (w);
+			LockSupport.parkNanos (WAIT_NANOS);
+		}
+		queue.offer (new Entry (time, prefix, msg, stackTrace));
+		queued.incrementAndGet();
+		if (writer == null)
+		{
+			// switched off while we were queueing
+			drain();
+		}
+		else if (writerSleeping)
+		{
+			writerSleeping = false;
+			LockSupport.unpark (w);
+		}
 	}
 
-	public void error (String msg) { if (errorEnabled) s.println ("Error: " + msg); }
-	public void error (String msg, Throwable e)
+	/**
+	 * Format a message in one go, so messages written by different threads don't interleave.
+	 */
+	private static void writeEntry (PrintStream out, long time, String prefix, String msg, Throwable stackTrace)
 	{
-		if(errorEnabled) { error(msg + "\n\t" + e.toString() + (e != null ? ": " + e.getMessage() : "")); }
-		if(debugEnabled) { e.printStackTrace(s); }
+		if (prefix != null)
+		{
+			StringBuilder line = new StringBuilder (prefix.length() + msg.length() + 16);
+			if (time != NO_TIME) appendTime (line, time);
+			line.append (prefix).append (msg);
+			out.println (line);
+		}
+		if (stackTrace != null) stackTrace.printStackTrace (out);
 	}
-	public void fatal (String msg) { if (fatalEnabled) s.println ("Fatal: " + msg); }
 
+	/**
+	 * Append the time in seconds with millisecond precision,
+	 * right aligned in a field of 10. Faster than String.format.
+	 */
+	static void appendTime (StringBuilder line, long millis)
+	{
+		String seconds = Long.toString (millis / 1000);
+		int frac = (int)(millis % 1000);
+		line.append ('[');
+		for (int i = seconds.length() + 4; i < 10; ++i) line.append (' ');
+		line.append (seconds).append ('.');
+		if (frac < 100) line.append ('0');
+		if (frac < 10) line.append ('0');
+		line.append (frac).append ("] ");
+	}
+
+	/** The background writer: write all queued messages, flush, then sleep until there are new ones */
+	private void drain()
+	{
+		Thread self = Thread.currentThread();
+		while (true)
+		{
+			PrintStream out = s;
+			boolean wrote = false;
+			Entry e;
+			while ((e = queue.poll()) != null)
+			{
+				writeEntry (out, e.time, e.prefix, e.msg, e.stackTrace);
+				queued.decrementAndGet();
+				wrote = true;
+			}
+			if (wrote) out.flush();
+			if (writer != self) return;
+			writerSleeping = true;
+			// re-check, a message may have come in before writerSleeping was set
+			if (queue.isEmpty()) LockSupport.park (this);
+			writerSleeping = false;
+		}
+	}
+
+	public boolean isAsync()
+	{
+		return writer != null;
+	}
+
+	/**
+	 * Switch asynchronous writing on or off.
+	 * When switching off, the queued messages are written first.
+	 */
+	public synchronized void setAsync (boolean value)
+	{
+		if (value == isAsync()) return;
+		if (value)
+		{
+			Thread t = new Thread ("Logger")
+			{
+				public void run()
+				{
+					drain();
+				}
+			};
+			t.setDaemon (true);
+			writer = t;
+			t.start();
+			if (!shutdownHook)
+			{
+				shutdownHook = true;
+				Runtime.getRuntime().addShutdownHook (new Thread ("Logger flush")
+				{
+					public void run()
+					{
+						flush();
+					}
+				});
+			}
+		}
+		else
+		{
+			Thread t = writer;
+			writer = null;
+			LockSupport.unpark (t);
+			try
+			{
+				t.join();
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+			// anything logged while the writer was stopping
+			drain();
+		}
+	}
+
+	/**
+	 * Wait until all queued messages are written, and flush the stream.
+	 */
+	public void flush()
+	{
+		Thread w = writer;
+		while (w != null && queued.get() > 0 && w.isAlive())
+		{
+			LockSupport.unpark (w);
+			LockSupport.parkNanos (WAIT_NANOS);
+			w = writer;
+		}
+		s.flush();
+	}
 
 	/**
 	   Global application logger
 	 */
 	public static Logger log = new Logger();
+
+	static
+	{
+		if (Boolean.getBoolean ("pathvisio.log.async")) log.setAsync (true);
+	}
 }
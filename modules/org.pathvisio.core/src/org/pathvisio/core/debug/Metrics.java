@@ -0,0 +1,478 @@
+/*******************************************************************************
+ * PathVisio, a tool for data visualization and analysis using biological pathways
+ * Copyright 2006-2019 BiGCaT Bioinformatics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.pathvisio.core.debug;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+/**
+ * Registry of named performance metrics: counters, histograms and timers.
+ * <p>
+ * Metrics are disabled by default. Instrumented code then only pays for reading a volatile flag.
+ * Start PathVisio with <code>-Dpathvisio.metrics=true</code> to enable them, and to print all
+ * metrics to the log at exit. They can also be switched on with {@link #setEnabled(boolean)}.
+ * <p>
+ * While enabled, each metric is available over JMX as <code>org.pathvisio:type=Metrics,name=...</code>,
+ * next to <code>org.pathvisio:type=Metrics</code> itself, which has operations to dump or reset
+ * all metrics. Use jconsole to look at them in a running PathVisio.
+ * <p>
+ * Metrics are usually kept in a static final field of the instrumented class:
+ * <pre>
+ * private static final Metrics.Timer PAINT_TIMER = Metrics.timer("vpathway.paint");
+ * ...
+ * long start = PAINT_TIMER.start();
+ * ...
+ * PAINT_TIMER.stop(start);
+ * </pre>
+ */
+public class Metrics
+{
+	private static final String DOMAIN = "org.pathvisio";
+
+	private static volatile boolean enabled = false;
+	private static boolean jmxRegistered = false;
+
+	// sorted by name, for dumping
+	private static final Map<String, Metric> metrics = new TreeMap<String, Metric>();
+
+	static
+	{
+		if (Boolean.getBoolean("pathvisio.metrics"))
+		{
+			setEnabled(true);
+			Runtime.getRuntime().addShutdownHook(new Thread("metrics dump")
+			{
+				public void run()
+				{
+					dump(Logger.log.getStream());
+				}
+			});
+		}
+	}
+
+	/** Attributes of a counter, as shown over JMX */
+	public interface CounterMBean
+	{
+		public long getValue();
+		public void reset();
+	}
+
+	/** Attributes of a histogram or timer, as shown over JMX. Timers are in milliseconds. */
+	public interface HistogramMBean
+	{
+		public long getCount();
+		public double getTotal();
+		public double getMean();
+		public double getMin();
+		public double getMax();
+		public double getMedian();
+		public double getPercentile90();
+		public double getPercentile99();
+		public void reset();
+	}
+
+	/** Operations on the registry, as shown over JMX */
+	public interface RegistryMBean
+	{
+		public boolean isEnabled();
+		public void setEnabled(boolean value);
+		public String dump();
+		public void reset();
+	}
+
+	private static class Registry implements RegistryMBean
+	{
+		public boolean isEnabled() { return Metrics.isEnabled(); }
+		public void setEnabled(boolean value) { Metrics.setEnabled(value); }
+		public String dump() { return Metrics.dump(); }
+		public void reset() { Metrics.reset(); }
+	}
+
+	/**
+	 * Base class of all metrics.
+	 */
+	public static abstract class Metric
+	{
+		private final String name;
+
+		Metric(String name)
+		{
+			this.name = name;
+		}
+
+		public String getName()
+		{
+			return name;
+		}
+
+		public abstract void reset();
+
+		/** one line summary of the current value */
+		abstract String summary();
+
+		abstract StandardMBean createMBean() throws JMException;
+	}
+
+	/**
+	 * Counts events, e.g. cache hits.
+	 */
+	public static class Counter extends Metric implements CounterMBean
+	{
+		private final AtomicLong value = new AtomicLong();
+
+		Counter(String name)
+		{
+			super(name);
+		}
+
+		@ThreadSafe
+		public void inc()
+		{
+			if (enabled) value.incrementAndGet();
+		}
+
+		@ThreadSafe
+		public void add(long delta)
+		{
+			if (enabled) value.addAndGet(delta);
+		}
+
+		public long getValue()
+		{
+			return value.get();
+		}
+
+		public void reset()
+		{
+			value.set(0);
+		}
+
+		String summary()
+		{
+			return "" + getValue();
+		}
+
+		StandardMBean createMBean() throws JMException
+		{
+			return new StandardMBean(this, CounterMBean.class);
+		}
+	}
+
+	/**
+	 * Distribution of non-negative values, e.g. the number of rows in a result.
+	 * Values are counted in buckets of powers of two, so percentiles are accurate
+	 * to within a factor of two, and recording a value never allocates memory.
+	 */
+	public static class Histogram extends Metric implements HistogramMBean
+	{
+		// bucket i holds values v with 2^(i-1) <= v < 2^i, and bucket 0 holds zero
+		private final AtomicLongArray buckets = new AtomicLongArray(65);
+		private final AtomicLong count = new AtomicLong();
+		private final AtomicLong total = new AtomicLong();
+		private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+		private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+		private final double scale;
+
+		Histogram(String name, double scale)
+		{
+			super(name);
+			this.scale = scale;
+		}
+
+		@ThreadSafe
+		public void update(long value)
+		{
+			if (enabled) record(value);
+		}
+
+		void record(long value)
+		{
+			if (value < 0) value = 0;
+			buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(value));
+			count.incrementAndGet();
+			total.addAndGet(value);
+			long m;
+			while (value < (m = min.get()) && !min.compareAndSet(m, value)) { }
+			while (value > (m = max.get()) && !max.compareAndSet(m, value)) { }
+		}
+
+		public long getCount()
+		{
+			return count.get();
+		}
+
+		public double getTotal()
+		{
+			return total.get() * scale;
+		}
+
+		public double getMean()
+		{
+			long n = count.get();
+			return n == 0 ? 0 : getTotal() / n;
+		}
+
+		public double getMin()
+		{
+			return count.get() == 0 ? 0 : min.get() * scale;
+		}
+
+		public double getMax()
+		{
+			return count.get() == 0 ? 0 : max.get() * scale;
+		}
+
+		/**
+		 * Estimate of a percentile: the upper bound of the bucket that contains it,
+		 * but never more than the maximum.
+		 * @param fraction between 0 and 1, e.g. 0.9 for the 90th percentile
+		 */
+		public double getPercentile(double fraction)
+		{
+			long n = count.get();
+			if (n == 0) return 0;
+			long rank = (long)Math.ceil(fraction * n);
+			long seen = 0;
+			for (int i = 0; i < buckets.length(); ++i)
+			{
+				seen += buckets.get(i);
+				if (seen >= rank)
+				{
+					long upper = i == 0 ? 0 : (i >= 63 ? Long.MAX_VALUE : (1L << i) - 1);
+					return Math.min(upper, max.get()) * scale;
+				}
+			}
+			return getMax();
+		}
+
+		public double getMedian()
+		{
+			return getPercentile(0.5);
+		}
+
+		public double getPercentile90()
+		{
+			return getPercentile(0.9);
+		}
+
+		public double getPercentile99()
+		{
+			return getPercentile(0.99);
+		}
+
+		public void reset()
+		{
+			for (int i = 0; i < buckets.length(); ++i) buckets.set(i, 0);
+			count.set(0);
+			total.set(0);
+			min.set(Long.MAX_VALUE);
+			max.set(Long.MIN_VALUE);
+		}
+
+		String summary()
+		{
+			return String.format("count=%d total=%.3f mean=%.3f min=%.3f median=%.3f p90=%.3f p99=%.3f max=%.3f",
+					getCount(), getTotal(), getMean(), getMin(), getMedian(),
+					getPercentile90(), getPercentile99(), getMax());
+		}
+
+		StandardMBean createMBean() throws JMException
+		{
+			return new StandardMBean(this, HistogramMBean.class);
+		}
+	}
+
+	/**
+	 * Histogram of durations. Measured in nanoseconds, reported in milliseconds.
+	 */
+	public static class Timer extends Histogram
+	{
+		Timer(String name)
+		{
+			super(name, 1e-6);
+		}
+
+		/**
+		 * Start timing.
+		 * @return a token to pass to {@link #stop(long)}, 0 if metrics are disabled.
+		 */
+		@ThreadSafe
+		public long start()
+		{
+			return enabled ? System.nanoTime() : 0;
+		}
+
+		/**
+		 * Record the time since {@link #start()}.
+		 * Nothing is recorded if metrics were disabled at the start.
+		 */
+		@ThreadSafe
+		public void stop(long start)
+		{
+			if (start != 0 && enabled) record(System.nanoTime() - start);
+		}
+
+		/**
+		 * Record a duration measured in some other way,
+		 * e.g. with {@link StopWatch#stop(Timer)}.
+		 */
+		@ThreadSafe
+		public void updateMillis(long millis)
+		{
+			if (enabled) record(millis * 1000000L);
+		}
+
+		String summary()
+		{
+			return super.summary() + " ms";
+		}
+	}
+
+	public static boolean isEnabled()
+	{
+		return enabled;
+	}
+
+	/**
+	 * Switch recording on or off. Recorded values are kept when switching off.
+	 * Switching on for the first time makes the metrics available over JMX.
+	 */
+	public static synchronized void setEnabled(boolean value)
+	{
+		enabled = value;
+		if (value && !jmxRegistered)
+		{
+			jmxRegistered = true;
+			try
+			{
+				register(new StandardMBean(new Registry(), RegistryMBean.class), DOMAIN + ":type=Metrics");
+			}
+			catch (JMException e)
+			{
+				Logger.log.warn("Could not register metrics over JMX", e);
+			}
+			for (Metric m : metrics.values()) register(m);
+		}
+	}
+
+	private static void register(Metric m)
+	{
+		try
+		{
+			register(m.createMBean(), DOMAIN + ":type=Metrics,name=" + ObjectName.quote(m.getName()));
+		}
+		catch (JMException e)
+		{
+			Logger.log.warn("Could not register metric " + m.getName(), e);
+		}
+	}
+
+	private static void register(Object mbean, String name) throws JMException
+	{
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName on = new ObjectName(name);
+		if (server.isRegistered(on)) server.unregisterMBean(on);
+		server.registerMBean(mbean, on);
+	}
+
+	/**
+	 * Look up a metric, or create it if it doesn't exist yet.
+	 * @throws IllegalArgumentException if a metric of another type with that name exists.
+	 */
+	private static synchronized <T extends Metric> T get(String name, Class<T> type)
+	{
+		Metric m = metrics.get(name);
+		if (m == null)
+		{
+			if (type == Counter.class) m = new Counter(name);
+			else if (type == Timer.class) m = new Timer(name);
+			else m = new Histogram(name, 1.0);
+			metrics.put(name, m);
+			if (jmxRegistered) register(m);
+		}
+		if (m.getClass() != type)
+		{
+			throw new IllegalArgumentException("Metric " + name + " is a " + m.getClass().getSimpleName());
+		}
+		return type.cast(m);
+	}
+
+	public static Counter counter(String name)
+	{
+		return get(name, Counter.class);
+	}
+
+	public static Histogram histogram(String name)
+	{
+		return get(name, Histogram.class);
+	}
+
+	public static Timer timer(String name)
+	{
+		return get(name, Timer.class);
+	}
+
+	/**
+	 * All metrics, sorted by name.
+	 */
+	public static synchronized List<Metric> getMetrics()
+	{
+		return new ArrayList<Metric>(metrics.values());
+	}
+
+	/**
+	 * Clear the values of all metrics.
+	 */
+	public static void reset()
+	{
+		for (Metric m : getMetrics()) m.reset();
+	}
+
+	/**
+	 * Print all metrics, one per line, as name, a tab, and a summary.
+	 */
+	public static void dump(PrintStream out)
+	{
+		for (Metric m : getMetrics())
+		{
+			out.println(m.getName() + "\t" + m.summary());
+		}
+		out.flush();
+	}
+
+	/**
+	 * Same as {@link #dump(PrintStream)}, to a String.
+	 */
+	public static String dump()
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		dump(new PrintStream(bytes));
+		return bytes.toString();
+	}
+}
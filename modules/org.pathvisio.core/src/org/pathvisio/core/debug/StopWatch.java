@@ -42,6 +42,15 @@ public long look() {
 		return last;
 	}
 
+	/**
+	 * Stop, and record the elapsed time in a timer.
+	 */
+	public long stop(Metrics.Timer timer) {
+		stop();
+		timer.updateMillis(last);
+		return last;
+	}
+
 	public void stopToLog(String msg) {
 		Logger.log.trace(msg + "\t" + stop());
 	}
@@ -74,11 +74,53 @@ public PathwayTransferable(Pathway source, List<PathwayElement> elements) {
 		this.pathway = source;
 	}
 
+	/**
+	 * DataFlavor for transfers within the same JVM. Carries a {@link Pathway} that holds
+	 * deep copies of the transferred elements, so pasting doesn't have to go through GPML.
+	 * The system clipboard only makes this flavor available to the application that copied,
+	 * other applications get the GPML text.
+	 */
+	public static final DataFlavor PATHWAY_DATA_FLAVOR = createLocalFlavor();
+
+	private static DataFlavor createLocalFlavor()
+	{
+		try
+		{
+			return new DataFlavor(DataFlavor.javaJVMLocalObjectMimeType +
+					";class=" + Pathway.class.getName(), "PathVisio pathway elements",
+					PathwayTransferable.class.getClassLoader());
+		}
+		catch (ClassNotFoundException e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+
 	public Object getTransferData(DataFlavor flavor) throws UnsupportedFlavorException, IOException {
+		if(PATHWAY_DATA_FLAVOR.equals(flavor)) {
+			// a fresh copy each time, the receiver may modify it
+			return createPathway();
+		}
+
 		Object out = null;
 
 		XMLOutputter xmlout = new XMLOutputter(Format.getPrettyFormat());
 
+		try {
+			Document doc = GpmlFormat.createJdom(createPathway());
+			out = xmlout.outputString(doc);
+		} catch(Exception e) {
+			Logger.log.error("Unable to copy to clipboard", e);
+		}
+
+		return out;
+	}
+
+	/**
+	 * Create a new pathway with copies of the transferred elements and the biopax elements they refer to.
+	 * References to elements outside the transfer are removed.
+	 */
+	private Pathway createPathway() {
 		Pathway pnew = new Pathway();
 
 		Set<String> ids = new HashSet<String>();
@@ -146,23 +188,27 @@ public Object getTransferData(DataFlavor flavor) throws UnsupportedFlavorExcepti
 			info.setMapInfoDataSource(INFO_DATASOURCE);
 			pnew.add(info);
 		}
-
-		try {
-			Document doc = GpmlFormat.createJdom(pnew);
-			out = xmlout.outputString(doc);
-		} catch(Exception e) {
-			Logger.log.error("Unable to copy to clipboard", e);
-		}
-
-		return out;
+		return pnew;
 	}
 
 	public DataFlavor[] getTransferDataFlavors() {
-		return new DataFlavor[] { DataFlavor.stringFlavor };
+		return new DataFlavor[] { PATHWAY_DATA_FLAVOR, DataFlavor.stringFlavor };
 	}
 
 	public boolean isDataFlavorSupported(DataFlavor flavor) {
-		return GPML_DATA_FLAVOR.equals(flavor);
+		return PATHWAY_DATA_FLAVOR.equals(flavor) || GPML_DATA_FLAVOR.equals(flavor);
+	}
+
+	/**
+	 * Gets the pathway from the transferable if it was copied within this JVM.
+	 * @return a pathway with copies of the transferred elements, or null if not available.
+	 * In that case, use {@link #getText(Transferable)} to get GPML code.
+	 */
+	public static Pathway getPathway(Transferable t) throws UnsupportedFlavorException, IOException {
+		if(t != null && t.isDataFlavorSupported(PATHWAY_DATA_FLAVOR)) {
+			return (Pathway)t.getTransferData(PATHWAY_DATA_FLAVOR);
+		}
+		return null;
 	}
 
 	/**
@@ -234,6 +280,11 @@ public static String getText(Transferable t) throws UnsupportedFlavorException,
 	 * @throws IOException
 	 */
 	public static Pathway pathwayFromTransferable(Transferable t) throws ConverterException, MalformedURLException, UnsupportedFlavorException, IOException {
+		Pathway local = getPathway(t);
+		if(local != null) {
+			return local;
+		}
+
 		Pathway pnew = new Pathway();
 
 		String xml = getText(t);
@@ -33,6 +33,11 @@
  * that can make connectors that avoid overlap with other shapes.
  * See http://theory.stanford.edu/~amitp/GameProgramming/index.html for a good explanation.
  *
+ * Obstacles are looked up in an {@link ObstacleIndex}. The objects the connector
+ * starts or ends on are not obstacles for that connector.
+ * The search gives up when it runs out of its time budget,
+ * so the caller can fall back to a simpler connector.
+ *
  * TODO: improvement where, instead of using a fixed grid, we calculate a set of magic horizontal
  * and vertical lines and use that as basis for our grid.
  */
@@ -50,13 +55,22 @@
 	// extra distance we are willing to travel to avoid going through an object
 	private static final double OVERLAP_PENALTY = 300.0;
 
+	// number of nodes examined between two looks at the clock
+	private static final int CLOCK_INTERVAL = 64;
+
 	// queue of open nodes to examine
 	private PriorityQueue<AStarNode> open = new PriorityQueue<AStarNode>();
 
 	// positions already covered, with their associated g value
-	private Map<Integer, Double> opened = new HashMap<Integer, Double>();
+	private Map<Long, Double> opened = new HashMap<Long, Double>();
 
-	private ConnectorRestrictions restrictions;
+	private final ConnectorRestrictions restrictions;
+	private final ObstacleIndex obstacles;
+	private final boolean[] ignore;
+	private final long budget;
+
+	private final Point2D start;
+	private final Point2D target;
 
 	// some stats
 	private int nodesOpened = 0;
@@ -66,8 +80,9 @@
 	// or if it has a smaller g than the one in the opened set
 	private void openNode(AStarNode n)
 	{
-		int i = n.getPosAsInt();
-		if (!opened.containsKey(i) || opened.get(i) > n.g)
+		Long i = n.getPosAsLong();
+		Double g = opened.get(i);
+		if (g == null || g > n.g)
 		{
 			open.add (n);
 			opened.put (i, n.g);
@@ -75,27 +90,82 @@ private void openNode(AStarNode n)
 		}
 	}
 
-	AStar (ConnectorRestrictions restrictions)
+	/**
+	 * @param obstacles the objects to route around
+	 * @param budget maximum time to spend on the search, in milliseconds
+	 */
+	AStar (ConnectorRestrictions restrictions, ObstacleIndex obstacles, long budget)
 	{
 		this.restrictions = restrictions;
+		this.obstacles = obstacles;
+		this.budget = budget * 1000000L;
+		start = restrictions.getStartPoint();
+		target = restrictions.getEndPoint();
+		ignore = new boolean[obstacles.size()];
+		obstacles.markAt(start, ignore);
+		obstacles.markAt(target, ignore);
+	}
+
+	// create a node one step away from parent, in the given direction
+	private AStarNode step (AStarNode parent, int dir)
+	{
+		AStarNode n = new AStarNode (parent, dir);
+		n.g = parent.g + ASTAR_STEP_SIZE;
+
+		// penalty on change of direction
+		if (parent.dir != dir)
+		{
+			n.g += ELBOW_PENALTY;
+		}
+
+		// penalty on crossing something
+		if (obstacles.isBlocked(getX(n), getY(n), ignore))
+		{
+			n.g += OVERLAP_PENALTY;
+		}
+
+		n.h = calculateH (n);
+		return n;
+	}
+
+	private double getX (AStarNode n)
+	{
+		return start.getX() + n.x * ASTAR_STEP_SIZE;
 	}
 
-	// calculate the segments
+	private double getY (AStarNode n)
+	{
+		return start.getY() + n.y * ASTAR_STEP_SIZE;
+	}
+
+	// heuristic: estimate remaining travel cost
+	private double calculateH (AStarNode n)
+	{
+		// Manhattan distance
+		return Math.abs (target.getX() - getX(n)) + Math.abs (target.getY() - getY(n));
+	}
+
+	/**
+	 * Calculate the segments.
+	 * @return the segments, or null if no route could be found within reasonable limits.
+	 */
 	Segment[] getSegmentsAStar()
 	{
-		Logger.log.info ("ASTAR; calculation start");
+		long startTime = System.nanoTime();
 
-		// put start node on the queue
-		Point2D target = restrictions.getEndPoint();
-		open.add(new AStarNode (restrictions.getStartPoint(), AStarNode.DIR_N, target));
+		// put start node on the queue, heading away from the start object
+		AStarNode first = new AStarNode (null, restrictions.getStartSide());
+		first.h = calculateH (first);
+		open.add(first);
 
 		AStarNode curr;
 		AStarNode end = null;
+		int examined = 0;
 
 		// get next open node from the queue
 		while ((curr = open.poll()) != null)
 		{
-			if (curr.pos.distance(target) < 2 * ASTAR_STEP_SIZE)
+			if (curr.h < 2 * ASTAR_STEP_SIZE)
 			{
 				// finished!
 				end = curr;
@@ -104,21 +174,21 @@ Segment[] getSegmentsAStar()
 			else
 			{
 				// open node in current direction
-				openNode (new AStarNode (curr, curr.dir, ASTAR_STEP_SIZE, restrictions));
+				openNode (step (curr, curr.dir));
 
 				// open nodes in orthogonal directions
 				if (curr.dir == AStarNode.DIR_N ||
 					curr.dir == AStarNode.DIR_S)
 				{
 					// open east and west nodes
-					openNode (new AStarNode (curr, AStarNode.DIR_W, ASTAR_STEP_SIZE, restrictions));
-					openNode (new AStarNode (curr, AStarNode.DIR_E, ASTAR_STEP_SIZE, restrictions));
+					openNode (step (curr, AStarNode.DIR_W));
+					openNode (step (curr, AStarNode.DIR_E));
 				}
 				else
 				{
 					// open north and south nodes
-					openNode (new AStarNode (curr, AStarNode.DIR_N, ASTAR_STEP_SIZE, restrictions));
-					openNode (new AStarNode (curr, AStarNode.DIR_S, ASTAR_STEP_SIZE, restrictions));
+					openNode (step (curr, AStarNode.DIR_N));
+					openNode (step (curr, AStarNode.DIR_S));
 				}
 			}
 
@@ -129,122 +199,124 @@ Segment[] getSegmentsAStar()
 
 			// make sure we don't go on too long...
 			if (open.size() > OPEN_NODE_CUTOFF) break;
+			if (++examined % CLOCK_INTERVAL == 0 && System.nanoTime() - startTime > budget) break;
 		}
 
-		Segment[] result;
+		Segment[] result = null;
 		// now we start backtracking the node tree
-		if (end == null)
-		{
-			// could not find a valid route within reasonable limits.
-			result = new Segment[] {
-					new Segment (
-							restrictions.getStartPoint(),
-							restrictions.getEndPoint()
-							)
-					};
-		}
-		else
+		if (end != null)
 		{
-			List<Segment> resultList = new ArrayList<Segment>();
+			List<Point2D> corners = new ArrayList<Point2D>();
+
+			// the last node is close to the end point, but not on it.
+			// Join them so that the connector arrives perpendicular to the end object.
+			corners.add (target);
+			Point2D last = new Point2D.Double (getX(end), getY(end));
+			int endSide = restrictions.getEndSide();
+			if (endSide == ConnectorRestrictions.SIDE_NORTH || endSide == ConnectorRestrictions.SIDE_SOUTH)
+			{
+				corners.add (new Point2D.Double (target.getX(), last.getY()));
+			}
+			else
+			{
+				corners.add (new Point2D.Double (last.getX(), target.getY()));
+			}
+			corners.add (last);
 
-			//calculate segments
+			// since we're moving backwards, corners are in reverse order
 			curr = end;
-			Point2D pEnd = curr.pos;
 			while (curr.parent != null)
 			{
 				if (curr.parent.dir != curr.dir)
 				{
-					Point2D pStart = curr.parent.pos;
-					// since we're moving backwards, insert at the beginning
-					resultList.add(0, new Segment (pStart, pEnd));
-					pEnd = pStart;
+					corners.add (new Point2D.Double (getX(curr.parent), getY(curr.parent)));
 				}
 				curr = curr.parent;
 			}
-			// final segment to last node
-			Point2D pStart = curr.pos;
-			resultList.add(0, new Segment (pStart, pEnd));
+			corners.add (start);
 
-			result = resultList.toArray(new Segment[0]);
+			result = toSegments (corners);
 		}
 
-		Logger.log.info ("ASTAR; calculation ended; max queue size: "
-				+ maxQueueSize + "; nodes opened " + nodesOpened);
+		Logger.log.trace ("ASTAR; calculation ended in " + (System.nanoTime() - startTime) / 1000 + " usec; max queue size: "
+				+ maxQueueSize + "; nodes opened " + nodesOpened + "; route found: " + (result != null));
 		return result;
 	}
 
-	private static class AStarNode implements Comparable<AStarNode>
+	/**
+	 * Turn a list of corners, from end to start, into segments from start to end.
+	 * Corners that don't change direction are dropped.
+	 */
+	private static Segment[] toSegments (List<Point2D> corners)
 	{
-		static final int DIR_N = 0;
-		static final int DIR_E = 1;
-		static final int DIR_S = 2;
-		static final int DIR_W = 3;
-
-		private final double[] tblDx = {0, 1, 0, -1};
-		private final double[] tblDy = {-1, 0, 1, 0};
-
-		AStarNode parent;
-		int dir;
-		Point2D pos;
-		double g;
-		double h;
-
-		// constructor for the head node
-		AStarNode(Point2D pos, int dir, Point2D target)
+		List<Point2D> points = new ArrayList<Point2D>();
+		for (int i = corners.size() - 1; i >= 0; --i)
 		{
-			parent = null;
-			this.dir = dir;
-			this.pos = pos;
-			g = 0;
-			h = calculateH(target);
+			Point2D p = corners.get(i);
+			int n = points.size();
+			if (n > 0 && p.equals(points.get(n - 1))) continue;
+			if (n > 1 && isCollinear (points.get(n - 2), points.get(n - 1), p))
+			{
+				points.set(n - 1, p);
+			}
+			else
+			{
+				points.add(p);
+			}
 		}
-
-		// heuristic: estimate remaining travel cost
-		private double calculateH (Point2D target)
+		if (points.size() < 2)
 		{
-			// Manhattan distance
-			double hdx = target.getX() - pos.getX();
-			double hdy = target.getY() - pos.getY();
-			return Math.abs (hdx) + Math.abs (hdy);
+			// start and end coincide
+			points.add(points.get(0));
 		}
 
-		AStarNode(AStarNode parent, int dir, double dist, ConnectorRestrictions restrictions)
+		Segment[] result = new Segment[points.size() - 1];
+		for (int i = 0; i < result.length; ++i)
 		{
-			if (parent == null) throw new NullPointerException();
-
-			this.parent = parent;
-			this.dir = dir;
-
-			double dx = dist * tblDx[dir];
-			double dy = dist * tblDy[dir];
-			pos = new Point2D.Double (parent.pos.getX() + dx, parent.pos.getY() + dy);
-
-			// calculate g, cost to this node
-			g = parent.g + dist;
+			result[i] = new Segment (points.get(i), points.get(i + 1));
+		}
+		return result;
+	}
 
-			// penalty on change of direction
-			if (parent.dir != dir)
-			{
-				g += ELBOW_PENALTY;
-			}
+	// true if b is on the horizontal or vertical line between a and c
+	private static boolean isCollinear (Point2D a, Point2D b, Point2D c)
+	{
+		return (a.getX() == b.getX() && b.getX() == c.getX())
+			|| (a.getY() == b.getY() && b.getY() == c.getY());
+	}
 
-			// penalty on crossing something
-			if (restrictions.mayCross (pos) != null)
-			{
-				g += OVERLAP_PENALTY;
-			}
+	private static class AStarNode implements Comparable<AStarNode>
+	{
+		static final int DIR_N = ConnectorRestrictions.SIDE_NORTH;
+		static final int DIR_E = ConnectorRestrictions.SIDE_EAST;
+		static final int DIR_S = ConnectorRestrictions.SIDE_SOUTH;
+		static final int DIR_W = ConnectorRestrictions.SIDE_WEST;
+
+		private static final int[] tblDx = {0, 1, 0, -1};
+		private static final int[] tblDy = {-1, 0, 1, 0};
+
+		final AStarNode parent;
+		final int dir;
+		// position on the grid, in steps from the start point
+		final int x;
+		final int y;
+		double g;
+		double h;
 
-			// calculate h
-			h = calculateH(restrictions.getEndPoint());
+		// constructor for a node one step from the parent,
+		// or for the head node at the start point if parent is null
+		AStarNode(AStarNode parent, int dir)
+		{
+			this.parent = parent;
+			this.dir = dir;
+			x = parent == null ? 0 : parent.x + tblDx[dir];
+			y = parent == null ? 0 : parent.y + tblDy[dir];
 		}
 
-		// calculate a more or less unique (one-dimensional) integer for this node position
-		int getPosAsInt ()
+		// unique key for this node position
+		long getPosAsLong ()
 		{
-			int x = (int)(pos.getX() / ASTAR_STEP_SIZE);
-			int y = (int)(pos.getY() / ASTAR_STEP_SIZE);
-
-			return (x & 0xFFFF) + ((y & 0xFFFF) << 16);
+			return ((long)x << 32) | (y & 0xFFFFFFFFL);
 		}
 
 		// natural ordering for priority queue:
@@ -254,7 +326,7 @@ int getPosAsInt ()
 		// h = estimated cost to get to target
 		public int compareTo (AStarNode o)
 		{
-			return (int)((g+h) - (o.g + o.h));
+			return Double.compare (g + h, o.g + o.h);
 		}
 	}
 
@@ -24,6 +24,8 @@
  * with cached shapes, segments and waypoints.
  * ConnectorShapes may implement this class and use the
  * setShape, setSegments and setWayPoints to refresh the cached shape.
+ * When the shape cache is set to null, {@link #getShape()} calculates it
+ * from the segments the first time it is needed.
  * @author thomas
  */
 public abstract class AbstractConnector implements ConnectorShape {
@@ -32,9 +34,28 @@ public abstract class AbstractConnector implements ConnectorShape {
 	private WayPoint[] waypoints;
 
 	public Shape getShape() {
+		if(shape == null && hasSegments()) {
+			shape = calculateShape();
+		}
 		return shape;
 	}
 
+	/**
+	 * Check if there is anything to calculate the shape from. Implementations
+	 * that calculate their segments on demand should override this,
+	 * so that {@link #getShape()} doesn't trigger that calculation.
+	 */
+	protected boolean hasSegments() {
+		return segments != null;
+	}
+
+	/**
+	 * Calculate the shape of the whole connector, used to fill
+	 * the shape cache.
+	 */
+	protected Shape calculateShape() {
+		return calculateShape(getSegments());
+	}
 
 	abstract protected Shape calculateShape(Segment[] segments);
 
@@ -0,0 +1,225 @@
+/*******************************************************************************
+ * PathVisio, a tool for data visualization and analysis using biological pathways
+ * Copyright 2006-2019 BiGCaT Bioinformatics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.pathvisio.core.model;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+import org.pathvisio.core.model.GraphLink.GraphIdContainer;
+import org.pathvisio.core.model.PathwayElement.MAnchor;
+import org.pathvisio.core.model.PathwayElement.MPoint;
+
+/**
+ * Graph view on a {@link Pathway}, for network queries.
+ * <p>
+ * Vertices are GraphIdContainers (DataNodes, Groups, States, Anchors...), identified by
+ * their GraphId. Edges are lines, directed from the start point to the end point.
+ * An Anchor is treated as a point halfway its line, so a line from S to E with
+ * anchor A gives the edges S &rarr; E, S &rarr; A and A &rarr; E.
+ * <p>
+ * The index is kept up to date by {@link Pathway#addGraphRef} and {@link Pathway#removeGraphRef},
+ * it stores for each GraphId the line end points that refer to it. Queries take
+ * time proportional to the size of their result, not to the size of the pathway.
+ * Obtain an instance with {@link Pathway#getAdjacencyIndex()}.
+ * <p>
+ * Not thread safe, just like Pathway itself.
+ */
+public class AdjacencyIndex
+{
+	private final Pathway pathway;
+
+	/** GraphId -> line end points that link to it */
+	private final Map<String, Set<MPoint>> incidences = new HashMap<String, Set<MPoint>>();
+
+	AdjacencyIndex(Pathway pathway)
+	{
+		this.pathway = pathway;
+	}
+
+	void add(String id, MPoint p)
+	{
+		Set<MPoint> set = incidences.get(id);
+		if (set == null)
+		{
+			set = new LinkedHashSet<MPoint>(4);
+			incidences.put(id, set);
+		}
+		set.add(p);
+	}
+
+	void remove(String id, MPoint p)
+	{
+		Set<MPoint> set = incidences.get(id);
+		if (set == null) return;
+		set.remove(p);
+		if (set.isEmpty()) incidences.remove(id);
+	}
+
+	/**
+	 * Points may be registered before they are placed in their line,
+	 * or linger after the line changed its points, so check that
+	 * it is still a start or end point of a line in this pathway.
+	 */
+	private boolean isEndPoint(MPoint p, String id)
+	{
+		PathwayElement line = p.getParent();
+		return line.getParent() == pathway && id.equals(p.getGraphRef())
+			&& (line.getMStart() == p || line.getMEnd() == p);
+	}
+
+	private GraphIdContainer resolve(MPoint p)
+	{
+		String ref = p.getGraphRef();
+		return ref == null ? null : pathway.getGraphIdContainer(ref);
+	}
+
+	private static void addAnchors(PathwayElement line, Set<GraphIdContainer> result)
+	{
+		for (MAnchor a : line.getMAnchors())
+		{
+			if (a.getGraphId() != null) result.add(a);
+		}
+	}
+
+	/**
+	 * Lines that start or end at the object with the given GraphId.
+	 */
+	public Set<PathwayElement> getLines(String id)
+	{
+		Set<PathwayElement> result = new LinkedHashSet<PathwayElement>();
+		Set<MPoint> set = incidences.get(id);
+		if (set == null) return result;
+		for (MPoint p : set)
+		{
+			if (isEndPoint(p, id)) result.add(p.getParent());
+		}
+		return result;
+	}
+
+	/**
+	 * Number of line end points linked to the object with the given GraphId.
+	 * A line that starts and ends on the same object counts twice.
+	 */
+	public int getDegree(String id)
+	{
+		Set<MPoint> set = incidences.get(id);
+		if (set == null) return 0;
+		int result = 0;
+		for (MPoint p : set)
+		{
+			if (isEndPoint(p, id)) result++;
+		}
+		return result;
+	}
+
+	private void collect(String id, boolean downstream, Set<GraphIdContainer> result)
+	{
+		Set<MPoint> set = incidences.get(id);
+		if (set != null)
+		{
+			for (MPoint p : set)
+			{
+				if (!isEndPoint(p, id)) continue;
+				PathwayElement line = p.getParent();
+				boolean isStart = line.getMStart() == p;
+				if (isStart != downstream) continue;
+				GraphIdContainer other = resolve(isStart ? line.getMEnd() : line.getMStart());
+				if (other != null) result.add(other);
+				addAnchors(line, result);
+			}
+		}
+		// an anchor lies downstream of its line's start, and upstream of its end
+		GraphIdContainer self = pathway.getGraphIdContainer(id);
+		if (self instanceof MAnchor)
+		{
+			PathwayElement line = ((MAnchor)self).getParent();
+			GraphIdContainer other = resolve(downstream ? line.getMEnd() : line.getMStart());
+			if (other != null) result.add(other);
+		}
+	}
+
+	/**
+	 * Objects that can be reached from the given GraphId by following a single line
+	 * from start to end.
+	 */
+	public Set<GraphIdContainer> getDownstream(String id)
+	{
+		Set<GraphIdContainer> result = new LinkedHashSet<GraphIdContainer>();
+		collect(id, true, result);
+		return result;
+	}
+
+	/**
+	 * Objects that reach the given GraphId by following a single line
+	 * from start to end.
+	 */
+	public Set<GraphIdContainer> getUpstream(String id)
+	{
+		Set<GraphIdContainer> result = new LinkedHashSet<GraphIdContainer>();
+		collect(id, false, result);
+		return result;
+	}
+
+	/**
+	 * Union of upstream and downstream objects, ignoring direction.
+	 */
+	public Set<GraphIdContainer> getNeighbors(String id)
+	{
+		Set<GraphIdContainer> result = new LinkedHashSet<GraphIdContainer>();
+		collect(id, true, result);
+		collect(id, false, result);
+		return result;
+	}
+
+	/**
+	 * All objects within k lines of the given GraphId, ignoring direction,
+	 * found by breadth first search.
+	 * @return map from object to its distance in lines, in order of increasing distance.
+	 * 	The object itself is included with distance 0. Empty if the GraphId is unknown.
+	 */
+	public Map<GraphIdContainer, Integer> getNeighborhood(String id, int k)
+	{
+		GraphIdContainer root = pathway.getGraphIdContainer(id);
+		if (root == null) return Collections.emptyMap();
+
+		Map<GraphIdContainer, Integer> result = new LinkedHashMap<GraphIdContainer, Integer>();
+		result.put(root, 0);
+		Queue<GraphIdContainer> queue = new ArrayDeque<GraphIdContainer>();
+		queue.add(root);
+		while (!queue.isEmpty())
+		{
+			GraphIdContainer current = queue.remove();
+			int dist = result.get(current);
+			if (dist >= k) continue;
+			for (GraphIdContainer next : getNeighbors(current.getGraphId()))
+			{
+				if (!result.containsKey(next))
+				{
+					result.put(next, dist + 1);
+					queue.add(next);
+				}
+			}
+		}
+		return result;
+	}
+}
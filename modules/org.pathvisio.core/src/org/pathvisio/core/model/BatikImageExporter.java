@@ -64,7 +64,17 @@ public void doExport(File file, VPathway vPathway, TranscodingHints hints) throw
 		boolean textAsPath = PreferenceManager.getCurrent().getBoolean(GlobalPreference.SVG_TEXT_AS_PATH);
 		SVGGraphics2D svgG2d = new SVGGraphics2D(ctx, textAsPath);
 		
-		vPathway.draw(svgG2d);
+		// vector output can be zoomed in on, so don't leave out small details
+		boolean lod = vPathway.isLevelOfDetail();
+		vPathway.setLevelOfDetail(false);
+		try
+		{
+			vPathway.draw(svgG2d);
+		}
+		finally
+		{
+			vPathway.setLevelOfDetail(lod);
+		}
 
 		//Force recalculation of size after drawing once, this allows size of text
 		//to be calculated correctly
@@ -37,6 +37,8 @@ public abstract class ConnectorShapeFactory {
 		shapes.put(ConnectorType.ELBOW.getName(), ElbowConnectorShape.class);
 		shapes.put(ConnectorType.CURVED.getName(), CurvedConnectorShape.class);
 		shapes.put(ConnectorType.SEGMENTED.getName(), FreeConnectorShape.class);
+		shapes.put(ConnectorType.ROUTED.getName(), RoutedConnectorShape.class);
+		shapes.put(ConnectorType.ROUTED_CURVED.getName(), RoutedCurvedConnectorShape.class);
 	}
 
 	public static void registerShape(String name, Class<? extends ConnectorShape> shapeClass) {
@@ -31,9 +31,11 @@ public class CurvedConnectorShape extends ElbowConnectorShape {
 	CurvedSegment[] curvedSegments; //The elbow segment with bezier points
 	//Higher resolution approximation of the curve
 	//Used for calculating the anchor position
+	//Calculated on demand, see getCurveHigh()
 	Segment[] curveHigh;
 	//Lower resolution approximation of the curve
 	//Used for calculating the arrow heads
+	//Calculated on demand, see getSegments()
 	Segment[] curveLow;
 
 	protected Shape calculateShape() {
@@ -79,7 +81,10 @@ public Shape calculateShape(Segment[] segments) {
 	}
 
 	/**
-	 * Also calculates curvedSegments and curve
+	 * Also calculates curvedSegments. The approximations of the curve
+	 * are only calculated when they are needed.
+	 * @return null, the segments of this connector are the low resolution
+	 * curve that is returned by {@link #getSegments()}
 	 * @see calculateCurvedSegments
 	 * @see calculateCurve
 	 */
@@ -89,12 +94,40 @@ protected Segment[] calculateSegments(ConnectorRestrictions restrictions,
 
 		//Also calculate curved segments
 		curvedSegments = calculateCurvedSegments(elbowSegments);
-		curveHigh = calculateCurve(NRSTEP_HIGH);
-		curveLow = calculateCurve(NRSTEP_LOW);
+		curveHigh = null;
+		curveLow = null;
 
+		return null;
+	}
+
+	/**
+	 * The shape is calculated from the curved segments, the approximations
+	 * of the curve are not needed for it.
+	 */
+	protected boolean hasSegments() {
+		return curvedSegments != null;
+	}
+
+	/**
+	 * The low resolution approximation of the curve
+	 */
+	public Segment[] getSegments() {
+		if(curveLow == null && curvedSegments != null) {
+			curveLow = calculateCurve(NRSTEP_LOW);
+		}
 		return curveLow;
 	}
 
+	/**
+	 * The high resolution approximation of the curve
+	 */
+	Segment[] getCurveHigh() {
+		if(curveHigh == null && curvedSegments != null) {
+			curveHigh = calculateCurve(NRSTEP_HIGH);
+		}
+		return curveHigh;
+	}
+
 	/**
 	 * Based on the given elbow segments, calculate a new segment
 	 * and control points for each bezier curve.
@@ -211,7 +244,7 @@ public Point2D getC2() {
 	}
 
 	public Point2D fromLineCoordinate(double l) {
-		return super.fromLineCoordinate(l, curveHigh);
+		return super.fromLineCoordinate(l, getCurveHigh());
 	}
 
 	protected WayPoint[] wayPointsToCenter(WayPoint[] waypoints,
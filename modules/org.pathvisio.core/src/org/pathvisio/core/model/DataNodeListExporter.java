@@ -22,14 +22,26 @@
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.bridgedb.DataSource;
 import org.bridgedb.IDMapperException;
 import org.bridgedb.Xref;
 import org.pathvisio.core.data.GdbManager;
+import org.pathvisio.core.debug.Logger;
+import org.pathvisio.core.debug.Metrics;
+import org.pathvisio.core.util.FileUtils;
 
 /**
  * Exporter that writes a pathway as a list
@@ -43,6 +55,7 @@ public class DataNodeListExporter implements PathwayExporter {
 	 * code as used in the pathway
 	 */
 	public static final String DB_ORIGINAL = "original"; //Use the id/code as in database
+	private static final Metrics.Timer MAPPING_TIMER = Metrics.timer("idmapper.map");
 	private DataSource resultDs = DataSource.getBySystemCode(DB_ORIGINAL);
 	private String multiRefSep = ", ";
 
@@ -98,12 +111,178 @@ public DataSource getResultDataSource()
 	}
 
 	public void doExport(File file, Pathway pathway) throws ConverterException {
-		if(!DB_ORIGINAL.equals(getResultCode())) {
-			//Check gene database connection
-			if(gdbManager == null || !gdbManager.isConnected()) {
-				throw new ConverterException("No gene database loaded");
+		checkGdb(Collections.singleton(resultDs));
+		PrintStream out = openList(file);
+		for(Xref ref : getDataNodeRefs(pathway)) {
+			Set<Xref> refs = null;
+			if(needsMapping(ref, resultDs)) { //Lookup the cross-references for the wanted database code
+				try
+				{
+					long start = MAPPING_TIMER.start();
+					refs = gdbManager.getCurrentGdb().mapID(ref, resultDs);
+					MAPPING_TIMER.stop(start);
+				}
+				catch (IDMapperException ex)
+				{
+					out.close();
+					throw new ConverterException (ex);
+				}
+			}
+			out.println(formatLine(ref, resultDs, refs));
+		}
+		out.close();
+	}
+
+	/**
+	 * Export the DataNode lists of all pathways in a directory at once,
+	 * for each of the given databases.
+	 * <p>
+	 * The list of each pathway is the same as written by {@link #doExport(File, Pathway)}
+	 * with that database as result data source. Instead of a lookup per DataNode,
+	 * each distinct reference of the whole directory is mapped only once per database,
+	 * so references that occur in many pathways are looked up once.
+	 * Pathways are read one by one, lists are written in parallel.
+	 * <p>
+	 * For a database with system code <i>code</i>, the list of
+	 * <code>pwDir/path/name.gpml</code> is written to <code>outDir/code/path/name.txt</code>.
+	 * A combined list for all pathways, with each reference once, in the order they
+	 * are first found, is written to <code>outDir/code.txt</code>.
+	 * Pathways that can't be read are logged and skipped.
+	 * @param pwDir directory with pathways, searched recursively
+	 * @param outDir directory to write to
+	 * @param targets databases to map to, use {@link #DB_ORIGINAL} to keep the original references
+	 * @return the files that were written
+	 */
+	public List<File> doBatchExport(File pwDir, File outDir, Collection<DataSource> targets) throws ConverterException {
+		checkGdb(targets);
+		List<File> pwFiles = FileUtils.getFiles(pwDir, "gpml", true);
+		Collections.sort(pwFiles);
+
+		// read all pathways, keeping only the references.
+		// Not in parallel: reading registers unknown data sources, which is not thread safe.
+		List<List<Xref>> pathwayRefs = new ArrayList<List<Xref>>();
+		Set<Xref> allRefs = new LinkedHashSet<Xref>();
+		for(File f : pwFiles) {
+			List<Xref> refs = null;
+			try {
+				Pathway pathway = new Pathway();
+				pathway.readFromXml(f, false);
+				refs = getDataNodeRefs(pathway);
+				allRefs.addAll(refs);
+			} catch(ConverterException ex) {
+				Logger.log.error("Skipping " + f + ", unable to read pathway", ex);
+			}
+			pathwayRefs.add(refs);
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(
+				Math.max(1, Runtime.getRuntime().availableProcessors()));
+		try {
+			List<File> result = new ArrayList<File>();
+			List<Callable<File>> writers = new ArrayList<Callable<File>>();
+			for(final DataSource target : targets) {
+				final Map<Xref, Set<Xref>> mapping = mapAll(allRefs, target);
+				File targetDir = new File(outDir, target.getSystemCode());
+				for(int i = 0; i < pwFiles.size(); ++i) {
+					if(pathwayRefs.get(i) == null) continue;
+					File listFile = FileUtils.replaceExtension(
+							new File(targetDir, getRelativePath(pwFiles.get(i), pwDir)), "txt");
+					writers.add(createWriter(listFile, pathwayRefs.get(i), target, mapping));
+				}
+				writers.add(createWriter(new File(outDir, target.getSystemCode() + ".txt"),
+						allRefs, target, mapping));
 			}
+			result.addAll(runAll(executor, writers));
+			return result;
+		} finally {
+			executor.shutdown();
 		}
+	}
+
+	/**
+	 * Map all references that need it to the given database.
+	 */
+	private Map<Xref, Set<Xref>> mapAll(Set<Xref> refs, DataSource target) throws ConverterException {
+		List<Xref> toMap = new ArrayList<Xref>();
+		for(Xref ref : refs) {
+			if(needsMapping(ref, target)) toMap.add(ref);
+		}
+		if(toMap.size() == 0) return Collections.emptyMap();
+		try
+		{
+			long start = MAPPING_TIMER.start();
+			Map<Xref, Set<Xref>> mapping = gdbManager.getCurrentGdb().mapID(toMap, target);
+			MAPPING_TIMER.stop(start);
+			return mapping;
+		}
+		catch (IDMapperException ex)
+		{
+			throw new ConverterException (ex);
+		}
+	}
+
+	private Callable<File> createWriter(final File file, final Collection<Xref> refs,
+			final DataSource target, final Map<Xref, Set<Xref>> mapping) {
+		return new Callable<File>() {
+			public File call() throws ConverterException {
+				file.getParentFile().mkdirs();
+				PrintStream out = openList(file);
+				for(Xref ref : refs) {
+					Set<Xref> mapped = null;
+					if(needsMapping(ref, target)) {
+						mapped = mapping.get(ref);
+						if(mapped == null) mapped = Collections.emptySet();
+					}
+					out.println(formatLine(ref, target, mapped));
+				}
+				out.close();
+				return file;
+			}
+		};
+	}
+
+	/**
+	 * Run all tasks and wait for their results, in the same order as the tasks.
+	 */
+	private static <T> List<T> runAll(ExecutorService executor, List<Callable<T>> tasks) throws ConverterException {
+		List<T> result = new ArrayList<T>();
+		try {
+			for(Future<T> future : executor.invokeAll(tasks)) {
+				result.add(future.get());
+			}
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ConverterException("Interrupted during export");
+		} catch(ExecutionException e) {
+			Throwable cause = e.getCause();
+			if(cause instanceof ConverterException) throw (ConverterException)cause;
+			if(cause instanceof Error) throw (Error)cause;
+			throw new ConverterException((Exception)cause);
+		}
+		return result;
+	}
+
+	private static String getRelativePath(File f, File dir) {
+		String path = f.getAbsolutePath();
+		String dirPath = dir.getAbsolutePath();
+		if(path.startsWith(dirPath + File.separator)) {
+			return path.substring(dirPath.length() + 1);
+		}
+		return f.getName();
+	}
+
+	private void checkGdb(Collection<DataSource> targets) throws ConverterException {
+		for(DataSource target : targets) {
+			if(!DB_ORIGINAL.equals(target.getSystemCode())) {
+				//Check gene database connection
+				if(gdbManager == null || !gdbManager.isConnected()) {
+					throw new ConverterException("No gene database loaded");
+				}
+			}
+		}
+	}
+
+	private PrintStream openList(File file) throws ConverterException {
 		PrintStream out = null;
 		try {
 			out = new PrintStream(new BufferedOutputStream(new FileOutputStream(file)));
@@ -111,38 +290,48 @@ public void doExport(File file, Pathway pathway) throws ConverterException {
 			throw new ConverterException(e);
 		}
 		printHeaders(out);
+		return out;
+	}
+
+	/**
+	 * The references of all DataNodes in the pathway,
+	 * skipping DataNodes with an empty id or code.
+	 */
+	private List<Xref> getDataNodeRefs(Pathway pathway) {
+		List<Xref> result = new ArrayList<Xref>();
 		for(PathwayElement elm : pathway.getDataObjects()) {
 			if(elm.getObjectType() == ObjectType.DATANODE) {
-				String line = "";
-				String id = elm.getElementID();
-				DataSource ds = elm.getDataSource();
-				if(!checkString(id) || ds == null) {
+				if(!checkString(elm.getElementID()) || elm.getDataSource() == null) {
 					continue; //Skip empty id/codes
 				}
-				//Use the original id, if code is already the one asked for
-				if(DB_ORIGINAL.equals(getResultCode()) || ds.equals(resultDs)) {
-					line = id + "\t" + ds.getFullName();
-				} else { //Lookup the cross-references for the wanted database code
-					try
-					{
-						Set<Xref> refs = gdbManager.getCurrentGdb().mapID(elm.getXref(), resultDs);
-						for(Xref ref : refs) {
-							line += ref.getId() + multiRefSep;
-						}
-						if(line.length() > multiRefSep.length()) { //Remove the last ', '
-							line = line.substring(0, line.length() - multiRefSep.length());
-							line += "\t" + resultDs.getFullName();
-						}
-					}
-					catch (IDMapperException ex)
-					{
-						throw new ConverterException (ex);
-					}
-				}
-				out.println(line);
+				result.add(elm.getXref());
 			}
 		}
-		out.close();
+		return result;
+	}
+
+	private static boolean needsMapping(Xref ref, DataSource target) {
+		//Use the original id, if code is already the one asked for
+		return !(DB_ORIGINAL.equals(target.getSystemCode()) || ref.getDataSource().equals(target));
+	}
+
+	/**
+	 * Format the line for a single DataNode.
+	 * @param mapped the cross-references of the DataNode, or null if it doesn't need mapping
+	 */
+	private String formatLine(Xref ref, DataSource target, Set<Xref> mapped) {
+		if(mapped == null) {
+			return ref.getId() + "\t" + ref.getDataSource().getFullName();
+		}
+		String line = "";
+		for(Xref m : mapped) {
+			line += m.getId() + multiRefSep;
+		}
+		if(line.length() > multiRefSep.length()) { //Remove the last ', '
+			line = line.substring(0, line.length() - multiRefSep.length());
+			line += "\t" + target.getFullName();
+		}
+		return line;
 	}
 
 	/**
@@ -16,7 +16,6 @@
  ******************************************************************************/
 package org.pathvisio.core.model;
 
-import java.awt.Shape;
 import java.awt.geom.Point2D;
 
 /**
@@ -30,9 +29,11 @@ public class ElbowConnectorShape extends SegmentedConnector {
 	public void recalculateShape(ConnectorRestrictions restrictions) {
 
         WayPoint[] wps = calculateWayPoints(restrictions);
-		setSegments(calculateSegments(restrictions, wps));
-		setWayPoints(wayPointsToCenter(wps, getSegments()));
-		setShape(calculateShape());
+		Segment[] segments = calculateSegments(restrictions, wps);
+		setSegments(segments);
+		setWayPoints(wayPointsToCenter(wps, segments));
+		// calculated on demand by getShape()
+		setShape(null);
 	}
 
 	public boolean hasValidWaypoints(ConnectorRestrictions restrictions) {
@@ -48,10 +49,6 @@ protected WayPoint[] wayPointsToCenter(WayPoint[] waypoints, Segment[] segments)
 		return waypoints;
 	}
 
-	protected Shape calculateShape() {
-		return calculateShape(getSegments());
-	}
-
 	protected WayPoint[] calculateWayPoints(ConnectorRestrictions restrictions) {
 		int nrSegments = getNrSegments(restrictions);
 		WayPoint[] waypoints = restrictions.getWayPointPreferences();
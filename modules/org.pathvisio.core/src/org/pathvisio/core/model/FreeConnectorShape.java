@@ -36,7 +36,7 @@ public void recalculateShape(ConnectorRestrictions restrictions) {
 		WayPoint[] wps = restrictions.getWayPointPreferences();
 		setSegments(calculateSegments(restrictions, wps));
 		setWayPoints(wps);
-		setShape(calculateShape(getSegments()));
+		setShape(null);
 	}
 
 	public boolean hasValidWaypoints(ConnectorRestrictions restrictions) {
@@ -17,8 +17,6 @@
 package org.pathvisio.core.model;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -32,6 +30,9 @@
 import org.jdom2.input.JDOMParseException;
 import org.jdom2.input.SAXBuilder;
 import org.pathvisio.core.debug.Logger;
+import org.pathvisio.core.debug.Metrics;
+import org.pathvisio.core.debug.ThreadSafe;
+import org.pathvisio.core.util.FileUtils;
 import org.pathvisio.core.util.RootElementFinder;
 import org.xml.sax.InputSource;
 
@@ -41,11 +42,18 @@
  * Contains all gpml-specific constants,
  * and should be the only class (apart from svgFormat)
  * that needs to import jdom
+ * <p>
+ * GPML files may be compressed with gzip or zip. Compressed files are recognized from their
+ * contents when reading, and written when the file name ends with .gz or .zip,
+ * see {@link FileUtils#openInputStream(File)} and {@link FileUtils#openOutputStream(File, String)}.
  */
 public class GpmlFormat extends AbstractPathwayFormat
 {
 	static private final GpmlFormat2013a CURRENT = GpmlFormat2013a.GPML_2013A;
 
+	private static final Metrics.Timer READ_TIMER = Metrics.timer("gpml.read");
+	private static final Metrics.Timer WRITE_TIMER = Metrics.timer("gpml.write");
+
 	public static final Namespace RDF = Namespace.getNamespace("rdf", "http://www.w3.org/1999/02/22-rdf-syntax-ns#");
 	public static final Namespace RDFS = Namespace.getNamespace("rdfs", "http://www.w3.org/2000/01/rdf-schema#");
 	public static final Namespace BIOPAX = Namespace.getNamespace("bp", "http://www.biopax.org/release/biopax-level3.owl#");
@@ -69,7 +77,7 @@ public void doExport(File file, Pathway pathway) throws ConverterException
 	}
 
 	public String[] getExtensions() {
-		return new String[] { "gpml", "xml" };
+		return new String[] { "gpml", "xml", "gz", "zip" };
 	}
 
 	public String getName() {
@@ -99,38 +107,120 @@ public static PathwayElement mapElement(Element e) throws ConverterException
 	 */
 	static public void writeToXml(Pathway pwy, File file, boolean validate) throws ConverterException
 	{
-		CURRENT.writeToXml(pwy, file, validate);
+		long start = WRITE_TIMER.start();
+		try
+		{
+			CURRENT.writeToXml(pwy, file, validate);
+		}
+		finally
+		{
+			WRITE_TIMER.stop(start);
+		}
 	}
 
 	static public void writeToXml(Pathway pwy, OutputStream out, boolean validate) throws ConverterException
 	{
-		CURRENT.writeToXml(pwy, out, validate);
+		long start = WRITE_TIMER.start();
+		try
+		{
+			CURRENT.writeToXml(pwy, out, validate);
+		}
+		finally
+		{
+			WRITE_TIMER.stop(start);
+		}
 	}
 
 	static public void readFromXml(Pathway pwy, File file, boolean validate) throws ConverterException
 	{
-		InputStream inf;
+		InputStream in = open (file);
 		try
 		{
-			inf = new FileInputStream (file);
+			readFromXmlImpl (pwy, new InputSource(in), validate);
 		}
-		catch (FileNotFoundException e)
+		finally
 		{
-			throw new ConverterException (e);
+			close (in, file);
 		}
-		readFromXmlImpl (pwy, new InputSource(inf), validate);
 	}
 
+	/**
+	 * Read from a stream, which may be compressed with gzip or zip. The stream is not closed.
+	 */
 	static public void readFromXml(Pathway pwy, InputStream in, boolean validate) throws ConverterException
 	{
+		try
+		{
+			in = FileUtils.decompress (in);
+		}
+		catch (IOException e)
+		{
+			throw new ConverterException (e);
+		}
 		readFromXmlImpl (pwy, new InputSource(in), validate);
 	}
 
+	/** Open a file for reading, buffered and decompressed if needed */
+	private static InputStream open (File file) throws ConverterException
+	{
+		try
+		{
+			return FileUtils.openInputStream (file);
+		}
+		catch (IOException e)
+		{
+			throw new ConverterException (e);
+		}
+	}
+
+	private static void close (InputStream in, File file)
+	{
+		try { in.close(); } catch (IOException e) { Logger.log.warn("Could not close " + file); }
+	}
+
 	static public void readFromXml(Pathway pwy, Reader in, boolean validate) throws ConverterException
 	{
 		readFromXmlImpl (pwy, new InputSource(in), validate);
 	}
 
+	/**
+	 * Read-only loading mode for bulk analysis.
+	 * Reads only DataNodes, Groups and Interactions into a compact {@link LitePathway},
+	 * skipping geometry, connector shapes, BioPAX, validation and listener setup.
+	 * Safe to call from multiple threads at once.
+	 */
+	@ThreadSafe
+	static public LitePathway readLite(File file) throws ConverterException
+	{
+		InputStream in = open (file);
+		try
+		{
+			return LitePathwayReader.read(new InputSource(in));
+		}
+		finally
+		{
+			close (in, file);
+		}
+	}
+
+	/**
+	 * Same as {@link #readLite(File)}, reading from a stream, which may be compressed.
+	 * The stream is not closed.
+	 */
+	@ThreadSafe
+	static public LitePathway readLite(InputStream in) throws ConverterException
+	{
+		try
+		{
+			in = FileUtils.decompress (in);
+		}
+		catch (IOException e)
+		{
+			throw new ConverterException (e);
+		}
+		return LitePathwayReader.read(new InputSource(in));
+	}
+
 	public static GpmlFormatReader getReaderForNamespace (Namespace ns)
 	{
 		GpmlFormatReader[] formats = new GpmlFormatReader[]
@@ -152,6 +242,7 @@ private static void readFromXmlImpl(Pathway pwy, InputSource in, boolean validat
 		// Start XML processing
 
 		SAXBuilder builder  = new SAXBuilder(false); // no validation when reading the xml file
+		long start = READ_TIMER.start();
 		// try to read the file; if an error occurs, catch the exception and print feedback
 		try
 		{
@@ -173,7 +264,7 @@ private static void readFromXmlImpl(Pathway pwy, InputSource in, boolean validat
 				throw new ConverterException ("This file looks like a pathway, " +
 						"but the namespace " + ns + " was not recognized. This application might be out of date.");
 			}
-			Logger.log.info ("Recognized format " + ns);
+			Logger.log.infof ("Recognized format %s", ns);
 
 			Logger.log.trace ("Start Validation");
 			if (validate) format.validateDocument(doc);
@@ -203,6 +294,10 @@ private static void readFromXmlImpl(Pathway pwy, InputSource in, boolean validat
 		catch(Exception e) { //Make all types of exceptions a ConverterException
 			throw new ConverterException (e);
 		}
+		finally
+		{
+			READ_TIMER.stop(start);
+		}
 	}
 	
 	@Override
@@ -211,8 +306,9 @@ public boolean isCorrectType(File f)
 		String uri;
 		try
 		{
-			uri = "" + RootElementFinder.getRootUri(f);
-			return uri.startsWith ("http://genmapp.org/");
+			uri = RootElementFinder.getRootUri(f);
+			// any namespace that we can read, including those of http://pathvisio.org/
+			return uri != null && getReaderForNamespace (Namespace.getNamespace(uri)) != null;
 		}
 		catch (Exception e)
 		{
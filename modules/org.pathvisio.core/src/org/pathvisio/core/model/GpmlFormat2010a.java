@@ -18,7 +18,6 @@
 
 import java.awt.Color;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.ArrayList;
@@ -35,8 +34,10 @@
 import org.jdom2.output.Format;
 import org.jdom2.output.XMLOutputter;
 import org.pathvisio.core.biopax.BiopaxElement;
+import org.pathvisio.core.debug.Logger;
 import org.pathvisio.core.model.PathwayElement.MAnchor;
 import org.pathvisio.core.model.PathwayElement.MPoint;
+import org.pathvisio.core.util.FileUtils;
 import org.pathvisio.core.view.ShapeRegistry;
 import org.pathvisio.core.view.State;
 
@@ -821,19 +822,34 @@ public void writeToXml(Pathway pwy, OutputStream out, boolean validate) throws C
 	 * @param file	the file to which the JDOM document should be saved
 	 * @param validate if true, validate the dom structure before writing to file. If there is a validation error,
 	 * 		or the xsd is not in the classpath, an exception will be thrown.
+	 * 		The file is compressed if its name ends with .gz or .zip.
 	 */
 	public void writeToXml(Pathway pwy, File file, boolean validate) throws ConverterException
 	{
 		OutputStream out;
 		try
 		{
-			out = new FileOutputStream(file);
+			out = FileUtils.openOutputStream(file, "gpml");
 		}
 		catch (IOException ex)
 		{
 			throw new ConverterException (ex);
 		}
-		writeToXml (pwy, out, validate);
+		try
+		{
+			writeToXml (pwy, out, validate);
+			out.close();
+			out = null;
+		}
+		catch (IOException ex)
+		{
+			throw new ConverterException (ex);
+		}
+		finally
+		{
+			// only after an error, don't hide it
+			if (out != null) try { out.close(); } catch (IOException ex) { Logger.log.warn("Could not close " + file); }
+		}
 	}
 
 	protected void mapSimpleCenter(PathwayElement o, Element e)
@@ -18,7 +18,6 @@
 
 import java.awt.Color;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.ArrayList;
@@ -36,8 +35,10 @@
 import org.jdom2.output.Format;
 import org.jdom2.output.XMLOutputter;
 import org.pathvisio.core.biopax.BiopaxElement;
+import org.pathvisio.core.debug.Logger;
 import org.pathvisio.core.model.PathwayElement.MAnchor;
 import org.pathvisio.core.model.PathwayElement.MPoint;
+import org.pathvisio.core.util.FileUtils;
 import org.pathvisio.core.view.ShapeRegistry;
 
 class GpmlFormat2013a extends GpmlFormatAbstract implements GpmlFormatReader, GpmlFormatWriter 
@@ -827,19 +828,48 @@ public Document createJdom(Pathway data) throws ConverterException
     	// now sort the generated elements in the order defined by the xsd
 		Collections.sort(elementList, new ByElementName());
 		for (Element e : elementList) {
-			// make sure biopax references are sorted alphabetically by rdf-id 
-			if(e.getName().equals("Biopax")) {
-				for(Element e3 : e.getChildren()) {
-					e3.removeChildren("AUTHORS", GpmlFormat.BIOPAX);
-				}
-				e.sortChildren(new BiopaxAttributeComparator());
-			}
+			sortBiopax(e);
 			root.addContent(e);
 		}
 
 		return doc;
 	}
-	
+
+	/**
+	 * make sure biopax references are sorted alphabetically by rdf-id
+	 */
+	private void sortBiopax(Element e)
+	{
+		if(e.getName().equals("Biopax")) {
+			for(Element e3 : e.getChildren()) {
+				e3.removeChildren("AUTHORS", GpmlFormat.BIOPAX);
+			}
+			e.sortChildren(new BiopaxAttributeComparator());
+		}
+	}
+
+	/**
+	 * The name of the element that {@link #createJdomElement(PathwayElement)}
+	 * creates for the given type, or null if it can't create one.
+	 */
+	private static String getElementName(ObjectType type)
+	{
+		switch (type)
+		{
+			case DATANODE: return "DataNode";
+			case STATE: return "State";
+			case SHAPE: return "Shape";
+			case LINE: return "Interaction";
+			case GRAPHLINE: return "GraphicalLine";
+			case LABEL: return "Label";
+			case LEGEND: return "Legend";
+			case INFOBOX: return "InfoBox";
+			case GROUP: return "Group";
+			case BIOPAX: return "Biopax";
+			default: return null;
+		}
+	}
+
 	public class BiopaxAttributeComparator implements Comparator<Element> {
 	    public int compare(Element e1, Element e2) {
 	    	String id1 = "";
@@ -855,28 +885,61 @@ public int compare(Element e1, Element e2) {
 	}
 
 	/**
-	 * Writes the JDOM document to the outputstream specified
-	 * @param out	the outputstream to which the JDOM document should be writed
-	 * @param validate if true, validate the dom structure before writing. If there is a validation error,
+	 * Writes the pathway to the outputstream specified.
+	 * <p>
+	 * The output is the same as the document of {@link #createJdom(Pathway)} written
+	 * with an {@link XMLOutputter}, but the document is never built as a whole. Elements are converted
+	 * and written one by one, in the order defined by the xsd.
+	 * @param out	the outputstream to which the pathway should be written
+	 * @param validate if true, validate the document while writing. If there is a validation error,
 	 * 		or the xsd is not in the classpath, an exception will be thrown.
 	 * @throws ConverterException
 	 */
 	public void writeToXml(Pathway pwy, OutputStream out, boolean validate) throws ConverterException {
-		Document doc = createJdom(pwy);
-		
-		//Validate the JDOM document
-		if (validate) validateDocument(doc);
-		//			Get the XML code
-		XMLOutputter xmlcode = new XMLOutputter(Format.getPrettyFormat());
-		Format f = xmlcode.getFormat();
+		Element root = new Element("Pathway", getGpmlNamespace());
+		List<PathwayElement> elementList = new ArrayList<PathwayElement>();
+
+		List<PathwayElement> pathwayElements = pwy.getDataObjects();
+		Collections.sort(pathwayElements);
+		for (PathwayElement o : pathwayElements)
+		{
+			if (o.getObjectType() == ObjectType.MAPPINFO)
+			{
+				updateMappInfo(root, o);
+			}
+			else if (getElementName(o.getObjectType()) == null)
+			{
+				throw new ConverterException ("Error creating jdom element with objectType " + o.getObjectType());
+			}
+			else
+			{
+				elementList.add(o);
+			}
+		}
+
+		// sort in the order defined by the xsd, the same way createJdom sorts the elements
+		final ByElementName byElementName = new ByElementName();
+		Collections.sort(elementList, new Comparator<PathwayElement>() {
+			public int compare(PathwayElement a, PathwayElement b) {
+				return byElementName.compare(getElementName(a.getObjectType()), getElementName(b.getObjectType()));
+			}
+		});
+
+		Format f = Format.getPrettyFormat();
 		f.setEncoding("UTF-8");
 		f.setTextMode(Format.TextMode.NORMALIZE);
-		xmlcode.setFormat(f);
 
 		try
 		{
-			//Send XML code to the outputstream
-			xmlcode.output(doc, out);
+			GpmlStreamWriter writer = new GpmlStreamWriter(out, f, validate ? createValidatorHandler() : null);
+			writer.writeStart(root);
+			for (PathwayElement o : elementList)
+			{
+				Element e = createJdomElement(o);
+				sortBiopax(e);
+				writer.write(e);
+			}
+			writer.writeEnd();
 		}
 		catch (IOException ie)
 		{
@@ -889,19 +952,34 @@ public void writeToXml(Pathway pwy, OutputStream out, boolean validate) throws C
 	 * @param file	the file to which the JDOM document should be saved
 	 * @param validate if true, validate the dom structure before writing to file. If there is a validation error,
 	 * 		or the xsd is not in the classpath, an exception will be thrown.
+	 * 		The file is compressed if its name ends with .gz or .zip.
 	 */
 	public void writeToXml(Pathway pwy, File file, boolean validate) throws ConverterException
 	{
 		OutputStream out;
 		try
 		{
-			out = new FileOutputStream(file);
+			out = FileUtils.openOutputStream(file, "gpml");
+		}
+		catch (IOException ex)
+		{
+			throw new ConverterException (ex);
+		}
+		try
+		{
+			writeToXml (pwy, out, validate);
+			out.close();
+			out = null;
 		}
 		catch (IOException ex)
 		{
 			throw new ConverterException (ex);
 		}
-		writeToXml (pwy, out, validate);
+		finally
+		{
+			// only after an error, don't hide it
+			if (out != null) try { out.close(); } catch (IOException ex) { Logger.log.warn("Could not close " + file); }
+		}
 	}
 
 	protected void mapSimpleCenter(PathwayElement o, Element e)
@@ -226,8 +226,15 @@ public ByElementName()
 		 * If a.getName() is Comment and b.getName() is Graphics, returns 1-2 -> -1
 		 */
 		public int compare(Element a, Element b) {
-			return ((Integer)elementOrdering.get(a.getName())).intValue() -
-				((Integer)elementOrdering.get(b.getName())).intValue();
+			return compare(a.getName(), b.getName());
+		}
+
+		/*
+		 * Same as above, for elements that haven't been created yet.
+		 */
+		public int compare(String a, String b) {
+			return ((Integer)elementOrdering.get(a)).intValue() -
+				((Integer)elementOrdering.get(b)).intValue();
 		}
 
 	}
@@ -658,7 +665,7 @@ private static void convertPointCoordinates(Pathway pathway) throws ConverterExc
 					);
 					pe.getMEnd().setRelativePosition(relative.getX(), relative.getY());
 				}
-                ((MLine)pe).getConnectorShape().recalculateShape(((MLine)pe));
+				((MLine)pe).invalidateConnectorShape();
 			}
 		}
 	}
@@ -668,31 +675,41 @@ private static void convertPointCoordinates(Pathway pathway) throws ConverterExc
 	 * @param doc the document to validate
 	 */
 	public void validateDocument(Document doc) throws ConverterException
+	{
+		ValidatorHandler vh = createValidatorHandler();
+		try {
+			SAXOutputter so = new SAXOutputter(vh);
+			so.output(doc);
+			// If no errors occur, the file is valid according to the gpml xml schema definition
+			Logger.log.info("Document is valid according to the xml schema definition '" +
+					xsdFile.toString() + "'");
+		} catch (JDOMException je) {
+			Logger.log.error("Document is invalid according to the xml-schema definition!: " +
+					je.getMessage(), je);
+			XMLOutputter xmlcode = new XMLOutputter(Format.getPrettyFormat());
+
+			Logger.log.error("The invalid XML code:\n" + xmlcode.outputString(doc));
+			throw new ConverterException (je);
+		}
+	}
+
+	/**
+	 * Creates a handler that validates SAX events against the xml-schema definition specified by 'xsdFile'.
+	 * Invalid content makes the handler throw an exception.
+	 */
+	protected ValidatorHandler createValidatorHandler() throws ConverterException
 	{
 		ClassLoader cl = Pathway.class.getClassLoader();
 		InputStream is = cl.getResourceAsStream(xsdFile);
 		if(is != null) {
-			Schema schema;
 			try {
 				SchemaFactory factory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
 				StreamSource ss = new StreamSource (is);
-				schema = factory.newSchema(ss);
-				ValidatorHandler vh =  schema.newValidatorHandler();
-				SAXOutputter so = new SAXOutputter(vh);
-				so.output(doc);
-				// If no errors occur, the file is valid according to the gpml xml schema definition
-				Logger.log.info("Document is valid according to the xml schema definition '" +
-						xsdFile.toString() + "'");
+				Schema schema = factory.newSchema(ss);
+				return schema.newValidatorHandler();
 			} catch (SAXException se) {
 				Logger.log.error("Could not parse the xml-schema definition", se);
 				throw new ConverterException (se);
-			} catch (JDOMException je) {
-				Logger.log.error("Document is invalid according to the xml-schema definition!: " +
-						je.getMessage(), je);
-				XMLOutputter xmlcode = new XMLOutputter(Format.getPrettyFormat());
-
-				Logger.log.error("The invalid XML code:\n" + xmlcode.outputString(doc));
-				throw new ConverterException (je);
 			}
 		} else {
 			Logger.log.error("Document is not validated because the xml schema definition '" +
@@ -0,0 +1,197 @@
+/*******************************************************************************
+ * PathVisio, a tool for data visualization and analysis using biological pathways
+ * Copyright 2006-2019 BiGCaT Bioinformatics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.pathvisio.core.model;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import javax.xml.validation.ValidatorHandler;
+
+import org.jdom2.Attribute;
+import org.jdom2.Element;
+import org.jdom2.JDOMException;
+import org.jdom2.Namespace;
+import org.jdom2.output.Format;
+import org.jdom2.output.SAXOutputter;
+import org.jdom2.output.XMLOutputter;
+import org.jdom2.output.support.AbstractXMLOutputProcessor;
+import org.jdom2.output.support.FormatStack;
+import org.jdom2.util.NamespaceStack;
+import org.pathvisio.core.debug.Logger;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * Writes an xml document one child of the root element at a time,
+ * so the complete document never has to be in memory.
+ * <p>
+ * The output is byte for byte the same as what an {@link XMLOutputter} with the
+ * same format writes for the complete document, because the children are written
+ * with the same output processor. Only the root element is written in pieces.
+ * <p>
+ * Optionally, the document is validated while it is written.
+ * Usage: {@link #writeStart(Element)}, {@link #write(Element)} for each child, {@link #writeEnd()}.
+ */
+class GpmlStreamWriter extends AbstractXMLOutputProcessor
+{
+	private final Writer out;
+	private final FormatStack fstack;
+	private final NamespaceStack nstack = new NamespaceStack();
+	private final ValidatorHandler validator;
+	private final SAXOutputter validatorOutput;
+	private Element root;
+	private boolean empty = true;
+
+	/**
+	 * @param out the stream to write to, it is flushed but not closed by {@link #writeEnd()}
+	 * @param format the format for the output, like the format of an {@link XMLOutputter}
+	 * @param validator handler to validate the document with, or null to skip validation
+	 */
+	GpmlStreamWriter(OutputStream out, Format format, ValidatorHandler validator) throws IOException
+	{
+		this.out = new BufferedWriter(new OutputStreamWriter(out, format.getEncoding()));
+		fstack = new FormatStack(format);
+		this.validator = validator;
+		validatorOutput = validator == null ? null : new SAXOutputter(validator);
+	}
+
+	/**
+	 * Write the xml declaration and the start tag of the root element, followed by
+	 * the content that the root element already has.
+	 */
+	void writeStart(Element root) throws IOException, ConverterException
+	{
+		this.root = root;
+		printDeclaration(out, fstack);
+
+		nstack.push(root);
+		write(out, "<");
+		write(out, root.getQualifiedName());
+		for (Namespace ns : nstack.addedForward())
+		{
+			printNamespace(out, fstack, ns);
+		}
+		for (Attribute att : root.getAttributes())
+		{
+			printAttribute(out, fstack, att);
+		}
+		fstack.push();
+
+		if (validator != null)
+		{
+			AttributesImpl atts = new AttributesImpl();
+			for (Attribute att : root.getAttributes())
+			{
+				atts.addAttribute(att.getNamespaceURI(), att.getName(), att.getQualifiedName(), "CDATA", att.getValue());
+			}
+			try
+			{
+				validator.startDocument();
+				for (Namespace ns : nstack.addedForward())
+				{
+					validator.startPrefixMapping(ns.getPrefix(), ns.getURI());
+				}
+				validator.startElement(root.getNamespaceURI(), root.getName(), root.getQualifiedName(), atts);
+			}
+			catch (SAXException e)
+			{
+				throw invalid(root, e);
+			}
+		}
+
+		for (Element e : root.getChildren())
+		{
+			write(e);
+		}
+	}
+
+	/**
+	 * Write a child of the root element.
+	 */
+	void write(Element e) throws IOException, ConverterException
+	{
+		if (empty)
+		{
+			write(out, ">");
+			empty = false;
+		}
+		write(out, fstack.getPadBetween());
+		printElement(out, fstack, nstack, e);
+
+		if (validator != null)
+		{
+			try
+			{
+				validatorOutput.outputFragment(e);
+			}
+			catch (JDOMException ex)
+			{
+				throw invalid(e, ex);
+			}
+		}
+	}
+
+	/**
+	 * Write the end tag of the root element, and flush the output.
+	 */
+	void writeEnd() throws IOException, ConverterException
+	{
+		fstack.pop();
+		if (empty)
+		{
+			write(out, " />");
+		}
+		else
+		{
+			write(out, fstack.getPadBetween());
+			write(out, "</");
+			write(out, root.getQualifiedName());
+			write(out, ">");
+		}
+		write(out, fstack.getLineSeparator());
+		out.flush();
+
+		if (validator != null)
+		{
+			try
+			{
+				validator.endElement(root.getNamespaceURI(), root.getName(), root.getQualifiedName());
+				for (Namespace ns : nstack.addedReverse())
+				{
+					validator.endPrefixMapping(ns.getPrefix());
+				}
+				validator.endDocument();
+			}
+			catch (SAXException e)
+			{
+				throw invalid(root, e);
+			}
+		}
+		nstack.pop();
+	}
+
+	private static ConverterException invalid(Element e, Exception cause)
+	{
+		Logger.log.error("Document is invalid according to the xml-schema definition!: " +
+				cause.getMessage(), cause);
+		Logger.log.error("The invalid XML code:\n" + new XMLOutputter(Format.getPrettyFormat()).outputString(e));
+		return new ConverterException (cause);
+	}
+}
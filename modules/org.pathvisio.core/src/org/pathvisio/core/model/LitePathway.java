@@ -0,0 +1,221 @@
+/*******************************************************************************
+ * PathVisio, a tool for data visualization and analysis using biological pathways
+ * Copyright 2006-2019 BiGCaT Bioinformatics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.pathvisio.core.model;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import org.bridgedb.Xref;
+import org.pathvisio.core.debug.ThreadSafe;
+
+/**
+ * Immutable, compact graph view of a pathway, for bulk analysis.
+ * <p>
+ * Contains only DataNode labels, types and Xrefs, group membership and
+ * Interactions. Geometry, styling, comments, BioPAX and GraphicalLines are not read,
+ * and no PathwayElements or listeners are created.
+ * Use {@link GpmlFormat#readLite(java.io.File)} to create one.
+ * <p>
+ * Everything is stored in parallel arrays indexed by int.
+ * Interaction end points refer to vertices. A vertex is either a DataNode
+ * (vertex index == node index), a Group (vertex index == node count + group index)
+ * or an Anchor on another interaction.
+ * Points linked to a State are resolved to the DataNode the State belongs to.
+ * End points that are unlinked, dangling, or linked to anything else
+ * (a Label, a Shape, ...) are -1.
+ * <p>
+ * Instances are immutable and can be shared between threads.
+ */
+@ThreadSafe
+public final class LitePathway
+{
+	private final String name;
+	private final String organism;
+
+	private final String[] nodeGraphIds;
+	private final String[] nodeLabels;
+	private final String[] nodeTypes;
+	private final Xref[] nodeXrefs;
+	private final int[] nodeGroups;
+
+	private final String[] groupIds;
+	private final String[] groupGraphIds;
+	private final int[] groupParents;
+	// members of group i are groupMembers[groupMemberStart[i]] until groupMemberStart[i+1]
+	private final int[] groupMemberStart;
+	private final int[] groupMembers;
+
+	private final String[] lineGraphIds;
+	private final Xref[] lineXrefs;
+	private final String[] lineStartArrows;
+	private final String[] lineEndArrows;
+	private final int[] lineStarts;
+	private final int[] lineEnds;
+
+	private final int[] anchorLines;
+
+	private final Map<String, Integer> vertexByGraphId;
+
+	LitePathway(String name, String organism,
+			String[] nodeGraphIds, String[] nodeLabels, String[] nodeTypes, Xref[] nodeXrefs, int[] nodeGroups,
+			String[] groupIds, String[] groupGraphIds, int[] groupParents,
+			String[] lineGraphIds, Xref[] lineXrefs, String[] lineStartArrows, String[] lineEndArrows,
+			int[] lineStarts, int[] lineEnds, int[] anchorLines,
+			Map<String, Integer> vertexByGraphId)
+	{
+		this.name = name;
+		this.organism = organism;
+		this.nodeGraphIds = nodeGraphIds;
+		this.nodeLabels = nodeLabels;
+		this.nodeTypes = nodeTypes;
+		this.nodeXrefs = nodeXrefs;
+		this.nodeGroups = nodeGroups;
+		this.groupIds = groupIds;
+		this.groupGraphIds = groupGraphIds;
+		this.groupParents = groupParents;
+		this.lineGraphIds = lineGraphIds;
+		this.lineXrefs = lineXrefs;
+		this.lineStartArrows = lineStartArrows;
+		this.lineEndArrows = lineEndArrows;
+		this.lineStarts = lineStarts;
+		this.lineEnds = lineEnds;
+		this.anchorLines = anchorLines;
+		this.vertexByGraphId = Collections.unmodifiableMap(vertexByGraphId);
+
+		// counting sort of nodes by group, so members can be returned without searching
+		groupMemberStart = new int[groupIds.length + 1];
+		for (int g : nodeGroups)
+		{
+			if (g >= 0) groupMemberStart[g + 1]++;
+		}
+		for (int i = 0; i < groupIds.length; ++i)
+		{
+			groupMemberStart[i + 1] += groupMemberStart[i];
+		}
+		groupMembers = new int[groupMemberStart[groupIds.length]];
+		int[] fill = Arrays.copyOf(groupMemberStart, groupIds.length);
+		for (int i = 0; i < nodeGroups.length; ++i)
+		{
+			int g = nodeGroups[i];
+			if (g >= 0) groupMembers[fill[g]++] = i;
+		}
+	}
+
+	/** Name of the pathway, as stored in the Pathway element */
+	public String getName() { return name; }
+
+	/** Organism of the pathway, may be null */
+	public String getOrganism() { return organism; }
+
+	public int getNodeCount() { return nodeGraphIds.length; }
+
+	/** GraphId of a DataNode, may be null */
+	public String getNodeGraphId(int node) { return nodeGraphIds[node]; }
+
+	public String getNodeLabel(int node) { return nodeLabels[node]; }
+
+	/** DataNode type, e.g. GeneProduct or Metabolite */
+	public String getNodeType(int node) { return nodeTypes[node]; }
+
+	/** Xref of a DataNode. The DataSource may be null if the DataNode is not annotated */
+	public Xref getNodeXref(int node) { return nodeXrefs[node]; }
+
+	/** index of the group this DataNode belongs to, or -1 */
+	public int getNodeGroup(int node) { return nodeGroups[node]; }
+
+	public int getGroupCount() { return groupIds.length; }
+
+	public String getGroupId(int group) { return groupIds[group]; }
+
+	/** GraphId of a Group, may be null */
+	public String getGroupGraphId(int group) { return groupGraphIds[group]; }
+
+	/** index of the enclosing group for nested groups, or -1 */
+	public int getGroupParent(int group) { return groupParents[group]; }
+
+	/**
+	 * DataNodes that are direct members of a group, in document order.
+	 * Members of nested groups are not included.
+	 */
+	public int[] getGroupMembers(int group)
+	{
+		return Arrays.copyOfRange(groupMembers, groupMemberStart[group], groupMemberStart[group + 1]);
+	}
+
+	public int getInteractionCount() { return lineGraphIds.length; }
+
+	/** GraphId of an Interaction, may be null */
+	public String getInteractionGraphId(int line) { return lineGraphIds[line]; }
+
+	/** Xref of an Interaction, or null if the Interaction is not annotated */
+	public Xref getInteractionXref(int line) { return lineXrefs[line]; }
+
+	/** ArrowHead name of the start point, e.g. "Line" or "mim-conversion" */
+	public String getInteractionStartArrow(int line) { return lineStartArrows[line]; }
+
+	/** ArrowHead name of the end point, e.g. "Arrow" or "mim-conversion" */
+	public String getInteractionEndArrow(int line) { return lineEndArrows[line]; }
+
+	/** vertex the start point is linked to, or -1 */
+	public int getInteractionStart(int line) { return lineStarts[line]; }
+
+	/** vertex the end point is linked to, or -1 */
+	public int getInteractionEnd(int line) { return lineEnds[line]; }
+
+	public int getVertexCount() { return nodeGraphIds.length + groupIds.length + anchorLines.length; }
+
+	public boolean isNodeVertex(int vertex)
+	{
+		return vertex >= 0 && vertex < nodeGraphIds.length;
+	}
+
+	public boolean isGroupVertex(int vertex)
+	{
+		return vertex >= nodeGraphIds.length && vertex < nodeGraphIds.length + groupIds.length;
+	}
+
+	public boolean isAnchorVertex(int vertex)
+	{
+		return vertex >= nodeGraphIds.length + groupIds.length && vertex < getVertexCount();
+	}
+
+	/** group index of a group vertex */
+	public int getVertexGroup(int vertex)
+	{
+		if (!isGroupVertex(vertex)) throw new IllegalArgumentException("Not a group vertex: " + vertex);
+		return vertex - nodeGraphIds.length;
+	}
+
+	/** the interaction that carries an anchor vertex */
+	public int getAnchorInteraction(int vertex)
+	{
+		if (!isAnchorVertex(vertex)) throw new IllegalArgumentException("Not an anchor vertex: " + vertex);
+		return anchorLines[vertex - nodeGraphIds.length - groupIds.length];
+	}
+
+	/**
+	 * Look up the vertex for a GraphId. GraphIds of States
+	 * map to their DataNode.
+	 * @return the vertex, or -1 if there is no node, group, state or anchor with this id.
+	 */
+	public int findVertex(String graphId)
+	{
+		Integer v = vertexByGraphId.get(graphId);
+		return v == null ? -1 : v;
+	}
+}
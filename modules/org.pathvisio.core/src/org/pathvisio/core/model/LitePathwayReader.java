@@ -0,0 +1,343 @@
+/*******************************************************************************
+ * PathVisio, a tool for data visualization and analysis using biological pathways
+ * Copyright 2006-2019 BiGCaT Bioinformatics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.pathvisio.core.model;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bridgedb.DataSource;
+import org.bridgedb.Xref;
+import org.jdom2.Namespace;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+import org.xml.sax.helpers.XMLReaderFactory;
+
+/**
+ * Sax handler that builds a {@link LitePathway} in a single streaming pass.
+ * Works for all GPML versions. Only the attributes needed by LitePathway are
+ * looked at, everything else (Graphics, Biopax, Comments, ...) is skipped.
+ * <p>
+ * One instance reads one document, create a new one for each file.
+ */
+class LitePathwayReader extends DefaultHandler
+{
+	/** DataSource.getByFullName registers unknown names in a static map, which is not thread safe */
+	private static final Object DATASOURCE_LOCK = new Object();
+
+	private enum Context { NONE, NODE, STATE, LINE };
+
+	private String name;
+	private String organism;
+
+	private final List<String> nodeGraphIds = new ArrayList<String>();
+	private final List<String> nodeLabels = new ArrayList<String>();
+	private final List<String> nodeTypes = new ArrayList<String>();
+	private final List<Xref> nodeXrefs = new ArrayList<Xref>();
+	private final List<String> nodeGroupRefs = new ArrayList<String>();
+
+	private final List<String> groupIds = new ArrayList<String>();
+	private final List<String> groupGraphIds = new ArrayList<String>();
+	private final List<String> groupGroupRefs = new ArrayList<String>();
+
+	private final List<String> lineGraphIds = new ArrayList<String>();
+	private final List<Xref> lineXrefs = new ArrayList<Xref>();
+	private final List<String> lineStartArrows = new ArrayList<String>();
+	private final List<String> lineEndArrows = new ArrayList<String>();
+	private final List<String> lineStartRefs = new ArrayList<String>();
+	private final List<String> lineEndRefs = new ArrayList<String>();
+
+	private final List<String> anchorGraphIds = new ArrayList<String>();
+	private final List<Integer> anchorLines = new ArrayList<Integer>();
+
+	// state graphId -> graphRef of the DataNode it belongs to
+	private final Map<String, String> stateRefs = new HashMap<String, String>();
+
+	private boolean rootSeen = false;
+	private int skipDepth = 0;
+	private Context context = Context.NONE;
+	private int pointCount;
+	private String lastPointArrow;
+
+	/**
+	 * Parse a GPML document.
+	 * @throws ConverterException if the input is not a recognized GPML file.
+	 */
+	static LitePathway read(InputSource in) throws ConverterException
+	{
+		LitePathwayReader handler = new LitePathwayReader();
+		try
+		{
+			XMLReader xr = XMLReaderFactory.createXMLReader();
+			xr.setContentHandler(handler);
+			xr.setErrorHandler(handler);
+			xr.parse(in);
+		}
+		catch (SAXException e)
+		{
+			throw new ConverterException (e);
+		}
+		catch (IOException e)
+		{
+			throw new ConverterException (e);
+		}
+		return handler.build();
+	}
+
+	private static Xref createXref(String id, String database)
+	{
+		DataSource ds = null;
+		if (database != null && !"".equals(database))
+		{
+			synchronized (DATASOURCE_LOCK)
+			{
+				ds = DataSource.getByFullName(database);
+			}
+		}
+		return new Xref(id == null ? "" : id, ds);
+	}
+
+	private static String intern(String s)
+	{
+		return s == null ? null : s.intern();
+	}
+
+	@Override
+	public void startElement(String uri, String localName, String qName, Attributes attributes)
+			throws SAXException
+	{
+		if (skipDepth > 0)
+		{
+			skipDepth++;
+			return;
+		}
+		if (!rootSeen)
+		{
+			rootSeen = true;
+			if (!"Pathway".equals(localName))
+			{
+				throw new SAXException ("Not a Pathway file");
+			}
+			if (GpmlFormat.getReaderForNamespace(Namespace.getNamespace(uri)) == null)
+			{
+				throw new SAXException ("This file looks like a pathway, " +
+						"but the namespace " + uri + " was not recognized. This application might be out of date.");
+			}
+			name = attributes.getValue("Name");
+			organism = attributes.getValue("Organism");
+			return;
+		}
+
+		if ("DataNode".equals(localName))
+		{
+			context = Context.NODE;
+			nodeGraphIds.add(attributes.getValue("GraphId"));
+			String label = attributes.getValue("TextLabel");
+			nodeLabels.add(label == null ? "" : label);
+			String type = attributes.getValue("Type");
+			nodeTypes.add(intern(type == null ? "Unknown" : type));
+			nodeXrefs.add(null);
+			nodeGroupRefs.add(attributes.getValue("GroupRef"));
+		}
+		else if ("State".equals(localName))
+		{
+			context = Context.STATE;
+			String id = attributes.getValue("GraphId");
+			String ref = attributes.getValue("GraphRef");
+			if (id != null && ref != null) stateRefs.put(id, ref);
+		}
+		else if ("Interaction".equals(localName) || "Line".equals(localName))
+		{
+			context = Context.LINE;
+			pointCount = 0;
+			lastPointArrow = null;
+			lineGraphIds.add(attributes.getValue("GraphId"));
+			lineXrefs.add(null);
+			lineStartArrows.add("Line");
+			lineEndArrows.add("Line");
+			lineStartRefs.add(null);
+			lineEndRefs.add(null);
+		}
+		else if ("Group".equals(localName))
+		{
+			context = Context.NONE;
+			groupIds.add(attributes.getValue("GroupId"));
+			groupGraphIds.add(attributes.getValue("GraphId"));
+			groupGroupRefs.add(attributes.getValue("GroupRef"));
+		}
+		else if ("Xref".equals(localName))
+		{
+			Xref xref = createXref(attributes.getValue("ID"), attributes.getValue("Database"));
+			if (context == Context.NODE)
+			{
+				nodeXrefs.set(nodeXrefs.size() - 1, xref);
+			}
+			else if (context == Context.LINE && !"".equals(xref.getId()))
+			{
+				lineXrefs.set(lineXrefs.size() - 1, xref);
+			}
+		}
+		else if ("Point".equals(localName) && context == Context.LINE)
+		{
+			int last = lineGraphIds.size() - 1;
+			String ref = attributes.getValue("GraphRef");
+			String arrow = intern(attributes.getValue("ArrowHead"));
+			if (pointCount == 0)
+			{
+				lineStartRefs.set(last, ref);
+				lineStartArrows.set(last, arrow == null ? "Line" : arrow);
+				// deprecated Head attribute on the first point, for backwards compatibility
+				String head = intern(attributes.getValue("Head"));
+				if (head != null) lineEndArrows.set(last, head);
+			}
+			else
+			{
+				// intermediate points are overwritten by the following ones
+				lineEndRefs.set(last, ref);
+				lastPointArrow = arrow;
+			}
+			pointCount++;
+		}
+		else if ("Anchor".equals(localName) && context == Context.LINE)
+		{
+			String id = attributes.getValue("GraphId");
+			if (id != null)
+			{
+				anchorGraphIds.add(id);
+				anchorLines.add(lineGraphIds.size() - 1);
+			}
+		}
+		else if ("Biopax".equals(localName))
+		{
+			skipDepth = 1;
+		}
+		else if ("Label".equals(localName) || "Shape".equals(localName)
+				|| "GraphicalLine".equals(localName) || "InfoBox".equals(localName)
+				|| "Legend".equals(localName))
+		{
+			context = Context.NONE;
+			skipDepth = 1;
+		}
+	}
+
+	@Override
+	public void endElement(String uri, String localName, String qName) throws SAXException
+	{
+		if (skipDepth > 0)
+		{
+			skipDepth--;
+			return;
+		}
+		if ("Interaction".equals(localName) || "Line".equals(localName))
+		{
+			// an ArrowHead on the last point overrides the deprecated Head
+			if (lastPointArrow != null) lineEndArrows.set(lineEndArrows.size() - 1, lastPointArrow);
+			context = Context.NONE;
+		}
+		else if ("DataNode".equals(localName) || "State".equals(localName))
+		{
+			context = Context.NONE;
+		}
+	}
+
+	private static int[] toIntArray(List<Integer> list)
+	{
+		int[] result = new int[list.size()];
+		for (int i = 0; i < result.length; ++i) result[i] = list.get(i);
+		return result;
+	}
+
+	private static int resolve(Map<String, Integer> index, String ref)
+	{
+		if (ref == null) return -1;
+		Integer i = index.get(ref);
+		return i == null ? -1 : i;
+	}
+
+	private LitePathway build() throws ConverterException
+	{
+		if (!rootSeen) throw new ConverterException ("Not a Pathway file");
+
+		int nNodes = nodeGraphIds.size();
+		int nGroups = groupIds.size();
+
+		Map<String, Integer> vertices = new HashMap<String, Integer>();
+		for (int i = 0; i < nNodes; ++i)
+		{
+			String id = nodeGraphIds.get(i);
+			if (id != null) vertices.put(id, i);
+			if (nodeXrefs.get(i) == null) nodeXrefs.set(i, new Xref("", null));
+		}
+		Map<String, Integer> groupsById = new HashMap<String, Integer>();
+		for (int i = 0; i < nGroups; ++i)
+		{
+			String id = groupGraphIds.get(i);
+			if (id != null) vertices.put(id, nNodes + i);
+			if (groupIds.get(i) != null) groupsById.put(groupIds.get(i), i);
+		}
+		for (int i = 0; i < anchorGraphIds.size(); ++i)
+		{
+			vertices.put(anchorGraphIds.get(i), nNodes + nGroups + i);
+		}
+		for (Map.Entry<String, String> e : stateRefs.entrySet())
+		{
+			int v = resolve(vertices, e.getValue());
+			if (v >= 0 && !vertices.containsKey(e.getKey())) vertices.put(e.getKey(), v);
+		}
+
+		int[] nodeGroups = new int[nNodes];
+		for (int i = 0; i < nNodes; ++i)
+		{
+			nodeGroups[i] = resolve(groupsById, nodeGroupRefs.get(i));
+		}
+		int[] groupParents = new int[nGroups];
+		for (int i = 0; i < nGroups; ++i)
+		{
+			groupParents[i] = resolve(groupsById, groupGroupRefs.get(i));
+		}
+		int nLines = lineGraphIds.size();
+		int[] starts = new int[nLines];
+		int[] ends = new int[nLines];
+		for (int i = 0; i < nLines; ++i)
+		{
+			starts[i] = resolve(vertices, lineStartRefs.get(i));
+			ends[i] = resolve(vertices, lineEndRefs.get(i));
+		}
+
+		return new LitePathway(name, organism,
+				nodeGraphIds.toArray(new String[nNodes]),
+				nodeLabels.toArray(new String[nNodes]),
+				nodeTypes.toArray(new String[nNodes]),
+				nodeXrefs.toArray(new Xref[nNodes]),
+				nodeGroups,
+				groupIds.toArray(new String[nGroups]),
+				groupGraphIds.toArray(new String[nGroups]),
+				groupParents,
+				lineGraphIds.toArray(new String[nLines]),
+				lineXrefs.toArray(new Xref[nLines]),
+				lineStartArrows.toArray(new String[nLines]),
+				lineEndArrows.toArray(new String[nLines]),
+				starts, ends,
+				toIntArray(anchorLines),
+				vertices);
+	}
+}
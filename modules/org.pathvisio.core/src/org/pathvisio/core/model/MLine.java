@@ -36,6 +36,9 @@
 public class MLine extends PathwayElement implements ConnectorRestrictions {
 	ConnectorShape shape;
 
+	// true if the connector shape needs to be recalculated before it is used
+	private boolean shapeDirty = true;
+
 	public MLine(ObjectType ot) {
 		super(ot);
 	}
@@ -43,7 +46,11 @@ public MLine(ObjectType ot) {
 	/**
 	 * the Connector Shape for this line - the connector shape
 	 * can calculate a Shape based on the connector type (straight, elbow or curved)
-	 * and possibly way points
+	 * and possibly way points.
+	 * <p>
+	 * The connector shape is recalculated here, if the line has
+	 * changed since the last call. So there is no need to call
+	 * {@link ConnectorShape#recalculateShape} after a change.
 	 */
 	public ConnectorShape getConnectorShape() {
 		String type = getConnectorType().getName();
@@ -52,11 +59,59 @@ public ConnectorShape getConnectorShape() {
 		//doesn't match the implementing class
 		if(shape == null || !shape.getClass().equals(ConnectorShapeFactory.getImplementingClass(type))) {
 			shape = ConnectorShapeFactory.createConnectorShape(getConnectorType().getName());
+			shapeDirty = true;
+		}
+		if(shapeDirty) {
+			shapeDirty = false;
 			shape.recalculateShape(this);
 		}
 		return shape;
 	}
 
+	/**
+	 * Mark the connector shape for recalculation, for changes that
+	 * are not signalled by an event on this line. The calculation
+	 * itself is postponed until the next call to {@link #getConnectorShape()}.
+	 */
+	public void invalidateConnectorShape() {
+		shapeDirty = true;
+	}
+
+	/**
+	 * Called by the parent pathway when an obstacle is added, removed or moved.
+	 * If this line has a route around obstacles, and the bounds of the route intersect
+	 * the old or new bounds of the obstacle, the route is recalculated.
+	 * @param oldBounds bounds before the change, may be null
+	 * @param newBounds bounds after the change
+	 * @return false if the pathway doesn't need to tell this line about obstacles
+	 * anymore, until it is routed again.
+	 */
+	boolean obstacleChanged(Rectangle2D oldBounds, Rectangle2D newBounds) {
+		if(shapeDirty || !RoutedConnectorShape.isRouted(shape)) return false;
+		// a straight route has an empty bounding box, which intersects nothing
+		Rectangle2D route = shape.getShape().getBounds2D();
+		route.add(route.getMinX() - 1, route.getMinY() - 1);
+		route.add(route.getMaxX() + 1, route.getMaxY() + 1);
+		if(route.intersects(newBounds) || (oldBounds != null && route.intersects(oldBounds))) {
+			// also tells the view that the line has changed
+			fireObjectModifiedEvent(PathwayElementEvent.createCoordinatePropertyEvent(this));
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Changes to the end points, waypoints and connector type of this line,
+	 * and moves of the objects it is linked to, all pass through here.
+	 * The shape is marked dirty even if the event itself is suppressed by
+	 * {@link #dontFireEvents(int)}.
+	 */
+	@Override
+	public void fireObjectModifiedEvent(PathwayElementEvent e) {
+		shapeDirty = true;
+		super.fireObjectModifiedEvent(e);
+	}
+
 	/**
 	 * returns the center x coordinate of the bounding box around (start, end)
 	 */
@@ -424,19 +479,7 @@ private int getOppositeSide(int side) {
 	 */
 	public Shape mayCross(Point2D point) {
 		Pathway parent = getParent();
-		Rectangle2D rect = null;
-		if(parent != null) {
-			for(PathwayElement e : parent.getDataObjects()) {
-				ObjectType ot = e.getObjectType();
-				if(ot == ObjectType.SHAPE || ot == ObjectType.DATANODE || ot == ObjectType.LABEL) {
-					Rectangle2D b = e.getMBounds();
-					if(b.contains(point)) {
-						if(rect == null) rect = b;
-						else rect.add(b);
-					}
-				}
-			}
-		}
-		return rect;
+		if(parent == null) return null;
+		return parent.getObstacleIndex().getBoundsAt(point);
 	}
 }
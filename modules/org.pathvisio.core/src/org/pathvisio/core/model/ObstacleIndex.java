@@ -0,0 +1,234 @@
+/*******************************************************************************
+ * PathVisio, a tool for data visualization and analysis using biological pathways
+ * Copyright 2006-2019 BiGCaT Bioinformatics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.pathvisio.core.model;
+
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Package private.
+ * <p>
+ * Spatial index of the objects a connector should not cross: the bounds of
+ * DataNodes, Shapes and Labels. The bounds are bucketed in a uniform grid,
+ * so finding the objects at a point only looks at the few objects
+ * in the grid cell of that point, instead of at every element of the pathway.
+ * <p>
+ * The index is a snapshot, it doesn't follow changes to the pathway.
+ * {@link Pathway#getObstacleIndex()} keeps one around and drops it when
+ * an obstacle is added, removed or moved.
+ */
+class ObstacleIndex
+{
+	// preferred size of a grid cell, in model coordinates
+	private static final double CELL_SIZE = 64.0;
+
+	// upper limit to the number of grid cells, for very large boards
+	private static final int MAX_CELLS = 1 << 16;
+
+	private final PathwayElement[] elements;
+	private final Rectangle2D[] bounds;
+	private final double[] left, top, right, bottom;
+
+	private final double originX, originY, cellSize;
+	private final int cols, rows;
+
+	// obstacles in cell i are cellItems[cellStart[i]] until cellStart[i+1]
+	private final int[] cellStart;
+	private final int[] cellItems;
+
+	/** true for the object types that connectors route around */
+	static boolean isObstacle(PathwayElement e)
+	{
+		ObjectType ot = e.getObjectType();
+		return ot == ObjectType.SHAPE || ot == ObjectType.DATANODE || ot == ObjectType.LABEL;
+	}
+
+	ObstacleIndex(Collection<PathwayElement> objects)
+	{
+		List<PathwayElement> obstacles = new ArrayList<PathwayElement>();
+		for (PathwayElement e : objects)
+		{
+			if (isObstacle(e)) obstacles.add(e);
+		}
+		int n = obstacles.size();
+		elements = obstacles.toArray(new PathwayElement[n]);
+		bounds = new Rectangle2D[n];
+		left = new double[n];
+		top = new double[n];
+		right = new double[n];
+		bottom = new double[n];
+
+		double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE;
+		double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+		for (int i = 0; i < n; ++i)
+		{
+			Rectangle2D b = obstacles.get(i).getMBounds();
+			bounds[i] = b;
+			left[i] = b.getMinX();
+			top[i] = b.getMinY();
+			right[i] = b.getMaxX();
+			bottom[i] = b.getMaxY();
+			minX = Math.min(minX, left[i]);
+			minY = Math.min(minY, top[i]);
+			maxX = Math.max(maxX, right[i]);
+			maxY = Math.max(maxY, bottom[i]);
+		}
+		if (n == 0)
+		{
+			minX = minY = maxX = maxY = 0;
+		}
+
+		double size = CELL_SIZE;
+		while (cellCount(maxX - minX, size) * cellCount(maxY - minY, size) > MAX_CELLS)
+		{
+			size *= 2;
+		}
+		originX = minX;
+		originY = minY;
+		cellSize = size;
+		cols = cellCount(maxX - minX, size);
+		rows = cellCount(maxY - minY, size);
+
+		// counting sort of obstacles by cell, an obstacle is listed in every cell it overlaps
+		cellStart = new int[cols * rows + 1];
+		for (int i = 0; i < n; ++i)
+		{
+			for (int r = row(top[i]); r <= row(bottom[i]); ++r)
+				for (int c = col(left[i]); c <= col(right[i]); ++c)
+					cellStart[r * cols + c + 1]++;
+		}
+		for (int i = 0; i < cols * rows; ++i)
+		{
+			cellStart[i + 1] += cellStart[i];
+		}
+		cellItems = new int[cellStart[cols * rows]];
+		int[] fill = Arrays.copyOf(cellStart, cols * rows);
+		for (int i = 0; i < n; ++i)
+		{
+			for (int r = row(top[i]); r <= row(bottom[i]); ++r)
+				for (int c = col(left[i]); c <= col(right[i]); ++c)
+					cellItems[fill[r * cols + c]++] = i;
+		}
+	}
+
+	private static int cellCount(double extent, double size)
+	{
+		return (int)(extent / size) + 1;
+	}
+
+	private int col(double x)
+	{
+		return Math.min(cols - 1, Math.max(0, (int)((x - originX) / cellSize)));
+	}
+
+	private int row(double y)
+	{
+		return Math.min(rows - 1, Math.max(0, (int)((y - originY) / cellSize)));
+	}
+
+	/** @return the grid cell containing this point, or -1 if the point is outside all obstacles */
+	private int cell(double x, double y)
+	{
+		if (x < originX || y < originY) return -1;
+		int c = (int)((x - originX) / cellSize);
+		int r = (int)((y - originY) / cellSize);
+		if (c >= cols || r >= rows) return -1;
+		return r * cols + c;
+	}
+
+	/** same rule as {@link Rectangle2D#contains(Point2D)} */
+	private boolean contains(int i, double x, double y)
+	{
+		return x >= left[i] && y >= top[i] && x < right[i] && y < bottom[i];
+	}
+
+	/**
+	 * The bounds of an obstacle at the time the index was built,
+	 * or null if it isn't in the index.
+	 */
+	Rectangle2D getBounds(PathwayElement e)
+	{
+		for (int i = 0; i < elements.length; ++i)
+		{
+			if (elements[i] == e) return bounds[i];
+		}
+		return null;
+	}
+
+	/** number of obstacles in the index */
+	int size()
+	{
+		return bounds.length;
+	}
+
+	/**
+	 * Check if there is an obstacle at this point.
+	 * @param ignore obstacles to skip, by index. May be null.
+	 */
+	boolean isBlocked(double x, double y, boolean[] ignore)
+	{
+		int cell = cell(x, y);
+		if (cell < 0) return false;
+		for (int j = cellStart[cell]; j < cellStart[cell + 1]; ++j)
+		{
+			int i = cellItems[j];
+			if (ignore != null && ignore[i]) continue;
+			if (contains(i, x, y)) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Mark the obstacles that contain the given point, or have it on their border.
+	 * Used for the objects a connector starts or ends on.
+	 */
+	void markAt(Point2D p, boolean[] marks)
+	{
+		double x = p.getX();
+		double y = p.getY();
+		for (int i = 0; i < bounds.length; ++i)
+		{
+			if (x >= left[i] && y >= top[i] && x <= right[i] && y <= bottom[i]) marks[i] = true;
+		}
+	}
+
+	/**
+	 * The union of the bounds of all obstacles that contain this point,
+	 * or null if there are none.
+	 */
+	Rectangle2D getBoundsAt(Point2D p)
+	{
+		double x = p.getX();
+		double y = p.getY();
+		int cell = cell(x, y);
+		if (cell < 0) return null;
+		Rectangle2D result = null;
+		for (int j = cellStart[cell]; j < cellStart[cell + 1]; ++j)
+		{
+			int i = cellItems[j];
+			if (!contains(i, x, y)) continue;
+			Rectangle2D b = (Rectangle2D)bounds[i].clone();
+			if (result == null) result = b;
+			else result.add(b);
+		}
+		return result;
+	}
+}
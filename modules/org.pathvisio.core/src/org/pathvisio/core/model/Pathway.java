@@ -16,6 +16,7 @@
  ******************************************************************************/
 package org.pathvisio.core.model;
 
+import java.awt.geom.Rectangle2D;
 import java.io.File;
 import java.io.InputStream;
 import java.io.Reader;
@@ -27,6 +28,7 @@
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
@@ -243,8 +245,10 @@ public void add (PathwayElement o)
 		if(o instanceof BiopaxElement && o != biopax)
 		{
 			if(biopax != null) {
-				replaceUnique (biopax, o);
+				// set before adding, so the new element builds its reference index
+				BiopaxElement old = biopax;
 				biopax = (BiopaxElement)o;
+				replaceUnique (old, o);
 				return;
 			}
 			biopax = (BiopaxElement)o;
@@ -267,11 +271,15 @@ private void forceAddObject(PathwayElement o) {
 		if (o.getParent() != null) { o.getParent().remove(o); }
 		dataObjects.add(o);
 		o.setParent(this);
-		for (MPoint p : o.getMPoints())
+		// only lines have points, don't make other elements allocate them
+		if (o instanceof MLine)
 		{
-			if (p.getGraphRef() != null)
+			for (MPoint p : o.getMPoints())
 			{
-				addGraphRef(p.getGraphRef(), p);
+				if (p.getGraphRef() != null)
+				{
+					addGraphRef(p.getGraphRef(), p);
+				}
 			}
 		}
 		if(o.getGroupRef() != null)
@@ -297,6 +305,18 @@ private void forceAddObject(PathwayElement o) {
 		{
 			addGraphRef(o.getGraphRef(), (GraphRefContainer)o);
 		}
+		if (o == biopax)
+		{
+			biopax.rebuildReferences();
+		}
+		else
+		{
+			for (String ref : o.getBiopaxRefs())
+			{
+				addBiopaxRef(ref, o);
+			}
+		}
+		if (ObstacleIndex.isObstacle(o)) obstacleChanged(o);
 		fireObjectModifiedEvent(new PathwayEvent(o, PathwayEvent.ADDED));
 		checkMBoardSize(o);
 	}
@@ -342,6 +362,7 @@ void childModified (PathwayElementEvent e)
 		{
 
 			PathwayElement elt = e.getModifiedPathwayElement();
+			if (ObstacleIndex.isObstacle(elt) && boundsChanged(elt)) obstacleChanged(elt);
 			for(GraphRefContainer refc : getReferringObjects(elt.getGraphId())) 
 			{
 				refc.refeeChanged();
@@ -402,18 +423,32 @@ private void forceRemove(PathwayElement o) {
 		{
 			refc.unlink();
 		}
+		// only lines have points, don't make other elements allocate them
+		if (o instanceof MLine)
+		{
+			for (MPoint p : o.getMPoints())
+			{
+				String ref = p.getGraphRef();
+				if (ref != null && graphRefs.containsKey(ref))
+				{
+					removeGraphRef(ref, p);
+				}
+			}
+		}
 		String groupRef = o.getGroupRef();
 		if(groupRef != null)
 		{
 			removeGroupRef(groupRef, o);			
 		}
 		// Add one or multiples literature(s) reference(s) to the list to deletion
-		if (o.getBiopaxRefs() != null){
-			for (String ref : o.getBiopaxRefs()){
-				BiopaxNode node = getBiopax().getElement(ref);
+		if (biopax != null)
+		{
+			for (String ref : o.getBiopaxRefs())
+			{
+				biopax.removeReference(ref, o);
 				//if no an another pathway element use this literature reference
 				//add to the list to deletion
-				if(!getBiopax().hasReferences(node))
+				if(!biopax.hasReferences(ref))
 					biopaxReferenceToDelete.add(ref);
 			}
 		}
@@ -435,15 +470,106 @@ private void forceRemove(PathwayElement o) {
 		{
 			removeGraphRef(o.getGraphRef(), (GraphRefContainer)o);
 		}
+		if (ObstacleIndex.isObstacle(o)) obstacleChanged(o);
 		fireObjectModifiedEvent(new PathwayEvent(o, PathwayEvent.DELETED));
 		o.setParent(null);
 	}
 
+	/**
+	 * only used by children of this Pathway to
+	 * keep the biopax reference index up to date.
+	 * Nothing to do as long as there is no biopax element,
+	 * it builds its index when it's added.
+	 */
+	void addBiopaxRef(String ref, PathwayElement target)
+	{
+		if (biopax != null) biopax.addReference(ref, target);
+	}
+
+	/**
+	 * only used by children of this Pathway to
+	 * keep the biopax reference index up to date.
+	 */
+	void removeBiopaxRef(String ref, PathwayElement target)
+	{
+		if (biopax != null) biopax.removeReference(ref, target);
+	}
+
 	/**
 	 * Stores references of graph ids to other GraphRefContainers
 	 */
 	private Map<String, Set<GraphRefContainer>> graphRefs = new HashMap<String, Set<GraphRefContainer>>();
 	private Map<String, GraphIdContainer> graphIds = new HashMap<String, GraphIdContainer>();
+	private final AdjacencyIndex adjacency = new AdjacencyIndex(this);
+
+	/**
+	 * Index of the lines between objects, for neighbor and path queries.
+	 * Kept up to date as links between lines and objects change.
+	 */
+	public AdjacencyIndex getAdjacencyIndex()
+	{
+		return adjacency;
+	}
+
+	private ObstacleIndex obstacles = null;
+
+	/**
+	 * Spatial index of the objects that connectors route around.
+	 * Built on demand, and dropped again when one of these objects is added, removed or moved.
+	 */
+	ObstacleIndex getObstacleIndex()
+	{
+		if (obstacles == null) obstacles = new ObstacleIndex(dataObjects);
+		return obstacles;
+	}
+
+	/** Lines that have been routed around obstacles, see {@link #obstacleChanged(PathwayElement)} */
+	private final Set<MLine> routedLines = new HashSet<MLine>();
+
+	/** only used by routed connector shapes, to be told about obstacles that change */
+	void addRoutedLine(MLine line)
+	{
+		routedLines.add(line);
+	}
+
+	/**
+	 * Called when an obstacle is added, removed or moved. Drops the obstacle index,
+	 * and lets the routed lines near the old or new position of the obstacle
+	 * find a new route.
+	 */
+	/**
+	 * Checks if an obstacle was moved or resized since the obstacle index was built.
+	 * Without index, there is nothing to compare to, so it is assumed to be changed.
+	 */
+	private boolean boundsChanged(PathwayElement o)
+	{
+		if (obstacles == null) return true;
+		Rectangle2D oldBounds = obstacles.getBounds(o);
+		return oldBounds == null || !oldBounds.equals(o.getMBounds());
+	}
+
+	private void obstacleChanged(PathwayElement o)
+	{
+		// the index is up to date if it exists, so it still has the old bounds of a moved obstacle.
+		// Without index, no route has been searched since the last change, so
+		// only the current bounds matter.
+		Rectangle2D oldBounds = obstacles == null ? null : obstacles.getBounds(o);
+		obstacles = null;
+		if (routedLines.isEmpty()) return;
+
+		Rectangle2D newBounds = o.getMBounds();
+		// lines are taken out first, because they add themselves again
+		// when they are routed again while they are notified.
+		List<MLine> lines = new ArrayList<MLine>(routedLines);
+		routedLines.clear();
+		for (MLine line : lines)
+		{
+			if (line.getParent() == this && line.obstacleChanged(oldBounds, newBounds))
+			{
+				routedLines.add(line);
+			}
+		}
+	}
 
 	public Set<String> getGraphIds() {
 		return graphIds.keySet();
@@ -476,6 +602,10 @@ public Set<GraphRefContainer> getReferringObjects (String id)
 	public void addGraphRef (String id, GraphRefContainer target)
 	{
 		Utils.multimapPut(graphRefs, id, target);
+		if (target instanceof MPoint)
+		{
+			adjacency.add(id, (MPoint)target);
+		}
 	}
 
 	/**
@@ -490,6 +620,10 @@ void removeGraphRef (String id, GraphRefContainer target)
 		graphRefs.get(id).remove(target);
 		if (graphRefs.get(id).size() == 0)
 			graphRefs.remove(id);
+		if (target instanceof MPoint)
+		{
+			adjacency.remove(id, (MPoint)target);
+		}
 	}
 
 	/**
@@ -607,24 +741,44 @@ public String getUniqueGroupId() {
 	 */
 	public String getUniqueId (Set<String> ids)
 	{
-		String result;
+		return getUniqueIds(1, ids, Collections.<String>emptySet()).get(0);
+	}
+
+	/**
+	 * Generate a batch of random ids at once, for example for pasting a large selection.
+	 * The ids have the same form as those from {@link #getUniqueId(Set)}, and are unique
+	 * with respect to the graphIds and groupIds of this pathway and to each other.
+	 * The ids are not reserved, so use them before other ids are added to this pathway.
+	 * @param count the number of ids to generate
+	 * @return a list of count new ids
+	 */
+	public List<String> getUniqueIds (int count)
+	{
+		return getUniqueIds(count, graphIds.keySet(), groupIds.keySet());
+	}
+
+	/**
+	 * Generate count different random ids that are in neither of the given sets.
+	 */
+	private static List<String> getUniqueIds (int count, Set<String> ids, Set<String> moreIds)
+	{
 		Random rn = new Random();
 		int mod = 0x60000; // 3 hex letters
 		int min = 0xa0000; // has to start with a letter
 		// in case this map is getting big, do more hex letters
-		if ((ids.size()) > 0x10000)
+		if (ids.size() + moreIds.size() + count > 0x10000)
 		{
 			mod = 0x60000000;
 			min = 0xa0000000;
 		}
 
-		do
+		Set<String> result = new LinkedHashSet<String>(count * 2);
+		while (result.size() < count)
 		{
-			result = Integer.toHexString(Math.abs(rn.nextInt()) % mod + min);
+			String id = Integer.toHexString(Math.abs(rn.nextInt()) % mod + min);
+			if (!ids.contains(id) && !moreIds.contains(id)) result.add(id);
 		}
-		while (ids.contains(result));
-
-		return result;
+		return new ArrayList<String>(result);
 	}
 
 	double mBoardWidth = 0;
@@ -905,8 +1059,12 @@ public int fixReferences()
 			Logger.log.warn("Pathway.fixReferences fixed " + result + " reference(s)");
 		}
 		for (String ref : biopaxReferenceToDelete ){
-			getBiopax().removeElement(getBiopax().getElement(ref));
+			BiopaxNode node = getBiopax().getElement(ref);
+			// the reference may have been restored since, e.g. by undo
+			if (node != null && !getBiopax().hasReferences(ref))
+				getBiopax().removeElement(node);
 		}
+		biopaxReferenceToDelete.clear();
 		return result;
 	}
 
@@ -20,15 +20,16 @@
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.EnumMap;
 import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeMap;
 
 import org.bridgedb.DataSource;
 import org.bridgedb.Xref;
@@ -38,7 +39,9 @@
 import org.pathvisio.core.model.GraphLink.GraphRefContainer;
 import org.pathvisio.core.preferences.GlobalPreference;
 import org.pathvisio.core.preferences.PreferenceManager;
+import org.pathvisio.core.util.CompactStringMap;
 import org.pathvisio.core.util.Utils;
+import org.pathvisio.core.view.ShapeRegistry;
 import org.pathvisio.core.view.State;
 
 /**
@@ -89,17 +92,19 @@
  */
 public class PathwayElement implements GraphIdContainer, Comparable<PathwayElement>
 {
-	//TreeMap has better performance than HashMap
-	//in the (common) case where no attributes are present
+	//Most elements have no dynamic properties at all, so the map is
+	//only allocated when the first one is set. CompactStringMap keeps
+	//the sorted key order of the TreeMap that was used before.
 	//This map should never contain non-null values, if a value
 	//is set to null the key should be removed.
-	private Map<String, String> attributes = new TreeMap<String, String>();
+	private CompactStringMap attributes = null;
 
 	/**
 	 * get a set of all dynamic property keys
 	 */
 	public Set<String> getDynamicPropertyKeys()
 	{
+		if (attributes == null) return Collections.emptySet();
 		return attributes.keySet();
 	}
 
@@ -110,9 +115,18 @@ public Set<String> getDynamicPropertyKeys()
 	public void setDynamicProperty (String key, String value)
 	{
 		if (value == null)
-			attributes.remove(key);
+		{
+			if (attributes != null)
+			{
+				attributes.remove(key);
+				if (attributes.isEmpty()) attributes = null;
+			}
+		}
 		else
+		{
+			if (attributes == null) attributes = new CompactStringMap();
 			attributes.put (key, value);
+		}
 		fireObjectModifiedEvent(PathwayElementEvent.createSinglePropertyEvent(this, key));
 	}
 
@@ -121,6 +135,7 @@ public void setDynamicProperty (String key, String value)
 	 */
 	public String getDynamicProperty (String key)
 	{
+		if (attributes == null) return null;
 		return attributes.get (key);
 	}
 
@@ -1287,7 +1302,7 @@ public Object getStaticProperty(StaticProperty key)
 	 */
 	public void copyValuesFrom(PathwayElement src)
 	{
-		attributes = new TreeMap<String, String>(src.attributes); // create copy
+		attributes = src.attributes == null ? null : new CompactStringMap(src.attributes); // create copy
 		author = src.author;
 		copyright = src.copyright;
 		mCenterx = src.mCenterx;
@@ -1323,25 +1338,45 @@ public void copyValuesFrom(PathwayElement src)
 		lineThickness = src.lineThickness;
 		align = src.align;
 		valign = src.valign;
-		mPoints = new ArrayList<MPoint>();
-		for (MPoint p : src.mPoints)
+		if (src.mPoints == null)
 		{
-			mPoints.add(new MPoint(p));
-		}
-		for (MAnchor a : src.anchors) {
-			anchors.add(new MAnchor(a));
+			mPoints = null;
 		}
-		comments = new ArrayList<Comment>();
-		for (Comment c : src.comments)
+		else
 		{
-			try
+			mPoints = new ArrayList<MPoint>(src.mPoints.size());
+			for (MPoint p : src.mPoints)
 			{
-				comments.add((Comment) c.clone());
+				mPoints.add(new MPoint(p));
+			}
+		}
+		if (!src.anchors.isEmpty())
+		{
+			List<MAnchor> newAnchors = new ArrayList<MAnchor>(anchors.size() + src.anchors.size());
+			newAnchors.addAll(anchors);
+			for (MAnchor a : src.anchors) {
+				newAnchors.add(new MAnchor(a));
 			}
-			catch (CloneNotSupportedException e)
+			anchors = newAnchors;
+		}
+		if (src.comments.isEmpty())
+		{
+			comments = Collections.emptyList();
+		}
+		else
+		{
+			comments = new ArrayList<Comment>(src.comments.size());
+			for (Comment c : src.comments)
 			{
-				assert (false);
-				/* not going to happen */
+				try
+				{
+					comments.add((Comment) c.clone());
+				}
+				catch (CloneNotSupportedException e)
+				{
+					assert (false);
+					/* not going to happen */
+				}
 			}
 		}
 		version = src.version;
@@ -1352,10 +1387,222 @@ public void copyValuesFrom(PathwayElement src)
 		groupRef = src.groupRef;
 		groupStyle = src.groupStyle;
 		connectorType = src.connectorType;
-		biopaxRefs = (List<String>)((ArrayList<String>)src.biopaxRefs).clone();
+		biopaxRefs = src.biopaxRefs.isEmpty() ?
+				Collections.<String>emptyList() : new ArrayList<String>(src.biopaxRefs);
 		fireObjectModifiedEvent(PathwayElementEvent.createAllPropertiesEvent(this));
 	}
 
+	/**
+	 * Package private.
+	 * <p>
+	 * Write all fields, the same ones as {@link #copyValuesFrom(PathwayElement)}, to a snapshot.
+	 * Must be kept in sync with {@link #readSnapshot(PathwaySnapshot.Input)},
+	 * and {@link PathwaySnapshot#VERSION} must be increased when this changes.
+	 */
+	void writeSnapshot(PathwaySnapshot.Output out) throws IOException
+	{
+		out.writeDouble(mCenterx);
+		out.writeDouble(mCentery);
+		out.writeDouble(mWidth);
+		out.writeDouble(mHeight);
+		out.writeDouble(relX);
+		out.writeDouble(relY);
+		out.writeDouble(rotation);
+		out.writeDouble(lineThickness);
+		out.writeDouble(mFontSize);
+		out.writeInt(zOrder);
+		out.writeInt(lineStyle);
+		out.writeColor(color);
+		out.writeColor(fillColor);
+		out.writeCount((fBold ? 1 : 0) | (fItalic ? 2 : 0) | (fStrikethru ? 4 : 0) | (fUnderline ? 8 : 0));
+
+		out.writeString(graphId);
+		out.writeString(graphRef);
+		out.writeString(groupId);
+		out.writeString(groupRef);
+		out.writeString(groupStyle == null ? null : groupStyle.getName());
+		out.writeString(textLabel);
+		out.writeString(dataNodeType);
+		out.writeString(setGeneID);
+		out.writeString(dataSource == null ? null : dataSource.getFullName());
+		out.writeString(dataSource == null ? null : dataSource.getSystemCode());
+		out.writeString(href);
+		out.writeString(fontName);
+		out.writeString(shapeType == null ? null : shapeType.getName());
+		out.writeString(startLineType == null ? null : startLineType.getName());
+		out.writeString(endLineType == null ? null : endLineType.getName());
+		out.writeString(connectorType == null ? null : connectorType.getName());
+		out.writeString(align == null ? null : align.name());
+		out.writeString(valign == null ? null : valign.name());
+		out.writeString(author);
+		out.writeString(copyright);
+		out.writeString(email);
+		out.writeString(maintainer);
+		out.writeString(lastModified);
+		out.writeString(mapInfoDataSource);
+		out.writeString(mapInfoName);
+		out.writeString(organism);
+		out.writeString(version);
+
+		out.writeCount(attributes == null ? 0 : attributes.size());
+		if (attributes != null)
+		{
+			for (Map.Entry<String, String> e : attributes.entrySet())
+			{
+				out.writeString(e.getKey());
+				out.writeString(e.getValue());
+			}
+		}
+		// 0 for null, to tell apart from an empty list
+		out.writeCount(mPoints == null ? 0 : mPoints.size() + 1);
+		if (mPoints != null)
+		{
+			for (MPoint p : mPoints)
+			{
+				GenericPoint g = p;
+				for (double d : g.coordinates) out.writeDouble(d);
+				out.writeString(g.graphId);
+				out.writeString(p.graphRef);
+				out.writeBoolean(p.relativeSet);
+			}
+		}
+		out.writeCount(anchors.size());
+		for (MAnchor a : anchors)
+		{
+			out.writeDouble(a.getPosition());
+			out.writeString(((GenericPoint)a).graphId);
+			out.writeString(a.shape.getName());
+		}
+		out.writeCount(comments.size());
+		for (Comment c : comments)
+		{
+			out.writeString(c.comment);
+			out.writeString(c.source);
+		}
+		out.writeCount(biopaxRefs.size());
+		for (String ref : biopaxRefs)
+		{
+			out.writeString(ref);
+		}
+	}
+
+	/**
+	 * Package private.
+	 * <p>
+	 * Read all fields from a snapshot, see {@link #writeSnapshot(PathwaySnapshot.Output)}.
+	 * Like copyValuesFrom, this doesn't change the parent, so this must be done
+	 * before the element is added to a pathway. No events are sent.
+	 */
+	void readSnapshot(PathwaySnapshot.Input in)
+	{
+		mCenterx = in.readDouble();
+		mCentery = in.readDouble();
+		mWidth = in.readDouble();
+		mHeight = in.readDouble();
+		relX = in.readDouble();
+		relY = in.readDouble();
+		rotation = in.readDouble();
+		lineThickness = in.readDouble();
+		mFontSize = in.readDouble();
+		zOrder = in.readInt();
+		lineStyle = in.readInt();
+		color = in.readColor();
+		fillColor = in.readColor();
+		int flags = in.readCount();
+		fBold = (flags & 1) != 0;
+		fItalic = (flags & 2) != 0;
+		fStrikethru = (flags & 4) != 0;
+		fUnderline = (flags & 8) != 0;
+
+		graphId = in.readString();
+		graphRef = in.readString();
+		groupId = in.readString();
+		groupRef = in.readString();
+		String name = in.readString();
+		groupStyle = name == null ? null : GroupStyle.fromName(name);
+		textLabel = in.readString();
+		dataNodeType = in.readString();
+		setGeneID = in.readString();
+		String fullName = in.readString();
+		String systemCode = in.readString();
+		if (fullName != null)
+			dataSource = DataSource.getByFullName(fullName);
+		else if (systemCode != null)
+			dataSource = DataSource.getBySystemCode(systemCode);
+		else
+			dataSource = null;
+		href = in.readString();
+		fontName = in.readString();
+		name = in.readString();
+		shapeType = name == null ? null : ShapeRegistry.fromName(name);
+		name = in.readString();
+		startLineType = name == null ? null : LineType.fromName(name);
+		name = in.readString();
+		endLineType = name == null ? null : LineType.fromName(name);
+		name = in.readString();
+		connectorType = name == null ? null : ConnectorType.fromName(name);
+		name = in.readString();
+		align = name == null ? null : AlignType.valueOf(name);
+		name = in.readString();
+		valign = name == null ? null : ValignType.valueOf(name);
+		author = in.readString();
+		copyright = in.readString();
+		email = in.readString();
+		maintainer = in.readString();
+		lastModified = in.readString();
+		mapInfoDataSource = in.readString();
+		mapInfoName = in.readString();
+		organism = in.readString();
+		version = in.readString();
+
+		int count = in.readCount();
+		attributes = count == 0 ? null : new CompactStringMap();
+		for (int i = 0; i < count; ++i)
+		{
+			attributes.put(in.readString(), in.readString());
+		}
+		count = in.readCount();
+		if (count == 0)
+		{
+			mPoints = null;
+		}
+		else
+		{
+			mPoints = new ArrayList<MPoint>(count - 1);
+			for (int i = 1; i < count; ++i)
+			{
+				MPoint p = new MPoint(0, 0);
+				GenericPoint g = p;
+				for (int j = 0; j < g.coordinates.length; ++j) g.coordinates[j] = in.readDouble();
+				g.graphId = in.readString();
+				p.graphRef = in.readString();
+				p.relativeSet = in.readBoolean();
+				mPoints.add(p);
+			}
+		}
+		count = in.readCount();
+		anchors = count == 0 ? Collections.<MAnchor>emptyList() : new ArrayList<MAnchor>(count);
+		for (int i = 0; i < count; ++i)
+		{
+			MAnchor a = new MAnchor(in.readDouble());
+			((GenericPoint)a).graphId = in.readString();
+			a.shape = AnchorType.fromName(in.readString());
+			anchors.add(a);
+		}
+		count = in.readCount();
+		comments = count == 0 ? Collections.<Comment>emptyList() : new ArrayList<Comment>(count);
+		for (int i = 0; i < count; ++i)
+		{
+			comments.add(new Comment(in.readString(), in.readString()));
+		}
+		count = in.readCount();
+		biopaxRefs = count == 0 ? Collections.<String>emptyList() : new ArrayList<String>(count);
+		for (int i = 0; i < count; ++i)
+		{
+			biopaxRefs.add(in.readString());
+		}
+	}
+
 	/**
 	 * Copy Object. The object will not be part of the same Pathway object, it's
 	 * parent will be set to null.
@@ -1377,8 +1624,17 @@ public ObjectType getObjectType()
 		return objectType;
 	}
 
-	// only for lines
-	private List<MPoint> mPoints = Arrays.asList(new MPoint(0, 0), new MPoint(0, 0));
+	// only for lines. Allocated on first use, most elements never need them.
+	private List<MPoint> mPoints = null;
+
+	private List<MPoint> points()
+	{
+		if (mPoints == null)
+		{
+			mPoints = Arrays.asList(new MPoint(0, 0), new MPoint(0, 0));
+		}
+		return mPoints;
+	}
 
 	public void setMPoints(List<MPoint> points) {
 		if(points != null) {
@@ -1392,7 +1648,7 @@ public void setMPoints(List<MPoint> points) {
 
 	public MPoint getMStart()
 	{
-		return mPoints.get(0);
+		return points().get(0);
 	}
 
 	public void setMStart(MPoint p)
@@ -1402,7 +1658,8 @@ public void setMStart(MPoint p)
 
 	public MPoint getMEnd()
 	{
-		return mPoints.get(mPoints.size() - 1);
+		List<MPoint> points = points();
+		return points.get(points.size() - 1);
 	}
 
 	public void setMEnd(MPoint p)
@@ -1412,7 +1669,7 @@ public void setMEnd(MPoint p)
 
 	public List<MPoint> getMPoints()
 	{
-		return mPoints;
+		return points();
 	}
 
 	public double getMStartX()
@@ -1437,7 +1694,7 @@ public void setMStartY(double v)
 
 	public double getMEndX()
 	{
-		return mPoints.get(mPoints.size() - 1).getX();
+		return getMEnd().getX();
 	}
 
 	public void setMEndX(double v)
@@ -1527,10 +1784,12 @@ public ConnectorType getConnectorType() {
 	}
 
 //TODO: end of new elements
-	protected List<MAnchor> anchors = new ArrayList<MAnchor>();
+	// shared empty list until the first anchor is added
+	protected List<MAnchor> anchors = Collections.emptyList();
 
 	/**
 	 * Get the anchors for this line.
+	 * Use {@link #addMAnchor(double)} and {@link #removeMAnchor(MAnchor)} to modify them.
 	 * @return A list with the anchors, or an empty list, if no anchors are defined
 	 */
 	public List<MAnchor> getMAnchors() {
@@ -1548,6 +1807,7 @@ public MAnchor addMAnchor(double position) {
 					"' must be between 0 and 1");
 		}
 		MAnchor anchor = new MAnchor(position);
+		if (anchors.isEmpty()) anchors = new ArrayList<MAnchor>(2);
 		anchors.add(anchor);
 		//No property for anchor, use LINESTYLE as dummy property to force redraw on line
 		fireObjectModifiedEvent(PathwayElementEvent.createSinglePropertyEvent(this, StaticProperty.LINESTYLE));
@@ -1564,7 +1824,7 @@ public void removeMAnchor(MAnchor anchor) {
 		}
 	}
 
-	protected Color color = new Color(0, 0, 0);
+	protected Color color = Color.BLACK;
 
 	public Color getColor()
 	{
@@ -1632,8 +1892,11 @@ public void setTransparent(boolean v)
 	}
 
 	// general
-	List<Comment> comments = new ArrayList<Comment>();
+	List<Comment> comments = Collections.emptyList();
 
+	/**
+	 * Use {@link #addComment(Comment)} and {@link #removeComment(Comment)} to modify the comments.
+	 */
 	public List<Comment> getComments()
 	{
 		return comments;
@@ -1654,6 +1917,7 @@ public void addComment(String comment, String source)
 	}
 
 	public void addComment(Comment comment) {
+		if (comments.isEmpty()) comments = new ArrayList<Comment>(2);
 		comments.add(comment);
 		fireObjectModifiedEvent(PathwayElementEvent.createSinglePropertyEvent(this, StaticProperty.COMMENTS));
 	}
@@ -2500,23 +2764,23 @@ public String setGeneratedGraphId()
 
 	public String getStartGraphRef()
 	{
-		return mPoints.get(0).getGraphRef();
+		return getMStart().getGraphRef();
 	}
 
 	public void setStartGraphRef(String ref)
 	{
-		MPoint start = mPoints.get(0);
+		MPoint start = getMStart();
 		start.setGraphRef(ref);
 	}
 
 	public String getEndGraphRef()
 	{
-		return mPoints.get(mPoints.size() - 1).getGraphRef();
+		return getMEnd().getGraphRef();
 	}
 
 	public void setEndGraphRef(String ref)
 	{
-		MPoint end = mPoints.get(mPoints.size() - 1);
+		MPoint end = getMEnd();
 		end.setGraphRef(ref);
 	}
 
@@ -2529,8 +2793,11 @@ public BiopaxReferenceManager getBiopaxReferenceManager() {
 		return bpRefMgr;
 	}
 
-	protected List<String> biopaxRefs = new ArrayList<String>();
+	protected List<String> biopaxRefs = Collections.emptyList();
 
+	/**
+	 * Use {@link #addBiopaxRef(String)} and {@link #removeBiopaxRef(String)} to modify the references.
+	 */
 	public List<String> getBiopaxRefs()
 	{
 		return biopaxRefs;
@@ -2538,6 +2805,11 @@ public List<String> getBiopaxRefs()
 
 	public void setBiopaxRefs(List<String> refs) {
 		if(refs != null && !biopaxRefs.equals(refs)) {
+			if (parent != null)
+			{
+				for (String ref : biopaxRefs) parent.removeBiopaxRef(ref, this);
+				for (String ref : refs) parent.addBiopaxRef(ref, this);
+			}
 			biopaxRefs = refs;
 			fireObjectModifiedEvent(PathwayElementEvent.createSinglePropertyEvent(this, StaticProperty.BIOPAXREF));
 		}
@@ -2547,7 +2819,9 @@ public void addBiopaxRef(String ref)
 	{
 		if (ref != null && !biopaxRefs.contains(ref))
 		{
+			if (biopaxRefs.isEmpty()) biopaxRefs = new ArrayList<String>(2);
 			biopaxRefs.add(ref);
+			if (parent != null) parent.addBiopaxRef(ref, this);
 			fireObjectModifiedEvent(PathwayElementEvent.createSinglePropertyEvent(this, StaticProperty.BIOPAXREF));
 		}
 	}
@@ -2557,6 +2831,7 @@ public void removeBiopaxRef(String ref)
 		if(ref != null) {
 			boolean changed = biopaxRefs.remove(ref);
 			if(changed) {
+				if (parent != null && !biopaxRefs.contains(ref)) parent.removeBiopaxRef(ref, this);
 				fireObjectModifiedEvent(PathwayElementEvent.createSinglePropertyEvent(this, StaticProperty.BIOPAXREF));
 			}
 		}
@@ -2588,10 +2863,13 @@ public void dontFireEvents(int times)
 		noFire = times;
 	}
 
-	private Set<PathwayElementListener> listeners = new HashSet<PathwayElementListener>();
+	// most elements have zero or one listener (their view counterpart),
+	// so use a small list that is only allocated when needed
+	private List<PathwayElementListener> listeners = Collections.emptyList();
 
 	public void addListener(PathwayElementListener v)
 	{
+		if (listeners.isEmpty()) listeners = new ArrayList<PathwayElementListener>(1);
 		if(!listeners.contains(v)) listeners.add(v);
 	}
 
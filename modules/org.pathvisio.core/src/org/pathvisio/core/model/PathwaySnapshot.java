@@ -0,0 +1,511 @@
+/*******************************************************************************
+ * PathVisio, a tool for data visualization and analysis using biological pathways
+ * Copyright 2006-2019 BiGCaT Bioinformatics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.pathvisio.core.model;
+
+import java.awt.Color;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jdom2.Document;
+import org.jdom2.JDOMException;
+import org.jdom2.input.SAXBuilder;
+import org.jdom2.output.Format;
+import org.jdom2.output.XMLOutputter;
+import org.pathvisio.core.biopax.BiopaxElement;
+import org.pathvisio.core.debug.Logger;
+import org.pathvisio.core.debug.Metrics;
+
+/**
+ * Compact binary copy of a {@link Pathway}, to reopen a pathway without parsing GPML.
+ * A snapshot holds the complete state of all pathway elements, so a pathway
+ * read from a snapshot writes exactly the same GPML as the pathway it was made from.
+ * <p>
+ * After a magic number and the format version, a snapshot contains:
+ * <ul>
+ * <li>a string table: each distinct id, label or type name is stored once,
+ * and referred to by its index
+ * <li>a block with all coordinates and sizes, as doubles
+ * <li>the elements, as a sequence of string indices, ints and flags
+ * </ul>
+ * Snapshots are meant as a cache, see {@link #readCached(File, File, boolean)}, or for autosave.
+ * They are not an exchange format: a snapshot of another version is rejected,
+ * and the caller should go back to the GPML.
+ */
+public class PathwaySnapshot
+{
+	/** "PVSN" */
+	private static final int MAGIC = 0x5056534E;
+
+	/** Increase whenever the layout of a snapshot changes */
+	public static final int VERSION = 1;
+
+	public static final String EXTENSION = "pvs";
+
+	/** number of snapshots kept in a cache directory */
+	private static final int MAX_CACHED = 100;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private static final Metrics.Timer READ_TIMER = Metrics.timer("snapshot.read");
+	private static final Metrics.Timer WRITE_TIMER = Metrics.timer("snapshot.write");
+
+	public static void write(Pathway pwy, OutputStream out) throws ConverterException
+	{
+		long start = WRITE_TIMER.start();
+		try
+		{
+			Output o = new Output();
+			List<PathwayElement> elements = pwy.getDataObjects();
+			o.writeCount(elements.size());
+			for (PathwayElement e : elements)
+			{
+				o.writeString(e.getObjectType().name());
+				e.writeSnapshot(o);
+				if (e instanceof BiopaxElement)
+				{
+					Document bp = ((BiopaxElement)e).getBiopax();
+					o.writeString(new XMLOutputter(Format.getRawFormat()).outputString(bp));
+				}
+			}
+			List<OntologyTag> tags = pwy.getOntologyTags();
+			o.writeCount(tags.size());
+			for (OntologyTag t : tags)
+			{
+				o.writeString(t.getId());
+				o.writeString(t.getTerm());
+				o.writeString(t.getOntology());
+			}
+			o.writeTo(out);
+		}
+		catch (IOException ex)
+		{
+			throw new ConverterException(ex);
+		}
+		finally
+		{
+			WRITE_TIMER.stop(start);
+		}
+	}
+
+	/**
+	 * Write a snapshot to a file. The snapshot is written to a temporary file first,
+	 * so that a reader never sees a partially written snapshot.
+	 */
+	public static void write(Pathway pwy, File file) throws ConverterException
+	{
+		File tmp = new File(file.getPath() + ".tmp");
+		try
+		{
+			OutputStream out = new FileOutputStream(tmp);
+			try
+			{
+				write(pwy, out);
+			}
+			finally
+			{
+				out.close();
+			}
+			// renameTo doesn't replace existing files on all platforms
+			file.delete();
+			if (!tmp.renameTo(file)) throw new IOException("Could not rename " + tmp + " to " + file);
+		}
+		catch (IOException ex)
+		{
+			tmp.delete();
+			throw new ConverterException(ex);
+		}
+	}
+
+	/**
+	 * Read a pathway from a snapshot.
+	 * @throws ConverterException if the stream is not a snapshot, if it is a snapshot of
+	 * another version, or if it is damaged.
+	 */
+	public static Pathway read(InputStream in) throws ConverterException
+	{
+		long start = READ_TIMER.start();
+		try
+		{
+			Input i = new Input(in);
+			Pathway pwy = new Pathway();
+			int count = i.readCount();
+			for (int n = 0; n < count; ++n)
+			{
+				ObjectType ot = ObjectType.valueOf(i.readString());
+				PathwayElement e = PathwayElement.createPathwayElement(ot);
+				e.readSnapshot(i);
+				pwy.add(e);
+				if (e instanceof BiopaxElement)
+				{
+					// the biopax maps are only filled in when the element has a parent
+					String bp = i.readString();
+					((BiopaxElement)e).setBiopax(new SAXBuilder().build(new StringReader(bp)));
+				}
+			}
+			int tags = i.readCount();
+			for (int n = 0; n < tags; ++n)
+			{
+				pwy.addOntologyTag(i.readString(), i.readString(), i.readString());
+			}
+			// a connector calculated while the elements it links to were not yet added is wrong
+			for (PathwayElement e : pwy.getDataObjects())
+			{
+				if (e instanceof MLine) ((MLine)e).invalidateConnectorShape();
+			}
+			pwy.clearChangedFlag();
+			return pwy;
+		}
+		catch (IOException ex)
+		{
+			throw new ConverterException(ex);
+		}
+		catch (JDOMException ex)
+		{
+			throw new ConverterException(ex);
+		}
+		catch (RuntimeException ex)
+		{
+			// index out of bounds, unknown object type etc. in a damaged snapshot
+			throw new ConverterException(ex);
+		}
+		finally
+		{
+			READ_TIMER.stop(start);
+		}
+	}
+
+	public static Pathway read(File file) throws ConverterException
+	{
+		try
+		{
+			InputStream in = new FileInputStream(file);
+			try
+			{
+				return read(in);
+			}
+			finally
+			{
+				in.close();
+			}
+		}
+		catch (IOException ex)
+		{
+			throw new ConverterException(ex);
+		}
+	}
+
+	/**
+	 * @return a hex encoded SHA-1 hash of the contents of a file.
+	 */
+	public static String contentHash(File file) throws IOException
+	{
+		MessageDigest digest;
+		try
+		{
+			digest = MessageDigest.getInstance("SHA-1");
+		}
+		catch (NoSuchAlgorithmException ex)
+		{
+			throw new IllegalStateException("SHA-1 is always available", ex);
+		}
+		InputStream in = new FileInputStream(file);
+		try
+		{
+			byte[] buf = new byte[1 << 16];
+			int n;
+			while ((n = in.read(buf)) > 0) digest.update(buf, 0, n);
+		}
+		finally
+		{
+			in.close();
+		}
+		StringBuilder result = new StringBuilder();
+		for (byte b : digest.digest())
+		{
+			result.append(Character.forDigit((b >> 4) & 0xF, 16));
+			result.append(Character.forDigit(b & 0xF, 16));
+		}
+		return result.toString();
+	}
+
+	/**
+	 * Read a GPML file, through a cache of snapshots.
+	 * Snapshots are stored in cacheDir, named after the hash of the GPML they were read from,
+	 * so a file that was changed in any way is read from GPML again. Snapshots
+	 * that can't be read, e.g. because they were written by another version,
+	 * are replaced.
+	 * <p>
+	 * A problem with the cache is logged, but never stops the GPML from being read.
+	 * @param validate passed on to {@link Pathway#readFromXml(File, boolean)}.
+	 * A snapshot is only made after the GPML was read, so snapshots are always valid.
+	 */
+	public static Pathway readCached(File gpml, File cacheDir, boolean validate) throws ConverterException
+	{
+		File cached = null;
+		try
+		{
+			cached = new File(cacheDir, contentHash(gpml) + "." + EXTENSION);
+		}
+		catch (IOException ex)
+		{
+			throw new ConverterException(ex);
+		}
+		if (cached.exists())
+		{
+			try
+			{
+				Pathway pwy = read(cached);
+				pwy.setSourceFile(gpml);
+				// touch, so that pruning keeps snapshots that are used often
+				cached.setLastModified(System.currentTimeMillis());
+				Logger.log.infof("Read %s from snapshot %s", gpml, cached);
+				return pwy;
+			}
+			catch (ConverterException ex)
+			{
+				Logger.log.warn("Ignoring snapshot " + cached, ex);
+			}
+		}
+		Pathway pwy = new Pathway();
+		pwy.readFromXml(gpml, validate);
+		try
+		{
+			if (!cacheDir.exists() && !cacheDir.mkdirs()) throw new IOException("Could not create " + cacheDir);
+			write(pwy, cached);
+			// touch, so that pruning keeps recently used snapshots
+			cached.setLastModified(System.currentTimeMillis());
+			prune(cacheDir);
+		}
+		catch (IOException ex)
+		{
+			Logger.log.warn("Could not write snapshot " + cached, ex);
+		}
+		catch (ConverterException ex)
+		{
+			Logger.log.warn("Could not write snapshot " + cached, ex);
+		}
+		return pwy;
+	}
+
+	/** remove the oldest snapshots in a cache directory, keeping at most MAX_CACHED. */
+	private static void prune(File cacheDir)
+	{
+		File[] files = cacheDir.listFiles();
+		if (files == null || files.length <= MAX_CACHED) return;
+		Arrays.sort(files, new Comparator<File>()
+		{
+			public int compare(File a, File b)
+			{
+				long diff = b.lastModified() - a.lastModified();
+				return diff < 0 ? -1 : (diff > 0 ? 1 : 0);
+			}
+		});
+		for (int i = MAX_CACHED; i < files.length; ++i)
+		{
+			if (files[i].getName().endsWith("." + EXTENSION)) files[i].delete();
+		}
+	}
+
+	/**
+	 * Package private.
+	 * <p>
+	 * Collects the string table, the coordinate block and the element data,
+	 * which can only be written out when the string table is complete.
+	 */
+	static class Output
+	{
+		private final Map<String, Integer> stringIndex = new HashMap<String, Integer>();
+		private final List<String> strings = new ArrayList<String>();
+		private double[] doubles = new double[1024];
+		private int doubleCount = 0;
+		private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		private final DataOutputStream data = new DataOutputStream(bytes);
+
+		/** writes the index of a string in the string table, null is allowed. */
+		void writeString(String s) throws IOException
+		{
+			if (s == null)
+			{
+				writeCount(0);
+				return;
+			}
+			Integer index = stringIndex.get(s);
+			if (index == null)
+			{
+				index = strings.size();
+				strings.add(s);
+				stringIndex.put(s, index);
+			}
+			writeCount(index + 1);
+		}
+
+		/** writes a non-negative int, small values take a single byte. */
+		void writeCount(int n) throws IOException
+		{
+			while ((n & ~0x7F) != 0)
+			{
+				data.writeByte((n & 0x7F) | 0x80);
+				n >>>= 7;
+			}
+			data.writeByte(n);
+		}
+
+		void writeInt(int i) throws IOException
+		{
+			data.writeInt(i);
+		}
+
+		void writeBoolean(boolean b) throws IOException
+		{
+			data.writeBoolean(b);
+		}
+
+		/** adds a value to the coordinate block. */
+		void writeDouble(double d)
+		{
+			if (doubleCount == doubles.length) doubles = Arrays.copyOf(doubles, doubleCount * 2);
+			doubles[doubleCount++] = d;
+		}
+
+		void writeColor(Color c) throws IOException
+		{
+			data.writeBoolean(c != null);
+			if (c != null) data.writeInt(c.getRGB());
+		}
+
+		void writeTo(OutputStream out) throws IOException
+		{
+			DataOutputStream dout = new DataOutputStream(new BufferedOutputStream(out));
+			dout.writeInt(MAGIC);
+			dout.writeInt(VERSION);
+			dout.writeInt(strings.size());
+			for (String s : strings)
+			{
+				byte[] b = s.getBytes(UTF8);
+				dout.writeInt(b.length);
+				dout.write(b);
+			}
+			dout.writeInt(doubleCount);
+			for (int i = 0; i < doubleCount; ++i) dout.writeDouble(doubles[i]);
+			dout.writeInt(bytes.size());
+			bytes.writeTo(dout);
+			dout.flush();
+		}
+	}
+
+	/**
+	 * Package private.
+	 * <p>
+	 * Reads back what was written with {@link Output}, in the same order.
+	 * The whole snapshot is read into memory at once.
+	 */
+	static class Input
+	{
+		private final String[] strings;
+		private final double[] doubles;
+		private int nextDouble = 0;
+		private final ByteBuffer data;
+
+		Input(InputStream in) throws IOException, ConverterException
+		{
+			DataInputStream din = new DataInputStream(new BufferedInputStream(in));
+			if (din.readInt() != MAGIC) throw new ConverterException("Not a pathway snapshot");
+			int version = din.readInt();
+			if (version != VERSION) throw new ConverterException("Unsupported pathway snapshot version " + version);
+
+			strings = new String[din.readInt()];
+			byte[] buf = new byte[256];
+			for (int i = 0; i < strings.length; ++i)
+			{
+				int len = din.readInt();
+				if (len > buf.length) buf = new byte[len];
+				din.readFully(buf, 0, len);
+				strings[i] = new String(buf, 0, len, UTF8);
+			}
+
+			doubles = new double[din.readInt()];
+			byte[] block = new byte[doubles.length * 8];
+			din.readFully(block);
+			ByteBuffer.wrap(block).asDoubleBuffer().get(doubles);
+
+			byte[] body = new byte[din.readInt()];
+			din.readFully(body);
+			data = ByteBuffer.wrap(body);
+		}
+
+		String readString()
+		{
+			int index = readCount();
+			return index == 0 ? null : strings[index - 1];
+		}
+
+		int readCount()
+		{
+			int result = 0;
+			int shift = 0;
+			int b;
+			do
+			{
+				b = data.get();
+				result |= (b & 0x7F) << shift;
+				shift += 7;
+			}
+			while ((b & 0x80) != 0);
+			return result;
+		}
+
+		int readInt()
+		{
+			return data.getInt();
+		}
+
+		boolean readBoolean()
+		{
+			return data.get() != 0;
+		}
+
+		double readDouble()
+		{
+			return doubles[nextDouble++];
+		}
+
+		Color readColor()
+		{
+			return readBoolean() ? new Color(data.getInt(), true) : null;
+		}
+	}
+}
@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * PathVisio, a tool for data visualization and analysis using biological pathways
+ * Copyright 2006-2019 BiGCaT Bioinformatics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.pathvisio.core.model;
+
+/**
+ * ConnectorShape implementation for the routed connector:
+ * horizontal and vertical segments that go around DataNodes, Shapes and Labels.
+ * The route is searched with {@link AStar}. If no route is found within the time budget,
+ * or the connector is not part of a pathway, it falls back to the elbow connector.
+ * <p>
+ * The route is fully automatic, so there are no waypoints for the user to drag.
+ */
+public class RoutedConnectorShape extends ElbowConnectorShape {
+	// default time budget for routing a single connector, in milliseconds
+	private static final long DEFAULT_TIME_BUDGET = 20;
+
+	private static volatile long timeBudget = DEFAULT_TIME_BUDGET;
+
+	/**
+	 * Set the maximum time spent searching the route of a single connector.
+	 * @param msec time in milliseconds
+	 */
+	public static void setTimeBudget(long msec) {
+		if(msec < 0) throw new IllegalArgumentException("Time budget can't be negative");
+		timeBudget = msec;
+	}
+
+	public static long getTimeBudget() {
+		return timeBudget;
+	}
+
+	/**
+	 * Search a route around the obstacles on the pathway of the line.
+	 * The parent pathway is told about the line, so that the route is recalculated
+	 * when an obstacle near it changes, see {@link MLine#obstacleChanged}.
+	 * @return the segments of the route, or null if no route was found within the time budget,
+	 * or the line is not part of a pathway.
+	 */
+	static Segment[] route(ConnectorRestrictions restrictions) {
+		if(restrictions instanceof MLine) {
+			MLine line = (MLine)restrictions;
+			Pathway parent = line.getParent();
+			if(parent != null) {
+				parent.addRoutedLine(line);
+				return new AStar(restrictions, parent.getObstacleIndex(), timeBudget).getSegmentsAStar();
+			}
+		}
+		return null;
+	}
+
+	/** true for the connector shapes that route around obstacles */
+	static boolean isRouted(ConnectorShape shape) {
+		return shape instanceof RoutedConnectorShape || shape instanceof RoutedCurvedConnectorShape;
+	}
+
+	public void recalculateShape(ConnectorRestrictions restrictions) {
+		Segment[] segments = route(restrictions);
+
+		if(segments == null) {
+			super.recalculateShape(restrictions);
+		} else {
+			setSegments(segments);
+			setShape(null);
+		}
+		setWayPoints(new WayPoint[0]);
+	}
+
+	public boolean hasValidWaypoints(ConnectorRestrictions restrictions) {
+		return false;
+	}
+}
@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * PathVisio, a tool for data visualization and analysis using biological pathways
+ * Copyright 2006-2019 BiGCaT Bioinformatics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.pathvisio.core.model;
+
+import java.awt.Shape;
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ConnectorShape implementation for the curved routed connector:
+ * the route of the {@link RoutedConnectorShape}, smoothed like the curved connector.
+ * If no route is found, it falls back to the curved connector.
+ */
+public class RoutedCurvedConnectorShape extends CurvedConnectorShape {
+	// how far from a corner of the route the curve starts to bend
+	private static final double CORNER_SIZE = 10;
+
+	// the route with the corners split off, or null when falling back to the curved connector
+	private Segment[] splitSegments;
+
+	public void recalculateShape(ConnectorRestrictions restrictions) {
+		Segment[] route = RoutedConnectorShape.route(restrictions);
+
+		// a curve needs at least one bend
+		if(route == null || route.length < 2) {
+			splitSegments = null;
+			super.recalculateShape(restrictions);
+		} else {
+			elbowSegments = route;
+			splitSegments = splitCorners(route);
+			curvedSegments = calculateCurvedSegments(splitSegments);
+			curveHigh = null;
+			curveLow = null;
+			setSegments(null);
+			setShape(null);
+		}
+		setWayPoints(new WayPoint[0]);
+	}
+
+	protected Shape calculateShape() {
+		if(splitSegments == null) {
+			return super.calculateShape();
+		}
+		return calculateShape(splitSegments);
+	}
+
+	/**
+	 * The curved connector bends between the centers of the segments,
+	 * which would cut through the obstacles that the route goes around.
+	 * Split off short segments at the corners, so the curve only rounds the corners.
+	 */
+	private static Segment[] splitCorners(Segment[] route) {
+		List<Segment> result = new ArrayList<Segment>();
+		for(int i = 0; i < route.length; i++) {
+			Point2D start = route[i].getMStart();
+			Point2D end = route[i].getMEnd();
+			double length = route[i].getMLength();
+			double size = Math.min(CORNER_SIZE, length / 2);
+			Point2D a = i == 0 ? start : pointAt(start, end, size / length);
+			Point2D b = i == route.length - 1 ? end : pointAt(start, end, 1 - size / length);
+			if(a != start) result.add(new Segment(start, a));
+			result.add(new Segment(a, b));
+			if(b != end) result.add(new Segment(b, end));
+		}
+		return result.toArray(new Segment[result.size()]);
+	}
+
+	private static Point2D pointAt(Point2D start, Point2D end, double f) {
+		return new Point2D.Double(
+			start.getX() + (end.getX() - start.getX()) * f,
+			start.getY() + (end.getY() - start.getY()) * f
+		);
+	}
+
+	public boolean hasValidWaypoints(ConnectorRestrictions restrictions) {
+		return false;
+	}
+}
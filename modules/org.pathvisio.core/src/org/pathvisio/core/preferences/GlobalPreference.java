@@ -46,8 +46,7 @@ public enum GlobalPreference implements Preference
 
 	DATANODES_ROUNDED(Boolean.toString(false)),
 
-	// TODO: this should be changed to org.pathvisio.desktop.data.DBConnDerby, 2 releases after 2.0.11
-	DB_ENGINE_GEX("org.pathvisio.data.DBConnDerby"),
+	DB_ENGINE_GEX("org.pathvisio.desktop.data.DBConnDerby"),
 
 	@Deprecated
 	DB_GDB_CURRENT("none"),
@@ -75,7 +75,7 @@ public void vPathwayEvent(VPathwayEvent e) {
 				PathwayElement pwe = ((Graphics)vpwe).getPathwayElement();
 				List<Color> elmColors = colors.get(pwe);
 				if(elmColors != null && elmColors.size() > 0) {
-					Logger.log.info("Coloring " + pwe + " with " + elmColors);
+					Logger.log.infof("Coloring %s with %s", pwe, elmColors);
 					switch(pwe.getObjectType()) {
 					case DATANODE:
 						doColor(e.getGraphics2D(), (Graphics)vpwe, elmColors);
@@ -163,6 +163,8 @@ public static void main(String[] args) {
 
 			Logger.log.setStream (System.err);
 			Logger.log.setLogLevel (false, false, true, true, true, true);
+			// many messages while coloring, don't let them slow down the export
+			Logger.log.setAsync (true);
 
 			File inputFile = new File(inStr);
 			File outputFile = new File(outStr);
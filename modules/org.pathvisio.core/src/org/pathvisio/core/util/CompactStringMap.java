@@ -0,0 +1,216 @@
+/*******************************************************************************
+ * PathVisio, a tool for data visualization and analysis using biological pathways
+ * Copyright 2006-2019 BiGCaT Bioinformatics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.pathvisio.core.util;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Small String to String map, backed by two sorted arrays.
+ * <p>
+ * Intended for the handful of dynamic attributes a PathwayElement usually carries.
+ * Compared to a TreeMap there is no node object per entry, and keys are
+ * interned, so that thousands of elements with the same attribute share a single
+ * key instance. Lookup is a binary search, and iteration is in
+ * natural key order, the same order a TreeMap would give.
+ * <p>
+ * Null keys and null values are not allowed.
+ * Not thread safe.
+ */
+public class CompactStringMap extends AbstractMap<String, String>
+{
+	private static final String[] EMPTY = new String[0];
+
+	private String[] keys = EMPTY;
+	private String[] values = EMPTY;
+	private int size = 0;
+
+	public CompactStringMap()
+	{
+	}
+
+	/**
+	 * Create a copy of another map.
+	 */
+	public CompactStringMap(Map<String, String> src)
+	{
+		if (src instanceof CompactStringMap)
+		{
+			CompactStringMap other = (CompactStringMap)src;
+			size = other.size;
+			if (size > 0)
+			{
+				keys = Arrays.copyOf(other.keys, size);
+				values = Arrays.copyOf(other.values, size);
+			}
+		}
+		else
+		{
+			putAll(src);
+		}
+	}
+
+	private int indexOf(Object key)
+	{
+		if (!(key instanceof String)) return -1;
+		return Arrays.binarySearch(keys, 0, size, (String)key);
+	}
+
+	@Override
+	public int size()
+	{
+		return size;
+	}
+
+	@Override
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	@Override
+	public boolean containsKey(Object key)
+	{
+		return indexOf(key) >= 0;
+	}
+
+	@Override
+	public String get(Object key)
+	{
+		int i = indexOf(key);
+		return i >= 0 ? values[i] : null;
+	}
+
+	@Override
+	public String put(String key, String value)
+	{
+		if (key == null || value == null) throw new NullPointerException();
+		int i = Arrays.binarySearch(keys, 0, size, key);
+		if (i >= 0)
+		{
+			String old = values[i];
+			values[i] = value;
+			return old;
+		}
+		i = -(i + 1);
+		if (size == keys.length)
+		{
+			int newLength = size < 2 ? 2 : size + (size >> 1) + 1;
+			keys = Arrays.copyOf(keys, newLength);
+			values = Arrays.copyOf(values, newLength);
+		}
+		System.arraycopy(keys, i, keys, i + 1, size - i);
+		System.arraycopy(values, i, values, i + 1, size - i);
+		keys[i] = key.intern();
+		values[i] = value;
+		size++;
+		return null;
+	}
+
+	@Override
+	public String remove(Object key)
+	{
+		int i = indexOf(key);
+		if (i < 0) return null;
+		String old = values[i];
+		removeAt(i);
+		return old;
+	}
+
+	private void removeAt(int i)
+	{
+		int tail = size - i - 1;
+		System.arraycopy(keys, i + 1, keys, i, tail);
+		System.arraycopy(values, i + 1, values, i, tail);
+		size--;
+		keys[size] = null;
+		values[size] = null;
+		if (size == 0)
+		{
+			keys = EMPTY;
+			values = EMPTY;
+		}
+	}
+
+	@Override
+	public void clear()
+	{
+		keys = EMPTY;
+		values = EMPTY;
+		size = 0;
+	}
+
+	@Override
+	public Set<Map.Entry<String, String>> entrySet()
+	{
+		return new AbstractSet<Map.Entry<String, String>>()
+		{
+			@Override
+			public Iterator<Map.Entry<String, String>> iterator()
+			{
+				return new EntryIterator();
+			}
+
+			@Override
+			public int size()
+			{
+				return size;
+			}
+		};
+	}
+
+	private class EntryIterator implements Iterator<Map.Entry<String, String>>
+	{
+		private int next = 0;
+		private int last = -1;
+
+		public boolean hasNext()
+		{
+			return next < size;
+		}
+
+		public Map.Entry<String, String> next()
+		{
+			if (next >= size) throw new NoSuchElementException();
+			last = next++;
+			final int index = last;
+			return new SimpleEntry<String, String>(keys[index], values[index])
+			{
+				@Override
+				public String setValue(String value)
+				{
+					if (value == null) throw new NullPointerException();
+					values[index] = value;
+					return super.setValue(value);
+				}
+			};
+		}
+
+		public void remove()
+		{
+			if (last < 0) throw new IllegalStateException();
+			removeAt(last);
+			next = last;
+			last = -1;
+		}
+	}
+}
@@ -17,9 +17,11 @@
 
 package org.pathvisio.core.util;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileFilter;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
@@ -31,6 +33,11 @@
 import java.net.URLConnection;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
 
 import org.pathvisio.core.debug.Logger;
 
@@ -193,6 +200,85 @@ public static void downloadFile(URL url, File toFile) throws IOException {
 		}
 	}
 
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/**
+	 * Open a file for reading. The stream is buffered, and if the file is
+	 * compressed with gzip or zip, the stream is decompressed.
+	 * @see #decompress(InputStream)
+	 */
+	public static InputStream openInputStream(File file) throws IOException
+	{
+		InputStream in = new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE);
+		try
+		{
+			return decompress(in);
+		}
+		catch (IOException e)
+		{
+			in.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Decompress a stream if it is compressed with gzip or zip.
+	 * The compression is recognized from the first bytes, so the file name doesn't matter.
+	 * Of a zip file, only the first file in it is read.
+	 * Other streams are returned as is, buffered if they don't support mark.
+	 */
+	public static InputStream decompress(InputStream in) throws IOException
+	{
+		if (!in.markSupported()) in = new BufferedInputStream(in, BUFFER_SIZE);
+		in.mark(4);
+		int b1 = in.read();
+		int b2 = in.read();
+		int b3 = in.read();
+		int b4 = in.read();
+		in.reset();
+		if (b1 == 0x1f && b2 == 0x8b)
+		{
+			return new BufferedInputStream(new GZIPInputStream(in, BUFFER_SIZE), BUFFER_SIZE);
+		}
+		else if (b1 == 'P' && b2 == 'K' && b3 == 3 && b4 == 4)
+		{
+			ZipInputStream zin = new ZipInputStream(in);
+			ZipEntry entry = zin.getNextEntry();
+			while (entry != null && entry.isDirectory()) entry = zin.getNextEntry();
+			if (entry == null) throw new IOException("Zip file is empty");
+			return new BufferedInputStream(zin, BUFFER_SIZE);
+		}
+		return in;
+	}
+
+	/**
+	 * Open a file for writing. The stream is buffered, and compressed if the file name ends
+	 * with .gz (gzip) or .zip. A zip file gets a single file, named after the zip file without .zip.
+	 * @param extension added to the name of the file inside a zip file, if it doesn't have it yet. May be null.
+	 */
+	public static OutputStream openOutputStream(File file, String extension) throws IOException
+	{
+		String name = file.getName();
+		String lower = name.toLowerCase();
+		OutputStream out = new FileOutputStream(file);
+		if (lower.endsWith(".gz"))
+		{
+			return new BufferedOutputStream(new GZIPOutputStream(out, BUFFER_SIZE), BUFFER_SIZE);
+		}
+		else if (lower.endsWith(".zip"))
+		{
+			String entryName = name.substring(0, name.length() - ".zip".length());
+			if (extension != null && !entryName.toLowerCase().endsWith("." + extension))
+			{
+				entryName += "." + extension;
+			}
+			ZipOutputStream zout = new ZipOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+			zout.putNextEntry(new ZipEntry(entryName));
+			return new BufferedOutputStream(zout, BUFFER_SIZE);
+		}
+		return new BufferedOutputStream(out, BUFFER_SIZE);
+	}
+
 	/**
 	 * Maps a file from one point in the directory tree to another point.
 	 * For example, with this function you can map from
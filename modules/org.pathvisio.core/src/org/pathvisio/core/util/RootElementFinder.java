@@ -18,7 +18,6 @@
 
 import java.io.BufferedInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
@@ -35,6 +34,11 @@
 // TODO: this is similar to com.sun.xml.internal.ws.message.RootElementSniffer, perhaps can be re-used.
 public class RootElementFinder
 {
+	/** Thrown to stop parsing after the root element */
+	private static class RootElementFound extends SAXException
+	{
+	}
+
 	static class RootElementHandler extends DefaultHandler
 	{
 		private String rootQName = null;
@@ -49,7 +53,8 @@ public void startElement (String uri, String localName, String qName, Attributes
 				rootUri = uri;
 			}
 			
-			// TODO: stop parsing here...
+			// no need to read (and decompress) the rest of the file
+			throw new RootElementFound();
 		}
 
 		public String getRootQName()  { return rootQName; }
@@ -80,6 +85,10 @@ private static Reader inputStreamToReader(InputStream xin) throws IOException
 		}
 	}
 
+	/**
+	 * Read the root element of an xml file. Files compressed with gzip or zip
+	 * are decompressed, see {@link FileUtils#openInputStream(File)}.
+	 */
 	private static RootElementHandler parse(File file) throws FileNotFoundException, IOException, SAXException
 	{
 		XMLReader xr;	
@@ -90,7 +99,19 @@ private static RootElementHandler parse(File file) throws FileNotFoundException,
 		xr.setEntityResolver(null);		
 		xr.setContentHandler(rootElementHandler);
 		xr.setErrorHandler(rootElementHandler);
-		xr.parse(new InputSource(inputStreamToReader(new FileInputStream (file))));
+		InputStream in = FileUtils.openInputStream(file);
+		try
+		{
+			xr.parse(new InputSource(inputStreamToReader(in)));
+		}
+		catch (RootElementFound e)
+		{
+			// expected
+		}
+		finally
+		{
+			in.close();
+		}
 
 		return rootElementHandler;
 	}
@@ -16,6 +16,12 @@
  ******************************************************************************/
 package org.pathvisio.core.util;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
 /**
  * Utility functions for statistics calculations.
  */
@@ -45,4 +51,129 @@ public static double zscore (int an, double ar, int aBigN, int aBigR)
 
 		return f1 / Math.sqrt (an * f2 * f3 * f4);
 	}
+
+	/**
+	 * Table of log(k!) for k = 0 .. max, for use with the exact tests below.
+	 * Calculate it once for the largest N, and use it for all tests on the same dataset.
+	 */
+	public static double[] logFactorials (int max)
+	{
+		double[] result = new double[max + 1];
+		for (int k = 2; k <= max; ++k)
+		{
+			result[k] = result[k - 1] + Math.log(k);
+		}
+		return result;
+	}
+
+	/**
+	 * log of the probability of sampling exactly r red beads,
+	 * with n, N and R as in {@link #zscore(int, double, int, int)}.
+	 */
+	private static double logHypergeometric (int n, int r, int bigN, int bigR, double[] logFact)
+	{
+		return logFact[bigR] - logFact[r] - logFact[bigR - r]
+			+ logFact[bigN - bigR] - logFact[n - r] - logFact[bigN - bigR - n + r]
+			- logFact[bigN] + logFact[n] + logFact[bigN - n];
+	}
+
+	/**
+	 * Exact p-value for over-representation, based on the hypergeometric distribution:
+	 * the probability of sampling r or more red beads, with n, N and R as in
+	 * {@link #zscore(int, double, int, int)}. This is the same as the one-sided Fisher exact test.
+	 * <p>
+	 * Takes time proportional to the number of terms in the smaller tail.
+	 * @param logFact a table from {@link #logFactorials(int)}, of size at least N + 1
+	 */
+	public static double hypergeometricP (int n, int r, int bigN, int bigR, double[] logFact)
+	{
+		int min = Math.max(0, n + bigR - bigN);
+		int max = Math.min(n, bigR);
+		if (r <= min) return 1.0;
+		if (r > max) return 0.0;
+
+		int mode = (int)(((double)(n + 1) * (bigR + 1)) / (bigN + 2));
+		if (r > mode)
+		{
+			// upper tail, terms decrease from r upward
+			double p = Math.exp(logHypergeometric(n, r, bigN, bigR, logFact));
+			double sum = 0;
+			for (int x = r; x <= max && p > 0; ++x)
+			{
+				sum += p;
+				p *= (double)(n - x) * (bigR - x) / ((double)(x + 1) * (bigN - bigR - n + x + 1));
+			}
+			return Math.min(1.0, sum);
+		}
+		else
+		{
+			// one minus the lower tail, terms decrease from r - 1 downward
+			double p = Math.exp(logHypergeometric(n, r - 1, bigN, bigR, logFact));
+			double sum = 0;
+			for (int x = r - 1; x >= min && p > 0; --x)
+			{
+				sum += p;
+				p *= (double)x * (bigN - bigR - n + x) / ((double)(n - x + 1) * (bigR - x + 1));
+			}
+			return Math.max(0.0, 1.0 - sum);
+		}
+	}
+
+	/**
+	 * Two-sided Fisher exact test on the 2x2 table of sampled / not sampled against
+	 * red / not red beads, with n, r, N and R as in {@link #zscore(int, double, int, int)}.
+	 * The p-value is the total probability of all tables that are at most as likely as the observed one.
+	 * @param logFact a table from {@link #logFactorials(int)}, of size at least N + 1
+	 */
+	public static double fisherExactP (int n, int r, int bigN, int bigR, double[] logFact)
+	{
+		int min = Math.max(0, n + bigR - bigN);
+		int max = Math.min(n, bigR);
+		if (r < min || r > max) return 0.0;
+
+		// relative tolerance, so that tables with equal probability are counted despite rounding
+		double limit = logHypergeometric(n, r, bigN, bigR, logFact) + 1e-7;
+		double sum = 0;
+		for (int x = min; x <= max; ++x)
+		{
+			double logP = logHypergeometric(n, x, bigN, bigR, logFact);
+			if (logP <= limit) sum += Math.exp(logP);
+		}
+		return Math.min(1.0, sum);
+	}
+
+	/**
+	 * Benjamini-Hochberg adjustment of p-values for the false discovery rate.
+	 * NaN values are left out of the adjustment, and remain NaN.
+	 * @return adjusted p-values, in the same order as the input
+	 */
+	public static double[] benjaminiHochberg (final double[] p)
+	{
+		// indices of the p-values that are not NaN, in order of increasing p-value
+		List<Integer> order = new ArrayList<Integer>();
+		for (int i = 0; i < p.length; ++i)
+		{
+			if (!Double.isNaN(p[i])) order.add(i);
+		}
+		Collections.sort(order, new Comparator<Integer>()
+		{
+			public int compare(Integer a, Integer b)
+			{
+				return Double.compare(p[a], p[b]);
+			}
+		});
+
+		int m = order.size();
+		double[] result = new double[p.length];
+		Arrays.fill(result, Double.NaN);
+		double min = 1.0;
+		for (int i = m - 1; i >= 0; --i)
+		{
+			int k = order.get(i);
+			// m / rank first, so the result never drops below p by rounding
+			min = Math.min(min, p[k] * ((double)m / (i + 1)));
+			result[k] = min;
+		}
+		return result;
+	}
 }
@@ -0,0 +1,253 @@
+/*******************************************************************************
+ * PathVisio, a tool for data visualization and analysis using biological pathways
+ * Copyright 2006-2019 BiGCaT Bioinformatics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.pathvisio.core.view;
+
+import java.awt.BasicStroke;
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+
+import org.pathvisio.core.model.IShape;
+import org.pathvisio.core.model.PathwayElement;
+import org.pathvisio.core.model.ShapeType;
+
+/**
+ * Package private.
+ * <p>
+ * A rectangle, rounded rectangle or oval of a {@link GraphicsShape}, in view coordinates,
+ * for hit testing without building a java.awt.geom.Area. All three are handled as
+ * a rectangle with elliptic corners: a rectangle has corners of radius 0,
+ * an oval has corners as large as the shape itself.
+ * <p>
+ * The border of such a shape, widened by a stroke, is approximated by growing and
+ * shrinking the shape by half the stroke width. This is exact for rectangles,
+ * and for the circular corners of rounded rectangles.
+ */
+class AnalyticShape
+{
+	// corner radius of ShapeType.ROUNDED_RECTANGLE, in model coordinates
+	private static final double M_ROUNDED_RADIUS = 10.0;
+
+	private final double cx, cy; // center
+	private final double hw, hh; // half width and height
+	private final double rx, ry; // corner radii
+	private final double cos, sin; // rotation
+
+	private AnalyticShape(double cx, double cy, double hw, double hh, double rx, double ry, double rotation)
+	{
+		this.cx = cx;
+		this.cy = cy;
+		this.hw = hw;
+		this.hh = hh;
+		this.rx = rx;
+		this.ry = ry;
+		cos = Math.cos(rotation);
+		sin = Math.sin(rotation);
+	}
+
+	/**
+	 * @return the shape of this element at the given zoom factor, rotated,
+	 * or null if it is not one of the supported shape types, or if it has no area.
+	 */
+	static AnalyticShape create(PathwayElement gdata, double zoom)
+	{
+		IShape type = gdata.getShapeType();
+		double hw = gdata.getMWidth() * zoom / 2;
+		double hh = gdata.getMHeight() * zoom / 2;
+		if (hw <= 0 || hh <= 0) return null;
+
+		double rx, ry;
+		if (type == ShapeType.RECTANGLE)
+		{
+			rx = ry = 0;
+		}
+		else if (type == ShapeType.OVAL)
+		{
+			rx = hw;
+			ry = hh;
+		}
+		else if (type == ShapeType.ROUNDED_RECTANGLE)
+		{
+			// RoundRectangle2D limits the corners to the size of the rectangle
+			double r = M_ROUNDED_RADIUS * zoom;
+			rx = Math.min(r, hw);
+			ry = Math.min(r, hh);
+		}
+		else
+		{
+			return null;
+		}
+		return new AnalyticShape(gdata.getMCenterX() * zoom, gdata.getMCenterY() * zoom,
+				hw, hh, rx, ry, gdata.getRotation());
+	}
+
+	/**
+	 * Check if a point is inside the shape, grown by d on all sides
+	 * (or shrunk if d is negative). The point is given relative to the center
+	 * of the shape, in unrotated coordinates, and mirrored to the bottom right quadrant.
+	 */
+	private boolean containsLocal(double ax, double ay, double d)
+	{
+		double w = hw + d;
+		double h = hh + d;
+		if (ax > w || ay > h) return false;
+		// sharp corners stay sharp when grown
+		double cornerX = rx == 0 ? 0 : Math.max(0, rx + d);
+		double cornerY = ry == 0 ? 0 : Math.max(0, ry + d);
+		double dx = ax - (w - cornerX);
+		double dy = ay - (h - cornerY);
+		if (dx <= 0 || dy <= 0) return true;
+		dx /= cornerX;
+		dy /= cornerY;
+		return dx * dx + dy * dy <= 1;
+	}
+
+	private boolean contains(double x, double y, double d)
+	{
+		// rotate back around the center
+		double dx = x - cx;
+		double dy = y - cy;
+		double ax = Math.abs(cos * dx + sin * dy);
+		double ay = Math.abs(-sin * dx + cos * dy);
+		return containsLocal(ax, ay, d);
+	}
+
+	/**
+	 * Check if a point is inside the shape.
+	 */
+	boolean contains(double x, double y)
+	{
+		return contains(x, y, 0);
+	}
+
+	/**
+	 * Check if a point is on the border of the shape, drawn with the given stroke width.
+	 */
+	boolean borderContains(double x, double y, double strokeWidth)
+	{
+		double d = strokeWidth / 2;
+		return contains(x, y, d) && !contains(x, y, -d);
+	}
+
+	/**
+	 * Bounds of the rotated shape, grown by d on all sides.
+	 */
+	Rectangle2D getBounds2D(double d)
+	{
+		double w = hw + d;
+		double h = hh + d;
+		double cornerX = rx == 0 ? 0 : rx + d;
+		double cornerY = ry == 0 ? 0 : ry + d;
+		double c = Math.abs(cos);
+		double s = Math.abs(sin);
+		// bounds of the rotated rectangle between the corner centers, plus those of a rotated corner
+		double ex = c * (w - cornerX) + s * (h - cornerY) + Math.sqrt(sq(cornerX * cos) + sq(cornerY * sin));
+		double ey = s * (w - cornerX) + c * (h - cornerY) + Math.sqrt(sq(cornerX * sin) + sq(cornerY * cos));
+		return new Rectangle2D.Double(cx - ex, cy - ey, 2 * ex, 2 * ey);
+	}
+
+	private static double sq(double x)
+	{
+		return x * x;
+	}
+
+	/**
+	 * The border of the shape, drawn with the given stroke width.
+	 * Containment and bounds are calculated directly. Other operations
+	 * use the stroked shape, which is only created when needed.
+	 * @param shape the shape itself, to create the stroked shape from
+	 */
+	Shape createBorder(Shape shape, float strokeWidth)
+	{
+		return new Border(shape, strokeWidth);
+	}
+
+	private class Border implements Shape
+	{
+		private final Shape shape;
+		private final float strokeWidth;
+		private Shape stroked = null;
+
+		Border(Shape shape, float strokeWidth)
+		{
+			this.shape = shape;
+			this.strokeWidth = strokeWidth;
+		}
+
+		private Shape getStroked()
+		{
+			if (stroked == null)
+			{
+				stroked = new BasicStroke(strokeWidth).createStrokedShape(shape);
+			}
+			return stroked;
+		}
+
+		public boolean contains(double x, double y)
+		{
+			return borderContains(x, y, strokeWidth);
+		}
+
+		public boolean contains(Point2D p)
+		{
+			return borderContains(p.getX(), p.getY(), strokeWidth);
+		}
+
+		public Rectangle2D getBounds2D()
+		{
+			return AnalyticShape.this.getBounds2D(strokeWidth / 2);
+		}
+
+		public Rectangle getBounds()
+		{
+			return getBounds2D().getBounds();
+		}
+
+		public boolean intersects(double x, double y, double w, double h)
+		{
+			return getBounds2D().intersects(x, y, w, h) && getStroked().intersects(x, y, w, h);
+		}
+
+		public boolean intersects(Rectangle2D r)
+		{
+			return intersects(r.getX(), r.getY(), r.getWidth(), r.getHeight());
+		}
+
+		public boolean contains(double x, double y, double w, double h)
+		{
+			return getStroked().contains(x, y, w, h);
+		}
+
+		public boolean contains(Rectangle2D r)
+		{
+			return getStroked().contains(r);
+		}
+
+		public PathIterator getPathIterator(AffineTransform at)
+		{
+			return getStroked().getPathIterator(at);
+		}
+
+		public PathIterator getPathIterator(AffineTransform at, double flatness)
+		{
+			return getStroked().getPathIterator(at, flatness);
+		}
+	}
+}
@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * PathVisio, a tool for data visualization and analysis using biological pathways
+ * Copyright 2006-2019 BiGCaT Bioinformatics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.pathvisio.core.view;
+
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Rectangle;
+import java.awt.image.VolatileImage;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Offscreen image of the part of a VPathway that stays put during a drag.
+ * <p>
+ * While dragging, every element that marks itself dirty (the moving elements,
+ * connected lines, handles, the selection box...) becomes dynamic.
+ * The layer holds all other elements, so a repaint is a single image copy plus
+ * drawing the dynamic elements on top. When an element becomes dynamic, the
+ * layer is rendered again without it the next time it's painted.
+ * <p>
+ * One layer covers one view rectangle. It's discarded as soon as the drag ends.
+ */
+class DragLayer
+{
+	private final VPathway canvas;
+	private final Set<VPathwayElement> dynamic = new HashSet<VPathwayElement>();
+
+	private VolatileImage image = null;
+	private Rectangle bounds = null;
+	private boolean valid = false;
+
+	DragLayer(VPathway canvas)
+	{
+		this.canvas = canvas;
+	}
+
+	/**
+	 * An element changed appearance. If it was part of the layer,
+	 * the layer needs to be rendered again.
+	 */
+	void elementChanged(VPathwayElement e)
+	{
+		if (dynamic.add(e)) valid = false;
+	}
+
+	/**
+	 * A new element was added. It isn't part of the layer, so no need to render again.
+	 */
+	void elementAdded(VPathwayElement e)
+	{
+		dynamic.add(e);
+	}
+
+	boolean isDynamic(VPathwayElement e)
+	{
+		return dynamic.contains(e);
+	}
+
+	void invalidate()
+	{
+		valid = false;
+	}
+
+	/**
+	 * Copy the layer to the given graphics, rendering it first if needed.
+	 * @param viewRect the area the layer should cover, in view coordinates.
+	 */
+	void paint(Graphics2D g, Rectangle viewRect)
+	{
+		GraphicsConfiguration gc = g.getDeviceConfiguration();
+		int status = image == null ? VolatileImage.IMAGE_INCOMPATIBLE : image.validate(gc);
+		if (status == VolatileImage.IMAGE_INCOMPATIBLE || !viewRect.equals(bounds))
+		{
+			dispose();
+			bounds = new Rectangle(viewRect);
+			image = gc.createCompatibleVolatileImage(bounds.width, bounds.height);
+			image.validate(gc);
+			valid = false;
+		}
+		else if (status == VolatileImage.IMAGE_RESTORED)
+		{
+			valid = false;
+		}
+
+		if (!valid)
+		{
+			Graphics2D ig = image.createGraphics();
+			ig.translate(-bounds.x, -bounds.y);
+			canvas.drawLayer(ig, bounds, this, false);
+			ig.dispose();
+			valid = true;
+		}
+		g.drawImage(image, bounds.x, bounds.y, null);
+
+		if (image.contentsLost())
+		{
+			// video memory was reclaimed while copying, try again
+			valid = false;
+			canvas.redraw();
+		}
+	}
+
+	/**
+	 * Release the video memory held by this layer.
+	 */
+	void dispose()
+	{
+		if (image != null)
+		{
+			image.flush();
+			image = null;
+		}
+	}
+}
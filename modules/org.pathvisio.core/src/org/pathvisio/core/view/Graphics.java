@@ -51,6 +51,7 @@ public abstract class Graphics extends VPathwayElement implements PathwayElement
 	public Graphics(VPathway canvas, PathwayElement o) {
 		super(canvas);
 		o.addListener(this);
+		o.addListener(canvas.zOrderListener);
 		gdata = o;
 		checkCitation();
 	}
@@ -223,6 +224,7 @@ public int getVFontStyle() {
 	protected void destroy() {
 		super.destroy();
 		gdata.removeListener(this);
+		gdata.removeListener(canvas.zOrderListener);
 		for (VPathwayElement child : children)
 		{
 			child.destroy();
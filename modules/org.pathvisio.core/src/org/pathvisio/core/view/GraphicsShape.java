@@ -393,10 +393,59 @@ protected void setHandleLocation()
 	protected Shape calculateVOutline()
 	{
 		//Include rotation and stroke
+		AnalyticShape analytic = getAnalyticShape();
+		float sw = getStrokeWidth((float)gdata.getLineThickness());
+		if (analytic != null && sw > 0)
+		{
+			// avoid building an Area, that is slow for a shape that changes on every mouse drag
+			return analytic.createBorder(getShape(true, 0), sw);
+		}
 		Area a = new Area(getShape(true, true));
 		return a;
 	}
 
+	// view shapes at zoom level shapeCacheZoom, see getShape(boolean, float)
+	private Shape vShapeCache = null;
+	private Shape vUnrotatedShapeCache = null;
+	private AnalyticShape analyticCache = null;
+	private boolean analyticCached = false;
+	private double shapeCacheZoom = 0;
+
+	@Override
+	protected void resetShapeCache()
+	{
+		super.resetShapeCache();
+		vShapeCache = null;
+		vUnrotatedShapeCache = null;
+		analyticCache = null;
+		analyticCached = false;
+	}
+
+	private void checkShapeCacheZoom()
+	{
+		double zoom = canvas.getZoomFactor();
+		if (zoom != shapeCacheZoom)
+		{
+			resetShapeCache();
+			shapeCacheZoom = zoom;
+		}
+	}
+
+	/**
+	 * The shape for hit testing, or null if this shape type
+	 * doesn't support that.
+	 */
+	private AnalyticShape getAnalyticShape()
+	{
+		checkShapeCacheZoom();
+		if (!analyticCached)
+		{
+			analyticCache = AnalyticShape.create(gdata, canvas.getZoomFactor());
+			analyticCached = true;
+		}
+		return analyticCache;
+	}
+
 	protected Shape getVShape(boolean rotate) {
 		return getShape(rotate, false); //Get the shape without border
 	}
@@ -428,6 +477,36 @@ public Shape getShape()
 	 * @return
 	 */
 	protected java.awt.Shape getShape(boolean rotate, float sw) {
+		if (sw > 0) return createShape(rotate, sw);
+
+		// without stroke, the shape is painted and hit tested all the time, so it is cached until markDirty
+		checkShapeCacheZoom();
+		if (rotate)
+		{
+			if (vShapeCache == null) vShapeCache = createShape(true, 0);
+			return vShapeCache;
+		}
+		else
+		{
+			if (vUnrotatedShapeCache == null) vUnrotatedShapeCache = createShape(false, 0);
+			return vUnrotatedShapeCache;
+		}
+	}
+
+	/**
+	 * Stroke width used for the outline,
+	 * corrected for the composite stroke of double lines.
+	 */
+	private float getStrokeWidth(float sw)
+	{
+		if (gdata.getLineStyle() == LineStyle.DOUBLE){
+			// correction factor for composite stroke
+			return (float) (gdata.getLineThickness() * 4);
+		}
+		return sw;
+	}
+
+	private java.awt.Shape createShape(boolean rotate, float sw) {
 		double mx = gdata.getMLeft();
 		double my = gdata.getMTop();
 		double mw = gdata.getMWidth();
@@ -458,11 +537,7 @@ protected java.awt.Shape getShape(boolean rotate, float sw) {
 		if(sw > 0) 
 			if (mw * mh > 0) // Workaround, batik balks if the shape is zero sized.  
 			{
-				if (gdata.getLineStyle() == LineStyle.DOUBLE){
-					// correction factor for composite stroke
-					sw = (float) (gdata.getLineThickness() * 4); 
-				}
-				Stroke stroke = new BasicStroke(sw);
+				Stroke stroke = new BasicStroke(getStrokeWidth(sw));
 				s = stroke.createStrokedShape(s);
 			}
 		return s;
@@ -526,6 +601,7 @@ protected void doDraw(Graphics2D g2d)
 
 	protected void drawTextLabel(Graphics2D g)
 	{
+		if (canvas.isBelowDetail(g, gdata.getMFontSize(), VPathway.LOD_MIN_TEXT_SIZE)) return;
 		int margin = (int)vFromM(5);
 		Rectangle area = getVShape(true).getBounds();
 		String label = gdata.getTextLabel();
@@ -678,6 +754,8 @@ protected boolean vContains(Point2D point)
 			else
 			{
 				// otherwise check against the whole shape
+				AnalyticShape analytic = getAnalyticShape();
+				if (analytic != null) return analytic.contains(point.getX(), point.getY());
 				return getVShape(true).contains(point);
 			}
 		}
@@ -79,7 +79,7 @@ public Line(VPathway canvas, PathwayElement o)
 		addPoint(o.getMStart());
 		addPoint(o.getMEnd());
 		setAnchors();
-        getConnectorShape().recalculateShape(getMLine());
+		getMLine().invalidateConnectorShape();
 //		updateSegmentHandles();
 		updateCitationPosition();
 	}
@@ -285,25 +285,16 @@ public void doDraw(Graphics2D g)
 	}
 
 	/**
-	 * Be careful to prevent infinite recursion when
-	 * Line.getVOutline triggers recalculation of a connector.
-	 *
-	 * For now, only check crossing of geneproducts and shapes.
+	 * Same as {@link MLine#mayCross(Point2D)}, in view coordinates.
+	 * Only uses the bounds of the objects, so this can't trigger
+	 * recalculation of a connector.
 	 */
 	public Shape mayCross(Point2D point)
 	{
-		Shape shape = null;
-		for (VPathwayElement o : canvas.getDrawingObjects())
-		{
-			if (o instanceof GeneProduct ||
-					o instanceof Shape)
-				if (o.vContains(point))
-				{
-					shape = o.getVOutline();
-				}
-		}
-
-		return shape;
+		Shape mShape = getMLine().mayCross(new Point2D.Double(mFromV(point.getX()), mFromV(point.getY())));
+		if (mShape == null) return null;
+		double zoom = canvas.getZoomFactor();
+		return AffineTransform.getScaleInstance(zoom, zoom).createTransformedShape(mShape);
 	}
 
 	public Point2D getStartPoint() {
@@ -318,6 +309,31 @@ public Shape calculateVOutline() {
 		return getVShape(true);
 	}
 
+	/**
+	 * The bounds are needed after every change, by markDirty. Building the
+	 * outline is costly for curved lines, so instead take the bounds of
+	 * the connector and the arrow heads, and grow them by the largest distance
+	 * the stroke can reach beyond them. This may be a bit larger than the bounds of
+	 * the outline, but never smaller.
+	 */
+	public Rectangle2D calculateVBounds() {
+		Rectangle2D bounds = getVConnectorAdjusted().getBounds2D();
+
+		ArrowShape[] heads = getVHeadsAdjusted();
+		for (ArrowShape head : heads) {
+			if (head != null) bounds.add(head.getShape().getBounds2D());
+		}
+
+		float thickness = (float) vFromM(gdata.getLineThickness());
+		if (gdata.getLineStyle() == LineStyle.DOUBLE) thickness *= 4;
+		BasicStroke bs = new BasicStroke (thickness);
+		// a miter join reaches out at most half the miter limit times the width
+		double grow = thickness * Math.max(1, bs.getMiterLimit()) / 2 + 1;
+		bounds.setRect(bounds.getX() - grow, bounds.getY() - grow,
+				bounds.getWidth() + 2 * grow, bounds.getHeight() + 2 * grow);
+		return bounds;
+	}
+
 	/**
 	 * Returns the properly sized and rotated arrowheads
 	 * @return An array with two arrowheads, for the start and end respectively
@@ -443,7 +459,7 @@ protected void swapPoint(VPoint pOld, VPoint pNew)
 
 	protected void drawHead(Graphics2D g, ArrowShape head, Color c)
 	{
-		if(head != null)
+		if(head != null && !isBelowDetail(g, head.getShape(), VPathway.LOD_MIN_DECORATION_SIZE))
 		{
 			// reset stroked line to solid, but use given thickness
 			g.setStroke(new BasicStroke((float) vFromM(gdata.getLineThickness())));
@@ -609,7 +625,7 @@ private void setHandleLocation(VPoint vp)
 	}
 
 	public void recalculateConnector() {
-		getConnectorShape().recalculateShape(getMLine());
+		getMLine().invalidateConnectorShape();
 		updateAnchorPositions();
 		updateCitationPosition();
 		for (VPoint vp : points) setHandleLocation(vp);
@@ -617,8 +633,7 @@ public void recalculateConnector() {
 	}
 
 	public void gmmlObjectModified(PathwayElementEvent e) {
-		getConnectorShape().recalculateShape(getMLine());
-
+		// the connector shape was marked dirty by this event, it's recalculated when needed
 		WayPoint[] wps = getConnectorShape().getWayPoints();
 		List<MPoint> mps = gdata.getMPoints();
 		if(wps.length == mps.size() - 2 && getConnectorShape().hasValidWaypoints(getMLine())) {
@@ -21,8 +21,10 @@
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.EventObject;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -107,7 +109,12 @@ public void addToSelection(VPathwayElement o)
 			o.select();
 			doAdd(o);
 		}
-		if (!isSelecting)
+		if (batchDepth > 0)
+		{
+			if (!batchRemoved.remove(o)) batchAdded.add(o);
+			batchFit = true;
+		}
+		else if (!isSelecting)
 			fitToSelection();
 
 		fireSelectionEvent(new SelectionEvent(this,
@@ -131,7 +138,12 @@ public void removeFromSelection(VPathwayElement o)
 			return;
 		selection.remove(o);
 		o.deselect();
-		if (!isSelecting)
+		if (batchDepth > 0)
+		{
+			if (!batchAdded.remove(o)) batchRemoved.add(o);
+			batchFit = true;
+		}
+		else if (!isSelecting)
 			fitToSelection();
 
 		fireSelectionEvent(new SelectionEvent(this,
@@ -222,7 +234,10 @@ private void reset(double vStartX, double vStartY, boolean clearSelection)
 		if (clearSelection)
 		{
 			for (VPathwayElement o : selection)
+			{
 				o.deselect();
+				if (batchDepth > 0 && !batchAdded.remove(o)) batchRemoved.add(o);
+			}
 			boolean hadObjects = selection.size() > 0;
 			selection.clear();
 			if (hadObjects)
@@ -397,36 +412,50 @@ public void adjustToHandle(Handle h, double vnewx, double vnewy)
 		markDirty();
 		setHandleLocation();
 
+		if (isSelecting)
+		{ // Selecting, so add containing objects to selection
+			beginBatch();
+			try
+			{
+				selectInBounds();
+			}
+			finally
+			{
+				endBatch();
+			}
+		}
+	}
+
+	/** Make the selection match the objects that intersect with this box */
+	private void selectInBounds()
+	{
 		//Keep track of objects that were selected via a group
 		//Don't unselect them if they're out of the selection bounds
 		Set<Graphics> groupObjects = new HashSet<Graphics>();
 
-		if (isSelecting)
-		{ // Selecting, so add containing objects to selection
-			Rectangle2D bounds = getVBounds();
-			for (VPathwayElement o : canvas.getDrawingObjects())
-			{
-				if ((o == this) || (o instanceof Handle)) {
-					continue;
-				}
+		Rectangle2D bounds = getVBounds();
+		for (VPathwayElement o : canvas.getDrawingObjects())
+		{
+			if ((o == this) || (o instanceof Handle)) {
+				continue;
+			}
 
-				if(o.vIntersects(bounds) ) { //&& !(o instanceof Group)
-					//exclude objects in a group to avoid double selection
-					if(o instanceof Graphics){
-						PathwayElement pe = ((Graphics) o).getPathwayElement();
-						String ref = pe.getGroupRef();
-						if (ref != null) {
-							continue;
-						}
-						if(o instanceof Group) {
-							groupObjects.addAll(((Group) o).getGroupGraphics());
-						}
+			if(o.vIntersects(bounds) ) { //&& !(o instanceof Group)
+				//exclude objects in a group to avoid double selection
+				if(o instanceof Graphics){
+					PathwayElement pe = ((Graphics) o).getPathwayElement();
+					String ref = pe.getGroupRef();
+					if (ref != null) {
+						continue;
+					}
+					if(o instanceof Group) {
+						groupObjects.addAll(((Group) o).getGroupGraphics());
 					}
-					addToSelection(o);
-
-				} else if (o.isSelected() && !groupObjects.contains(o)) {
-					removeFromSelection(o);
 				}
+				addToSelection(o);
+
+			} else if (o.isSelected() && !groupObjects.contains(o)) {
+				removeFromSelection(o);
 			}
 		}
 	}
@@ -515,6 +544,45 @@ public void doDraw(Graphics2D g)
 		}
 	}
 
+	private int batchDepth = 0;
+	private Set<VPathwayElement> batchAdded = new LinkedHashSet<VPathwayElement>();
+	private Set<VPathwayElement> batchRemoved = new LinkedHashSet<VPathwayElement>();
+	private boolean batchFit = false;
+
+	/**
+	 * Start a batch of changes to the selection, e.g. when selecting all objects.
+	 * Until the matching {@link #endBatch()}, events are still fired for each object,
+	 * but they are marked as adjusting, see {@link SelectionEvent#adjusting}.
+	 * At the end of the batch, a single {@link SelectionEvent#SELECTION_CHANGED} event
+	 * is fired with all objects that were added and removed.
+	 * Batches may be nested, the event is fired at the end of the outermost batch.
+	 */
+	public void beginBatch()
+	{
+		batchDepth++;
+	}
+
+	/**
+	 * End a batch of changes started with {@link #beginBatch()}.
+	 */
+	public void endBatch()
+	{
+		if (batchDepth == 0) throw new IllegalStateException("endBatch without beginBatch");
+		if (--batchDepth > 0) return;
+
+		if (batchFit && !isSelecting) fitToSelection();
+		batchFit = false;
+		if (batchAdded.size() > 0 || batchRemoved.size() > 0)
+		{
+			SelectionEvent e = new SelectionEvent(this, SelectionEvent.SELECTION_CHANGED);
+			e.added = Collections.unmodifiableSet(batchAdded);
+			e.removed = Collections.unmodifiableSet(batchRemoved);
+			batchAdded = new LinkedHashSet<VPathwayElement>();
+			batchRemoved = new LinkedHashSet<VPathwayElement>();
+			fireSelectionEvent(e);
+		}
+	}
+
 	private List<SelectionListener> listeners = new ArrayList<SelectionListener>();
 
 	public void addListener(SelectionListener l)
@@ -567,6 +635,12 @@ public static class SelectionEvent extends EventObject
 
 		public static final int SELECTION_CLEARED = 2;
 
+		/**
+		 * Fired at the end of a batch of changes, see {@link SelectionBox#beginBatch()}.
+		 * {@link #added} and {@link #removed} contain the changes.
+		 */
+		public static final int SELECTION_CHANGED = 3;
+
 		public SelectionBox source;
 
 		public VPathwayElement affectedObject;
@@ -575,6 +649,19 @@ public static class SelectionEvent extends EventObject
 
 		public Set<VPathwayElement> selection;
 
+		/**
+		 * True if this event is part of a batch of changes, which ends with
+		 * a {@link #SELECTION_CHANGED} event. Listeners that do expensive work may
+		 * ignore events that are adjusting, and only handle the final event.
+		 */
+		public boolean adjusting;
+
+		/** objects added to the selection, for {@link #SELECTION_CHANGED}. Empty for other types. */
+		public Set<VPathwayElement> added = Collections.emptySet();
+
+		/** objects removed from the selection, for {@link #SELECTION_CHANGED}. Empty for other types. */
+		public Set<VPathwayElement> removed = Collections.emptySet();
+
 		public SelectionEvent(SelectionBox source, int type,
 				VPathwayElement affectedObject)
 		{
@@ -583,6 +670,7 @@ public SelectionEvent(SelectionBox source, int type,
 			this.type = type;
 			this.selection = source.selection;
 			this.affectedObject = affectedObject;
+			this.adjusting = source.batchDepth > 0;
 		}
 
 		public SelectionEvent(SelectionBox source, int type)
@@ -150,7 +150,7 @@ protected void doDraw(Graphics2D g) {
 		}
 
 		AnchorShape arrowShape = getAnchorShape();
-		if(arrowShape != null)
+		if(arrowShape != null && !isBelowDetail(g, arrowShape.getShape(), VPathway.LOD_MIN_DECORATION_SIZE))
 		{
 			g.setStroke(new BasicStroke());
 				g.setPaint (c);
@@ -34,6 +34,7 @@
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -45,6 +46,7 @@
 import org.pathvisio.core.Engine;
 import org.pathvisio.core.biopax.BiopaxElement;
 import org.pathvisio.core.debug.Logger;
+import org.pathvisio.core.debug.Metrics;
 import org.pathvisio.core.model.GraphLink.GraphIdContainer;
 import org.pathvisio.core.model.GroupStyle;
 import org.pathvisio.core.model.MLine;
@@ -54,8 +56,11 @@
 import org.pathvisio.core.model.PathwayElement;
 import org.pathvisio.core.model.PathwayElement.MAnchor;
 import org.pathvisio.core.model.PathwayElement.MPoint;
+import org.pathvisio.core.model.PathwayElementEvent;
+import org.pathvisio.core.model.PathwayElementListener;
 import org.pathvisio.core.model.PathwayEvent;
 import org.pathvisio.core.model.PathwayListener;
+import org.pathvisio.core.model.StaticProperty;
 import org.pathvisio.core.preferences.GlobalPreference;
 import org.pathvisio.core.preferences.PreferenceManager;
 import org.pathvisio.core.util.Utils;
@@ -75,6 +80,10 @@
 public class VPathway implements PathwayListener
 {
 	private static final double FUZZY_SIZE = 8; // fuzz-factor around mouse cursor
+
+	// building the view is timed per step, so a pathway loaded in one go is a single step
+	private static final Metrics.Timer BUILD_TIMER = Metrics.timer("vpathway.build");
+	private static final Metrics.Timer PAINT_TIMER = Metrics.timer("vpathway.paint");
 	static final int ZORDER_SELECTIONBOX = Integer.MAX_VALUE;
 	static final int ZORDER_HANDLE = Integer.MAX_VALUE - 1;
 	
@@ -123,6 +132,69 @@ public void setSelectionEnabled(boolean value)
 	private List<VPathwayElement> drawingObjects;
 	private List<VPathwayElement> toAdd = new ArrayList<VPathwayElement>();
 
+	/**
+	 * drawingObjects is kept sorted by z-order. New elements are inserted
+	 * in place, but a change in z-order of an existing element sets this flag,
+	 * and the list is sorted again before the next paint.
+	 */
+	private boolean zOrderDirty = false;
+
+	/**
+	 * Registered on all PathwayElements with a view,
+	 * to find out when drawingObjects needs to be sorted again.
+	 */
+	final PathwayElementListener zOrderListener = new PathwayElementListener()
+	{
+		public void gmmlObjectModified(PathwayElementEvent e)
+		{
+			if (!e.isCoordinateChange() && e.affectsProperty(StaticProperty.ZORDER))
+			{
+				zOrderDirty = true;
+				if (dragLayer != null) dragLayer.invalidate();
+			}
+		}
+	};
+
+	/** offscreen image of the elements that don't move during a drag, or null if not dragging */
+	private DragLayer dragLayer = null;
+	private Rectangle lastLayerBounds = null;
+
+	private boolean dragBuffer = true;
+
+	/**
+	 * Enable or disable the offscreen buffer used while dragging. When enabled (the default),
+	 * elements that don't change during a drag are drawn only once, to an offscreen image,
+	 * and only the moving elements are drawn over it. The moving elements are
+	 * drawn on top of the others until the drag ends.
+	 */
+	public void setDragBuffer(boolean value)
+	{
+		dragBuffer = value;
+		disposeDragLayer();
+	}
+
+	public boolean isDragBuffer()
+	{
+		return dragBuffer;
+	}
+
+	private void disposeDragLayer()
+	{
+		if (dragLayer != null)
+		{
+			dragLayer.dispose();
+			dragLayer = null;
+		}
+	}
+
+	/**
+	 * Called by elements that mark themselves dirty.
+	 */
+	void elementChanged(VPathwayElement elt)
+	{
+		if (dragLayer != null) dragLayer.elementChanged(elt);
+	}
+
 	/**
 	 * Obtain all VPathwayElements on this VPathway
 	 */
@@ -208,6 +280,7 @@ public VPathway(VPathwayWrapper parent)
 	 */
 	public void redraw()
 	{
+		if (dragLayer != null) dragLayer.invalidate();
 		if (parent != null)
 			parent.redraw();
 	}
@@ -294,22 +367,99 @@ public void replacePathway(Pathway originalState)
 	 * Maps the contents of a pathway to this VPathway
 	 */
 	public void fromModel(Pathway aData)
+	{
+		startLoading(aData);
+		loadNext(Integer.MAX_VALUE);
+	}
+
+	/**
+	 * PathwayElements that don't have a view yet, while loading in steps.
+	 * null when not loading.
+	 */
+	private Set<PathwayElement> pendingElements = null;
+
+	/**
+	 * Start mapping the contents of a pathway to this VPathway in steps, so
+	 * that a large pathway can be built without blocking the event dispatch thread
+	 * for a long time. Call {@link #loadArea(Rectangle2D)} to build the visible
+	 * part first, and {@link #loadNext(int)} until it returns false to build the rest.
+	 * <p>
+	 * The pathway is monitored for changes from the start, so it may be edited while loading.
+	 * {@link VPathwayEventType#MODEL_LOADING} is fired right away, so that the wrapper
+	 * can show this VPathway while it is built, and {@link VPathwayEventType#MODEL_LOADED}
+	 * is fired when the last element has been built.
+	 */
+	public void startLoading(Pathway aData)
 	{
 		Logger.log.trace("Create view structure");
 
 		data = aData;
-		for (PathwayElement o : data.getDataObjects())
+		pendingElements = new LinkedHashSet<PathwayElement>(data.getDataObjects());
+		data.addListener(this);
+		undoManager.setPathway(data);
+		fireVPathwayEvent(new VPathwayEvent(this, VPathwayEventType.MODEL_LOADING));
+	}
+
+	/**
+	 * @return true if {@link #startLoading(Pathway)} was called, and not all elements are built yet.
+	 */
+	public boolean isLoading()
+	{
+		return pendingElements != null;
+	}
+
+	/**
+	 * While loading, build the view for all elements that lie within the given area.
+	 * @param vArea area in view coordinates, usually the visible part of the pathway.
+	 */
+	public void loadArea(Rectangle2D vArea)
+	{
+		if (pendingElements == null) return;
+		Rectangle2D mArea = new Rectangle2D.Double(mFromV(vArea.getX()), mFromV(vArea.getY()),
+				mFromV(vArea.getWidth()), mFromV(vArea.getHeight()));
+		for (Iterator<PathwayElement> i = pendingElements.iterator(); i.hasNext(); )
 		{
+			PathwayElement o = i.next();
+			if (o.getRBounds().intersects(mArea))
+			{
+				i.remove();
+				fromModelElement(o);
+			}
+		}
+		addScheduled();
+	}
+
+	/**
+	 * While loading, build the view for the next elements, in pathway order.
+	 * When the last element has been built, loading is finished.
+	 * @param count maximum number of elements to build
+	 * @return true if there are elements left.
+	 */
+	public boolean loadNext(int count)
+	{
+		if (pendingElements == null) return false;
+		long start = BUILD_TIMER.start();
+		Iterator<PathwayElement> i = pendingElements.iterator();
+		for (int n = 0; n < count && i.hasNext(); ++n)
+		{
+			PathwayElement o = i.next();
+			i.remove();
 			fromModelElement(o);
 		}
+		BUILD_TIMER.stop(start);
+		if (!pendingElements.isEmpty())
+		{
+			addScheduled();
+			return true;
+		}
+		pendingElements = null;
 
 		// data.fireObjectModifiedEvent(new PathwayEvent(null,
 		// PathwayEvent.MODIFIED_GENERAL));
 		fireVPathwayEvent(new VPathwayEvent(this, VPathwayEventType.MODEL_LOADED));
-		data.addListener(this);
-		undoManager.setPathway(data);
 		addScheduled();
 		Logger.log.trace("Done creating view structure");
+		return false;
 	}
 
 	Template newTemplate = null;
@@ -458,6 +608,57 @@ public double getZoomFactor()
 		return zoomFactor;
 	}
 
+	/**
+	 * Level of detail: text with a font size below this many pixels is not drawn.
+	 */
+	public static final double LOD_MIN_TEXT_SIZE = 3.0;
+
+	/**
+	 * Level of detail: arrow heads and anchors smaller than this many pixels are not drawn.
+	 */
+	public static final double LOD_MIN_DECORATION_SIZE = 2.0;
+
+	private boolean levelOfDetail = true;
+
+	/**
+	 * Enable or disable level of detail rendering. When enabled (the default),
+	 * details that would be (nearly) invisible at the current zoom factor,
+	 * such as tiny text and arrow heads, are skipped while drawing.
+	 */
+	public void setLevelOfDetail(boolean value)
+	{
+		levelOfDetail = value;
+	}
+
+	public boolean isLevelOfDetail()
+	{
+		return levelOfDetail;
+	}
+
+	/**
+	 * Check if a detail of the given size in model coordinates is too small to draw
+	 * at the current zoom factor. The transform of the graphics context is taken into
+	 * account, so details are still drawn when the output is scaled up again,
+	 * e.g. for printing.
+	 * @param g the graphics context that is drawn on
+	 * @param mSize size of the detail in model coordinates
+	 * @param vMinSize minimum size in pixels, e.g. {@link #LOD_MIN_TEXT_SIZE}
+	 */
+	public boolean isBelowDetail(Graphics2D g, double mSize, double vMinSize)
+	{
+		return levelOfDetail && mSize * getZoomFactor() * getDeviceScale(g) < vMinSize;
+	}
+
+	/**
+	 * The factor by which the transform of the graphics context scales view coordinates
+	 * to device pixels. This is 1 when drawing on screen without scaling.
+	 */
+	static double getDeviceScale(Graphics2D g)
+	{
+		AffineTransform t = g.getTransform();
+		return Math.sqrt(Math.abs(t.getDeterminant()));
+	}
+
 	/**
 	 * same as getZoomFactor, but in %
 	 *
@@ -478,6 +679,7 @@ public double getPctZoom()
 	public void setPctZoom(double pctZoomFactor)
 	{
 		zoomFactor = pctZoomFactor / 100.0;		
+		if (dragLayer != null) dragLayer.invalidate();
 		for(VPathwayElement vpe : drawingObjects) {
 			vpe.zoomChanged();
 		}
@@ -911,6 +1113,11 @@ else if (newObject != null
 			setNewTemplate(null);
 		}
 		isDragging = false;
+		if (dragLayer != null)
+		{
+			disposeDragLayer();
+			redraw(); // moving elements may have been drawn out of z-order
+		}
 		dragUndoState = DRAG_UNDO_NOT_RECORDING;
 		if (pressedObject != null)
 		{
@@ -943,14 +1150,12 @@ public void mouseDoubleClick(MouseEvent e)
 	 */
 	public void draw(Graphics2D g2d)
 	{
+		long start = PAINT_TIMER.start();
 		addScheduled();
 		cleanUp();
 
 		try
 		{
-			//save original, non-clipped, to pass on to VPathwayEvent
-			Graphics2D g2dFull = (Graphics2D)g2d.create();
-
 			// we only redraw the part within the clipping area.
 			Rectangle area = g2d.getClipBounds();
 			if (area == null)
@@ -961,33 +1166,29 @@ public void draw(Graphics2D g2d)
 				area = new Rectangle(0, 0, size.width, size.height);
 			}
 
-			// erase the background
-			g2d.setColor(java.awt.Color.WHITE);
-			g2d.fillRect(area.x, area.y, area.width, area.height);
+			if (zOrderDirty)
+			{
+				Collections.sort(drawingObjects);
+				zOrderDirty = false;
+			}
 
-			g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING,
-					RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
-			g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
-					RenderingHints.VALUE_ANTIALIAS_ON);
-			g2d.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS,
-					RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+			// while scrolling, the layer would be rendered again on every paint,
+			// so only use it when the view is the same as the last time.
+			Rectangle layerBounds = getDragLayerBounds();
+			boolean stable = layerBounds.equals(lastLayerBounds);
+			lastLayerBounds = layerBounds;
+			if (!stable) disposeDragLayer();
 
-			g2d.clip(area);
-			g2d.setColor(java.awt.Color.BLACK);
-			Collections.sort(drawingObjects);
-			cleanUp();
-			for (VPathwayElement o : drawingObjects)
+			if (isDragging && dragBuffer && stable && layerBounds.contains(area))
 			{
-				if (o.vIntersects(area))
-				{
-					if (checkDrawAllowed(o))
-					{
-						o.draw((Graphics2D) g2d.create());
-						fireVPathwayEvent(new VPathwayEvent(this, o,
-								(Graphics2D) g2dFull.create(),
-								VPathwayEventType.ELEMENT_DRAWN));
-					}
-				}
+				if (dragLayer == null) dragLayer = new DragLayer(this);
+				dragLayer.paint(g2d, layerBounds);
+				setRenderingHints(g2d);
+				drawElements(g2d, area, dragLayer, true);
+			}
+			else
+			{
+				drawLayer(g2d, area, null, false);
 			}
 		}
 		catch (ConcurrentModificationException ex)
@@ -995,6 +1196,67 @@ public void draw(Graphics2D g2d)
 			// guard against messing up repaint event completely
 			Logger.log.error ("Concurrent modification", ex);
 		}
+		PAINT_TIMER.stop(start);
+	}
+
+	/**
+	 * The part of the drawing that is held by the drag layer: the visible area
+	 * if there is a wrapper, or else the whole pathway.
+	 */
+	private Rectangle getDragLayerBounds()
+	{
+		Rectangle r = parent == null ? null : parent.getViewRect();
+		if (r == null || r.isEmpty())
+		{
+			r = new Rectangle(0, 0, getVWidth(), getVHeight());
+		}
+		return r;
+	}
+
+	private void setRenderingHints(Graphics2D g2d)
+	{
+		g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING,
+				RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+		g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+				RenderingHints.VALUE_ANTIALIAS_ON);
+		g2d.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS,
+				RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+	}
+
+	/**
+	 * Erase the background and draw the elements within an area.
+	 * @param layer if not null, draw only the elements that are dynamic (or not) in this layer
+	 */
+	void drawLayer(Graphics2D g2d, Rectangle area, DragLayer layer, boolean dynamic)
+	{
+		// erase the background
+		g2d.setColor(java.awt.Color.WHITE);
+		g2d.fillRect(area.x, area.y, area.width, area.height);
+
+		setRenderingHints(g2d);
+		drawElements(g2d, area, layer, dynamic);
+	}
+
+	private void drawElements(Graphics2D g2d, Rectangle area, DragLayer layer, boolean dynamic)
+	{
+		//save original, non-clipped, to pass on to VPathwayEvent
+		Graphics2D g2dFull = (Graphics2D)g2d.create();
+
+		g2d.clip(area);
+		g2d.setColor(java.awt.Color.BLACK);
+		for (VPathwayElement o : drawingObjects)
+		{
+			if (o.vIntersects(area))
+			{
+				if (checkDrawAllowed(o) && (layer == null || layer.isDynamic(o) == dynamic))
+				{
+					o.draw((Graphics2D) g2d.create());
+					fireVPathwayEvent(new VPathwayEvent(this, o,
+							(Graphics2D) g2dFull.create(),
+							VPathwayEventType.ELEMENT_DRAWN));
+				}
+			}
+		}
 	}
 
 	boolean checkDrawAllowed(VPathwayElement o)
@@ -1302,11 +1564,16 @@ private void newObject(Point ve)
 			dragUndoState = DRAG_UNDO_NOT_RECORDING;
 
 			if(newObjects.length > 1) {
-				clearSelection();
-				//Multiple objects: select all and use selectionbox as dragging object
-				for(PathwayElement pwe : newObjects) {
-					Graphics g = getPathwayElementView(pwe);
-					selection.addToSelection(g);
+				selection.beginBatch();
+				try {
+					clearSelection();
+					//Multiple objects: select all and use selectionbox as dragging object
+					for(PathwayElement pwe : newObjects) {
+						Graphics g = getPathwayElementView(pwe);
+						selection.addToSelection(g);
+					}
+				} finally {
+					selection.endBatch();
 				}
 				pressedObject = selection;
 			} else {
@@ -1345,28 +1612,44 @@ public void mouseExit(MouseEvent e)
 	 */
 	void selectObjects(Class<?> c)
 	{
-		clearSelection();
-		selection.startSelecting();
-		for (VPathwayElement vpe : getDrawingObjects())
+		selection.beginBatch();
+		try
 		{
-			if (c == null || c.isInstance(vpe))
+			clearSelection();
+			selection.startSelecting();
+			for (VPathwayElement vpe : getDrawingObjects())
 			{
-				selection.addToSelection(vpe);
+				if (c == null || c.isInstance(vpe))
+				{
+					selection.addToSelection(vpe);
+				}
+
 			}
-					
+			selection.stopSelecting();
+		}
+		finally
+		{
+			selection.endBatch();
 		}
-		selection.stopSelecting();
 	}
 	
 	public void selectObjectsByObjectType(ObjectType ot) {
-		clearSelection();
-		selection.startSelecting();
-		for(PathwayElement pe : getPathwayModel().getDataObjects()) {
-			if(pe.getObjectType() == ot) {
-				selection.addToSelection(getPathwayElementView(pe));
+		selection.beginBatch();
+		try
+		{
+			clearSelection();
+			selection.startSelecting();
+			for(PathwayElement pe : getPathwayModel().getDataObjects()) {
+				if(pe.getObjectType() == ot) {
+					selection.addToSelection(getPathwayElementView(pe));
+				}
 			}
+			selection.stopSelecting();
+		}
+		finally
+		{
+			selection.endBatch();
 		}
-		selection.stopSelecting();
 	}
 	
 	/**
@@ -1689,6 +1972,7 @@ public void pathwayModified(PathwayEvent e)
 		switch (e.getType())
 		{
 			case PathwayEvent.DELETED:
+				if (pendingElements != null) pendingElements.remove(e.getAffectedData());
 				Graphics deleted = getPathwayElementView(e.getAffectedData());
 				if (deleted != null)
 				{
@@ -1700,6 +1984,7 @@ public void pathwayModified(PathwayEvent e)
 				}
 				break;
 			case PathwayEvent.ADDED:
+				if (pendingElements != null) pendingElements.remove(e.getAffectedData());
 				lastAdded = fromModelElement(e.getAffectedData());
 				if (lastAdded != null) {
 					lastAdded.markDirty();
@@ -2228,55 +2513,36 @@ public Set<VPathwayElement> getSelectedPathwayElements() {
 		return selection.getSelection();
 	}
 
-	private void generatePasteId(String oldId, Set<String> idset, Map<String, String> idmap,
-			Set<String> newids)
-	{
-		if (oldId != null)
-		{
-			String x;
-			do
-			{
-				/*
-				 * generate a unique id. at the same time, check that it is not
-				 * equal to one of the unique ids that we generated since the
-				 * start of this method
-				 */
-				x = data.getUniqueId(idset);
-			} while (newids.contains(x));
-			newids.add(x); // make sure we don't generate this one
-			// again
-
-			idmap.put(oldId, x);
-		}
-	}
-
 	/**
 	 * Generate new id's for a bunch of elements to be pasted, but do not actually set them.
 	 * Instead, store these new ids in a map, so that we can later update
 	 * both the graphIds and graphReferences,
 	 * as well as groupIds and groupReferences.
 	 *
-	 * idMap and newIds should be an empty map / set.
-	 * It will be filled by this method.
+	 * idMap should be an empty map. It will be filled by this method.
 	 */
-	private void generateNewIds(List<PathwayElement> elements,
-			Map<String, String> idmap, Set<String> newids)
+	private void generateNewIds(List<PathwayElement> elements, Map<String, String> idmap)
 	{
+		List<String> oldIds = new ArrayList<String>();
 		for (PathwayElement o : elements)
 		{
-			String id = o.getGraphId();
-			String groupId = o.getGroupId();
-			generatePasteId(id, data.getGraphIds(), idmap, newids);
-			generatePasteId(groupId, data.getGroupIds(), idmap, newids);
+			if (o.getGraphId() != null) oldIds.add(o.getGraphId());
+			if (o.getGroupId() != null) oldIds.add(o.getGroupId());
 
 			//For a line, also process the point ids
 			if(o.getObjectType() == ObjectType.LINE || o.getObjectType() == ObjectType.GRAPHLINE) {
 				for(MPoint mp : o.getMPoints())
-					generatePasteId(mp.getGraphId(), data.getGraphIds(), idmap, newids);
+					if (mp.getGraphId() != null) oldIds.add(mp.getGraphId());
 				for(MAnchor ma : o.getMAnchors())
-					generatePasteId(ma.getGraphId(), data.getGraphIds(), idmap, newids);
+					if (ma.getGraphId() != null) oldIds.add(ma.getGraphId());
 			}
 		}
+		// allocate all at once, instead of drawing and checking them one by one
+		List<String> newIds = data.getUniqueIds(oldIds.size());
+		for (int i = 0; i < oldIds.size(); ++i)
+		{
+			idmap.put(oldIds.get(i), newIds.get(i));
+		}
 	}
 
 	public void paste(List<PathwayElement> elements) {
@@ -2360,58 +2626,66 @@ private void replaceIdsAndRefs(PathwayElement p, Map<String, String> idmap)
 	
 	public void paste(List<PathwayElement> elements, double xShift, double yShift) {
 		undoManager.newAction("Paste");
-		clearSelection();
-		
-		Map<String, String> idmap = new HashMap<String, String>();
-		Set<String> newids = new HashSet<String>();
-		
-		// Step 1: generate new unique ids for copied items
-		generateNewIds (elements, idmap, newids);
-		
-		// Step 2: do the actual copying
-		for (PathwayElement o : elements)
+		// one selection event for all pasted objects
+		selection.beginBatch();
+		try
 		{
-			if (o.getObjectType() == ObjectType.INFOBOX) {
-				// we skip infobox because it should be unique in a pathway
-				continue;
-			}
+			clearSelection();
 
-			if (o.getObjectType() == ObjectType.BIOPAX) {
-				// Merge the copied biopax elements with existing
-				data.getBiopax().mergeBiopax((BiopaxElement)o);
-				continue;
-			}
+			Map<String, String> idmap = new HashMap<String, String>();
 
-			lastAdded = null;
+			// Step 1: generate new unique ids for copied items
+			generateNewIds (elements, idmap);
 
-			if(o.getObjectType() == ObjectType.LINE || o.getObjectType() == ObjectType.GRAPHLINE) {
-				for (MPoint mp : o.getMPoints())
-				{
-					mp.setX(mp.getX() + xShift);
-					mp.setY(mp.getY() + yShift);
+			// Step 2: do the actual copying
+			for (PathwayElement o : elements)
+			{
+				if (o.getObjectType() == ObjectType.INFOBOX) {
+					// we skip infobox because it should be unique in a pathway
+					continue;
 				}
-			} else {
-				o.setMLeft(o.getMLeft() + xShift);
-				o.setMTop(o.getMTop() + yShift);
-			}
 
-			// make another copy to preserve clipboard contents for next paste
-			PathwayElement p = o.copy();
+				if (o.getObjectType() == ObjectType.BIOPAX) {
+					// Merge the copied biopax elements with existing
+					data.getBiopax().mergeBiopax((BiopaxElement)o);
+					continue;
+				}
 
-			// use the idMap to set consistent new id's
-			replaceIdsAndRefs (p, idmap);
+				lastAdded = null;
 
-			data.add(p); // causes lastAdded to be set
-			lastAdded.select();
-			if (!(lastAdded instanceof Group)){ // avoids "double selecting" grouped objects
-				selection.addToSelection(lastAdded);
+				if(o.getObjectType() == ObjectType.LINE || o.getObjectType() == ObjectType.GRAPHLINE) {
+					for (MPoint mp : o.getMPoints())
+					{
+						mp.setX(mp.getX() + xShift);
+						mp.setY(mp.getY() + yShift);
+					}
+				} else {
+					o.setMLeft(o.getMLeft() + xShift);
+					o.setMTop(o.getMTop() + yShift);
+				}
+
+				// make another copy to preserve clipboard contents for next paste
+				PathwayElement p = o.copy();
+
+				// use the idMap to set consistent new id's
+				replaceIdsAndRefs (p, idmap);
+
+				data.add(p); // causes lastAdded to be set
+				lastAdded.select();
+				if (!(lastAdded instanceof Group)){ // avoids "double selecting" grouped objects
+					selection.addToSelection(lastAdded);
+				}
 			}
 		}
+		finally
+		{
+			selection.endBatch();
+		}
 
 		// Step 3: refresh connector shapes
 		for(PathwayElement o : elements) {
 			if(o.getObjectType() == ObjectType.LINE) {
-				((MLine)o).getConnectorShape().recalculateShape(((MLine)o));
+				((MLine)o).invalidateConnectorShape();
 			}
 		}
 		moveGraphicsTop(getSelectedGraphics());
@@ -2632,6 +2906,7 @@ public void dispose()
 		undoManager.dispose();
 		undoManager = null;
 		hoverManager.stop();
+		disposeDragLayer();
 		disposed = true;
 	}
 
@@ -2645,20 +2920,57 @@ void addScheduled()
 	{
 		for (VPathwayElement elt : toAdd)
 		{
-			if (!drawingObjects.contains(elt))
-			{ // Don't add duplicates!
-				drawingObjects.add(elt);
+			if (zOrderDirty)
+			{
+				// will be sorted before the next paint
+				if (!drawingObjects.contains(elt)) drawingObjects.add(elt);
+			}
+			else
+			{
+				// insert at the right z-order position
+				int i = Collections.binarySearch(drawingObjects, elt);
+				if (i < 0)
+				{
+					drawingObjects.add(-(i + 1), elt);
+				}
+				else if (!containsNear(i, elt))
+				{ // Don't add duplicates!
+					drawingObjects.add(i, elt);
+				}
 			}
+			if (dragLayer != null) dragLayer.elementAdded(elt);
 		}
 		toAdd.clear();
 	}
 
+	/**
+	 * Different elements may compare as equal, so an element found by binary search
+	 * is not necessarily the same one. Look for it among all elements that compare as equal
+	 * around index i.
+	 */
+	private boolean containsNear(int i, VPathwayElement elt)
+	{
+		for (int j = i; j >= 0 && drawingObjects.get(j).compareTo(elt) == 0; --j)
+		{
+			if (drawingObjects.get(j) == elt) return true;
+		}
+		for (int j = i + 1; j < drawingObjects.size() && drawingObjects.get(j).compareTo(elt) == 0; ++j)
+		{
+			if (drawingObjects.get(j) == elt) return true;
+		}
+		return false;
+	}
+
 	private void cleanUp()
 	{
 		for (Iterator<VPathwayElement> i = drawingObjects.iterator(); i.hasNext(); )
 		{
 			VPathwayElement elt = i.next();
-			if (elt.toBeRemoved()) { i.remove(); }
+			if (elt.toBeRemoved())
+			{
+				i.remove();
+				if (dragLayer != null) dragLayer.invalidate();
+			}
 		}
 	}
 
@@ -109,6 +109,7 @@ protected void markDirty()
 		resetShapeCache();
 		Rectangle2D newrect = getVBounds();
 		canvas.addDirtyRect(newrect);
+		canvas.elementChanged(this);
 		oldrect = newrect;
 	}
 
@@ -352,7 +353,10 @@ public int compareTo(VPathwayElement d)
 		// if sorting order is equal, use hash code
 		if (b == a)
 		{
-			return hashCode() - d.hashCode();
+			int ha = hashCode();
+			int hb = d.hashCode();
+			// hash codes of different objects may still be equal
+			return ha == hb ? 0 : (ha < hb ? -1 : 1);
 		}
 		else
 			// not simply "a - b" because of the risk of integer overflows
@@ -369,6 +373,18 @@ public int compareTo(VPathwayElement d)
 	 * */
 	protected double vFromM(double m) { return canvas.vFromM(m); }
 
+	/**
+	 * helper method for level of detail rendering, checks if a shape in view coordinates
+	 * is too small to be drawn on the given graphics context.
+	 * @see VPathway#isBelowDetail(Graphics2D, double, double)
+	 */
+	protected boolean isBelowDetail(Graphics2D g, Shape vShape, double vMinSize)
+	{
+		if (!canvas.isLevelOfDetail()) return false;
+		Rectangle2D b = vShape.getBounds2D();
+		return Math.max(b.getWidth(), b.getHeight()) * VPathway.getDeviceScale(g) < vMinSize;
+	}
+
 	/**
 	 * called automatically by #destroy(), and also by #deselect()
 	 * This should be overridden if you create any Handles in createHandles()
@@ -32,6 +32,7 @@ public class VPathwayEvent extends EventObject {
 		ELEMENT_ADDED,
 		EDIT_MODE_ON,
 		EDIT_MODE_OFF,
+		MODEL_LOADING,
 		MODEL_LOADED,
 		ELEMENT_DOUBLE_CLICKED,
 		ELEMENT_DRAWN,
@@ -272,6 +272,7 @@ public void vPathwayEvent(VPathwayEvent e) {
 	}
 
 	public void selectionEvent(SelectionEvent e) {
+		if (e.adjusting) return; // wait for the end of the batch
 		VPathway vp = ((SelectionBox)e.getSource()).getDrawing();
 		resetGroupStates(vp);
 	}
@@ -453,6 +454,7 @@ public WaypointAction(boolean add) {
 		}
 
 		public void selectionEvent(SelectionEvent e) {
+			if (e.adjusting) return;
 			boolean enable = false;
 			if(e.selection.size() == 1) {
 				VPathwayElement ve = e.selection.iterator().next();
@@ -530,6 +532,7 @@ public AddAnchorAction() {
 		}
 
 		public void selectionEvent(SelectionEvent e) {
+			if (e.adjusting) return;
 			boolean enable= false;
 			for(VPathwayElement ve : e.selection) {
 				if(ve instanceof Line) {
@@ -665,10 +668,12 @@ public void actionPerformed(ActionEvent e) {
 		}
 
 		public void selectionEvent(SelectionEvent e) {
+			if (e.adjusting) return;
 			switch(e.type) {
 			case SelectionEvent.OBJECT_ADDED:
 			case SelectionEvent.OBJECT_REMOVED:
 			case SelectionEvent.SELECTION_CLEARED:
+			case SelectionEvent.SELECTION_CHANGED:
 				setLabel();
 			}
 		}
@@ -18,6 +18,7 @@
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 import junit.framework.TestCase;
@@ -153,6 +154,88 @@ public void testReadWrite() throws IOException {
 
 	}
 	
+	/**
+	 * test that the reverse index of references follows adding and removing
+	 * of references and of the elements that hold them.
+	 */
+	public void testReferenceIndex()
+	{
+		PathwayElement n1 = PathwayElement.createPathwayElement(ObjectType.DATANODE);
+		PathwayElement n2 = PathwayElement.createPathwayElement(ObjectType.DATANODE);
+		data.add(n1);
+		data.add(n2);
+		PublicationXref xref = new PublicationXref();
+		xref.setTitle("title1");
+		new BiopaxReferenceManager(n1).addElementReference(xref);
+		String id = xref.getId();
+
+		assertTrue(elementManager.hasReferences(xref));
+		assertEquals(1, elementManager.getReferringElements(id).size());
+
+		n2.addBiopaxRef(id);
+		assertEquals(2, elementManager.getReferringElements(id).size());
+
+		// removing one of two references keeps the element
+		new BiopaxReferenceManager(n2).removeElementReference(xref);
+		assertTrue(elementManager.hasReferences(id));
+		assertNotNull(elementManager.getElement(id));
+
+		// removed from the pathway, restored by undo before saving
+		data.remove(n1);
+		assertFalse(elementManager.hasReferences(id));
+		data.add(n1);
+		assertTrue(elementManager.getReferringElements(id).contains(n1));
+		data.fixReferences();
+		assertNotNull(elementManager.getElement(id));
+
+		// orphans are cleaned up before saving
+		data.remove(n1);
+		data.fixReferences();
+		assertNull(elementManager.getElement(id));
+
+		// the index is built when the biopax element is added after the elements
+		Pathway q = new Pathway();
+		PathwayElement n3 = PathwayElement.createPathwayElement(ObjectType.DATANODE);
+		n3.addBiopaxRef("abc");
+		q.add(n3);
+		assertTrue(q.getBiopax().hasReferences("abc"));
+		n3.setBiopaxRefs(new ArrayList<String>());
+		assertFalse(q.getBiopax().hasReferences("abc"));
+	}
+
+	/**
+	 * test that the reference index is built when the biopax element is replaced,
+	 * as happens when reading GPML into a pathway.
+	 */
+	public void testReplaceBiopax()
+	{
+		PathwayElement n1 = PathwayElement.createPathwayElement(ObjectType.DATANODE);
+		PathwayElement n2 = PathwayElement.createPathwayElement(ObjectType.DATANODE);
+		data.add(n1);
+		data.add(n2);
+
+		BiopaxElement replacement = new BiopaxElement();
+		PublicationXref xref = new PublicationXref();
+		xref.setTitle("title1");
+		replacement.addElement(xref);
+		String id = xref.getId();
+		n1.addBiopaxRef(id);
+		n2.addBiopaxRef(id);
+
+		data.add(replacement);
+		assertSame(replacement, data.getBiopax());
+		assertEquals(2, replacement.getReferringElements(id).size());
+
+		// the citation is still used by n2, so it's kept
+		data.remove(n1);
+		data.fixReferences();
+		assertNotNull(replacement.getElement(id));
+
+		data.remove(n2);
+		data.fixReferences();
+		assertNull(replacement.getElement(id));
+	}
+
 	public void testOpenControlledVocabulary() throws ConverterException
 	{
 		File f = new File ("../../testData/2010a/biopax-opencontrolledvocabulary-testcase.gpml");
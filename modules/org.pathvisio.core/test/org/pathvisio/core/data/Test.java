@@ -17,10 +17,19 @@
 package org.pathvisio.core.data;
 
 import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.SwingUtilities;
 
 import junit.framework.TestCase;
 
+import org.bridgedb.IDMapperException;
 import org.pathvisio.core.data.GdbManager.GdbEventListener;
+import org.pathvisio.core.preferences.GlobalPreference;
+import org.pathvisio.core.preferences.PreferenceManager;
 
 
 public class Test extends TestCase implements GdbEventListener
@@ -53,4 +62,87 @@ public void testGdbManager()
 		//TODO
 	}
 
+	/** Write a small mapping file, and return a connection string for it */
+	private String createTextMapper(String id) throws IOException
+	{
+		File f = File.createTempFile("mapping", ".txt");
+		f.deleteOnExit();
+		FileWriter writer = new FileWriter(f);
+		writer.write("Entrez Gene\tEnsembl\n" + id + "\tENSG0000" + id + "\n");
+		writer.close();
+		return "idmapper-text:" + f.toURI();
+	}
+
+	public void testInitPreferredInBackground() throws IOException, InterruptedException
+	{
+		PreferenceManager.init();
+		PreferenceManager prefs = PreferenceManager.getCurrent();
+		String connectString = createTextMapper("1234");
+		prefs.set(GlobalPreference.DB_CONNECTSTRING_GDB, connectString);
+		prefs.set(GlobalPreference.DB_CONNECTSTRING_METADB, null);
+		prefs.set(GlobalPreference.DB_CONNECTSTRING_IDB, null);
+
+		GdbManager gdb = new GdbManager();
+		gdb.addGdbEventListener(this);
+		final CountDownLatch done = new CountDownLatch(1);
+		final boolean[] onEventThread = new boolean[1];
+		gdb.initPreferredInBackground(new Runnable()
+		{
+			public void run()
+			{
+				onEventThread[0] = SwingUtilities.isEventDispatchThread();
+				done.countDown();
+			}
+		});
+		assertTrue(done.await(30, TimeUnit.SECONDS));
+
+		assertTrue(onEventThread[0]);
+		assertTrue(eventReceived);
+		assertNotNull(gdb.getGeneDb());
+		assertEquals(1, gdb.getCurrentGdb().getSize());
+		assertEquals(connectString, gdb.getConnectionStringAt(0));
+	}
+
+	public void testInitPreferredSelectedMeanwhile() throws Exception
+	{
+		PreferenceManager.init();
+		PreferenceManager prefs = PreferenceManager.getCurrent();
+		prefs.set(GlobalPreference.DB_CONNECTSTRING_GDB, createTextMapper("1234"));
+		prefs.set(GlobalPreference.DB_CONNECTSTRING_METADB, null);
+		prefs.set(GlobalPreference.DB_CONNECTSTRING_IDB, null);
+
+		final GdbManager gdb = new GdbManager();
+		final CountDownLatch done = new CountDownLatch(1);
+		gdb.initPreferredInBackground(new Runnable()
+		{
+			public void run()
+			{
+				done.countDown();
+			}
+		});
+		// the user selects another database while the preferred one is opened
+		final String other = createTextMapper("5678");
+		final Exception[] error = new Exception[1];
+		SwingUtilities.invokeAndWait(new Runnable()
+		{
+			public void run()
+			{
+				try
+				{
+					gdb.setGeneDb(other);
+				}
+				catch (IDMapperException ex)
+				{
+					error[0] = ex;
+				}
+			}
+		});
+		assertNull(error[0]);
+		assertTrue(done.await(30, TimeUnit.SECONDS));
+
+		// whatever finished first, the database selected by the user is the only one left
+		assertEquals(1, gdb.getCurrentGdb().getSize());
+		assertEquals(other, gdb.getConnectionStringAt(0));
+	}
+
 }
@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * PathVisio, a tool for data visualization and analysis using biological pathways
+ * Copyright 2006-2019 BiGCaT Bioinformatics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.pathvisio.core.debug;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import junit.framework.TestCase;
+
+public class TestLogger extends TestCase
+{
+	Logger log;
+	ByteArrayOutputStream bytes;
+
+	public void setUp()
+	{
+		log = new Logger();
+		bytes = new ByteArrayOutputStream();
+		log.setStream(new PrintStream(bytes));
+	}
+
+	public void tearDown()
+	{
+		log.setAsync(false);
+	}
+
+	private String[] lines()
+	{
+		log.flush();
+		String out = bytes.toString();
+		return out.length() == 0 ? new String[0] : out.split("\r?\n");
+	}
+
+	public void testTime()
+	{
+		StringBuilder b = new StringBuilder();
+		Logger.appendTime(b, 0);
+		assertEquals("[     0.000] ", b.toString());
+		b.setLength(0);
+		Logger.appendTime(b, 1234567);
+		assertEquals("[  1234.567] ", b.toString());
+		b.setLength(0);
+		Logger.appendTime(b, 45);
+		assertEquals(String.format("[%10.3f] ", 0.045).replace(',', '.'), b.toString());
+	}
+
+	public void testLevels()
+	{
+		log.setLogLevel(false, false, true, true, true, true);
+		assertFalse(log.isDebugEnabled());
+		assertTrue(log.isInfoEnabled());
+
+		log.debug("not shown");
+		log.info("shown");
+		log.warnf("shown %d", 2);
+		log.error("error", new Exception("cause"));
+
+		String[] lines = lines();
+		// the exception goes on a second line, without stack trace
+		assertEquals(4, lines.length);
+		assertTrue(lines[0].matches("\\[ *\\d+\\.\\d{3}\\] Info:  shown"));
+		assertEquals("Warn:  shown 2", lines[1]);
+		assertEquals("Error: error", lines[2]);
+		assertEquals("\tjava.lang.Exception: cause: cause", lines[3]);
+	}
+
+	/** error without cause is not mistaken for a format */
+	public void testErrorWithoutCause()
+	{
+		log.setLogLevel(false, false, true, true, true, true);
+		log.error("no cause %s", null);
+		assertEquals("Error: no cause %s", lines()[0]);
+	}
+
+	public void testLazy()
+	{
+		final int[] calls = new int[1];
+		Object arg = new Object()
+		{
+			public String toString()
+			{
+				calls[0]++;
+				return "arg";
+			}
+		};
+		log.setLogLevel(false, false, false, true, true, true);
+		log.infof("message %s", arg);
+		assertEquals(0, calls[0]);
+		log.warnf("message %s", arg);
+		assertEquals(1, calls[0]);
+		assertEquals("Warn:  message arg", lines()[0]);
+	}
+
+	public void testAsync() throws InterruptedException
+	{
+		log.setLogLevel(false, false, true, true, true, true);
+		log.setAsync(true);
+		assertTrue(log.isAsync());
+
+		final int threads = 4;
+		final int count = 20000;
+		Thread[] t = new Thread[threads];
+		for (int i = 0; i < threads; ++i)
+		{
+			final int id = i;
+			t[i] = new Thread()
+			{
+				public void run()
+				{
+					for (int j = 0; j < count; ++j) log.warnf("%d %d", id, j);
+				}
+			};
+			t[i].start();
+		}
+		for (Thread thread : t) thread.join();
+
+		// all messages are there, in order per thread
+		String[] lines = lines();
+		assertEquals(threads * count, lines.length);
+		int[] next = new int[threads];
+		for (String line : lines)
+		{
+			String[] fields = line.substring("Warn:  ".length()).split(" ");
+			int id = Integer.parseInt(fields[0]);
+			assertEquals(next[id]++, Integer.parseInt(fields[1]));
+		}
+
+		// switching off writes what is left
+		log.info("last");
+		log.setAsync(false);
+		assertFalse(log.isAsync());
+		assertTrue(bytes.toString().trim().endsWith("Info:  last"));
+	}
+}
@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * PathVisio, a tool for data visualization and analysis using biological pathways
+ * Copyright 2006-2019 BiGCaT Bioinformatics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.pathvisio.core.debug;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import junit.framework.TestCase;
+
+public class TestMetrics extends TestCase
+{
+	boolean wasEnabled;
+
+	public void setUp()
+	{
+		wasEnabled = Metrics.isEnabled();
+	}
+
+	public void tearDown()
+	{
+		Metrics.setEnabled(wasEnabled);
+	}
+
+	public void testDisabled()
+	{
+		Metrics.setEnabled(false);
+		Metrics.Counter c = Metrics.counter("test.disabled.counter");
+		Metrics.Timer t = Metrics.timer("test.disabled.timer");
+		c.reset();
+		t.reset();
+		c.inc();
+		long start = t.start();
+		assertEquals(0, start);
+		t.stop(start);
+		assertEquals(0, c.getValue());
+		assertEquals(0, t.getCount());
+
+		// switching on halfway a measurement doesn't record garbage
+		Metrics.setEnabled(true);
+		t.stop(start);
+		assertEquals(0, t.getCount());
+	}
+
+	public void testValues()
+	{
+		Metrics.setEnabled(true);
+		Metrics.Counter c = Metrics.counter("test.counter");
+		c.reset();
+		c.inc();
+		c.add(2);
+		assertEquals(3, c.getValue());
+		assertSame(c, Metrics.counter("test.counter"));
+
+		Metrics.Histogram h = Metrics.histogram("test.histogram");
+		h.reset();
+		for (int i = 1; i <= 100; ++i) h.update(i);
+		assertEquals(100, h.getCount());
+		assertEquals(5050.0, h.getTotal());
+		assertEquals(50.5, h.getMean());
+		assertEquals(1.0, h.getMin());
+		assertEquals(100.0, h.getMax());
+		// percentiles are accurate within a factor of two
+		assertTrue(h.getMedian() >= 50 && h.getMedian() < 100);
+		assertTrue(h.getPercentile99() >= 99 && h.getPercentile99() <= 100);
+
+		Metrics.Timer t = Metrics.timer("test.timer");
+		t.reset();
+		t.updateMillis(20);
+		StopWatch sw = new StopWatch();
+		sw.start();
+		sw.stop(t);
+		assertEquals(2, t.getCount());
+		assertEquals(20.0, t.getMax(), 1e-9);
+
+		try
+		{
+			Metrics.timer("test.counter");
+			fail("Expected IllegalArgumentException");
+		}
+		catch (IllegalArgumentException ex)
+		{
+			// success!
+		}
+
+		String dump = Metrics.dump();
+		assertTrue(dump.contains("test.counter\t3"));
+		assertTrue(dump.contains("test.timer\tcount=2"));
+	}
+
+	public void testJmx() throws Exception
+	{
+		Metrics.setEnabled(true);
+		Metrics.Counter c = Metrics.counter("test.jmx");
+		c.reset();
+		c.inc();
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName("org.pathvisio:type=Metrics,name=" + ObjectName.quote("test.jmx"));
+		assertEquals(1L, server.getAttribute(name, "Value"));
+
+		String dump = (String)server.invoke(new ObjectName("org.pathvisio:type=Metrics"), "dump", null, null);
+		assertTrue(dump.contains("test.jmx\t1"));
+	}
+}
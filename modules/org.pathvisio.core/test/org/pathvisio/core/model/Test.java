@@ -16,16 +16,24 @@
  ******************************************************************************/
 package org.pathvisio.core.model;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
 import junit.framework.TestCase;
 
+import org.bridgedb.DataSource;
+import org.bridgedb.IDMapperException;
 import org.bridgedb.Xref;
 import org.bridgedb.bio.BioDataSource;
+import org.pathvisio.core.data.GdbManager;
 import org.pathvisio.core.data.XrefWithSymbol;
 import org.pathvisio.core.preferences.PreferenceManager;
 import org.pathvisio.core.util.Utils;
@@ -357,6 +365,27 @@ public void testRefUniq()
 		catch (IllegalArgumentException e) {}
 	}
 
+	/**
+	 * Test that a batch of ids is unique within itself and with respect to
+	 * existing graph and group ids.
+	 */
+	public void testUniqueIds()
+	{
+		o.setGraphId("abc");
+		o.setGroupId("def");
+		List<String> ids = data.getUniqueIds(1000);
+		assertEquals (1000, ids.size());
+		Set<String> unique = new HashSet<String>(ids);
+		assertEquals (1000, unique.size());
+		assertFalse (unique.contains("abc"));
+		assertFalse (unique.contains("def"));
+		for (String id : ids)
+		{
+			assertTrue (Character.isLetter(id.charAt(0)));
+		}
+		assertTrue (data.getUniqueIds(0).isEmpty());
+	}
+
 	public void testRef2()
 	{
 		o.setGraphId("1");
@@ -508,6 +537,96 @@ public void testTxt() throws IOException, ConverterException
 		exporter.doExport(temp, data);
 	}
 
+	private static String readFile(File f) throws IOException
+	{
+		StringBuilder builder = new StringBuilder();
+		BufferedReader reader = new BufferedReader(new FileReader(f));
+		String line;
+		while ((line = reader.readLine()) != null) builder.append(line).append("\n");
+		reader.close();
+		return builder.toString();
+	}
+
+	private static File copyFile(File src, File dest) throws IOException
+	{
+		dest.getParentFile().mkdirs();
+		FileWriter writer = new FileWriter(dest);
+		writer.write(readFile(src));
+		writer.close();
+		return dest;
+	}
+
+	private static void deleteTree(File f)
+	{
+		File[] children = f.listFiles();
+		if (children != null) for (File child : children) deleteTree(child);
+		f.delete();
+	}
+
+	/**
+	 * Batch export of a directory should give the same lists as exporting each pathway.
+	 */
+	public void testTxtBatch() throws IOException, ConverterException, IDMapperException
+	{
+		File pwDir = File.createTempFile("pathways", "");
+		pwDir.delete();
+		File[] pwFiles = new File[] {
+			copyFile(new File(PATHVISIO_BASEDIR, "testData/test.gpml"), new File(pwDir, "test.gpml")),
+			copyFile(new File(PATHVISIO_BASEDIR, "testData/test2.gpml"), new File(pwDir, "sub/test2.gpml"))
+		};
+		File outDir = File.createTempFile("lists", "");
+		outDir.delete();
+
+		File mapping = File.createTempFile("mapping", ".txt");
+		mapping.deleteOnExit();
+		FileWriter writer = new FileWriter(mapping);
+		writer.write("Entrez Gene\tEnsembl\n1029\tENSG00000147889\n207\tENSG00000142208\n207\tENSG00000999999\n");
+		writer.close();
+		GdbManager gdbManager = new GdbManager();
+		gdbManager.addMapper("idmapper-text:" + mapping.toURI());
+
+		try
+		{
+			DataSource original = DataSource.getBySystemCode(DataNodeListExporter.DB_ORIGINAL);
+			DataSource ensembl = DataSource.getByFullName("Ensembl");
+			DataNodeListExporter exporter = new DataNodeListExporter(gdbManager);
+			List<File> written = exporter.doBatchExport(pwDir, outDir, Arrays.asList(original, ensembl));
+			assertEquals(6, written.size());
+
+			Set<String> originalLines = new HashSet<String>();
+			for (DataSource target : new DataSource[] { original, ensembl })
+			{
+				exporter.setResultDataSource(target);
+				for (File pwFile : pwFiles)
+				{
+					Pathway pathway = new Pathway();
+					pathway.readFromXml(pwFile, false);
+					File expected = File.createTempFile("data.test", ".txt");
+					expected.deleteOnExit();
+					exporter.doExport(expected, pathway);
+
+					String name = pwFile.getName().replace(".gpml", ".txt");
+					File actual = new File(new File(outDir, target.getSystemCode()),
+							pwFile.getParentFile().equals(pwDir) ? name : "sub/" + name);
+					assertTrue(written.contains(actual));
+					assertEquals(readFile(expected), readFile(actual));
+					if (target == original) originalLines.addAll(Arrays.asList(readFile(actual).split("\n")));
+				}
+			}
+			// the combined list has every DataNode reference exactly once
+			List<String> combined = Arrays.asList(
+					readFile(new File(outDir, DataNodeListExporter.DB_ORIGINAL + ".txt")).split("\n"));
+			assertEquals(originalLines.size(), combined.size());
+			assertEquals(originalLines, new HashSet<String>(combined));
+			assertTrue(readFile(new File(outDir, ensembl.getSystemCode() + ".txt")).contains("ENSG00000147889\tEnsembl\n"));
+		}
+		finally
+		{
+			deleteTree(pwDir);
+			deleteTree(outDir);
+		}
+	}
+
 	/**
 	 * test exporting of .pwf
 	 */
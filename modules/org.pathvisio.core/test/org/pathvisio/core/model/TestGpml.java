@@ -16,11 +16,23 @@
  ******************************************************************************/
 package org.pathvisio.core.model;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.ZipFile;
 
 import junit.framework.TestCase;
 
+import org.jdom2.output.Format;
+import org.jdom2.output.XMLOutputter;
+import org.pathvisio.core.util.FileUtils;
+
 public class TestGpml extends TestCase 
 {
 	private static final File PATHVISIO_BASEDIR = new File ("../..");
@@ -96,5 +108,272 @@ public void testDeprecatedFields() throws ConverterException
 		PathwayElement dn = pwy.getElementById("e4fa1");
 		assertEquals ("This is a backpage head", dn.getDynamicProperty("org.pathvisio.model.BackpageHead"));
 	}
-	
+
+	/**
+	 * The lite reader should give the same nodes, groups and interactions as the full reader.
+	 */
+	public void testReadLite() throws ConverterException
+	{
+		String[] files = { "testData/WP248_2008a.gpml", "testData/WP248_2010a.gpml",
+				"example-data/Hs_Apoptosis.gpml", "example-data/mim-test.gpml" };
+		for (String f : files)
+		{
+			File in = new File (PATHVISIO_BASEDIR, f);
+			assertTrue (in.exists());
+			Pathway pwy = new Pathway();
+			pwy.readFromXml(in, false);
+			LitePathway lite = GpmlFormat.readLite(in);
+
+			assertEquals (pwy.getMappInfo().getMapInfoName(), lite.getName());
+
+			List<PathwayElement> nodes = new ArrayList<PathwayElement>();
+			List<PathwayElement> lines = new ArrayList<PathwayElement>();
+			int groups = 0;
+			for (PathwayElement elt : pwy.getDataObjects())
+			{
+				switch (elt.getObjectType())
+				{
+				case DATANODE: nodes.add(elt); break;
+				case LINE: lines.add(elt); break;
+				case GROUP: groups++; break;
+				default: break;
+				}
+			}
+			assertEquals (f, nodes.size(), lite.getNodeCount());
+			assertEquals (f, lines.size(), lite.getInteractionCount());
+			assertEquals (f, groups, lite.getGroupCount());
+
+			for (int i = 0; i < nodes.size(); ++i)
+			{
+				PathwayElement elt = nodes.get(i);
+				assertEquals (elt.getTextLabel(), lite.getNodeLabel(i));
+				assertEquals (elt.getDataNodeType(), lite.getNodeType(i));
+				assertEquals (elt.getElementID(), lite.getNodeXref(i).getId());
+				assertEquals (elt.getGraphId(), lite.getNodeGraphId(i));
+				assertEquals (i, lite.findVertex(elt.getGraphId()));
+				int g = lite.getNodeGroup(i);
+				if (g < 0)
+				{
+					assertNull (elt.getGroupRef());
+				}
+				else
+				{
+					assertEquals (elt.getGroupRef(), lite.getGroupId(g));
+					boolean found = false;
+					for (int member : lite.getGroupMembers(g)) found |= (member == i);
+					assertTrue (found);
+				}
+			}
+
+			for (int i = 0; i < lines.size(); ++i)
+			{
+				PathwayElement elt = lines.get(i);
+				assertEquals (elt.getStartLineType().getName(), lite.getInteractionStartArrow(i));
+				assertEquals (elt.getEndLineType().getName(), lite.getInteractionEndArrow(i));
+				checkEndPoint (pwy, lite, elt.getStartGraphRef(), lite.getInteractionStart(i));
+				checkEndPoint (pwy, lite, elt.getEndGraphRef(), lite.getInteractionEnd(i));
+			}
+		}
+	}
+
+	private static void checkEndPoint(Pathway pwy, LitePathway lite, String ref, int vertex)
+	{
+		if (ref == null || pwy.getGraphIdContainer(ref) == null)
+		{
+			assertEquals (-1, vertex);
+			return;
+		}
+		Object target = pwy.getGraphIdContainer(ref);
+		if (target instanceof PathwayElement && !(target instanceof MState)
+				&& ((PathwayElement)target).getObjectType() != ObjectType.DATANODE
+				&& ((PathwayElement)target).getObjectType() != ObjectType.GROUP)
+		{
+			// Labels, Shapes etc. are not part of the lite graph
+			assertEquals (-1, vertex);
+			return;
+		}
+		assertTrue (vertex >= 0);
+		if (target instanceof MState)
+		{
+			assertEquals (((MState)target).getGraphRef(), lite.getNodeGraphId(vertex));
+		}
+		else if (lite.isAnchorVertex(vertex))
+		{
+			assertTrue (target instanceof PathwayElement.MAnchor);
+		}
+		else
+		{
+			assertEquals (vertex, lite.findVertex(ref));
+		}
+	}
+
+	private static byte[] toBytes(Pathway pwy) throws ConverterException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		GpmlFormat.writeToXml(pwy, out, false);
+		return out.toByteArray();
+	}
+
+	/** What writeToXml wrote before it streamed: the complete jdom document, written with XMLOutputter */
+	private static byte[] toBytesJdom(Pathway pwy) throws ConverterException, IOException
+	{
+		XMLOutputter xmlcode = new XMLOutputter(Format.getPrettyFormat());
+		Format f = xmlcode.getFormat();
+		f.setEncoding("UTF-8");
+		f.setTextMode(Format.TextMode.NORMALIZE);
+		xmlcode.setFormat(f);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		xmlcode.output(GpmlFormat.createJdom(pwy), out);
+		return out.toByteArray();
+	}
+
+	private static boolean isValid(Pathway pwy, boolean streaming)
+	{
+		try
+		{
+			if (streaming) GpmlFormat.writeToXml(pwy, new ByteArrayOutputStream(), true);
+			else GpmlFormat2013a.GPML_2013A.validateDocument(GpmlFormat.createJdom(pwy));
+			return true;
+		}
+		catch (ConverterException e)
+		{
+			return false;
+		}
+	}
+
+	/**
+	 * The streaming writer should write exactly the same bytes as the jdom document,
+	 * and accept or reject the same pathways when validating.
+	 */
+	public void testStreamingWriter() throws ConverterException, IOException
+	{
+		List<File> files = new ArrayList<File>();
+		files.addAll(FileUtils.getFiles(new File(PATHVISIO_BASEDIR, "testData"), "gpml", true));
+		files.addAll(FileUtils.getFiles(new File(PATHVISIO_BASEDIR, "example-data"), "gpml", true));
+		int count = 0;
+		for (File f : files)
+		{
+			Pathway pwy = new Pathway();
+			try
+			{
+				pwy.readFromXml(f, false);
+			}
+			catch (ConverterException e)
+			{
+				continue; // some test files are broken on purpose
+			}
+			byte[] expected;
+			try
+			{
+				expected = toBytesJdom(pwy);
+			}
+			catch (RuntimeException e)
+			{
+				// not all test files can be written, the streaming writer should fail as well
+				try
+				{
+					toBytes(pwy);
+					fail (f.toString());
+				}
+				catch (RuntimeException e2) {}
+				continue;
+			}
+			assertTrue (f.toString(), Arrays.equals(expected, toBytes(pwy)));
+			assertEquals (f.toString(), isValid(pwy, false), isValid(pwy, true));
+			count++;
+		}
+		assertTrue (count > 10);
+
+		// special characters in attributes and text
+		Pathway pwy = new Pathway();
+		pwy.readFromXml(new File (PATHVISIO_BASEDIR, "testData/test.gpml"), false);
+		for (PathwayElement elm : pwy.getDataObjects())
+		{
+			if (elm.getObjectType() == ObjectType.LABEL)
+			{
+				elm.setTextLabel("line 1\nline 2\tcolumn <&> \"quoted\" \u00e9");
+				elm.addComment("  some   comment \r\n text ", "source & more");
+			}
+		}
+		byte[] expected = toBytesJdom(pwy);
+		assertTrue (Arrays.equals(expected, toBytes(pwy)));
+		Pathway reread = new Pathway();
+		reread.readFromXml(new ByteArrayInputStream(expected), false);
+		assertTrue (Arrays.equals(expected, toBytes(reread)));
+	}
+
+	private static int[] readMagic(File f) throws IOException
+	{
+		InputStream in = new FileInputStream(f);
+		try
+		{
+			return new int[] { in.read(), in.read() };
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+
+	/**
+	 * Write and read gpml compressed with gzip and zip.
+	 */
+	public void testCompressed() throws ConverterException, IOException
+	{
+		File in = new File (PATHVISIO_BASEDIR, "example-data/Hs_Apoptosis.gpml");
+		Pathway pwy = new Pathway();
+		pwy.readFromXml(in, true);
+		byte[] expected = toBytes(pwy);
+		GpmlFormat format = new GpmlFormat();
+
+		File gz = File.createTempFile("test", ".gpml.gz");
+		gz.deleteOnExit();
+		pwy.writeToXml(gz, true);
+		assertTrue (Arrays.equals(new int[] { 0x1f, 0x8b }, readMagic(gz)));
+
+		File zip = File.createTempFile("test", ".zip");
+		zip.deleteOnExit();
+		format.doExport(zip, pwy);
+		assertTrue (Arrays.equals(new int[] { 'P', 'K' }, readMagic(zip)));
+		ZipFile zipFile = new ZipFile(zip);
+		assertEquals (1, zipFile.size());
+		assertTrue (zipFile.entries().nextElement().getName().endsWith(".gpml"));
+		zipFile.close();
+
+		for (File f : new File[] { gz, zip })
+		{
+			assertTrue (f.length() < in.length() / 3);
+			assertTrue (format.isCorrectType(f));
+
+			// same result as the uncompressed file
+			assertTrue (Arrays.equals(expected, toBytes(format.doImport(f))));
+
+			Pathway fromStream = new Pathway();
+			InputStream stream = new FileInputStream(f);
+			try
+			{
+				GpmlFormat.readFromXml(fromStream, stream, false);
+			}
+			finally
+			{
+				stream.close();
+			}
+			assertTrue (Arrays.equals(expected, toBytes(fromStream)));
+
+			assertEquals (GpmlFormat.readLite(in).getNodeCount(), GpmlFormat.readLite(f).getNodeCount());
+		}
+	}
+
+	public void testReadLiteInvalid()
+	{
+		try
+		{
+			GpmlFormat.readLite(new File (PATHVISIO_BASEDIR, "example-data/sample_data_1.txt"));
+			fail ("Expected ConverterException");
+		}
+		catch (ConverterException e)
+		{
+			// expected
+		}
+	}
 }
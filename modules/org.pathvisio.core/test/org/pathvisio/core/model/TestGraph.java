@@ -17,9 +17,12 @@
 package org.pathvisio.core.model;
 
 import java.io.File;
+import java.util.Map;
 
 import junit.framework.TestCase;
 
+import org.pathvisio.core.model.GraphLink.GraphIdContainer;
+import org.pathvisio.core.model.PathwayElement.MAnchor;
 import org.pathvisio.core.model.PathwayElement.MPoint;
 
 /**
@@ -162,4 +165,70 @@ public void testAbsRelMPoint() throws ConverterException
 		assertEquals (3000.0 / 15, l[0].getMStartX());
 		assertEquals (800.0 / 15, l[0].getMStartY());
 	}
+
+	/**
+	 * test that the adjacency index follows linking, unlinking and removal of lines,
+	 * and that anchors are treated as points on their line.
+	 */
+	public void testAdjacencyIndex()
+	{
+		AdjacencyIndex idx = p.getAdjacencyIndex();
+		String id1 = n1.getGraphId();
+		String id2 = n2.getGraphId();
+		// anchors need a real MLine
+		PathwayElement l = PathwayElement.createPathwayElement(ObjectType.LINE);
+		p.add (l);
+		assertEquals (0, idx.getDegree(id1));
+		assertTrue (idx.getNeighbors(id1).isEmpty());
+
+		l.setStartGraphRef(id1);
+		l.setEndGraphRef(id2);
+		assertEquals (1, idx.getDegree(id1));
+		assertEquals (1, idx.getDegree(id2));
+		assertTrue (idx.getLines(id1).contains(l));
+		assertTrue (idx.getDownstream(id1).contains(n2));
+		assertTrue (idx.getUpstream(id1).isEmpty());
+		assertTrue (idx.getUpstream(id2).contains(n1));
+		assertTrue (idx.getDownstream(id2).isEmpty());
+
+		// a third node, catalyzing the first line through an anchor
+		PathwayElement n3 = new PathwayElement (ObjectType.DATANODE);
+		p.add (n3);
+		n3.setGeneratedGraphId();
+		MAnchor a = l.addMAnchor(0.5);
+		a.setGeneratedGraphId();
+		PathwayElement l2 = PathwayElement.createPathwayElement(ObjectType.LINE);
+		p.add (l2);
+		l2.setStartGraphRef(n3.getGraphId());
+		l2.setEndGraphRef(a.getGraphId());
+
+		assertTrue (idx.getDownstream(n3.getGraphId()).contains(a));
+		assertTrue (idx.getDownstream(a.getGraphId()).contains(n2));
+		assertTrue (idx.getUpstream(a.getGraphId()).contains(n1));
+		assertTrue (idx.getUpstream(a.getGraphId()).contains(n3));
+		assertTrue (idx.getDownstream(id1).contains(a));
+
+		Map<GraphIdContainer, Integer> hood = idx.getNeighborhood(n3.getGraphId(), 1);
+		assertEquals (2, hood.size());
+		assertEquals (Integer.valueOf(1), hood.get(a));
+		hood = idx.getNeighborhood(n3.getGraphId(), 2);
+		assertEquals (Integer.valueOf(2), hood.get(n1));
+		assertEquals (Integer.valueOf(2), hood.get(n2));
+
+		// unlink
+		l.setEndGraphRef(null);
+		assertEquals (0, idx.getDegree(id2));
+		assertFalse (idx.getDownstream(id1).contains(n2));
+
+		// remove the line
+		p.remove(l2);
+		assertEquals (0, idx.getDegree(n3.getGraphId()));
+		assertTrue (idx.getNeighbors(a.getGraphId()).contains(n1));
+		assertFalse (idx.getNeighbors(a.getGraphId()).contains(n3));
+
+		// re-add, as undo would do
+		p.add(l2);
+		assertEquals (1, idx.getDegree(n3.getGraphId()));
+		assertTrue (idx.getUpstream(a.getGraphId()).contains(n3));
+	}
 }
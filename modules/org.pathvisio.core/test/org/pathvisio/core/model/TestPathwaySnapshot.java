@@ -0,0 +1,167 @@
+/*******************************************************************************
+ * PathVisio, a tool for data visualization and analysis using biological pathways
+ * Copyright 2006-2019 BiGCaT Bioinformatics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.pathvisio.core.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+public class TestPathwaySnapshot extends TestCase
+{
+	private static final File PATHVISIO_BASEDIR = new File ("../..");
+
+	private static final String[] FILES = {
+		"example-data/Hs_Apoptosis.gpml",
+		"example-data/mim-test.gpml",
+		"testData/WP248_2008a.gpml",
+		"testData/WP248_2010a.gpml",
+		"testData/2010a/biopax-literaturexref-testcase.gpml",
+		"testData/2010a/biopax-opencontrolledvocabulary-testcase.gpml",
+	};
+
+	private File cacheDir;
+
+	public void setUp() throws IOException
+	{
+		cacheDir = File.createTempFile("snapshots", "");
+		cacheDir.delete();
+	}
+
+	public void tearDown()
+	{
+		File[] files = cacheDir.listFiles();
+		if (files != null) for (File f : files) f.delete();
+		cacheDir.delete();
+	}
+
+	private static String toGpml(Pathway pwy) throws ConverterException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		GpmlFormat.writeToXml(pwy, out, false);
+		return out.toString();
+	}
+
+	private static byte[] toSnapshot(Pathway pwy) throws ConverterException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		PathwaySnapshot.write(pwy, out);
+		return out.toByteArray();
+	}
+
+	/**
+	 * A pathway read from a snapshot writes the same GPML as the original,
+	 * and the same snapshot.
+	 */
+	public void testRoundTrip() throws ConverterException
+	{
+		for (String name : FILES)
+		{
+			Pathway pwy = new Pathway();
+			pwy.readFromXml(new File(PATHVISIO_BASEDIR, name), false);
+			byte[] snapshot = toSnapshot(pwy);
+
+			Pathway copy = PathwaySnapshot.read(new ByteArrayInputStream(snapshot));
+			// before writing GPML, which sorts the elements
+			assertTrue(name, Arrays.equals(snapshot, toSnapshot(copy)));
+			assertEquals(name, toGpml(pwy), toGpml(copy));
+			assertEquals(pwy.getDataObjects().size(), copy.getDataObjects().size());
+			assertEquals(pwy.getOntologyTags().size(), copy.getOntologyTags().size());
+			assertFalse(copy.hasChanged());
+		}
+	}
+
+	/**
+	 * Links between elements work the same after reading a snapshot.
+	 */
+	public void testReferences() throws ConverterException
+	{
+		Pathway pwy = new Pathway();
+		pwy.readFromXml(new File(PATHVISIO_BASEDIR, "example-data/mim-test.gpml"), false);
+		Pathway copy = PathwaySnapshot.read(new ByteArrayInputStream(toSnapshot(pwy)));
+		for (PathwayElement e : pwy.getDataObjects())
+		{
+			if (e.getGraphId() == null) continue;
+			PathwayElement c = copy.getElementById(e.getGraphId());
+			assertNotNull(c);
+			assertEquals(e.getReferences().size(), c.getReferences().size());
+		}
+		for (String groupId : pwy.getGroupIds())
+		{
+			assertEquals(pwy.getGroupElements(groupId).size(), copy.getGroupElements(groupId).size());
+		}
+	}
+
+	public void testRejected() throws IOException
+	{
+		try
+		{
+			PathwaySnapshot.read(new ByteArrayInputStream("<Pathway/>".getBytes()));
+			fail("Expected ConverterException");
+		}
+		catch (ConverterException expected) { }
+
+		// truncated
+		Pathway pwy = new Pathway();
+		byte[] snapshot;
+		try
+		{
+			pwy.readFromXml(new File(PATHVISIO_BASEDIR, "example-data/Hs_Apoptosis.gpml"), false);
+			snapshot = toSnapshot(pwy);
+		}
+		catch (ConverterException ex)
+		{
+			throw new AssertionError(ex);
+		}
+		try
+		{
+			PathwaySnapshot.read(new ByteArrayInputStream(Arrays.copyOf(snapshot, snapshot.length / 2)));
+			fail("Expected ConverterException");
+		}
+		catch (ConverterException expected) { }
+	}
+
+	public void testCache() throws ConverterException, IOException
+	{
+		File gpml = new File(PATHVISIO_BASEDIR, "testData/WP248_2010a.gpml");
+		Pathway first = PathwaySnapshot.readCached(gpml, cacheDir, false);
+		File cached = new File(cacheDir, PathwaySnapshot.contentHash(gpml) + "." + PathwaySnapshot.EXTENSION);
+		assertTrue(cached.exists());
+		assertEquals(gpml, first.getSourceFile());
+
+		// reading from the snapshot makes it recently used
+		long old = System.currentTimeMillis() - 3600 * 1000;
+		assertTrue(cached.setLastModified(old));
+		Pathway second = PathwaySnapshot.readCached(gpml, cacheDir, false);
+		assertEquals(gpml, second.getSourceFile());
+		assertEquals(toGpml(first), toGpml(second));
+		assertTrue(cached.lastModified() > old);
+
+		// a damaged snapshot is replaced
+		OutputStream out = new FileOutputStream(cached);
+		out.write(new byte[] { 1, 2, 3 });
+		out.close();
+		Pathway third = PathwaySnapshot.readCached(gpml, cacheDir, false);
+		assertEquals(toGpml(first), toGpml(third));
+		assertTrue(cached.length() > 3);
+	}
+}
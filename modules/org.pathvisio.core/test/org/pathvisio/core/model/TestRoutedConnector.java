@@ -0,0 +1,247 @@
+/*******************************************************************************
+ * PathVisio, a tool for data visualization and analysis using biological pathways
+ * Copyright 2006-2019 BiGCaT Bioinformatics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.pathvisio.core.model;
+
+import java.awt.geom.PathIterator;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.pathvisio.core.model.ConnectorShape.Segment;
+
+public class TestRoutedConnector extends TestCase
+{
+	Pathway p;
+	PathwayElement n1, n2, wall;
+	MLine line;
+	long budget;
+
+	private PathwayElement addElement(ObjectType ot, double cx, double cy, double w, double h)
+	{
+		PathwayElement e = PathwayElement.createPathwayElement(ot);
+		e.setMCenterX(cx);
+		e.setMCenterY(cy);
+		e.setMWidth(w);
+		e.setMHeight(h);
+		p.add(e);
+		return e;
+	}
+
+	public void setUp()
+	{
+		// plenty of time, so the result doesn't depend on the speed of the test machine
+		budget = RoutedConnectorShape.getTimeBudget();
+		RoutedConnectorShape.setTimeBudget(10000);
+
+		p = new Pathway();
+		n1 = addElement(ObjectType.DATANODE, 100, 100, 60, 30);
+		n2 = addElement(ObjectType.DATANODE, 400, 100, 60, 30);
+		// a wall between the two nodes
+		wall = addElement(ObjectType.SHAPE, 250, 100, 40, 200);
+
+		line = (MLine)PathwayElement.createPathwayElement(ObjectType.LINE);
+		line.setMStartX(130);
+		line.setMStartY(100);
+		line.setMEndX(370);
+		line.setMEndY(100);
+		p.add(line);
+		line.getMStart().linkTo(n1, 1, 0);
+		line.getMEnd().linkTo(n2, -1, 0);
+		line.setConnectorType(ConnectorType.ROUTED);
+	}
+
+	public void tearDown()
+	{
+		RoutedConnectorShape.setTimeBudget(budget);
+	}
+
+	private static void assertOrthogonal(Segment[] segments, Point2D start, Point2D end)
+	{
+		assertEquals(start, segments[0].getMStart());
+		assertEquals(end, segments[segments.length - 1].getMEnd());
+		for (int i = 0; i < segments.length; ++i)
+		{
+			Point2D s = segments[i].getMStart();
+			Point2D e = segments[i].getMEnd();
+			assertTrue("segment " + i + " not horizontal or vertical",
+					s.getX() == e.getX() || s.getY() == e.getY());
+			if (i > 0) assertEquals(segments[i - 1].getMEnd(), s);
+		}
+	}
+
+	public void testRouteAroundObstacle()
+	{
+		ConnectorShape shape = line.getConnectorShape();
+		assertTrue(shape instanceof RoutedConnectorShape);
+
+		Segment[] segments = shape.getSegments();
+		assertOrthogonal(segments, line.getStartPoint(), line.getEndPoint());
+		assertEquals(0, shape.getWayPoints().length);
+
+		// walk along the route, it should stay out of the wall
+		Rectangle2D b = wall.getMBounds();
+		for (Segment s : segments)
+		{
+			double len = s.getMLength();
+			for (double d = 0; d <= len; d += 1.0)
+			{
+				double x = s.getMStart().getX() + (s.getMEnd().getX() - s.getMStart().getX()) * d / len;
+				double y = s.getMStart().getY() + (s.getMEnd().getY() - s.getMStart().getY()) * d / len;
+				assertFalse("route crosses the wall at " + x + ", " + y, b.contains(x, y));
+			}
+		}
+
+		// moving the wall out of the way gives a straight route
+		wall.setMCenterY(400);
+		line.getConnectorShape().recalculateShape(line);
+		segments = line.getConnectorShape().getSegments();
+		assertOrthogonal(segments, line.getStartPoint(), line.getEndPoint());
+		assertEquals(1, segments.length);
+	}
+
+	public void testObstacleMoved()
+	{
+		// route once, with the wall out of the way
+		wall.setMCenterY(400);
+		assertEquals(1, line.getConnectorShape().getSegments().length);
+
+		// the route is recalculated when the wall moves onto the line,
+		// even though the line isn't linked to it
+		wall.setMCenterY(100);
+		assertTrue(line.getConnectorShape().getSegments().length > 1);
+
+		// and when it moves away again
+		wall.setMCenterY(400);
+		assertEquals(1, line.getConnectorShape().getSegments().length);
+
+		// an obstacle added on the line, and removed again
+		PathwayElement label = addElement(ObjectType.LABEL, 250, 100, 40, 40);
+		assertTrue(line.getConnectorShape().getSegments().length > 1);
+		p.remove(label);
+		assertEquals(1, line.getConnectorShape().getSegments().length);
+
+		// an obstacle that moves far away from the line doesn't affect it
+		PathwayElement far = addElement(ObjectType.DATANODE, 1000, 1000, 60, 30);
+		Segment[] segments = line.getConnectorShape().getSegments();
+		far.setMCenterX(1200);
+		wall.setMCenterX(1000);
+		assertSame(segments, line.getConnectorShape().getSegments());
+	}
+
+	public void testRoutedCurved()
+	{
+		line.setConnectorType(ConnectorType.ROUTED_CURVED);
+		ConnectorShape shape = line.getConnectorShape();
+		assertTrue(shape instanceof RoutedCurvedConnectorShape);
+		assertEquals(0, shape.getWayPoints().length);
+
+		// the curve follows the route around the wall
+		Segment[] segments = shape.getSegments();
+		assertEquals(line.getStartPoint(), segments[0].getMStart());
+		assertEquals(line.getEndPoint(), segments[segments.length - 1].getMEnd());
+		Rectangle2D b = wall.getMBounds();
+		for (Segment s : segments)
+		{
+			assertFalse("curve crosses the wall", b.intersectsLine(s.getMStart().getX(), s.getMStart().getY(),
+					s.getMEnd().getX(), s.getMEnd().getY()));
+		}
+
+		// and so does the outline that is drawn
+		PathIterator it = shape.getShape().getPathIterator(null, 0.5);
+		double[] coords = new double[6];
+		double x = 0, y = 0;
+		for (; !it.isDone(); it.next())
+		{
+			int type = it.currentSegment(coords);
+			if (type == PathIterator.SEG_LINETO)
+			{
+				assertFalse("outline crosses the wall", b.intersectsLine(x, y, coords[0], coords[1]));
+			}
+			x = coords[0];
+			y = coords[1];
+		}
+
+		// without a wall, it is just as curved as the curved connector
+		wall.setMCenterY(400);
+		CurvedConnectorShape curved = new CurvedConnectorShape();
+		curved.recalculateShape(line);
+		Segment[] expected = curved.getSegments();
+		Segment[] actual = line.getConnectorShape().getSegments();
+		assertEquals(expected.length, actual.length);
+		for (int i = 0; i < expected.length; ++i)
+		{
+			assertEquals(expected[i].getMEnd(), actual[i].getMEnd());
+		}
+	}
+
+	public void testFallback()
+	{
+		// no time to search, must give the same result as the elbow connector
+		RoutedConnectorShape.setTimeBudget(0);
+		RoutedConnectorShape routed = new RoutedConnectorShape();
+		routed.recalculateShape(line);
+		ElbowConnectorShape elbow = new ElbowConnectorShape();
+		elbow.recalculateShape(line);
+
+		Segment[] expected = elbow.getSegments();
+		Segment[] actual = routed.getSegments();
+		assertEquals(expected.length, actual.length);
+		for (int i = 0; i < expected.length; ++i)
+		{
+			assertEquals(expected[i].getMStart(), actual[i].getMStart());
+			assertEquals(expected[i].getMEnd(), actual[i].getMEnd());
+		}
+		assertEquals(0, routed.getWayPoints().length);
+	}
+
+	/** the index must give the same answer as a scan over all elements */
+	public void testObstacleIndex()
+	{
+		assertEquals(n1.getMBounds(), line.mayCross(new Point2D.Double(100, 100)));
+
+		// index is rebuilt after a change
+		n1.setMCenterX(1000);
+		assertEquals(n1.getMBounds(), line.mayCross(new Point2D.Double(1000, 100)));
+		assertNull(line.mayCross(new Point2D.Double(100, 100)));
+
+		Random random = new Random(42);
+		for (int i = 0; i < 50; ++i)
+		{
+			addElement(i % 2 == 0 ? ObjectType.LABEL : ObjectType.DATANODE,
+					random.nextDouble() * 2000, random.nextDouble() * 2000,
+					random.nextDouble() * 300, random.nextDouble() * 100);
+		}
+		for (int i = 0; i < 2000; ++i)
+		{
+			Point2D pt = new Point2D.Double(random.nextDouble() * 2200 - 100, random.nextDouble() * 2200 - 100);
+			Rectangle2D expected = null;
+			for (PathwayElement e : p.getDataObjects())
+			{
+				if (!ObstacleIndex.isObstacle(e)) continue;
+				Rectangle2D b = e.getMBounds();
+				if (b.contains(pt))
+				{
+					if (expected == null) expected = b;
+					else expected.add(b);
+				}
+			}
+			assertEquals(expected, line.mayCross(pt));
+		}
+	}
+}
@@ -64,5 +64,43 @@ line.new MPoint(25.0, 25.0)
 		assertEquals (0.5, con.toLineCoordinate(v), 0.01);
 		assertEquals (0.628, con.toLineCoordinate(w), 0.01);
 	}
-	
+
+	/** connector geometry is only calculated when it's needed */
+	public void testLazyRecalculation()
+	{
+		Pathway pwy = new Pathway();
+		MLine line = (MLine)PathwayElement.createPathwayElement(ObjectType.LINE);
+		line.setMStartX(10.0);
+		line.setMStartY(10.0);
+		line.setMEndX(100.0);
+		line.setMEndY(50.0);
+		line.setConnectorType(ConnectorType.CURVED);
+		pwy.add(line);
+
+		CurvedConnectorShape con = (CurvedConnectorShape)line.getConnectorShape();
+		assertNull (con.curveLow);
+		assertNull (con.curveHigh);
+
+		// the outline doesn't need the approximations of the curve
+		assertNotNull (con.getShape());
+		assertNull (con.curveLow);
+
+		Segment[] segments = con.getSegments();
+		assertNotNull (con.curveLow);
+		assertNull (con.curveHigh);
+		assertEquals (new Point2D.Double(100.0, 50.0), segments[segments.length - 1].getMEnd());
+
+		con.fromLineCoordinate(0.5);
+		assertNotNull (con.curveHigh);
+
+		// a change only marks the shape dirty
+		line.setMEndX(200.0);
+		assertSame (segments, con.getSegments());
+
+		// next access to the line's shape brings it up to date
+		assertSame (con, line.getConnectorShape());
+		segments = con.getSegments();
+		assertEquals (new Point2D.Double(200.0, 50.0), segments[segments.length - 1].getMEnd());
+		assertNull (con.curveHigh);
+	}
 }
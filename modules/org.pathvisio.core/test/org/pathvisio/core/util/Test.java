@@ -16,6 +16,10 @@
  ******************************************************************************/
 package org.pathvisio.core.util;
 
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
 import junit.framework.TestCase;
 
 /**
@@ -35,4 +39,77 @@ public void testConverter() {
 		}
 	*/
 	}
+
+	public void testCompactStringMap()
+	{
+		Map<String, String> ref = new TreeMap<String, String>();
+		CompactStringMap map = new CompactStringMap();
+		String[] keys = { "org.pathvisio.DoubleLineProperty", "b", "a", "zz", "b", "m" };
+		for (int i = 0; i < keys.length; ++i)
+		{
+			assertEquals (ref.put(keys[i], "v" + i), map.put(keys[i], "v" + i));
+		}
+		assertEquals (ref, map);
+		assertEquals (ref.keySet().toString(), map.keySet().toString());
+		assertEquals ("v4", map.get("b"));
+		assertNull (map.get("c"));
+
+		// keys are interned
+		String key = new String ("zz");
+		map.put (key, "x");
+		assertSame ("zz", map.keySet().toArray()[map.size() - 1]);
+
+		assertEquals ("v5", map.remove("m"));
+		assertNull (map.remove("m"));
+		Iterator<String> it = map.keySet().iterator();
+		it.next();
+		it.remove();
+		assertFalse (map.containsKey("a"));
+		assertEquals (3, map.size());
+
+		CompactStringMap copy = new CompactStringMap(map);
+		copy.put("a", "y");
+		assertEquals (3, map.size());
+		assertEquals (4, copy.size());
+
+		map.clear();
+		assertTrue (map.isEmpty());
+	}
+
+	/**
+	 * compare exact tests with values calculated exactly with binomial coefficients
+	 */
+	public void testExactStats()
+	{
+		double[] lf = Stats.logFactorials(20000);
+		assertEquals (Math.log(6.0), lf[3], 1e-12);
+
+		// lady tasting tea
+		assertEquals (0.24285714285714285, Stats.hypergeometricP(4, 3, 8, 4, lf), 1e-12);
+		assertEquals (0.4857142857142857, Stats.fisherExactP(4, 3, 8, 4, lf), 1e-12);
+
+		assertEquals (0.391640866873065, Stats.hypergeometricP(12, 5, 20, 7, lf), 1e-12);
+		assertEquals (0.6424148606811146, Stats.fisherExactP(12, 5, 20, 7, lf), 1e-12);
+		assertEquals (0.9999896165392045, Stats.hypergeometricP(50, 1, 1000, 200, lf), 1e-12);
+		assertEquals (0.00021293711317927784, Stats.fisherExactP(50, 1, 1000, 200, lf), 1e-12);
+		// large tables lose a few digits in the log-factorials, compare with relative precision
+		assertEquals (1.2945566420117068e-06, Stats.hypergeometricP(100, 20, 5000, 300, lf), 1e-6 * 1e-8);
+		assertEquals (1.5421236363274963e-08, Stats.hypergeometricP(300, 40, 20000, 1000, lf), 1e-8 * 1e-8);
+
+		// edge cases
+		assertEquals (1.0, Stats.hypergeometricP(0, 0, 20, 7, lf));
+		assertEquals (1.0, Stats.hypergeometricP(20, 7, 20, 7, lf));
+		assertEquals (0.0, Stats.hypergeometricP(5, 6, 20, 7, lf));
+	}
+
+	public void testBenjaminiHochberg()
+	{
+		double[] p = { 0.01, 0.04, 0.03, Double.NaN, 0.5 };
+		double[] adj = Stats.benjaminiHochberg(p);
+		assertEquals (0.04, adj[0], 1e-12);
+		assertEquals (0.0533333333333333, adj[1], 1e-12);
+		assertEquals (0.0533333333333333, adj[2], 1e-12);
+		assertTrue (Double.isNaN(adj[3]));
+		assertEquals (0.5, adj[4], 1e-12);
+	}
 }
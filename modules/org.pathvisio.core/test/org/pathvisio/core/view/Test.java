@@ -16,18 +16,30 @@
  ******************************************************************************/
 package org.pathvisio.core.view;
 
+import java.awt.Graphics2D;
+import java.awt.Shape;
+import java.awt.geom.Area;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 
 import junit.framework.TestCase;
 
 import org.pathvisio.core.biopax.BiopaxReferenceManager;
 import org.pathvisio.core.biopax.PublicationXref;
+import org.pathvisio.core.gui.PathwayTransferable;
 import org.pathvisio.core.model.ObjectType;
 import org.pathvisio.core.model.Pathway;
 import org.pathvisio.core.model.PathwayElement;
+import org.pathvisio.core.model.ShapeType;
 import org.pathvisio.core.preferences.PreferenceManager;
+import org.pathvisio.core.view.SelectionBox.SelectionEvent;
+import org.pathvisio.core.view.SelectionBox.SelectionListener;
 
 public class Test extends TestCase {
 
@@ -124,6 +136,52 @@ public void testCopyPaste()
 //		assertTrue("test pathway".equals(pTarget.getMappInfo().getMapInfoName()));
     }
 
+	/**
+	 * Elements copied within the JVM are passed as objects,
+	 * pasting them gives new ids but keeps the links between them.
+	 */
+	public void testLocalTransfer() throws Exception
+	{
+		eltDn.setGeneratedGraphId();
+		eltLi.setEndGraphRef(eltDn.getGraphId());
+		List<PathwayElement> copied = new ArrayList<PathwayElement>();
+		copied.add(eltDn.copy());
+		copied.add(eltLi.copy());
+		PathwayTransferable t = new PathwayTransferable(pwy, copied);
+		assertTrue(t.isDataFlavorSupported(PathwayTransferable.PATHWAY_DATA_FLAVOR));
+
+		Pathway transferred = PathwayTransferable.getPathway(t);
+		assertNotNull(transferred);
+		// a deep copy, not the copied elements themselves
+		assertNotSame(transferred, PathwayTransferable.getPathway(t));
+		List<PathwayElement> elements = new ArrayList<PathwayElement>();
+		for(PathwayElement e : transferred.getDataObjects()) {
+			if(e.getObjectType() == ObjectType.DATANODE || e.getObjectType() == ObjectType.LINE) {
+				assertFalse(copied.contains(e));
+				elements.add(e);
+			}
+		}
+		assertEquals(2, elements.size());
+
+		// the GPML text is still available for other applications
+		assertTrue(PathwayTransferable.getText(t).contains("1234"));
+
+		Pathway pTarget = new Pathway();
+		VPathway vpTarget = new VPathway(null);
+		vpTarget.fromModel(pTarget);
+		vpTarget.paste(elements);
+
+		PathwayElement node = null, line = null;
+		for(PathwayElement e : pTarget.getDataObjects()) {
+			if(e.getObjectType() == ObjectType.DATANODE) node = e;
+			if(e.getObjectType() == ObjectType.LINE) line = e;
+		}
+		assertNotNull(node);
+		assertNotNull(line);
+		assertFalse(eltDn.getGraphId().equals(node.getGraphId()));
+		assertEquals(node.getGraphId(), line.getEndGraphRef());
+	}
+
     public void testOrderAction()
     {
     	assertTrue(eltDn.getZOrder() > eltLa.getZOrder());
@@ -172,6 +230,144 @@ public void testVpwySort()
     	checkDrawingOrder(new VPathwayElement[] { vLi, vSh, vLa, vDn, h }, elements);
     }
 
+    private static void assertSorted(List<VPathwayElement> elements)
+    {
+    	for (int i = 0; i < elements.size() - 1; ++i)
+    	{
+    		assertTrue (elements.get(i).compareTo(elements.get(i + 1)) < 0);
+    	}
+    }
+
+    private static int[] paint(VPathway vp)
+    {
+    	BufferedImage image = new BufferedImage(vp.getVWidth(), vp.getVHeight(), BufferedImage.TYPE_INT_RGB);
+    	Graphics2D g = image.createGraphics();
+    	vp.draw(g);
+    	g.dispose();
+    	return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+    }
+
+    /**
+     * drawingObjects should stay sorted by z-order without sorting on every paint
+     */
+    public void testIncrementalZOrder()
+    {
+    	vDn.select();
+    	vPwy.addScheduled();
+    	assertSorted (vPwy.getDrawingObjects());
+
+    	vPwy.moveGraphicsTop(Arrays.asList(new Graphics[] {vSh}));
+    	vPwy.setPctZoom(10);
+    	paint(vPwy);
+    	assertSorted (vPwy.getDrawingObjects());
+    	checkDrawingOrder(new VPathwayElement[] { vLi, vLa, vDn, vSh }, vPwy.getDrawingObjects());
+    }
+
+    /** element with a fixed z-order and hash code, to test elements that compare as equal */
+    private static class Colliding extends VPathwayElement
+    {
+    	Colliding(VPathway canvas) { super(canvas); }
+    	protected void doDraw(Graphics2D g2d) {}
+    	protected Shape calculateVOutline() { return new Rectangle2D.Double(); }
+    	protected int getZOrder() { return 1; }
+    	public int hashCode() { return 42; }
+    }
+
+    /**
+     * different elements that compare as equal should all be added, but only once.
+     */
+    public void testAddEqualElements()
+    {
+    	vPwy.addScheduled();
+    	int size = vPwy.getDrawingObjects().size();
+    	VPathwayElement a = new Colliding(vPwy);
+    	VPathwayElement b = new Colliding(vPwy);
+    	assertEquals (0, a.compareTo(b));
+    	vPwy.addScheduled();
+    	vPwy.addObject(a);
+    	vPwy.addScheduled();
+
+    	List<VPathwayElement> elements = vPwy.getDrawingObjects();
+    	assertEquals (size + 2, elements.size());
+    	assertTrue (elements.contains(a));
+    	assertTrue (elements.contains(b));
+    }
+
+    private MouseEvent mouse(int type, int x, int y)
+    {
+    	return new MouseEvent(vPwy, type, MouseEvent.BUTTON1, x, y, 1, 0, false) {};
+    }
+
+    /**
+     * Painting during a drag with the offscreen layer should give
+     * the same result as painting everything.
+     */
+    public void testDragLayer()
+    {
+    	vPwy.setPctZoom(10);
+    	vPwy.mouseDown(mouse(MouseEvent.MOUSE_DOWN, 300, 300));
+    	vPwy.mouseMove(mouse(MouseEvent.MOUSE_MOVE, 310, 300));
+    	paint(vPwy);
+    	vPwy.mouseMove(mouse(MouseEvent.MOUSE_MOVE, 320, 305));
+    	int[] buffered = paint(vPwy);
+
+    	vPwy.setDragBuffer(false);
+    	int[] direct = paint(vPwy);
+    	assertTrue (Arrays.equals(direct, buffered));
+    	vPwy.setDragBuffer(true);
+
+    	vPwy.mouseUp(mouse(MouseEvent.MOUSE_UP, 320, 305));
+    	assertEquals (3000 + 200, eltDn.getMCenterX(), 0.01);
+    }
+
+    /**
+     * Build a VPathway in steps, visible area first, while editing the pathway.
+     */
+    public void testLoadInSteps()
+    {
+    	VPathway vp = new VPathway(null);
+    	final List<VPathwayEvent.VPathwayEventType> events = new ArrayList<VPathwayEvent.VPathwayEventType>();
+    	vp.addVPathwayListener(new VPathwayListener()
+    	{
+    		public void vPathwayEvent(VPathwayEvent e)
+    		{
+    			events.add(e.getType());
+    		}
+    	});
+    	vp.startLoading(pwy);
+    	assertTrue (vp.isLoading());
+    	// the wrapper is told right away, so it can show the pathway while loading
+    	assertEquals (Collections.singletonList(VPathwayEvent.VPathwayEventType.MODEL_LOADING), events);
+
+    	// only the DataNode lies in this area
+    	vp.loadArea(new Rectangle2D.Double(2800, 2800, 100, 100));
+    	assertNotNull (vp.getPathwayElementView(eltDn));
+    	assertNull (vp.getPathwayElementView(eltSh));
+
+    	// edits while loading should be reflected in the view
+    	pwy.remove(eltSh);
+    	PathwayElement extra = PathwayElement.createPathwayElement(ObjectType.LABEL);
+    	pwy.add(extra);
+    	assertNotNull (vp.getPathwayElementView(extra));
+
+    	assertTrue (vp.loadNext(1));
+    	while (vp.loadNext(1)) {}
+    	assertFalse (vp.isLoading());
+    	assertEquals (VPathwayEvent.VPathwayEventType.MODEL_LOADED, events.get(events.size() - 1));
+
+    	assertNull (vp.getPathwayElementView(eltSh));
+    	for (PathwayElement elt : new PathwayElement[] { eltDn, eltLi, eltLa, extra })
+    	{
+    		int count = 0;
+    		for (VPathwayElement v : vp.getDrawingObjects())
+    		{
+    			if (v instanceof Graphics && ((Graphics)v).getPathwayElement() == elt) count++;
+    		}
+    		assertEquals (1, count);
+    	}
+    	assertSorted (vp.getDrawingObjects());
+    }
+
     public void checkDrawingOrder(VPathwayElement[] order, List<VPathwayElement> elements) {
     	int[] indices = new int[order.length];
     	for(int i = 0; i < order.length; i++) {
@@ -272,4 +468,126 @@ public void testLitRef()
     	assertNull (vDn.getCitation());
     }
 
+
+	/**
+	 * Hit testing of rectangles, rounded rectangles and ovals is calculated directly,
+	 * check that it agrees with the java.awt.geom shapes.
+	 */
+	public void testShapeHitTest()
+	{
+		GraphicsShape gs = (GraphicsShape)vSh;
+		eltSh.setLineThickness(3);
+		Random random = new Random(1);
+		ShapeType[] types = { ShapeType.RECTANGLE, ShapeType.ROUNDED_RECTANGLE, ShapeType.OVAL };
+		double[] rotations = { 0, 0.3, Math.PI / 2, 2 };
+		double[] zooms = { 20, 100, 250 };
+		for (ShapeType type : types)
+			for (double rotation : rotations)
+				for (double zoom : zooms)
+					for (boolean transparent : new boolean[] { false, true })
+					{
+						eltSh.setShapeType(type);
+						eltSh.setRotation(rotation);
+						eltSh.setTransparent(transparent);
+						vPwy.setPctZoom(zoom);
+
+						Shape shape = gs.getShape(true, 0);
+						Area border = new Area(gs.getShape(true, true));
+						Rectangle2D bounds = gs.getVBounds();
+						assertEquals(border.getBounds2D().getWidth(), bounds.getWidth(), 0.01 * bounds.getWidth());
+						assertEquals(border.getBounds2D().getHeight(), bounds.getHeight(), 0.01 * bounds.getHeight());
+
+						int mismatches = 0;
+						int n = 2000;
+						for (int i = 0; i < n; ++i)
+						{
+							Point2D p = new Point2D.Double(
+									bounds.getX() + random.nextDouble() * bounds.getWidth(),
+									bounds.getY() + random.nextDouble() * bounds.getHeight());
+							boolean expected = transparent ? border.contains(p) : shape.contains(p);
+							if (expected != gs.vContains(p)) mismatches++;
+						}
+						// points right on the edge may differ
+						assertTrue(type + " " + rotation + " " + zoom + " " + transparent + ": " + mismatches,
+								mismatches <= n / 100);
+					}
+	}
+
+	public void testShapeCache()
+	{
+		GraphicsShape gs = (GraphicsShape)vSh;
+		vPwy.setPctZoom(100);
+		Shape s1 = gs.getShape(true, 0);
+		assertSame(s1, gs.getShape(true, 0));
+		assertEquals(300.0, s1.getBounds2D().getWidth(), 0.01);
+
+		// invalidated by changes to the model
+		eltSh.setMWidth(400);
+		Shape s2 = gs.getShape(true, 0);
+		assertEquals(400.0, s2.getBounds2D().getWidth(), 0.01);
+		assertEquals(400.0, gs.getVBounds().getWidth(), 10);
+
+		// and by zooming
+		vPwy.setPctZoom(50);
+		assertEquals(200.0, gs.getShape(true, 0).getBounds2D().getWidth(), 0.01);
+		assertEquals(200.0, gs.getVBounds().getWidth(), 10);
+	}
+
+	public void testLevelOfDetail()
+	{
+		BufferedImage image = new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = image.createGraphics();
+
+		// 12 pt text is 1.2 pixels high at 10% zoom
+		vPwy.setPctZoom(10);
+		assertTrue(vPwy.isBelowDetail(g, 12, VPathway.LOD_MIN_TEXT_SIZE));
+
+		// but not when the output is scaled up again, as when printing
+		g.scale(5, 5);
+		assertFalse(vPwy.isBelowDetail(g, 12, VPathway.LOD_MIN_TEXT_SIZE));
+		g.scale(0.2, 0.2);
+
+		vPwy.setLevelOfDetail(false);
+		assertFalse(vPwy.isBelowDetail(g, 12, VPathway.LOD_MIN_TEXT_SIZE));
+		g.dispose();
+	}
+
+	public void testSelectionBatch()
+	{
+		final List<SelectionEvent> events = new ArrayList<SelectionEvent>();
+		vPwy.addSelectionListener(new SelectionListener()
+		{
+			public void selectionEvent(SelectionEvent e)
+			{
+				if (!e.adjusting) events.add(e);
+			}
+		});
+
+		// select all fires a single event with all objects
+		vPwy.selectAll();
+		assertEquals(1, events.size());
+		SelectionEvent e = events.get(0);
+		assertEquals(SelectionEvent.SELECTION_CHANGED, e.type);
+		assertTrue(e.added.containsAll(Arrays.asList(vDn, vSh, vLi, vLa)));
+		assertEquals(0, e.removed.size());
+		assertEquals(e.added, e.selection);
+
+		// changes that cancel each other out are left out
+		events.clear();
+		SelectionBox box = vPwy.selection;
+		box.beginBatch();
+		box.removeFromSelection(vDn);
+		box.addToSelection(vDn);
+		box.removeFromSelection(vSh);
+		box.endBatch();
+		assertEquals(1, events.size());
+		assertEquals(0, events.get(0).added.size());
+		assertEquals(Collections.singleton(vSh), events.get(0).removed);
+
+		// outside a batch, events are sent right away
+		events.clear();
+		vPwy.clearSelection();
+		assertEquals(1, events.size());
+		assertEquals(SelectionEvent.SELECTION_CLEARED, events.get(0).type);
+	}
 }
@@ -89,7 +89,20 @@
 	 * Get an iterator, that allows you to loop through all rows in this dataset.
 	 */
 	public Iterable<IRow> getIterator() throws DataException;
-	
+
+	/**
+	 * Stream over all rows in this dataset, reading only the given samples.
+	 * Rows are visited in the same order as {@link #getIterator()}, but without
+	 * creating an {@link IRow} for each of them.
+	 * <p>
+	 * Implementations may skip rows that have no value for any of the given samples.
+	 * Pass an empty list to visit only the xref and group of each row.
+	 * @param samples the samples to read, they become the columns of the cursor.
+	 * @param fetchSize a hint for the number of rows to fetch from the backend at once, or 0 to use the default.
+	 * The caller must close the returned cursor.
+	 */
+	public RowCursor scan(List<? extends ISample> samples, int fetchSize) throws DataException;
+
 	/**
 	 * Return true if the backend is working properly
 	 */
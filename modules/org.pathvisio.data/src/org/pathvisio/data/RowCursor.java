@@ -0,0 +1,224 @@
+/*******************************************************************************
+ * PathVisio, a tool for data visualization and analysis using biological pathways
+ * Copyright 2006-2019 BiGCaT Bioinformatics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.pathvisio.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.bridgedb.Xref;
+
+/**
+ * Streams over the rows of a dataset, see {@link DataInterface#scan(List, int)}.
+ * <p>
+ * A cursor only holds the values of the samples that were asked for, in the
+ * order they were asked for: column i is getSamples().get(i).
+ * The cursor is re-used for each row, values are kept in primitive arrays and
+ * are only valid until the next call to {@link #next()}.
+ * <p>
+ * Typical use:
+ * <pre>
+ * RowCursor cursor = data.scan(samples, 1000);
+ * try
+ * {
+ * 	while (cursor.next())
+ * 	{
+ * 		double value = cursor.getDouble(0);
+ * 		...
+ * 	}
+ * }
+ * finally
+ * {
+ * 	cursor.close();
+ * }
+ * </pre>
+ */
+public abstract class RowCursor
+{
+	private final List<ISample> samples;
+
+	/** parsed value per column, NaN if it is not a number */
+	protected final double[] numbers;
+	/** raw value per column in case it is not a number, null otherwise */
+	protected final String[] texts;
+	/** true if the current row has a value for a column */
+	protected final boolean[] present;
+	/** true if the value for a column could be parsed as a number */
+	protected final boolean[] numeric;
+
+	protected Xref xref;
+	protected int group;
+
+	/**
+	 * @param samples the columns of this cursor, may be empty to
+	 * visit only the xref and group of each row.
+	 */
+	protected RowCursor(List<? extends ISample> samples)
+	{
+		this.samples = new ArrayList<ISample>(samples);
+		int n = samples.size();
+		numbers = new double[n];
+		texts = new String[n];
+		present = new boolean[n];
+		numeric = new boolean[n];
+	}
+
+	/**
+	 * Move to the next row.
+	 * @return false if there are no more rows.
+	 */
+	public abstract boolean next() throws DataException;
+
+	/**
+	 * Release any resources held by this cursor.
+	 * It is safe to call this before all rows have been visited.
+	 */
+	public void close() throws DataException {}
+
+	/** The samples that were asked for, in column order */
+	public List<ISample> getSamples()
+	{
+		return samples;
+	}
+
+	/** The column of the given sample, or -1 if it's not part of this cursor */
+	public int indexOf(ISample sample)
+	{
+		return samples.indexOf(sample);
+	}
+
+	/** Reporter of the current row */
+	public Xref getXref()
+	{
+		return xref;
+	}
+
+	/** Group of the current row, see {@link IRow#getGroup()} */
+	public int getGroup()
+	{
+		return group;
+	}
+
+	/** true if the current row has a value in the given column */
+	public boolean hasValue(int column)
+	{
+		return present[column];
+	}
+
+	/** true if the current row has a numeric value in the given column */
+	public boolean isNumber(int column)
+	{
+		return present[column] && numeric[column];
+	}
+
+	/** Numeric value in the given column, or NaN if there is no numeric value */
+	public double getDouble(int column)
+	{
+		return isNumber(column) ? numbers[column] : Double.NaN;
+	}
+
+	/** Text value in the given column, or null if the value is missing or a number */
+	public String getText(int column)
+	{
+		return present[column] ? texts[column] : null;
+	}
+
+	/**
+	 * Value in the given column as {@link IRow#getSampleData(ISample)} would return it,
+	 * a {@link Double} or a {@link String}. Note that this allocates for numbers.
+	 */
+	public Object getValue(int column)
+	{
+		if (!present[column]) return null;
+		return numeric[column] ? Double.valueOf(numbers[column]) : texts[column];
+	}
+
+	/** Forget the values of the previous row. Call before filling in a new row. */
+	protected void clearValues()
+	{
+		Arrays.fill(present, false);
+	}
+
+	/**
+	 * Set a raw value for the current row.
+	 * Data will be parsed to double if possible, just like {@link IRow} implementations do.
+	 */
+	protected void setValue(int column, String data)
+	{
+		present[column] = true;
+		try
+		{
+			numbers[column] = Double.parseDouble(data);
+			numeric[column] = true;
+			texts[column] = null;
+		}
+		catch (Exception e)
+		{
+			numbers[column] = Double.NaN;
+			numeric[column] = false;
+			texts[column] = data;
+		}
+	}
+
+	/** Set a value for the current row that was already parsed, it won't be parsed again */
+	protected void setParsedValue(int column, Object data)
+	{
+		present[column] = true;
+		if (data instanceof Number)
+		{
+			numbers[column] = ((Number)data).doubleValue();
+			numeric[column] = true;
+			texts[column] = null;
+		}
+		else
+		{
+			numbers[column] = Double.NaN;
+			numeric[column] = false;
+			texts[column] = data == null ? null : data.toString();
+		}
+	}
+
+	/**
+	 * A cursor over rows that are already available as {@link IRow} objects.
+	 * Use this to implement {@link DataInterface#scan(List, int)} for backends
+	 * that don't have a cheaper way to stream their data.
+	 */
+	public static RowCursor fromRows(Iterable<? extends IRow> rows, List<? extends ISample> samples)
+	{
+		final Iterator<? extends IRow> it = rows.iterator();
+		return new RowCursor(samples)
+		{
+			@Override
+			public boolean next()
+			{
+				if (!it.hasNext()) return false;
+				IRow row = it.next();
+				xref = row.getXref();
+				group = row.getGroup();
+				clearValues();
+				List<ISample> columns = getSamples();
+				for (int i = 0; i < columns.size(); ++i)
+				{
+					ISample s = columns.get(i);
+					if (row.getSamples().contains(s)) setParsedValue(i, row.getSampleData(s));
+				}
+				return true;
+			}
+		};
+	}
+}
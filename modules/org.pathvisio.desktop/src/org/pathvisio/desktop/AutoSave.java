@@ -30,6 +30,7 @@
 import org.pathvisio.core.model.ConverterException;
 import org.pathvisio.core.model.GpmlFormat;
 import org.pathvisio.core.model.Pathway;
+import org.pathvisio.core.model.PathwaySnapshot;
 import org.pathvisio.gui.SwingEngine;
 
 
@@ -49,10 +50,14 @@ public AutoSave (SwingEngine se)
 		swingEngine = se;
 	}
 
+	/**
+	 * The pathway is saved as a snapshot, which is much quicker to write than GPML,
+	 * so that autosave doesn't hold up the GUI thread.
+	 */
 	private File autoSaveFileLocation() 
 	{
 		String tempDir = System.getProperty("java.io.tmpdir");
-		File autoSaveFile = new File(tempDir, "PathVisioAutoSave.gpml");
+		File autoSaveFile = new File(tempDir, "PathVisioAutoSave." + PathwaySnapshot.EXTENSION);
 		return autoSaveFile;
 	}
 
@@ -61,7 +66,7 @@ private void autoSaveFile() throws ConverterException
 		Pathway p = engine.getActivePathway();
 		if (p != null) 
 		{
-			GpmlFormat.writeToXml (p, autoSaveFile, true);
+			PathwaySnapshot.write (p, autoSaveFile);
 			Logger.log.info("Autosaved");
 		}
 	}
@@ -127,7 +132,20 @@ private void autoRecoveryDlg()
 				"Crash recovery", JOptionPane.YES_NO_OPTION);
 		if (result == JOptionPane.YES_OPTION)
 		{
-			swingEngine.openPathway(autoSaveFile);
+			// convert to GPML, so the recovered pathway can be opened as usual
+			File recovered = new File(autoSaveFile.getParentFile(), "PathVisioAutoSave.gpml");
+			try
+			{
+				GpmlFormat.writeToXml (PathwaySnapshot.read(autoSaveFile), recovered, false);
+				swingEngine.openPathway(recovered);
+			}
+			catch (ConverterException e)
+			{
+				Logger.log.error ("Recovery failed", e);
+				JOptionPane.showMessageDialog(swingEngine.getApplicationPanel(),
+						"Could not recover the auto-saved file:\n" + e.getMessage(),
+						"Crash recovery", JOptionPane.ERROR_MESSAGE);
+			}
 		}
 	}
 }
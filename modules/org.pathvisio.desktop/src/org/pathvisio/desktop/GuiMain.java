@@ -24,15 +24,18 @@
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.io.File;
+import java.lang.management.ManagementFactory;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.Locale;
+import java.util.concurrent.ExecutionException;
 
 import javax.swing.BoxLayout;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.SwingWorker;
 import javax.swing.UIManager;
 
 import org.bridgedb.IDMapperException;
@@ -90,12 +93,22 @@ private static void initLog(Engine engine)
 		String logDest = PreferenceManager.getCurrent().get(GlobalPreference.FILE_LOG);
 		Logger.log.setDest (logDest);
 		Logger.log.setLogLevel(true, true, true, true, true, true);//Modify this to adjust log level
+		Logger.log.setAsync(true);
 		Logger.log.info("Application name: " + engine.getApplicationName());
 		Logger.log.info("os.name: " + System.getProperty("os.name") +
 					" os.version: " + System.getProperty("os.version") +
 					" java.version: " + System.getProperty ("java.version"));
 		Logger.log.info ("Locale: " + Locale.getDefault().getDisplayName());
 	}
+
+	/**
+	 * Log the time since the JVM was started, to see where start-up time goes.
+	 * The launcher prints the same kind of lines for installing and starting bundles.
+	 */
+	static void traceStartup(String phase)
+	{
+		Logger.log.infof ("Startup: %s after %d ms", phase, ManagementFactory.getRuntimeMXBean().getUptime());
+	}
 	
 	private void openPathwayFile(String pathwayFile) {
 		File f = new File(pathwayFile);
@@ -134,17 +147,40 @@ public void processOptions() {
 		
 		str = System.getProperty(ARG_PROPERTY_PGEX);
 		if(str != null) {
-			try {
-				pvDesktop.getGexManager().setCurrentGex(str, false);
-				pvDesktop.loadGexCache();
-				Logger.log.info ("Loaded pgex " + str);
-			} 
-			catch (DataException e) {
-				Logger.log.error ("Couldn't open pgex " + str, e);
-			}
+			openPgex(str);
 		}
 	}
 
+	/**
+	 * Open a dataset in a background thread, and make it the current
+	 * dataset when done, so the window can be used in the meantime.
+	 */
+	private void openPgex(final String pgex)
+	{
+		final GexManager gexManager = pvDesktop.getGexManager();
+		new SwingWorker<DataInterface, Void>() {
+			protected DataInterface doInBackground() throws DataException {
+				// this also reads the samples, which used to happen on the event dispatch thread
+				return gexManager.connect(pgex, false);
+			}
+
+			protected void done() {
+				try {
+					gexManager.setCurrentGex(get());
+					pvDesktop.loadGexCache();
+					Logger.log.info ("Loaded pgex " + pgex);
+					traceStartup("dataset loaded");
+				}
+				catch (ExecutionException e) {
+					Logger.log.error ("Couldn't open pgex " + pgex, e.getCause());
+				}
+				catch (InterruptedException e) {
+					Logger.log.error ("Couldn't open pgex " + pgex, e);
+				}
+			}
+		}.execute();
+	}
+
 	private String shortenString(String s) {
 		return shortenString(s, 20);
 	}
@@ -354,7 +390,9 @@ public void init(PvDesktop pvDesktop) {
 		
 		Engine engine = pvDesktop.getSwingEngine().getEngine();
 		initLog(engine);
+		traceStartup("desktop started");
 		engine.setApplicationName("PathVisio " + Engine.getVersion());
+		engine.setSnapshotCacheDir(new File(GlobalPreference.getApplicationDir(), "snapshots"));
 		if (PreferenceManager.getCurrent().getBoolean(GlobalPreference.USE_SYSTEM_LOOK_AND_FEEL))
 		{
 			try {
@@ -380,7 +418,12 @@ public void openUrl(URL url) {
 			}
 		});
 
-		swingEngine.getGdbManager().initPreferred();
+		// connecting to the databases can take a while, the window is usable in the meantime
+		swingEngine.getGdbManager().initPreferredInBackground(new Runnable() {
+			public void run() {
+				traceStartup("databases connected");
+			}
+		});
 
 		mainPanel = new MainPanelStandalone(pvDesktop);
 		mainPanel.createAndShowGUI();
@@ -394,8 +437,10 @@ public void openUrl(URL url) {
 		// start the autosave timer
 		auto = new AutoSave(swingEngine);
 		auto.startTimer(300);
+		traceStartup("window shown");
 
 		processOptions();
+		traceStartup("plugins and pathway loaded");
 	}
 
 	
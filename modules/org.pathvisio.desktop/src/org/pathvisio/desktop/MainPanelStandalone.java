@@ -36,10 +36,14 @@
 import javax.swing.KeyStroke;
 
 import org.pathvisio.core.ApplicationEvent;
+import org.pathvisio.core.data.GdbEvent;
+import org.pathvisio.core.data.GdbManager.GdbEventListener;
 import org.pathvisio.core.debug.Logger;
 import org.pathvisio.core.preferences.GlobalPreference;
 import org.pathvisio.core.preferences.PreferenceManager;
 import org.pathvisio.desktop.gex.BackpageExpression;
+import org.pathvisio.desktop.gex.GexManager.GexManagerEvent;
+import org.pathvisio.desktop.gex.GexManager.GexManagerListener;
 import org.pathvisio.gui.BackpageTextProvider.BackpageAttributes;
 import org.pathvisio.gui.DataPaneTextProvider;
 import org.pathvisio.gui.MainPanel;
@@ -146,6 +150,21 @@ public void createAndShowGUI()
 		// data hook for showing basic annotation and expression data on the data panel
 		dpt.addDataHook(new BackpageAttributes(swingEngine.getGdbManager().getCurrentGdb()));
 		dpt.addDataHook(new BackpageExpression(desktop.getGexManager()));
+		// cached data is out of date when another database or dataset is loaded
+		swingEngine.getGdbManager().addGdbEventListener(new GdbEventListener()
+		{
+			public void gdbEvent(GdbEvent e)
+			{
+				dpt.clearCache();
+			}
+		});
+		desktop.getGexManager().addListener(new GexManagerListener()
+		{
+			public void gexManagerEvent(GexManagerEvent e)
+			{
+				dpt.clearCache();
+			}
+		});
 		DataPane dataPane = new DataPane(dpt, swingEngine.getEngine());
 		dataPane.addHyperlinkListener(swingEngine);
 		sidebarTabbedPane.addTab( "Data", new JScrollPane(dataPane) );
@@ -40,6 +40,7 @@
 import javax.swing.JButton;
 import javax.swing.JCheckBox;
 import javax.swing.JColorChooser;
+import javax.swing.JComboBox;
 import javax.swing.JDialog;
 import javax.swing.JFileChooser;
 import javax.swing.JLabel;
@@ -336,6 +337,31 @@ private class StringFieldEditor extends FieldEditor
 				txt.setText (prefs.get(p));
 			}
 		}
+		private class ChoiceFieldEditor extends FieldEditor
+		{
+			private JComboBox cb;
+
+			ChoiceFieldEditor (Preference p, JComboBox cb)
+			{
+				super(p);
+				this.cb = cb;
+			}
+
+			@Override void apply()
+			{
+				Object value = cb.getSelectedItem();
+				if (value != null) prefs.set (p, value.toString());
+			}
+
+			@Override void restoreDefault() {
+				cb.setSelectedItem (p.getDefault());
+			}
+
+			@Override void reset()
+			{
+				cb.setSelectedItem (prefs.get(p));
+			}
+		}
 		private class FileFieldEditor extends FieldEditor implements ActionListener
 		{
 			private JTextField txt;
@@ -464,6 +490,22 @@ public Builder stringField (Preference p, String desc)
 			}
 
 
+			/**
+			 * A drop-down list with the given values. Other values
+			 * can still be typed in.
+			 */
+			public Builder choiceField (Preference p, String desc, String[] values)
+			{
+				JComboBox cb = new JComboBox(values);
+				cb.setEditable(true);
+				ChoiceFieldEditor editor = result.new ChoiceFieldEditor (p, cb);
+				builder.append (new JLabel (desc));
+				builder.append (cb);
+				builder.nextLine();
+				result.editors.add(editor);
+				return this;
+			}
+
 			public Builder fileField (Preference p, String desc, boolean isDir)
 			{
 				//TODO: do something with isDir
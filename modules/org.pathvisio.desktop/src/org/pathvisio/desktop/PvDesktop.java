@@ -40,6 +40,7 @@
 import org.pathvisio.core.view.VPathway;
 import org.pathvisio.data.DataException;
 import org.pathvisio.desktop.data.DBConnDerby;
+import org.pathvisio.desktop.data.DBConnHsqldb;
 import org.pathvisio.desktop.data.DBConnectorSwing;
 import org.pathvisio.desktop.gex.CachedData;
 import org.pathvisio.desktop.gex.GexManager;
@@ -171,8 +172,9 @@ public void initPanels()
 			.build());
 
 		preferencesDlg.addPanel ("Database", preferencesDlg.builder()
-			.stringField (GlobalPreference.DB_ENGINE_GEX,
-				"Database connector class for expression dataset:")
+			.choiceField (GlobalPreference.DB_ENGINE_GEX,
+				"Database connector class for expression dataset:",
+				new String[] { DBConnDerby.class.getName(), DBConnHsqldb.class.getName() })
 			.build());
 
 	}
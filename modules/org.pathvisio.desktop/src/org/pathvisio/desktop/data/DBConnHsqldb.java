@@ -0,0 +1,225 @@
+/*******************************************************************************
+ * PathVisio, a tool for data visualization and analysis using biological pathways
+ * Copyright 2006-2019 BiGCaT Bioinformatics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.pathvisio.desktop.data;
+
+import java.awt.Component;
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+
+import javax.swing.JFileChooser;
+
+import org.bridgedb.IDMapperException;
+import org.bridgedb.gui.SimpleFileFilter;
+import org.bridgedb.rdb.construct.DBConnector;
+import org.bridgedb.rdb.construct.DataDerby;
+import org.pathvisio.core.preferences.GlobalPreference;
+import org.pathvisio.core.preferences.PreferenceManager;
+import org.pathvisio.desktop.gex.BulkLoadConnector;
+
+/**
+ * Expression datasets in an embedded HSQLDB database, an alternative to {@link DBConnDerby}.
+ * <p>
+ * A dataset is a directory with the extension {@link #DB_FILE_EXT_GEX}, containing the
+ * HSQLDB files. Unlike a Derby dataset it isn't zipped after creation, so it is read
+ * directly from disk. Expression records are bulk loaded from a text file
+ * with an HSQLDB text table, and looked up by a composite (id, code) index.
+ * The id comes first because HSQLDB only searches on the leading column of an index,
+ * and ids are far more selective than system codes.
+ * <p>
+ * Only for expression datasets, not for gene databases.
+ */
+public class DBConnHsqldb extends DBConnector implements DBConnectorSwing, BulkLoadConnector
+{
+	public static final String DB_FILE_EXT_GEX = "hgex";
+	static final String DB_EXT_NAME_GEX = "Expression datasets (HSQLDB)";
+
+	private static final String DRIVER = "org.hsqldb.jdbcDriver";
+	// base name of the HSQLDB files inside the dataset directory
+	private static final String DB_FILE = "gex";
+	// relative to the dataset directory, as required for text table sources
+	private static final String LOAD_FILE = "load.txt";
+
+	private File dir = null;
+
+	/**
+	 * The dataset directory for a database name. Adds the extension if it's missing,
+	 * replacing the extension of a Derby dataset.
+	 */
+	public static String getDatasetName(String dbName)
+	{
+		if (dbName.endsWith("." + DB_FILE_EXT_GEX)) return dbName;
+		String derbyExt = "." + DataDerby.DB_FILE_EXT_GEX;
+		if (dbName.endsWith(derbyExt)) dbName = dbName.substring(0, dbName.length() - derbyExt.length());
+		return dbName + "." + DB_FILE_EXT_GEX;
+	}
+
+	@Override
+	public Connection createConnection(String dbName, int props) throws IDMapperException
+	{
+		dir = new File(getDatasetName(dbName));
+		boolean recreate = (props & PROP_RECREATE) != 0;
+		if (recreate)
+		{
+			if (dir.exists() && !dir.isDirectory())
+			{
+				throw new IDMapperException ("Can't create dataset, " + dir + " is not a directory");
+			}
+			File[] files = dir.listFiles();
+			if (files != null) for (File f : files) f.delete();
+			dir.mkdirs();
+		}
+		else if (!new File(dir, DB_FILE + ".properties").exists())
+		{
+			throw new IDMapperException ("Not an HSQLDB expression dataset: " + dir);
+		}
+
+		try
+		{
+			Class.forName(DRIVER);
+			Properties info = new Properties();
+			info.setProperty("user", "sa");
+			info.setProperty("password", "");
+			// keep the data on disk instead of in memory
+			info.setProperty("hsqldb.default_table_type", "cached");
+			// shut down cleanly when the connection is closed
+			info.setProperty("shutdown", "true");
+			return DriverManager.getConnection("jdbc:hsqldb:file:" + new File(dir, DB_FILE).getAbsolutePath(), info);
+		}
+		catch (ClassNotFoundException e)
+		{
+			throw new IDMapperException (e);
+		}
+		catch (SQLException e)
+		{
+			throw new IDMapperException (e);
+		}
+	}
+
+	/** Nothing to do, the dataset can be used as it is */
+	@Override
+	public String finalizeNewDatabase(String dbName) throws IDMapperException
+	{
+		return getDatasetName(dbName);
+	}
+
+	@Override
+	public void closeConnection(Connection con, int props) throws IDMapperException
+	{
+		closeConnection(con);
+	}
+
+	@Override
+	public void closeConnection(Connection con) throws IDMapperException
+	{
+		try
+		{
+			if (!con.isClosed()) con.createStatement().execute("SHUTDOWN");
+		}
+		catch (SQLException e)
+		{
+			throw new IDMapperException (e);
+		}
+	}
+
+	/** Writes everything to the data file, data is bulk loaded so there is no need to defragment. */
+	@Override
+	public void compact(Connection con) throws IDMapperException
+	{
+		execute (con, "CHECKPOINT");
+	}
+
+	public File getLoadFile()
+	{
+		return new File(dir, LOAD_FILE);
+	}
+
+	public void loadExpression(Connection con) throws IDMapperException
+	{
+		execute (con,
+				"CREATE TEXT TABLE expression_load " +
+				" (   id VARCHAR(50),					" +
+				"     code VARCHAR(50),					" +
+				"     idSample INTEGER,					" +
+				"     data VARCHAR(50),					" +
+				"	  groupId INTEGER 					" +
+				")										");
+		execute (con, "SET TABLE expression_load SOURCE \"" + LOAD_FILE + ";fs=\\t;encoding=UTF-8\"");
+		execute (con,
+				"INSERT INTO expression (id, code, idSample, data, groupId) " +
+				"SELECT id, code, idSample, data, groupId FROM expression_load");
+		execute (con, "DROP TABLE expression_load");
+		getLoadFile().delete();
+	}
+
+	public void createIndices(Connection con) throws IDMapperException
+	{
+		execute (con, "CREATE INDEX i_expression_id_code ON expression(id, code)");
+		execute (con, "CREATE INDEX i_expression_groupId ON expression(groupId)");
+	}
+
+	private static void execute(Connection con, String sql) throws IDMapperException
+	{
+		try
+		{
+			Statement st = con.createStatement();
+			st.execute(sql);
+			st.close();
+			if (!con.getAutoCommit()) con.commit();
+		}
+		catch (SQLException e)
+		{
+			throw new IDMapperException (e);
+		}
+	}
+
+	public String openChooseDbDialog(Component parent)
+	{
+		JFileChooser jfc = new JFileChooser();
+		jfc.setDialogType(JFileChooser.OPEN_DIALOG);
+		jfc.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+		jfc.setCurrentDirectory(PreferenceManager.getCurrent().getFile(GlobalPreference.DIR_LAST_USED_PGEX));
+		jfc.addChoosableFileFilter(new SimpleFileFilter(DB_EXT_NAME_GEX, "*." + DB_FILE_EXT_GEX, true));
+
+		int status = jfc.showDialog (parent, "Open database");
+		if(status == JFileChooser.APPROVE_OPTION)
+		{
+			PreferenceManager.getCurrent().setFile (GlobalPreference.DIR_LAST_USED_PGEX, jfc.getCurrentDirectory());
+			return jfc.getSelectedFile().toString();
+		}
+		return null;
+	}
+
+	public String openNewDbDialog(Component parent, String defaultName)
+	{
+		JFileChooser jfc = new JFileChooser();
+		jfc.setDialogType(JFileChooser.SAVE_DIALOG);
+		jfc.setCurrentDirectory(PreferenceManager.getCurrent().getFile(GlobalPreference.DIR_LAST_USED_PGEX));
+		jfc.addChoosableFileFilter(new SimpleFileFilter(DB_EXT_NAME_GEX, "*." + DB_FILE_EXT_GEX, true));
+
+		int status = jfc.showDialog (parent, "Choose filename for database");
+		if(status == JFileChooser.APPROVE_OPTION)
+		{
+			PreferenceManager.getCurrent().setFile (GlobalPreference.DIR_LAST_USED_PGEX, jfc.getCurrentDirectory());
+			return getDatasetName(jfc.getSelectedFile().toString());
+		}
+		return null;
+	}
+}
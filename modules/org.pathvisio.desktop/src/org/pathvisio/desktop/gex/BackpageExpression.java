@@ -25,7 +25,9 @@
 import org.pathvisio.data.IRow;
 import org.pathvisio.data.ISample;
 import org.pathvisio.gui.BackpageTextProvider.BackpageHook;
+import org.pathvisio.gui.CacheableHook;
 import org.pathvisio.gui.DataPaneTextProvider.DataHook;
+import org.pathvisio.gui.HookFailedException;
 
 /**
  * Shows data uploaded for each DataNode/Interaction present in the pathway
@@ -33,7 +35,7 @@
  *
  * modified by @author anwesha
  */
-public class BackpageExpression implements BackpageHook, DataHook {
+public class BackpageExpression implements BackpageHook, DataHook, CacheableHook {
 	private final GexManager gexManager;
 
 	public BackpageExpression(GexManager gexManager) {
@@ -94,11 +96,11 @@ public static String getHtml(PathwayElement e, CachedData gex) {
 				text += "<br/>No data imported.</br/>";
 			}
 		} catch (IDMapperException ex) {
-			text += "Exception occured while getting cross-references</br>"
-					+ ex.getMessage();
+			throw new HookFailedException(text + "Exception occured while getting cross-references</br>"
+					+ ex.getMessage(), ex);
 		} catch (DataException ex) {
-			text += "Exception occured while getting cross-references</br>"
-					+ ex.getMessage();
+			throw new HookFailedException(text + "Exception occured while getting cross-references</br>"
+					+ ex.getMessage(), ex);
 		}
 		return text;
 	}
@@ -0,0 +1,57 @@
+/*******************************************************************************
+ * PathVisio, a tool for data visualization and analysis using biological pathways
+ * Copyright 2006-2019 BiGCaT Bioinformatics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.pathvisio.desktop.gex;
+
+import java.io.File;
+import java.sql.Connection;
+
+import org.bridgedb.IDMapperException;
+import org.bridgedb.rdb.construct.DBConnector;
+
+/**
+ * Can be implemented by a {@link DBConnector} that loads expression data
+ * from a file in one go, which is a lot faster than inserting records one by one.
+ * <p>
+ * When creating a dataset with such a connector, {@link SimpleGex#addExpr}
+ * writes each record to the load file, and {@link SimpleGex#finalize()}
+ * hands the complete file over to the connector.
+ * <p>
+ * The load file has one line per record, with the columns of the expression table
+ * (id, code, idSample, data, groupId) separated by tabs. Text columns are
+ * quoted with double quotes, quotes inside a value are doubled.
+ * The file is encoded in UTF-8.
+ */
+public interface BulkLoadConnector
+{
+	/**
+	 * The file to write records to before they are loaded.
+	 * Only called after the database has been created.
+	 */
+	public File getLoadFile() throws IDMapperException;
+
+	/**
+	 * Load all records of the load file into the expression table,
+	 * and remove the load file.
+	 */
+	public void loadExpression(Connection con) throws IDMapperException;
+
+	/**
+	 * Create the indices on the expression table, instead of
+	 * the default ones of {@link SimpleGex#createGexIndices()}.
+	 */
+	public void createIndices(Connection con) throws IDMapperException;
+}
@@ -34,12 +34,14 @@
 import org.bridgedb.IDMapperException;
 import org.bridgedb.Xref;
 import org.pathvisio.core.debug.Logger;
+import org.pathvisio.core.debug.Metrics;
 import org.pathvisio.core.debug.ThreadSafe;
 import org.pathvisio.core.debug.WorkerThreadOnly;
 import org.pathvisio.data.DataException;
 import org.pathvisio.data.DataInterface;
 import org.pathvisio.data.IRow;
 import org.pathvisio.data.ISample;
+import org.pathvisio.data.RowCursor;
 
 /**
  * This class represents cached expression data for a pathway.
@@ -55,6 +57,11 @@
 	private final ConcurrentHashMap<Xref, List<IRow>> data = new ConcurrentHashMap<Xref, List<IRow>>();
 	private final Executor executor;
 
+	private static final Metrics.Counter HITS = Metrics.counter("cacheddata.hit");
+	private static final Metrics.Timer FETCH_TIMER = Metrics.timer("cacheddata.fetch");
+	private static final Metrics.Timer MAPPING_TIMER = Metrics.timer("idmapper.map");
+	private static final Metrics.Histogram ROWS = Metrics.histogram("cacheddata.rows");
+
 	private final DataInterface parent;
 
 	/**
@@ -102,7 +109,7 @@ private void updateTasks (int delta)
 		tasks += delta;
 		if (oldtasks == 0 || tasks == 0)
 		{
-			Logger.log.info ("CACHE: " + (tasks == 0 ? "STOPPED" : "STARTED"));
+			Logger.log.infof ("CACHE: %s", tasks == 0 ? "STOPPED" : "STARTED");
 		}
 	}
 
@@ -120,15 +127,19 @@ public List<? extends IRow> syncGet(Xref ref) throws IDMapperException, DataExce
 		List<IRow> result;
 		if (!data.containsKey (ref))
 		{
+			long start = FETCH_TIMER.start();
 			// get results and sort them
 			result = new ArrayList<IRow>();
 			Collection <? extends IRow> collection = getDataForXref(ref, mapper, destFilterCache);
 			if (collection != null) result.addAll(collection);
 			Collections.sort(result);
 			data.put (ref, result);
+			FETCH_TIMER.stop(start);
+			ROWS.update(result.size());
 		}
 		else
 		{
+			HITS.inc();
 			result = data.get(ref);
 		}
 		return result;
@@ -166,7 +177,10 @@ private Collection<? extends IRow> getDataForXref(Xref srcRef, IDMapper gdb, Set
 		Set<Xref> destRefs = new HashSet<Xref>();
 		if (gdb.isConnected() && srcRef.getId() != null && srcRef.getDataSource() != null)
 		{
-			for (Xref destRef : gdb.mapID(srcRef))
+			long start = MAPPING_TIMER.start();
+			Set<Xref> mapped = gdb.mapID(srcRef);
+			MAPPING_TIMER.stop(start);
+			for (Xref destRef : mapped)
 			{
 				// add only the ones that are in the dest filter.
 				if (destFilter.contains(destRef.getDataSource()))
@@ -262,6 +276,18 @@ public Iterable<IRow> getIterator() throws DataException
 	{
 		return parent.getIterator();
 	}
+
+	/** Stream over the rows of the underlying dataset, see {@link DataInterface#scan(List, int)} */
+	public RowCursor scan(List<? extends ISample> samples, int fetchSize) throws DataException
+	{
+		return parent.scan(samples, fetchSize);
+	}
+
+	/** Look up a sample of the underlying dataset by name, or null if it doesn't exist */
+	public ISample findSample(String name) throws DataException
+	{
+		return parent.findSample(name);
+	}
 	
 	public boolean isConnected()
 	{
@@ -21,11 +21,14 @@
 import java.util.Set;
 
 import org.bridgedb.rdb.construct.DBConnector;
+import org.bridgedb.rdb.construct.DataDerby;
 import org.pathvisio.core.debug.Logger;
 import org.pathvisio.core.preferences.GlobalPreference;
 import org.pathvisio.core.preferences.PreferenceManager;
 import org.pathvisio.data.DataException;
 import org.pathvisio.data.DataInterface;
+import org.pathvisio.desktop.data.DBConnDerby;
+import org.pathvisio.desktop.data.DBConnHsqldb;
 
 /**
  * Manage the centralized SimpleGex
@@ -75,17 +78,37 @@ public void setCurrentGex (DataInterface gex)
 
 	/**
 	 * Create or connect to a new Gex based on the dbName.
-	 * Uses a DBConnector obtained from the preferences.
+	 * An existing dataset is opened with the DBConnector for its extension,
+	 * a new one is created with the DBConnector obtained from the preferences.
 	 *
 	 * @param dbName name of the database (usually file or directory name)
 	 * @param create true if you want to create / overwrite a database
 	 */
 	public void setCurrentGex (String dbName, boolean create) throws DataException
+	{
+		setCurrentGex (connect (dbName, create));
+	}
+
+	/**
+	 * Create or connect to a Gex based on the dbName, without making it
+	 * the current Gex. This doesn't fire any events, so it can be done
+	 * in a background thread, followed by {@link #setCurrentGex(DataInterface)}
+	 * on the event dispatch thread.
+	 *
+	 * @param dbName name of the database (usually file or directory name)
+	 * @param create true if you want to create / overwrite a database
+	 */
+	public SimpleGex connect (String dbName, boolean create) throws DataException
 	{
 		DBConnector connector;
 		try
 		{
-			connector = getDBConnector();
+			// existing datasets of both kinds can be opened whatever the preferred connector is
+			connector = create ? null : getDBConnector(dbName);
+			if (connector == null)
+			{
+				connector = getDBConnector();
+			}
 		}
 		catch (IllegalAccessException e)
 		{
@@ -99,8 +122,30 @@ public void setCurrentGex (String dbName, boolean create) throws DataException
 		{
 			throw new DataException (e);
 		}
-		SimpleGex gex = new SimpleGex (dbName, create, connector);
-		setCurrentGex (gex);
+		return new SimpleGex (dbName, create, connector);
+	}
+
+	/**
+	 * The DBConnector for an existing dataset, based on the extension of the dataset name.
+	 * @return the connector, or null if the extension is not recognized
+	 */
+	public static DBConnector getDBConnector(String dbName)
+	{
+		DBConnector connector;
+		if (dbName.endsWith("." + DBConnHsqldb.DB_FILE_EXT_GEX))
+		{
+			connector = new DBConnHsqldb();
+		}
+		else if (dbName.endsWith("." + DataDerby.DB_FILE_EXT_GEX))
+		{
+			connector = new DBConnDerby();
+		}
+		else
+		{
+			return null;
+		}
+		connector.setDbType(DBConnector.TYPE_GEX);
+		return connector;
 	}
 
 	public DBConnector getDBConnector() throws
@@ -115,7 +160,6 @@ public DBConnector getDBConnector() throws
 		if(className == null) return null;
 		
 		// backwards compatibility fix after package refactoring.
-		// TODO: the preference itself should be updated, 2 releases after 2.0.11
 		if ("org.pathvisio.data.DBConnDerby".equals(className)) className = "org.pathvisio.desktop.data.DBConnDerby";
 
 		Class<?> dbc = Class.forName(className);
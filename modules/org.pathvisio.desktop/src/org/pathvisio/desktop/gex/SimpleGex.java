@@ -16,12 +16,19 @@
  ******************************************************************************/
 package org.pathvisio.desktop.gex;
 
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -41,6 +48,7 @@
 import org.pathvisio.data.DataInterface;
 import org.pathvisio.data.IRow;
 import org.pathvisio.data.ISample;
+import org.pathvisio.data.RowCursor;
 
 /**
  * Responsible for creating and querying a pgex database.
@@ -52,7 +60,8 @@
  * It delegates dealing with the differences between Derby, Hsqldb etc.
  * to a DBConnector instance.
  * You need to pass a correct DBConnector instance at creation of
- * SimpleGex.
+ * SimpleGex. If the DBConnector is a {@link BulkLoadConnector},
+ * expression records are collected in a file and loaded in one go.
  *
  * In the PathVisio GUI environment, use GexManager
  * to create and connect to a centralized Gex.
@@ -102,6 +111,8 @@ public class SimpleGex implements DataInterface
 
 	PreparedStatement pstSample = null;
 	PreparedStatement pstExpr = null;
+	// records for a BulkLoadConnector, instead of pstExpr
+	private Writer loadWriter = null;
 
 	public void prepare() throws SQLException
 	{
@@ -109,6 +120,24 @@ public void prepare() throws SQLException
 				" INSERT INTO SAMPLES " +
 				"	(idSample, name, dataType)  " +
 		" VALUES (?, ?, ?)		  ");
+		if (dbConnector instanceof BulkLoadConnector)
+		{
+			try
+			{
+				File loadFile = ((BulkLoadConnector)dbConnector).getLoadFile();
+				loadWriter = new BufferedWriter(new OutputStreamWriter(
+						new FileOutputStream(loadFile), "UTF-8"), 1 << 16);
+			}
+			catch (IDMapperException e)
+			{
+				throw new SQLException ("Could not create load file", e);
+			}
+			catch (IOException e)
+			{
+				throw new SQLException ("Could not create load file", e);
+			}
+			return;
+		}
 		pstExpr = con.prepareStatement(
 				"INSERT INTO expression			" +
 				"	(id, code,      			" +
@@ -139,22 +168,56 @@ public void addSample(int sampleId, String value, int type) throws SQLException
 	public void addExpr(Xref ref, String idSample, String value, int group)
 		throws SQLException
 	{
-		assert (pstExpr != null);
-		pstExpr.setString(1, ref.getId());
-		pstExpr.setString(2, ref.getDataSource().getSystemCode());
-		pstExpr.setString(3, idSample);
 		//TODO: this is a hack.
 		// Proper solution: ask user which columns contain data
 		// don't even try to import annotation and other stuff
 		// give an exception if a data value is longer than 50
 		String truncValue = value;
 		if (value.length() > 50) truncValue = value.substring(0, 50);
+		if (loadWriter != null)
+		{
+			writeLoadRecord(ref, Integer.parseInt(idSample), truncValue, group);
+			return;
+		}
+		assert (pstExpr != null);
+		pstExpr.setString(1, ref.getId());
+		pstExpr.setString(2, ref.getDataSource().getSystemCode());
+		pstExpr.setString(3, idSample);
 		pstExpr.setString(4, truncValue);
 		pstExpr.setInt(5, group);
 		pstExpr.execute();
 		if (++commitCount % 1000 == 0) con.commit();
 	}
 
+	/** write a record in the format of {@link BulkLoadConnector} */
+	private void writeLoadRecord(Xref ref, int idSample, String value, int group) throws SQLException
+	{
+		try
+		{
+			writeQuoted(ref.getId());
+			loadWriter.write('\t');
+			writeQuoted(ref.getDataSource().getSystemCode());
+			loadWriter.write('\t');
+			loadWriter.write(Integer.toString(idSample));
+			loadWriter.write('\t');
+			writeQuoted(value);
+			loadWriter.write('\t');
+			loadWriter.write(Integer.toString(group));
+			loadWriter.write('\n');
+		}
+		catch (IOException e)
+		{
+			throw new SQLException ("Could not write load file", e);
+		}
+	}
+
+	private void writeQuoted(String value) throws IOException
+	{
+		loadWriter.write('"');
+		loadWriter.write(value.indexOf('"') < 0 ? value : value.replace("\"", "\"\""));
+		loadWriter.write('"');
+	}
+
 	public ISample getSample(int id) throws DataException
 	{
 		return getSamples().get(id);
@@ -489,6 +552,19 @@ public void createGexIndices() throws IDMapperException
 	 */
 	public void finalize() throws IDMapperException
 	{
+		if (loadWriter != null)
+		{
+			try
+			{
+				loadWriter.close();
+			}
+			catch (IOException e)
+			{
+				throw new IDMapperException (e);
+			}
+			loadWriter = null;
+			((BulkLoadConnector)dbConnector).loadExpression(con);
+		}
 		try
 		{
 			con.commit();
@@ -498,7 +574,14 @@ public void finalize() throws IDMapperException
 			throw new IDMapperException (e);
 		}
 		dbConnector.compact(con);
-		createGexIndices();
+		if (dbConnector instanceof BulkLoadConnector)
+		{
+			((BulkLoadConnector)dbConnector).createIndices(con);
+		}
+		else
+		{
+			createGexIndices();
+		}
 		dbConnector.closeConnection(con, DBConnector.PROP_FINALIZE);
 		//The dbConnector may change the database file after cleaning up,
 		//for example, the derby connector first creates the database as directory
@@ -591,114 +674,191 @@ public int getNrRow() throws DataException
 		}
 	}
 
-	PreparedStatement pstRowIt = null;
-
-	// lazy instantiation of pstRow
-	private PreparedStatement getPstRowIterator() throws SQLException
+	/**
+	 * Go over groups in database one by one, reading only the given samples.
+	 * The rows of a group are consecutive because the query is ordered by groupId,
+	 * so a group is complete as soon as the next one starts.
+	 */
+	private class ExpressionCursor extends RowCursor
 	{
-		if (pstRowIt == null)
+		private final Statement st;
+		private final ResultSet rs;
+		private final boolean projected;
+		// column for each sample id, -1 if the sample is not read
+		private final int[] columnOf;
+		private boolean hasNext;
+
+		ExpressionCursor(List<? extends ISample> samples, int fetchSize) throws SQLException
 		{
-			pstRowIt = con.prepareStatement (
-					"SELECT id, code, idSample, data, groupId " +
+			super(samples);
+			projected = samples.size() > 0;
+			int maxId = -1;
+			for (ISample s : samples) maxId = Math.max(maxId, s.getId());
+			columnOf = new int[maxId + 1];
+			Arrays.fill(columnOf, -1);
+			StringBuilder ids = new StringBuilder();
+			for (int i = 0; i < samples.size(); ++i)
+			{
+				int id = samples.get(i).getId();
+				columnOf[id] = i;
+				if (i > 0) ids.append(", ");
+				ids.append(id);
+			}
+
+			String sql;
+			if (!projected)
+			{
+				// id and code are the same for all records of a group
+				sql = "SELECT MIN(id), MIN(code), groupId " +
+					"FROM expression " +
+					"GROUP BY groupId ORDER BY groupId";
+			}
+			else
+			{
+				sql = "SELECT id, code, groupId, idSample, data " +
 					"FROM expression " +
-					"ORDER BY groupId");
+					"WHERE idSample IN (" + ids + ") " +
+					"ORDER BY groupId";
+			}
+			st = con.createStatement();
+			if (fetchSize > 0) st.setFetchSize(fetchSize);
+			rs = st.executeQuery(sql);
+			hasNext = rs.next();
+		}
+
+		@Override
+		public boolean next() throws DataException
+		{
+			if (!hasNext) return false;
+
+			// at this point, resultset should already be at beginning of new group.
+			try
+			{
+				clearValues();
+				group = rs.getInt(3);
+				//TODO: this redundancy in ref is not normalized
+				xref = new Xref (rs.getString(1), DataSource.getBySystemCode(rs.getString(2)));
+				if (!projected)
+				{
+					hasNext = rs.next();
+					return true;
+				}
+
+				do
+				{
+					if (rs.getInt(3) != group)
+					{
+						// we're done tallying this group, and recordset is ready for next group
+						return true;
+					}
+					int sample = rs.getInt(4);
+					if (sample < columnOf.length && columnOf[sample] >= 0)
+					{
+						setValue(columnOf[sample], rs.getString(5));
+					}
+				}
+				while ((hasNext = rs.next()) == true);
+				return true;
+			}
+			catch (SQLException e)
+			{
+				throw new DataException (e);
+			}
+		}
+
+		@Override
+		public void close() throws DataException
+		{
+			hasNext = false;
+			try
+			{
+				rs.close();
+				st.close();
+			}
+			catch (SQLException e)
+			{
+				throw new DataException (e);
+			}
+		}
+	}
+
+	@Override
+	public RowCursor scan(List<? extends ISample> samples, int fetchSize) throws DataException
+	{
+		try
+		{
+			return new ExpressionCursor(samples, fetchSize);
+		}
+		catch (SQLException ex)
+		{
+			throw new DataException(ex);
 		}
-		return pstRowIt;
 	}
-	
+
 	/**
-	 * Go over groups in database one by one.
+	 * Go over groups in database one by one, creating a {@link ReporterData} for each.
 	 */
 	private class RowIterator implements Iterator<IRow>
 	{
-		private ResultSet rs;
+		private final RowCursor cursor;
 		private boolean hasNext;
-		
-		RowIterator() throws SQLException
+
+		RowIterator() throws DataException
 		{
-			PreparedStatement ps = getPstRowIterator();
-			ResultSet rs = ps.executeQuery();
-			hasNext = rs.next();
+			cursor = scan(getOrderedSamples(), 0);
+			hasNext = cursor.next();
+			if (!hasNext) cursor.close();
 		}
-		
+
 		@Override
-		public boolean hasNext() 
+		public boolean hasNext()
 		{
 			return hasNext;
 		}
 
 		@Override
-		public IRow next() 
+		public IRow next()
 		{
-			if (!hasNext) throw new NoSuchElementException();				
-			
-			// at this point, resultset should already be at beginning of new group.
+			if (!hasNext) throw new NoSuchElementException();
+
 			try
 			{
-				Map<Integer, ? extends ISample> samples = getSamples();
-				ReporterData result;
-
-				int currentGroup = rs.getInt(5);
-				result = new ReporterData (null, rs.getInt(5));
-				
-				Xref ref = new Xref (rs.getString(1), DataSource.getBySystemCode(rs.getString(2)));
-				result.setXref(ref);
-				
-				do
+				ReporterData result = new ReporterData (cursor.getXref(), cursor.getGroup());
+				List<ISample> columns = cursor.getSamples();
+				for (int i = 0; i < columns.size(); ++i)
 				{
-					int groupId = rs.getInt(5);
-					
-					if (groupId != currentGroup)
-					{
-						// we're done tallying this group, and recordset is ready for next group
-						return result;
-					}
-					
-					int sample = rs.getInt(3);
-					String value = rs.getString (4);
-					result.setSampleData(samples.get(sample), value);
+					if (cursor.hasValue(i)) result.setSampleAsObject(columns.get(i), cursor.getValue(i));
 				}
-				while  ((hasNext = rs.next()) == true);
-
+				hasNext = cursor.next();
+				if (!hasNext) cursor.close();
 				return result;
 			}
-			catch (SQLException e)
+			catch (DataException e)
 			{
 				Logger.log.error ("Error while iterating over elements", e);
 				throw new NoSuchElementException("Error fetching next element: " + e.getMessage());
-			} catch (DataException e) {
-				Logger.log.error ("Error while iterating over elements", e);
-				throw new NoSuchElementException("Error fetching next element: " + e.getMessage());
-			}		
+			}
 		}
 
 		@Override
-		public void remove() 
+		public void remove()
 		{
 			throw new UnsupportedOperationException();
 		}
-		
+
 	}
-	
+
 	@Override
 	public Iterable<IRow> getIterator() throws DataException 
 	{
-		try
+		final RowIterator it = new RowIterator();
+		return new Iterable<IRow>()
 		{
-			final RowIterator it = new RowIterator();
-			return new Iterable<IRow>()
+			@Override
+			public Iterator<IRow> iterator() 
 			{
-				@Override
-				public Iterator<IRow> iterator() 
-				{
-					return it;
-				}
-			};
-		}
-		catch (SQLException ex)
-		{
-			throw new DataException(ex);
-		}
-
+				return it;
+			}
+		};
 	}
 }
@@ -74,6 +74,8 @@ public void doExport(File file, Pathway pathway) throws ConverterException
 	{
 		VPathway vPathway = new VPathway(null);
 		vPathway.fromModel(pathway);
+		// vector output can be zoomed in on, so don't leave out small details
+		vPathway.setLevelOfDetail(false);
 
 		// if data visualization is enabled, link this VPathway up to the visualization manager.
 		if (dataVisible)
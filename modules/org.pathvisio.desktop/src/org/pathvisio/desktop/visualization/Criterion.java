@@ -120,6 +120,18 @@ private void setSampleData(Map<String, Object> data)
 		}
 	}
 
+	/**
+	 * Get the names of the symbols used in the current expression, i.e. the
+	 * samples that have to be passed to evaluate.
+	 * Empty if the expression could not be parsed.
+	 */
+	public Set<String> getSymbols()
+	{
+		Set<String> result = new HashSet<String>();
+		if (parsed != null) parsed.collectSymbols(result);
+		return result;
+	}
+
 	public boolean evaluate(Map<String, Object> data) throws CriterionException {
 		setSampleData(data);
 		return evaluate();
@@ -606,6 +618,14 @@ private class Token {
 		private Token left = null;
 		private Token right = null;
 
+		void collectSymbols (Set<String> result)
+		{
+			if (type == TokenType.ID) result.add(symbolValue);
+			if (left != null) left.collectSymbols(result);
+			if (right != null) right.collectSymbols(result);
+			if (funcParams != null) for (Token t : funcParams) t.collectSymbols(result);
+		}
+
 		void printMe (int level)
 		{
 			String result = "";
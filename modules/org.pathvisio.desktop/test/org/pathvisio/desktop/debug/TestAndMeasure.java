@@ -20,6 +20,10 @@
 import java.awt.event.KeyEvent;
 import java.awt.image.BufferedImage;
 import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.swing.JScrollPane;
 import javax.swing.KeyStroke;
@@ -28,13 +32,17 @@
 import org.bridgedb.bio.BioDataSource;
 import org.pathvisio.core.Engine;
 import org.pathvisio.core.debug.StopWatch;
+import org.pathvisio.core.model.ConnectorType;
 import org.pathvisio.core.model.ConverterException;
+import org.pathvisio.core.model.MLine;
 import org.pathvisio.core.model.ObjectType;
 import org.pathvisio.core.model.Pathway;
 import org.pathvisio.core.model.PathwayElement;
+import org.pathvisio.core.model.RoutedConnectorShape;
 import org.pathvisio.core.preferences.PreferenceManager;
 import org.pathvisio.core.view.GeneProduct;
 import org.pathvisio.core.view.Line;
+import org.pathvisio.core.view.MouseEvent;
 import org.pathvisio.core.view.VPathway;
 import org.pathvisio.core.view.VPathwayElement;
 import org.pathvisio.gui.view.VPathwaySwing;
@@ -50,6 +58,7 @@ public class TestAndMeasure extends TestCase
 {
 	private static final File PATHVISIO_BASEDIR = new File ("../..");
 	private static final File TEST_PATHWAY = new File (PATHVISIO_BASEDIR, "testData/WP248_2008a.gpml");
+	private static final File EXAMPLE_DATA = new File (PATHVISIO_BASEDIR, "example-data");
 
 	private Measure measure;
 	
@@ -250,6 +259,273 @@ public String getName()
 		});
 	}
 	
+	/**
+	 * Load all example pathways and report the retained heap per PathwayElement.
+	 */
+	public void testExamplePathwayMemory() throws ConverterException
+	{
+		PreferenceManager.init();
+		File[] files = EXAMPLE_DATA.listFiles(new FilenameFilter()
+		{
+			public boolean accept(File dir, String name)
+			{
+				return name.endsWith(".gpml");
+			}
+		});
+		assertNotNull ("Missing directory required for test: " + EXAMPLE_DATA, files);
+
+		// warm up, so that class loading is not counted
+		for (File f : files)
+		{
+			new Pathway().readFromXml(f, false);
+		}
+
+		MemWatch mw = new MemWatch();
+		mw.start();
+		List<Pathway> pathways = new ArrayList<Pathway>();
+		int count = 0;
+		for (File f : files)
+		{
+			Pathway pwy = new Pathway();
+			pwy.readFromXml(f, false);
+			pathways.add(pwy);
+			count += pwy.getDataObjects().size();
+		}
+		long mem = mw.stop();
+		assertTrue (pathways.size() == files.length);
+		measure.add ("Memory::example pathways " + count + " elements", "" + mem / 1024, "kb");
+		measure.add ("Memory::example pathways per element", "" + mem / count, "bytes");
+	}
+
+	/**
+	 * Paint all example pathways at decreasing zoom levels,
+	 * with and without level of detail rendering.
+	 */
+	public void testPaintZoom() throws ConverterException
+	{
+		PreferenceManager.init();
+		File[] files = EXAMPLE_DATA.listFiles(new FilenameFilter()
+		{
+			public boolean accept(File dir, String name)
+			{
+				return name.endsWith(".gpml");
+			}
+		});
+		assertNotNull ("Missing directory required for test: " + EXAMPLE_DATA, files);
+
+		List<VPathway> vpathways = new ArrayList<VPathway>();
+		for (File f : files)
+		{
+			Pathway pwy = new Pathway();
+			pwy.readFromXml(f, false);
+			VPathway vpwy = new VPathway(null);
+			vpwy.fromModel(pwy);
+			vpathways.add(vpwy);
+		}
+
+		final int rounds = 10;
+		double[] zooms = new double[] { 100, 50, 25, 10 };
+		for (boolean lod : new boolean[] { false, true })
+		{
+			// first pass is warm-up
+			for (int pass = 0; pass < 2; ++pass)
+			{
+				for (double zoom : zooms)
+				{
+					StopWatch sw = new StopWatch();
+					sw.start();
+					for (VPathway vpwy : vpathways)
+					{
+						vpwy.setLevelOfDetail(lod);
+						vpwy.setPctZoom(zoom);
+						BufferedImage image = new BufferedImage(vpwy.getVWidth(), vpwy.getVHeight(),
+								BufferedImage.TYPE_INT_RGB);
+						for (int i = 0; i < rounds; ++i)
+						{
+							Graphics2D g2 = image.createGraphics();
+							vpwy.draw(g2);
+							g2.dispose();
+						}
+					}
+					long msec = sw.stop();
+					if (pass == 1)
+					{
+						measure.add ("Speed::example pathways paint " + (int)zoom + "% " +
+								(lod ? "level of detail" : "full detail"),
+								"" + (float)msec / rounds, "msec");
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Route all lines of the example pathways around the objects in their way.
+	 */
+	public void testRoutedConnectors() throws ConverterException
+	{
+		PreferenceManager.init();
+		File[] files = EXAMPLE_DATA.listFiles(new FilenameFilter()
+		{
+			public boolean accept(File dir, String name)
+			{
+				return name.endsWith(".gpml");
+			}
+		});
+		assertNotNull ("Missing directory required for test: " + EXAMPLE_DATA, files);
+
+		List<MLine> lines = new ArrayList<MLine>();
+		for (File f : files)
+		{
+			Pathway pwy = new Pathway();
+			pwy.readFromXml(f, false);
+			for (PathwayElement elt : pwy.getDataObjects())
+			{
+				if (elt instanceof MLine) lines.add((MLine)elt);
+			}
+		}
+		assertTrue (lines.size() > 0);
+
+		// first pass is warm-up
+		for (int pass = 0; pass < 2; ++pass)
+		{
+			long worst = 0;
+			StopWatch sw = new StopWatch();
+			sw.start();
+			for (MLine line : lines)
+			{
+				long start = System.nanoTime();
+				line.setConnectorType(ConnectorType.ROUTED);
+				line.getConnectorShape();
+				worst = Math.max(worst, System.nanoTime() - start);
+				line.setConnectorType(ConnectorType.STRAIGHT);
+			}
+			long msec = sw.stop();
+			if (pass == 1)
+			{
+				measure.add ("Speed::example pathways route " + lines.size() + " lines",
+						"" + (float)msec / lines.size(), "msec/line");
+				measure.add ("Speed::example pathways route worst line (budget " +
+						RoutedConnectorShape.getTimeBudget() + " msec)",
+						"" + (float)worst / 1000000, "msec");
+			}
+		}
+	}
+
+	/**
+	 * Load Hs_Apoptosis with all lines turned into curved connectors,
+	 * and move all connected DataNodes around.
+	 */
+	public void testCurvedConnectors() throws ConverterException, IOException
+	{
+		PreferenceManager.init();
+		Pathway orig = new Pathway();
+		orig.readFromXml(TEST_PATHWAY, false);
+		for (PathwayElement elt : orig.getDataObjects())
+		{
+			if (elt instanceof MLine) elt.setConnectorType(ConnectorType.CURVED);
+		}
+		File curved = File.createTempFile("curved", ".gpml");
+		curved.deleteOnExit();
+		orig.writeToXml(curved, false);
+
+		final int rounds = 10;
+		final int steps = 5;
+		// first pass is warm-up
+		for (int pass = 0; pass < 2; ++pass)
+		{
+			StopWatch sw = new StopWatch();
+			sw.start();
+			List<VPathway> vpathways = new ArrayList<VPathway>();
+			for (int i = 0; i < rounds; ++i)
+			{
+				Pathway pwy = new Pathway();
+				pwy.readFromXml(curved, false);
+				VPathway vpwy = new VPathway(null);
+				vpwy.fromModel(pwy);
+				vpathways.add(vpwy);
+			}
+			long loadMsec = sw.stop();
+
+			sw.start();
+			int moved = 0;
+			for (VPathway vpwy : vpathways)
+			{
+				Pathway pwy = vpwy.getPathwayModel();
+				for (PathwayElement elt : pwy.getDataObjects())
+				{
+					if (elt.getObjectType() != ObjectType.DATANODE || elt.getGraphId() == null) continue;
+					if (pwy.getAdjacencyIndex().getDegree(elt.getGraphId()) == 0) continue;
+					for (int i = 0; i < steps; ++i)
+					{
+						elt.setMCenterX(elt.getMCenterX() + 2);
+						elt.setMCenterY(elt.getMCenterY() + 2);
+					}
+					moved++;
+				}
+			}
+			long moveMsec = sw.stop();
+			if (pass == 1)
+			{
+				measure.add ("Speed::Hs_Apoptosis load with curved connectors",
+						"" + (float)loadMsec / rounds, "msec");
+				measure.add ("Speed::Hs_Apoptosis move " + moved / rounds + " connected nodes " + steps + " steps",
+						"" + (float)moveMsec / rounds, "msec");
+			}
+		}
+	}
+
+	private static MouseEvent mouse(VPathway vpwy, int type, int x, int y)
+	{
+		return new MouseEvent(vpwy, type, MouseEvent.BUTTON1, x, y, 1, 0, false) {};
+	}
+
+	/**
+	 * Drag a DataNode across the pathway, painting after every step,
+	 * with and without the offscreen drag buffer.
+	 */
+	public void testDragPaint() throws ConverterException
+	{
+		PreferenceManager.init();
+		Pathway pwy = new Pathway();
+		pwy.readFromXml(TEST_PATHWAY, false);
+		VPathway vpwy = new VPathway(null);
+		vpwy.activateUndoManager(new Engine());
+		vpwy.fromModel(pwy);
+
+		GeneProduct target = null;
+		for (VPathwayElement elt : vpwy.getDrawingObjects())
+		{
+			if (elt instanceof GeneProduct) { target = (GeneProduct)elt; break; }
+		}
+		assertNotNull (target);
+
+		final int steps = 50;
+		BufferedImage image = new BufferedImage(vpwy.getVWidth(), vpwy.getVHeight(),
+				BufferedImage.TYPE_INT_RGB);
+		for (boolean buffer : new boolean[] { false, true, false, true })
+		{
+			vpwy.setDragBuffer(buffer);
+			int x = (int)target.getVCenterX();
+			int y = (int)target.getVCenterY();
+			StopWatch sw = new StopWatch();
+			sw.start();
+			vpwy.mouseDown(mouse(vpwy, MouseEvent.MOUSE_DOWN, x, y));
+			for (int i = 0; i < steps; ++i)
+			{
+				x += 2;
+				vpwy.mouseMove(mouse(vpwy, MouseEvent.MOUSE_MOVE, x, y));
+				Graphics2D g2 = image.createGraphics();
+				vpwy.draw(g2);
+				g2.dispose();
+			}
+			vpwy.mouseUp(mouse(vpwy, MouseEvent.MOUSE_UP, x, y));
+			long msec = sw.stop();
+			measure.add ("Speed::Hs_Apoptosis drag and paint " + (buffer ? "with" : "without") + " drag buffer",
+					"" + (float)msec / steps, "msec");
+		}
+	}
+
 	public void testPathwayLoading() throws ConverterException
 	{
 		PreferenceManager.init();
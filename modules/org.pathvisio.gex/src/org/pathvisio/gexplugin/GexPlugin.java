@@ -17,14 +17,19 @@
 package org.pathvisio.gexplugin;
 
 import java.awt.event.ActionEvent;
+import java.io.File;
 
 import javax.swing.AbstractAction;
+import javax.swing.JFileChooser;
 import javax.swing.JOptionPane;
 
-import org.bridgedb.rdb.construct.DBConnector;
+import org.bridgedb.gui.SimpleFileFilter;
+import org.bridgedb.rdb.construct.DataDerby;
 import org.pathvisio.core.debug.Logger;
+import org.pathvisio.core.preferences.GlobalPreference;
+import org.pathvisio.core.preferences.PreferenceManager;
 import org.pathvisio.desktop.PvDesktop;
-import org.pathvisio.desktop.data.DBConnectorSwing;
+import org.pathvisio.desktop.data.DBConnHsqldb;
 import org.pathvisio.desktop.plugin.Plugin;
 
 /**
@@ -83,23 +88,7 @@ public SelectGexAction(PvDesktop _desktop) {
 		public void actionPerformed(ActionEvent e) {
 			try
 			{
-				/**
-				 * Get the preferred database connector to connect to Gex databases,
-				 * and try to cast it to swingDbConnector.
-				 * throws an exception if that fails
-				 */
-				DBConnectorSwing dbcon;
-				DBConnector dbc = desktop.getGexManager().getDBConnector();
-				if(dbc instanceof DBConnectorSwing)
-				{
-					dbcon = (DBConnectorSwing)dbc;
-				}
-				else
-				{
-					//TODO: better handling of error
-					throw new IllegalArgumentException("Not a Swing database connector");
-				}
-				String dbName = dbcon.openChooseDbDialog(desktop.getFrame());
+				String dbName = chooseDataset();
 
 				if(dbName == null) return;
 
@@ -116,5 +105,38 @@ public void actionPerformed(ActionEvent e) {
 				Logger.log.error(msg, ex);
 			}
 		}
+
+		/**
+		 * Let the user select an existing dataset. This is not left to the preferred
+		 * database connector, because datasets of both kinds can be opened:
+		 * Derby datasets are files, HSQLDB datasets are directories.
+		 * @return the dataset name, or null if none was selected
+		 */
+		private String chooseDataset()
+		{
+			JFileChooser jfc = new JFileChooser();
+			jfc.setDialogType(JFileChooser.OPEN_DIALOG);
+			jfc.setFileSelectionMode(JFileChooser.FILES_AND_DIRECTORIES);
+			jfc.setCurrentDirectory(PreferenceManager.getCurrent().getFile(GlobalPreference.DIR_LAST_USED_PGEX));
+			jfc.addChoosableFileFilter(new SimpleFileFilter("Expression datasets",
+					"*." + DataDerby.DB_FILE_EXT_GEX + "|*." + DBConnHsqldb.DB_FILE_EXT_GEX, true));
+
+			int status = jfc.showDialog (desktop.getFrame(), "Open database");
+			if(status != JFileChooser.APPROVE_OPTION) return null;
+
+			File selected = jfc.getSelectedFile();
+			if (selected == null)
+			{
+				// opened a dataset directory without selecting anything in it
+				selected = jfc.getCurrentDirectory();
+				if (!selected.getName().endsWith("." + DBConnHsqldb.DB_FILE_EXT_GEX)) return null;
+				PreferenceManager.getCurrent().setFile (GlobalPreference.DIR_LAST_USED_PGEX, selected.getParentFile());
+			}
+			else
+			{
+				PreferenceManager.getCurrent().setFile (GlobalPreference.DIR_LAST_USED_PGEX, jfc.getCurrentDirectory());
+			}
+			return selected.toString();
+		}
 	}
 }
@@ -35,6 +35,7 @@
 import org.bridgedb.IDMapperException;
 import org.bridgedb.Xref;
 import org.pathvisio.core.debug.Logger;
+import org.pathvisio.core.debug.Metrics;
 import org.pathvisio.core.debug.StopWatch;
 import org.pathvisio.core.util.FileUtils;
 import org.pathvisio.core.util.ProgressKeeper;
@@ -49,6 +50,8 @@
  */
 public class GexTxtImporter
 {
+	private static final Metrics.Timer IMPORT_TIMER = Metrics.timer("gex.import");
+
 	/**
 	 * Imports expression data from a text file and saves it to an hsqldb expression database
 	 * @param info		{@link GexImportWizard.ImportInformation} object that contains the
@@ -322,7 +325,7 @@ public static void importFromTxt(ImportInformation info, ProgressKeeper p, IDMap
 				result.finalize();
 				if (p != null) p.worked(finalizeWork);
 				
-				error.println("Time to create expression dataset: " + timer.stop());
+				error.println("Time to create expression dataset: " + timer.stop(IMPORT_TIMER));
 				error.close();
 
 				gexManager.setCurrentGex(result.getDbName(), false);
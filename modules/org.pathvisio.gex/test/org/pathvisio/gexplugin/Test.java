@@ -20,7 +20,10 @@
 import java.io.IOException;
 import java.sql.SQLException;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.bridgedb.BridgeDb;
 import org.bridgedb.DataSource;
@@ -36,6 +39,9 @@
 import org.pathvisio.data.DataInterface;
 import org.pathvisio.data.IRow;
 import org.pathvisio.data.ISample;
+import org.pathvisio.data.RowCursor;
+import org.pathvisio.desktop.data.DBConnDerby;
+import org.pathvisio.desktop.data.DBConnHsqldb;
 import org.pathvisio.desktop.gex.CachedData;
 import org.pathvisio.desktop.gex.GexManager;
 import org.pathvisio.desktop.gex.ReporterData;
@@ -280,6 +286,120 @@ public void testGexDerby() throws IDMapperException, SQLException, DataException
 		gexHelper (new DataDerby(), "tempgex1a");
 	}
 
+	/**
+	 * scan gives the same rows as the iterator, for any selection of samples
+	 */
+	public void testScan() throws IDMapperException, SQLException, DataException
+	{
+		DataSourceTxt.init();
+		String dbFileName = System.getProperty("java.io.tmpdir") + File.separator + "tempgex2";
+		SimpleGex sgex = new SimpleGex (dbFileName, true, new DataDerby());
+		sgex.prepare();
+		sgex.addSample(0, "fc", 0);
+		sgex.addSample(1, "label", 0);
+		sgex.addSample(2, "p", 0);
+		DataSource ds = DataSource.getExistingBySystemCode("X");
+		for (int i = 0; i < 50; ++i)
+		{
+			Xref ref = new Xref ("probe" + (i % 40) + "_at", ds);
+			sgex.addExpr(ref, "0", "" + (i * 0.5), i);
+			sgex.addExpr(ref, "1", "label" + i, i);
+			sgex.addExpr(ref, "2", "" + (i / 100.0), i);
+		}
+		sgex.finalize();
+
+		sgex = new SimpleGex (sgex.getDbName(), false, new DataDerby());
+		List<? extends ISample> all = sgex.getOrderedSamples();
+		List<ISample> some = Arrays.asList(sgex.getSample(2), sgex.getSample(1));
+
+		RowCursor cursor = sgex.scan(some, 7);
+		int n = 0;
+		for (IRow row : sgex.getIterator())
+		{
+			assertTrue (cursor.next());
+			assertEquals (row.getXref(), cursor.getXref());
+			assertEquals (row.getGroup(), cursor.getGroup());
+			assertEquals (row.getSampleData(all.get(2)), cursor.getDouble(0));
+			assertTrue (cursor.isNumber(0));
+			assertEquals (row.getSampleData(all.get(1)), cursor.getText(1));
+			assertFalse (cursor.isNumber(1));
+			assertTrue (Double.isNaN(cursor.getDouble(1)));
+			n++;
+		}
+		assertFalse (cursor.next());
+		cursor.close();
+		assertEquals (50, n);
+
+		// only xrefs
+		List<ISample> none = Collections.emptyList();
+		cursor = sgex.scan(none, 0);
+		n = 0;
+		while (cursor.next())
+		{
+			assertEquals (n, cursor.getGroup());
+			assertEquals ("probe" + (n % 40) + "_at", cursor.getXref().getId());
+			n++;
+		}
+		cursor.close();
+		assertEquals (50, n);
+
+		sgex.close();
+	}
+
+	/**
+	 * Bulk loaded HSQLDB dataset gives back the same data, including values that
+	 * need quoting in the load file.
+	 */
+	public void testGexHsqldb() throws IDMapperException, SQLException, DataException
+	{
+		DataSourceTxt.init();
+		String dbFileName = System.getProperty("java.io.tmpdir") + File.separator + "tempgex3.pgex";
+		SimpleGex sgex = new SimpleGex (dbFileName, true, new DBConnHsqldb());
+		sgex.prepare();
+		sgex.addSample(0, "fc", 0);
+		sgex.addSample(1, "label", 0);
+		DataSource ds = DataSource.getExistingBySystemCode("X");
+		String[] labels = { "plain", "with \"quotes\"", "with\ttab", "", "\u00e9t\u00e9" };
+		for (int i = 0; i < 20; ++i)
+		{
+			Xref ref = new Xref ("probe" + (i % 15) + "_at", ds);
+			sgex.addExpr(ref, "0", "" + (i * 0.5), i);
+			sgex.addExpr(ref, "1", labels[i % labels.length], i);
+		}
+		sgex.finalize();
+		assertTrue (sgex.getDbName().endsWith("." + DBConnHsqldb.DB_FILE_EXT_GEX));
+		assertTrue (new File(sgex.getDbName()).isDirectory());
+
+		sgex = new SimpleGex (sgex.getDbName(), false, new DBConnHsqldb());
+		ISample label = sgex.findSample("label");
+		int n = 0;
+		for (IRow row : sgex.getIterator())
+		{
+			assertEquals (n, row.getGroup());
+			assertEquals ("probe" + (n % 15) + "_at", row.getXref().getId());
+			assertEquals (n * 0.5, row.getSampleData(sgex.getSample(0)));
+			assertEquals (labels[n % labels.length], row.getSampleData(label));
+			n++;
+		}
+		assertEquals (20, n);
+
+		Set<Xref> refs = new HashSet<Xref>();
+		refs.add(new Xref ("probe3_at", ds));
+		assertEquals (2, sgex.getData(refs).size());
+		sgex.close();
+	}
+
+	/**
+	 * existing datasets are opened with the connector for their extension,
+	 * whatever the preferred connector is
+	 */
+	public void testConnectorByExtension()
+	{
+		assertTrue (GexManager.getDBConnector("data." + DataDerby.DB_FILE_EXT_GEX) instanceof DBConnDerby);
+		assertTrue (GexManager.getDBConnector("data." + DBConnHsqldb.DB_FILE_EXT_GEX) instanceof DBConnHsqldb);
+		assertNull (GexManager.getDBConnector("data.txt"));
+	}
+
 	//TODO: re-enable
 	public void disabled_testGexDirectory() throws IDMapperException, SQLException, DataException
 	{
@@ -16,12 +16,16 @@
  ******************************************************************************/
 package org.pathvisio.gui;
 
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.util.Iterator;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.swing.JEditorPane;
 import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 import javax.swing.text.html.HTMLEditorKit;
 
 import org.bridgedb.Xref;
@@ -48,6 +52,10 @@
  * It uses a BackpageTextProvider to generate the html content, which
  * has to be inserted at construction time. Backpage generation may take
  * a noticable amount of time, therefore this task is always done in a background thread.
+ * Selection changes are followed at most once per frame, so dragging a selection
+ * rectangle over many elements doesn't start a query for each of them.
+ * When the selection changes before a query is done, the query is abandoned, and
+ * backpages that were generated before are shown right away.
  * <p>
  * It is the responsibility of the instantiator to also call the dispose() method,
  * otherwise the background thread is not killed.
@@ -58,10 +66,28 @@ public class BackpagePane extends JEditorPane implements ApplicationEventListene
 	private Engine engine;
 	private ExecutorService executor;
 
+	// delay before following the selection, one frame at 60 frames per second
+	private static final int SELECTION_DELAY = 1000 / 60;
+	private final Timer selectionTimer;
+	private PathwayElement pendingInput;
+
+	// the running query, and a counter to recognize results of abandoned queries
+	private Future<?> pendingQuery;
+	private int generation = 0;
+
 	public BackpagePane(BackpageTextProvider bpt, Engine engine)
 	{
 		super();
 
+		selectionTimer = new Timer(SELECTION_DELAY, new ActionListener()
+		{
+			public void actionPerformed(ActionEvent e)
+			{
+				setInput(pendingInput);
+			}
+		});
+		selectionTimer.setRepeats(false);
+
 		engine.addApplicationEventListener(this);
 		VPathway vp = engine.getActiveVPathway();
 		if(vp != null) vp.addSelectionListener(this);
@@ -102,7 +128,8 @@ public void setInput(final PathwayElement e)
 
 		if(e == null) {
 			input = null;
-			setText(bpt.getBackpageHTML(null));
+			cancelQuery();
+			setText(bpt.getCachedBackpageHTML(null));
 		} else {
 			input = e;
 			input.addListener(this);
@@ -110,22 +137,45 @@ public void setInput(final PathwayElement e)
 		}
 	}
 
+	/**
+	 * Make sure the result of a running query is not shown.
+	 * The query itself is not interrupted, hooks may be in the middle of a database call.
+	 */
+	private void cancelQuery()
+	{
+		generation++;
+		if(pendingQuery != null) pendingQuery.cancel(false);
+		pendingQuery = null;
+	}
+
 	private void doQuery()
 	{
-		setText("Loading");
-		currRef = input.getXref();
+		final PathwayElement e = input;
+		currRef = e.getXref();
+		cancelQuery();
 
-		executor.execute(new Runnable()
+		String cached = bpt.getCachedBackpageHTML(e);
+		if(cached != null)
+		{
+			setText(cached);
+			setCaretPosition(0); // scroll to top.
+			return;
+		}
+
+		setText("Loading");
+		final int request = generation;
+		pendingQuery = executor.submit(new Runnable()
 		{
 			public void run()
 			{
-				if(input == null) return;
-				final String txt = bpt.getBackpageHTML(input);
+				final String txt = bpt.getBackpageHTML(e);
 
 				SwingUtilities.invokeLater(new Runnable()
 				{
 					public void run()
 					{
+						if(request != generation) return; // superseded
+						pendingQuery = null;
 						setText(txt);
 						setCaretPosition(0); // scroll to top.
 					}
@@ -134,8 +184,24 @@ public void run()
 		});
 	}
 
+	/**
+	 * Set the input after a short delay. Only the last input
+	 * set within that delay is shown.
+	 */
+	private void scheduleInput(PathwayElement e)
+	{
+		pendingInput = e;
+		if(!selectionTimer.isRunning()) selectionTimer.start();
+	}
+
 	public void selectionEvent(SelectionEvent e) {
+		if(e.adjusting) return; // wait for the end of the batch
 		switch(e.type) {
+		case SelectionEvent.SELECTION_CHANGED:
+			if(e.added.size() == 0) {
+				if(e.selection.size() == 0) scheduleInput(null);
+				break;
+			}
 		case SelectionEvent.OBJECT_ADDED:
 			//Just take the first DataNode in the selection
 			Iterator<VPathwayElement> it = e.selection.iterator();
@@ -145,7 +211,7 @@ public void selectionEvent(SelectionEvent e) {
 				// the backpage checks and gives the correct error if 
 				// it's not a datanode or line
 				if(o instanceof Graphics) {
-					setInput(((Graphics)o).getPathwayElement());
+					scheduleInput(((Graphics)o).getPathwayElement());
 					break;
 				}
 			}
@@ -153,7 +219,7 @@ public void selectionEvent(SelectionEvent e) {
 		case SelectionEvent.OBJECT_REMOVED:
 			if(e.selection.size() != 0) break;
 		case SelectionEvent.SELECTION_CLEARED:
-			setInput(null);
+			scheduleInput(null);
 			break;
 		}
 	}
@@ -168,8 +234,10 @@ public void applicationEvent(ApplicationEvent e)
 			case VPATHWAY_DISPOSED:
 				((VPathway)e.getSource()).removeSelectionListener(this);
 				// remove content of backpage when pathway is closed
+				selectionTimer.stop();
 				input = null;
-				setText(bpt.getBackpageHTML(null));
+				cancelQuery();
+				setText(bpt.getCachedBackpageHTML(null));
 			break;
 		}
 	}
@@ -194,6 +262,8 @@ public void dispose()
 		engine.removeApplicationEventListener(this);
 		VPathway vpwy = engine.getActiveVPathway();
 		if (vpwy != null) vpwy.removeSelectionListener(this);
+		selectionTimer.stop();
+		cancelQuery();
 		executor.shutdown();
 		disposed = true;
 	}
@@ -24,6 +24,8 @@
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.bridgedb.AttributeMapper;
 import org.bridgedb.IDMapper;
@@ -46,6 +48,11 @@
  * Two basic BackpageHooks are defined here: @link{BackpageAttributes} and
  * {@link BackpageXrefs}. However, these are not automatically registered, that
  * is the responsibility of the instantiator.
+ * <p>
+ * Hooks run in parallel, and the generated backpages are cached per Xref, so selecting
+ * an element again shows its backpage right away. Backpages are only cached if all hooks
+ * are a {@link CacheableHook}. Call {@link #clearCache()} when the
+ * information shown by the hooks changes, e.g. when another database is connected.
  */
 public class BackpageTextProvider
 {
@@ -60,7 +67,8 @@
 		 * contain &lt;html> or &lt;body> tags, but it can contain most other
 		 * html tags.
 		 * <p>
-		 * The function getHtml is normally called from a worker thread.
+		 * The function getHtml is normally called from a worker thread,
+		 * at the same time as the other hooks.
 		 */
 		@WorkerThreadOnly
 		public String getHtml (PathwayElement e);
@@ -70,7 +78,7 @@
 	 * A @{link BackpageHook} that generates a section with a description
 	 * and a few other attributes to the backpage panel.
 	 */
-	public static class BackpageAttributes implements BackpageHook, DataHook
+	public static class BackpageAttributes implements BackpageHook, DataHook, CacheableHook
 	{
 		private final AttributeMapper attributeMapper;
 
@@ -136,8 +144,7 @@ public String getHtml(PathwayElement e) {
 			}
 			catch (IDMapperException ex)
 			{
-				text += "Exception occurred, see log for details</br>";
-				Logger.log.error ("Error fetching backpage info", ex);
+				throw new HookFailedException(text + "Exception occurred, see log for details</br>", ex);
 			}
 			return text;
 		}
@@ -154,7 +161,7 @@ public String getHtml(PathwayElement e) {
 	 * A @{link BackpageHook} that adds a list of crossref links to
 	 * the backpage panel.
 	 */
-	public static class BackpageXrefs implements BackpageHook
+	public static class BackpageXrefs implements BackpageHook, CacheableHook
 	{
 		private final IDMapper gdb;
 
@@ -203,8 +210,8 @@ public String getHtml(PathwayElement e) {
 			}
 			catch (IDMapperException ex)
 			{
-				return "Exception occured while getting cross-references</br>\n"
-					+ ex.getMessage() + "\n";
+				throw new HookFailedException("Exception occured while getting cross-references</br>\n"
+					+ ex.getMessage() + "\n", ex);
 			}
 		}
 	}
@@ -216,9 +223,35 @@ public String getHtml(PathwayElement e) {
 	public void addBackpageHook(BackpageHook hook)
 	{
 		hooks.add (hook);
+		cache.clear();
 	}
 
-	private final List<BackpageHook> hooks = new ArrayList<BackpageHook>();
+	// hooks may be added while a backpage is generated in the background
+	private final List<BackpageHook> hooks = new CopyOnWriteArrayList<BackpageHook>();
+
+	// number of backpages to keep
+	private static final int CACHE_SIZE = 100;
+	private final HtmlCache cache = new HtmlCache(CACHE_SIZE);
+
+	/**
+	 * Backpages are only cached if all hooks are {@link CacheableHook}s
+	 */
+	private boolean isCacheable()
+	{
+		for (BackpageHook h : hooks)
+		{
+			if (!(h instanceof CacheableHook)) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Forget all generated backpages.
+	 */
+	public void clearCache()
+	{
+		cache.clear();
+	}
 
 	public BackpageTextProvider()
 	{
@@ -229,7 +262,42 @@ public BackpageTextProvider()
 	 * generates html for a given PathwayElement. Combines the base
 	 * header with fragments from all BackpageHooks into one html String.
 	 */
-	public String getBackpageHTML(PathwayElement e)
+	@WorkerThreadOnly
+	public String getBackpageHTML(final PathwayElement e)
+	{
+		String html = getCachedBackpageHTML(e);
+		if (html != null) return html;
+
+		int version = cache.getVersion();
+		boolean cacheable = true;
+		List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+		for (final BackpageHook h : hooks)
+		{
+			if (!(h instanceof CacheableHook)) cacheable = false;
+			tasks.add(new Callable<Object>()
+			{
+				public Object call()
+				{
+					return h.getHtml(e);
+				}
+			});
+		}
+		StringBuilder builder = new StringBuilder(backpagePanelHeader);
+		boolean succeeded = HookRunner.appendAll(tasks, builder);
+		builder.append ("</body></html>");
+		html = builder.toString();
+		// error messages are not cached, so the hooks are tried again next time
+		if (cacheable && succeeded) cache.put(e, html, version);
+		return html;
+	}
+
+	/**
+	 * Returns the backpage for a given PathwayElement if it can be
+	 * generated without running the hooks, because it is cached or because
+	 * there is nothing to look up. Otherwise returns null.
+	 * Doesn't block, so it can be called from the event dispatch thread.
+	 */
+	public String getCachedBackpageHTML(PathwayElement e)
 	{
 		if (e == null) {
 			return "<p>No pathway element is selected.</p>";
@@ -238,13 +306,7 @@ public String getBackpageHTML(PathwayElement e)
 		} else if (e.getDataSource() == null || e.getXref().getId().equals("")) {
 			return "<p>There is no annotation for this pathway element defined.</p>";
 		}
-		StringBuilder builder = new StringBuilder(backpagePanelHeader);
-		for (BackpageHook h : hooks)
-		{
-			builder.append(h.getHtml(e));
-		}
-		builder.append ("</body></html>");
-		return builder.toString();
+		return isCacheable() ? cache.get(e) : null;
 	}
 
 	/**
@@ -0,0 +1,27 @@
+/*******************************************************************************
+ * PathVisio, a tool for data visualization and analysis using biological pathways
+ * Copyright 2006-2019 BiGCaT Bioinformatics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.pathvisio.gui;
+
+/**
+ * Marks a backpage or data pane hook whose html only depends on the object type,
+ * DataNode type and Xref of an element. Generated pages are shared between all
+ * elements with the same Xref, so they are only cached if all registered hooks
+ * are marked like this. Other hooks run each time an element is selected.
+ */
+public interface CacheableHook
+{
+}
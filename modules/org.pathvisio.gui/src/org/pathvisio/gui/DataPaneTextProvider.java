@@ -20,6 +20,8 @@
 import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.pathvisio.core.debug.Logger;
 import org.pathvisio.core.debug.WorkerThreadOnly;
@@ -37,6 +39,10 @@
  * Two basic BackpageHooks are defined here: @link{BackpageAttributes} and
  * {@link DataXrefs}. However, these are not automatically registered, that is
  * the responsibility of the instantiator.
+ * <p>
+ * Hooks run in parallel, and the generated html is cached per Xref, if all
+ * hooks are a {@link CacheableHook}. Call {@link #clearCache()} when the
+ * information shown by the hooks changes.
  */
 public class DataPaneTextProvider {
 	/**
@@ -64,7 +70,7 @@ public static interface DataHook {
 	 * currently loaded visualizations
 	 * 
 	 */
-	public static class DataAttributes implements DataHook
+	public static class DataAttributes implements DataHook, CacheableHook
 	{
 		private SwingEngine swe;
 		
@@ -110,9 +116,34 @@ public Object getHtml(PathwayElement e) {
 	 */
 	public void addDataHook(DataHook hook) {
 		hooks.add(hook);
+		cache.clear();
 	}
 
-	private final List<DataHook> hooks = new ArrayList<DataHook>();
+	// hooks may be added while html is generated in the background
+	private final List<DataHook> hooks = new CopyOnWriteArrayList<DataHook>();
+
+	// number of pages to keep
+	private static final int CACHE_SIZE = 100;
+	private final HtmlCache cache = new HtmlCache(CACHE_SIZE);
+
+	/**
+	 * Html is only cached if all hooks are {@link CacheableHook}s
+	 */
+	private boolean isCacheable() {
+		for (DataHook h : hooks) {
+			if (!(h instanceof CacheableHook))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Forget all generated html, e.g. when another database or dataset is
+	 * loaded.
+	 */
+	public void clearCache() {
+		cache.clear();
+	}
 
 	public DataPaneTextProvider() {
 		initializeHeader();
@@ -122,7 +153,41 @@ public DataPaneTextProvider() {
 	 * generates html for a given PathwayElement. Combines the base header with
 	 * fragments from all BackpageHooks into one html String.
 	 */
-	public String getAnnotationHTML(PathwayElement e) {
+	@WorkerThreadOnly
+	public String getAnnotationHTML(final PathwayElement e) {
+		String html = getCachedAnnotationHTML(e);
+		if (html != null)
+			return html;
+
+		int version = cache.getVersion();
+		boolean cacheable = true;
+		List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+		for (final DataHook h : hooks) {
+			if (!(h instanceof CacheableHook))
+				cacheable = false;
+			tasks.add(new Callable<Object>() {
+				public Object call() {
+					return h.getHtml(e);
+				}
+			});
+		}
+		StringBuilder builder = new StringBuilder(backpagePanelHeader);
+		boolean succeeded = HookRunner.appendAll(tasks, builder);
+		builder.append("</body></html>");
+		html = builder.toString();
+		// error messages are not cached, so the hooks are tried again next time
+		if (cacheable && succeeded)
+			cache.put(e, html, version);
+		return html;
+	}
+
+	/**
+	 * Returns the html for a given PathwayElement if it can be generated
+	 * without running the hooks, because it is cached or because there is
+	 * nothing to look up. Otherwise returns null. Doesn't block, so it can be
+	 * called from the event dispatch thread.
+	 */
+	public String getCachedAnnotationHTML(PathwayElement e) {
 		if (e == null) {
 			return "<p>No pathway element is selected.</p>";
 		} else if (e.getObjectType() != ObjectType.DATANODE
@@ -132,12 +197,7 @@ public String getAnnotationHTML(PathwayElement e) {
 		} else if (e.getDataSource() == null || e.getXref().getId().equals("")) {
 			return "<p>This pathway element has not yet been annotated.</p>";
 		}
-		StringBuilder builder = new StringBuilder(backpagePanelHeader);
-		for (DataHook h : hooks) {
-			builder.append(h.getHtml(e));
-		}
-		builder.append("</body></html>");
-		return builder.toString();
+		return isCacheable() ? cache.get(e) : null;
 	}
 	
 	/**
@@ -0,0 +1,39 @@
+/*******************************************************************************
+ * PathVisio, a tool for data visualization and analysis using biological pathways
+ * Copyright 2006-2019 BiGCaT Bioinformatics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.pathvisio.gui;
+
+/**
+ * Thrown by a backpage or data pane hook that can't generate its html,
+ * e.g. because a database can't be reached. The page shows the given html instead,
+ * but is not cached, so the hook is tried again the next time.
+ */
+public class HookFailedException extends RuntimeException
+{
+	private final String html;
+
+	public HookFailedException(String html, Throwable cause)
+	{
+		super(cause);
+		this.html = html;
+	}
+
+	/** html to show in place of the fragment of the hook */
+	public String getHtml()
+	{
+		return html;
+	}
+}
@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * PathVisio, a tool for data visualization and analysis using biological pathways
+ * Copyright 2006-2019 BiGCaT Bioinformatics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.pathvisio.gui;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.pathvisio.core.debug.Logger;
+
+/**
+ * Package private.
+ * <p>
+ * Runs the hooks of a backpage or data pane side by side. Hooks are independent
+ * of each other, and most of their time is spent waiting for a database.
+ */
+class HookRunner
+{
+	private static final ExecutorService pool = Executors.newCachedThreadPool(new ThreadFactory()
+	{
+		public Thread newThread(Runnable r)
+		{
+			Thread t = new Thread(r, "Backpage hook");
+			t.setDaemon(true);
+			return t;
+		}
+	});
+
+	/**
+	 * Run all tasks, wait for them to finish and append their results to the builder,
+	 * in the same order as the tasks.
+	 * A task that fails is logged, and gives the html of its {@link HookFailedException},
+	 * or an empty fragment for other exceptions.
+	 * @return true if all tasks succeeded, so the result may be cached.
+	 */
+	static boolean appendAll(List<Callable<Object>> tasks, StringBuilder builder)
+	{
+		if (tasks.size() == 1)
+		{
+			// not worth a thread switch
+			try
+			{
+				builder.append(tasks.get(0).call());
+				return true;
+			}
+			catch (Exception ex)
+			{
+				builder.append(failed(ex));
+				return false;
+			}
+		}
+
+		List<Future<Object>> futures = new ArrayList<Future<Object>>();
+		for (Callable<Object> task : tasks)
+		{
+			futures.add(pool.submit(task));
+		}
+		boolean succeeded = true;
+		for (Future<Object> f : futures)
+		{
+			try
+			{
+				builder.append(f.get());
+			}
+			catch (ExecutionException ex)
+			{
+				builder.append(failed(ex.getCause()));
+				succeeded = false;
+			}
+			catch (InterruptedException ex)
+			{
+				Thread.currentThread().interrupt();
+				succeeded = false;
+			}
+		}
+		return succeeded;
+	}
+
+	private static String failed(Throwable ex)
+	{
+		Logger.log.error("Backpage hook failed", ex);
+		return ex instanceof HookFailedException ? ((HookFailedException)ex).getHtml() : "";
+	}
+}
@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * PathVisio, a tool for data visualization and analysis using biological pathways
+ * Copyright 2006-2019 BiGCaT Bioinformatics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.pathvisio.gui;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.pathvisio.core.model.PathwayElement;
+
+/**
+ * Package private.
+ * <p>
+ * Generated html of the most recently used pathway elements. Elements with the same
+ * Xref and type get the same html, so a page is reused for all of them.
+ * Only for pages of {@link CacheableHook}s, which don't depend on other properties.
+ * The owner must clear the cache when the html could change for other
+ * reasons, e.g. when another database is connected.
+ */
+class HtmlCache
+{
+	private final int maxSize;
+	private final Map<List<Object>, String> pages;
+	private int version = 0;
+
+	HtmlCache(final int maxSize)
+	{
+		this.maxSize = maxSize;
+		// access ordered, so the eldest entry is the least recently used
+		pages = new LinkedHashMap<List<Object>, String>(16, 0.75f, true)
+		{
+			protected boolean removeEldestEntry(Map.Entry<List<Object>, String> eldest)
+			{
+				return size() > HtmlCache.this.maxSize;
+			}
+		};
+	}
+
+	/** The properties of an element that the generated html depends on */
+	private static List<Object> key(PathwayElement e)
+	{
+		return Arrays.<Object>asList(e.getObjectType(), e.getDataNodeType(), e.getXref());
+	}
+
+	synchronized String get(PathwayElement e)
+	{
+		return pages.get(key(e));
+	}
+
+	/**
+	 * The version changes on each clear, pass it to {@link #put(PathwayElement, String, int)}
+	 * to make sure that html generated before a clear doesn't end up in the cache.
+	 */
+	synchronized int getVersion()
+	{
+		return version;
+	}
+
+	synchronized void put(PathwayElement e, String html, int version)
+	{
+		if (version == this.version) pages.put(key(e), html);
+	}
+
+	synchronized void clear()
+	{
+		pages.clear();
+		version++;
+	}
+}
@@ -52,6 +52,8 @@
 
 import org.pathvisio.core.ApplicationEvent;
 import org.pathvisio.core.Engine.ApplicationEventListener;
+import org.pathvisio.core.data.GdbEvent;
+import org.pathvisio.core.data.GdbManager.GdbEventListener;
 import org.pathvisio.core.debug.Logger;
 import org.pathvisio.core.model.PathwayElement;
 import org.pathvisio.core.util.Utils;
@@ -228,6 +230,14 @@ public TableCellEditor getCellEditor(int row, int column) {
 		bpt = new BackpageTextProvider ();
 		bpt.addBackpageHook(new BackpageAttributes(swingEngine.getGdbManager().getCurrentGdb()));
 		bpt.addBackpageHook(new BackpageXrefs(swingEngine.getGdbManager().getCurrentGdb()));
+		// cached backpages are out of date when another database is connected
+		swingEngine.getGdbManager().addGdbEventListener(new GdbEventListener()
+		{
+			public void gdbEvent(GdbEvent e)
+			{
+				bpt.clearCache();
+			}
+		});
 		
 		backpagePane = new BackpagePane(bpt, swingEngine.getEngine());
 		backpagePane.addHyperlinkListener(swingEngine);
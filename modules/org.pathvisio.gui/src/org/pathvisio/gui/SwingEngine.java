@@ -496,7 +496,9 @@ public boolean savePathwayAs()
 		{
 			File toFile = pc.getSelectedFile();
 			String fn = toFile.toString();
-			if(!fn.toLowerCase().endsWith(Engine.PATHWAY_FILE_EXTENSION)) {
+			String lower = fn.toLowerCase();
+			// compressed gpml keeps its name, e.g. pathway.gpml.gz
+			if(!lower.endsWith(Engine.PATHWAY_FILE_EXTENSION) && !lower.endsWith(".gz") && !lower.endsWith(".zip")) {
 				toFile = new File(fn + "." + Engine.PATHWAY_FILE_EXTENSION);
 			}
 			try {
@@ -53,6 +53,7 @@ public class PathwayImportHandler extends TransferHandler implements ClipboardOw
 
 	public PathwayImportHandler() {
 		supportedFlavors = new HashSet<DataFlavor>();
+		supportedFlavors.add(PathwayTransferable.PATHWAY_DATA_FLAVOR);
 		supportedFlavors.add(PathwayTransferable.GPML_DATA_FLAVOR);
 		supportedFlavors.add(DataFlavor.stringFlavor);
 	}
@@ -66,6 +67,11 @@ public boolean canImport(JComponent comp, DataFlavor[] transferFlavors) {
 	
 	public boolean importData(JComponent comp, Transferable t) {
 		try {
+			Pathway local = PathwayTransferable.getPathway(t);
+			if(local != null) {
+				importPathway(comp, local, null);
+				return false;
+			}
 			String xml = PathwayTransferable.getText(t);
 			if(xml != null) {
 				Logger.log.trace("Importing from xml: " + xml);
@@ -80,6 +86,11 @@ public boolean importData(JComponent comp, Transferable t) {
 	
 	public boolean importDataAtCursorPosition(JComponent comp, Transferable t, Point p) {
 		try {
+			Pathway local = PathwayTransferable.getPathway(t);
+			if(local != null) {
+				importPathway(comp, local, p);
+				return false;
+			}
 			String xml = PathwayTransferable.getText(t);
 			if(xml != null) {
 				Logger.log.trace("Importing from xml: " + xml);
@@ -98,7 +109,14 @@ public boolean importDataAtCursorPosition(JComponent comp, Transferable t, Point
 	private boolean importGpml(JComponent comp, String xml, Point p) throws UnsupportedFlavorException, IOException, ConverterException {
 		Pathway pnew = new Pathway();
 		GpmlFormat.readFromXml(pnew, new StringReader(xml), true);
+		return importPathway(comp, pnew, p);
+	}
 
+	/**
+	 * Paste the elements of a pathway that was created for the clipboard, either from GPML
+	 * or directly by a {@link PathwayTransferable} in this JVM.
+	 */
+	private boolean importPathway(JComponent comp, Pathway pnew, Point p) {
 		List<PathwayElement> elements = new ArrayList<PathwayElement>();
 		for(PathwayElement elm : pnew.getDataObjects()) {
 			if(elm.getObjectType() != ObjectType.MAPPINFO) {
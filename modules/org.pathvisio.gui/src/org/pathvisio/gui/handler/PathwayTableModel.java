@@ -16,6 +16,8 @@
  ******************************************************************************/
 package org.pathvisio.gui.handler;
 
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -25,6 +27,7 @@
 import java.util.Map;
 
 import javax.swing.JTable;
+import javax.swing.Timer;
 import javax.swing.table.AbstractTableModel;
 import javax.swing.table.TableCellEditor;
 import javax.swing.table.TableCellRenderer;
@@ -38,6 +41,7 @@
 import org.pathvisio.core.view.SelectionBox.SelectionEvent;
 import org.pathvisio.core.view.SelectionBox.SelectionListener;
 import org.pathvisio.core.view.VPathway;
+import org.pathvisio.core.view.VPathwayElement;
 import org.pathvisio.gui.SwingEngine;
 
 /**
@@ -48,6 +52,9 @@
  * This will pass through the properties for zero, one or many selected
  * PathwayElements. If many are selected, the subset of shared Properties
  * is used as row set.
+ *
+ * Changes to the selection or to the selected elements don't refresh
+ * the table right away, refreshes are coalesced to at most one per frame.
  */
 public class PathwayTableModel extends AbstractTableModel implements SelectionListener,
 									PathwayElementListener,
@@ -60,11 +67,22 @@ public class PathwayTableModel extends AbstractTableModel implements SelectionLi
 
 	private SwingEngine swingEngine;
 
+	// delay of a scheduled refresh, one frame at 60 frames per second
+	private static final int REFRESH_DELAY = 1000 / 60;
+	private final Timer refreshTimer;
+	private boolean refreshPropertyCount = false;
+
 	public PathwayTableModel(SwingEngine swingEngine) {
 		input = new HashSet<PathwayElement>();
 		propertyValues = new HashMap<Object, PropertyView>();
 		shownProperties = new ArrayList<PropertyView>();
 		this.swingEngine = swingEngine;
+		refreshTimer = new Timer(REFRESH_DELAY, new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				refresh(refreshPropertyCount);
+			}
+		});
+		refreshTimer.setRepeats(false);
 		swingEngine.getEngine().addApplicationEventListener(this);
 		VPathway vp = swingEngine.getEngine().getActiveVPathway();
 		if(vp != null) vp.addSelectionListener(this);
@@ -94,7 +112,7 @@ private void removeInput(PathwayElement pwElm) {
 		{
 			updatePropertyCounts(pwElm, true);
 			pwElm.removeListener(this);
-			refresh(true);
+			scheduleRefresh(true);
 		}
 		else
 		{
@@ -114,12 +132,25 @@ private void addInput(PathwayElement pwElm) {
 		input.add(pwElm);
 		updatePropertyCounts(pwElm, false);
 		pwElm.addListener(this);
-		refresh(true);
+		scheduleRefresh(true);
+	}
+
+	/**
+	 * Refresh the table after a short delay. All calls within
+	 * that delay lead to a single refresh.
+	 */
+	private void scheduleRefresh(boolean propertyCount) {
+		refreshPropertyCount |= propertyCount;
+		if(!refreshTimer.isRunning()) refreshTimer.start();
 	}
 
 	protected void refresh() { refresh(false); }
 
 	public void refresh(boolean propertyCount) {
+		// this refresh includes any scheduled one
+		refreshTimer.stop();
+		propertyCount |= refreshPropertyCount;
+		refreshPropertyCount = false;
 		if(propertyCount) {
 			updateShownProperties();
 		}
@@ -208,6 +239,7 @@ public boolean isCellEditable(int rowIndex, int columnIndex) {
 	}
 
 	public void selectionEvent(SelectionEvent e) {
+		if(e.adjusting) return; // handled at once with SELECTION_CHANGED
 		switch(e.type) {
 		case SelectionEvent.OBJECT_ADDED:
 			//System.err.println("OBJECT ADDED");
@@ -223,6 +255,16 @@ public void selectionEvent(SelectionEvent e) {
 			//System.err.println("CLEARED");
 			 reset();
 			break;
+		case SelectionEvent.SELECTION_CHANGED:
+			for(VPathwayElement o : e.removed) {
+				if(o instanceof Graphics)
+					removeInput(((Graphics)o).getPathwayElement());
+			}
+			for(VPathwayElement o : e.added) {
+				if(o instanceof Graphics)
+					addInput(((Graphics)o).getPathwayElement());
+			}
+			break;
 		}
 	}
 
@@ -247,7 +289,7 @@ public TableCellEditor getCellEditor(int row, int column) {
 	}
 
 	public void gmmlObjectModified(PathwayElementEvent e) {
-		refresh();
+		scheduleRefresh(false);
 	}
 
 	public void applicationEvent(ApplicationEvent e)
@@ -47,6 +47,7 @@
 import javax.swing.JComponent;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
+import javax.swing.JViewport;
 import javax.swing.JWindow;
 import javax.swing.KeyStroke;
 import javax.swing.SwingUtilities;
@@ -238,11 +239,21 @@ public VPathway createVPathway() {
 
 	public void vPathwayEvent(VPathwayEvent e) {
 		switch(e.getType()) {
+		case MODEL_LOADING:
+			// show the pathway right away, so the visible area can be built first
+			if(e.getSource() == child) {
+				container.setViewportView(this);
+			}
+			break;
 		case MODEL_LOADED:
 			if(e.getSource() == child) {
 				SwingUtilities.invokeLater(new Runnable() {
 					public void run() {
-						container.setViewportView(VPathwaySwing.this);
+						// replaced by another pathway in the meantime
+						if (disposed) return;
+						// already shown if it was loaded in steps, keep the scroll position
+						if (container.getViewport().getView() != VPathwaySwing.this)
+							container.setViewportView(VPathwaySwing.this);
 						resized();
 						VPathwaySwing.this.requestFocus();
 					}
@@ -464,7 +475,13 @@ public void dispose()
 	{
 		assert (!disposed);
 		if (container != null && container instanceof JScrollPane)
+		{
+			// take this out of the viewport, so it isn't painted anymore
+			// while the next pathway is loading
+			JViewport viewport = ((JScrollPane)container).getViewport();
+			if (viewport.getView() == this) viewport.setView(null);
 			((JScrollPane)container).remove(this);
+		}
 		child.removeVPathwayListener(this);
 		child.removeVElementMouseListener(this);
 
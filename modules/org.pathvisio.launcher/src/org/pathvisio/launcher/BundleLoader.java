@@ -49,7 +49,8 @@ public class BundleLoader
 	
 	private final List<Bundle> plugins = new ArrayList<Bundle>();
 	
-	private final Map <Bundle, String> bundles = new HashMap <Bundle, String>();
+	// synchronized, embedded bundles are installed from several threads
+	private final Map <Bundle, String> bundles = Collections.synchronizedMap(new HashMap <Bundle, String>());
 
 	public BundleLoader(BundleContext context) 
 	{
@@ -113,6 +114,7 @@ void installFromFile(File file) {
 	/**
 	 * Install bundles that are embedded in the jar that we are currently running.
 	 * If we're not running from jar, this step is simply skipped.
+	 * Can be called from several threads at once.
 	 */
 	void installEmbeddedBundle(String s) throws URISyntaxException, IOException
 	{
@@ -21,14 +21,20 @@
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.swing.JOptionPane;
 import javax.swing.SwingWorker;
@@ -125,6 +131,15 @@ private Map<String, String> getLaunchProperties()
 	}
 	
 	
+	// number of bundles that are installed at the same time
+	private static final int INSTALL_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+	/** Print the time since the JVM was started, to see where start-up time goes */
+	static void traceStartup(String phase)
+	{
+		System.out.println("Startup: " + phase + " after " + ManagementFactory.getRuntimeMXBean().getUptime() + " ms");
+	}
+
 	private SplashFrame frame;
 	public void start() 
 	{		
@@ -140,7 +155,7 @@ protected Void doInBackground() throws Exception {
 					framework.start();
 					
 					context = framework.getBundleContext();
-					BundleLoader loader = new BundleLoader(context);
+					final BundleLoader loader = new BundleLoader(context);
 					
 				 	/* load embedded bundles, i.e. all bundles that are inside pathvisio.jar */ 
 			    	System.out.println("Installing bundles that are embedded in the jar.");
@@ -149,14 +164,31 @@ protected Void doInBackground() throws Exception {
 					int cnt = 0;
 					int total = jarNames.size() + pluginLocations.size();
 					
-					for (String s : jarNames) 
+					/* bundles are independent until they are resolved, so install them side by side.
+					 * Most of the time goes to reading and unpacking the jars. */
+					ExecutorService installer = Executors.newFixedThreadPool(INSTALL_THREADS);
+					Map<String, Future<Void>> installed = new LinkedHashMap<String, Future<Void>>();
+					for (final String s : jarNames)
+					{
+						installed.put(s, installer.submit(new Callable<Void>() {
+							public Void call() throws Exception {
+								loader.installEmbeddedBundle(s);
+								return null;
+							}
+						}));
+					}
+					installer.shutdown();
+					for (Map.Entry<String, Future<Void>> e : installed.entrySet()) 
 					{
+						String s = e.getKey();
 						String text = (s.length() > 50) ? s.substring(0, 50) : s;
 						frame.getTextLabel().setText("<html>Install " + text + ".</html>");
 						frame.repaint();
 						publish(100 * (++cnt) / total);
-						loader.installEmbeddedBundle(s);
+						// rethrows a failed installation, the error dialog shows the cause
+						e.getValue().get();
 					}
+					traceStartup("embedded bundles installed");
 
 					frame.getTextLabel().setText("<html>Install active plugins.</html>");
 					frame.repaint();
@@ -166,7 +198,9 @@ protected Void doInBackground() throws Exception {
 			    		loader.loadFromParameter(location);
 					}
 			    
+					traceStartup("plugins installed");
 					startBundles(context, loader.getBundles());
+					traceStartup("bundles started");
 					
 					frame.getTextLabel().setText("Start application.");
 					frame.repaint();
@@ -31,6 +31,9 @@ public enum Column implements PropertyColumn
 	PCT("%"),
 	PERMPVAL("p-value (permuted)"),
 	ADJPVAL("Adjusted p-value"),
+	EXACTPVAL("p-value (hypergeometric)"),
+	FISHERPVAL("p-value (Fisher, two-sided)"),
+	FDR("FDR (Benjamini-Hochberg)"),
 	ZSCORE ("Z Score");
 
 	String title;
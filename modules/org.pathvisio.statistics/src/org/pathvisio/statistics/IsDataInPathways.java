@@ -21,6 +21,7 @@
 import java.io.FileOutputStream;
 import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -37,7 +38,8 @@
 import org.pathvisio.core.util.Utils;
 import org.pathvisio.data.DataException;
 import org.pathvisio.data.DataInterface;
-import org.pathvisio.data.IRow;
+import org.pathvisio.data.ISample;
+import org.pathvisio.data.RowCursor;
 import org.pathvisio.desktop.gex.GexManager;
 import org.pathvisio.statistics.PathwayMap.PathwayInfo;
 
@@ -60,6 +62,8 @@
 
 	static File outFile = new File ("/home/martijn/Desktop/isdatainpahtways.txt");
 
+	static final int FETCH_SIZE = 1000;
+
 	public static void main(String[] args) throws IDMapperException, ParseException, FileNotFoundException, DataException
 	{
 		PreferenceManager.init();
@@ -74,16 +78,25 @@ public static void main(String[] args) throws IDMapperException, ParseException,
 
 		IDMapper gdb = BridgeDb.connect("idmapper-pgdb:" + fGdb);
 
-		for (int i = 0; i < gex.getNrRow(); ++i)
+		// only the xrefs are needed, so don't read any samples
+		List<ISample> noSamples = Collections.emptyList();
+		RowCursor cursor = gex.scan(noSamples, FETCH_SIZE);
+		try
 		{
-			IRow data = gex.getRow(i);
-			Xref src = data.getXref();
-			counts.put (src, new ArrayList<String>());
-			for (Xref dest : gdb.mapID(data.getXref()))
+			while (cursor.next())
 			{
-				dataRefs.put (dest, src);
+				Xref src = cursor.getXref();
+				counts.put (src, new ArrayList<String>());
+				for (Xref dest : gdb.mapID(src))
+				{
+					dataRefs.put (dest, src);
+				}
+				dataRefs.put (src, src);
 			}
-			dataRefs.put (src, src);
+		}
+		finally
+		{
+			cursor.close();
 		}
 
 		PathwayMap map = new PathwayMap(pwDir);
@@ -101,41 +114,49 @@ public static void main(String[] args) throws IDMapperException, ParseException,
 		}
 
 		PrintStream out = new PrintStream(new FileOutputStream(outFile));
-		for (int i = 0; i < gex.getNrRow(); ++i)
+		cursor = gex.scan(noSamples, FETCH_SIZE);
+		try
 		{
-			IRow data = gex.getRow(i);
-			Xref ref = data.getXref();
-			String bpText = Utils.oneOf (((AttributeMapper)gdb).getAttributes(ref, "Backpage"));
-			String desc = "";
-			if (bpText != null)
+			while (cursor.next())
 			{
-				Pattern pat = Pattern.compile("<TH>Description:<TH>(.*)<TR>");
-				Matcher mat = pat.matcher (bpText);
-				if (mat.find())
+				int i = cursor.getGroup();
+				Xref ref = cursor.getXref();
+				String bpText = Utils.oneOf (((AttributeMapper)gdb).getAttributes(ref, "Backpage"));
+				String desc = "";
+				if (bpText != null)
 				{
-					desc = mat.group(1);
+					Pattern pat = Pattern.compile("<TH>Description:<TH>(.*)<TR>");
+					Matcher mat = pat.matcher (bpText);
+					if (mat.find())
+					{
+						desc = mat.group(1);
+					}
 				}
-			}
-			List<String> pwyNames = counts.get(ref);
-			out.print (i + "\t" +
-					ref.getId() + "\t" +
-					ref.getDataSource().getSystemCode()  + "\t" +
-					desc + "\t" +
-					pwyNames.size() + "\t");
-
-			boolean first = true;
-			for (String name : pwyNames)
-			{
-				if (!first)
+				List<String> pwyNames = counts.get(ref);
+				out.print (i + "\t" +
+						ref.getId() + "\t" +
+						ref.getDataSource().getSystemCode()  + "\t" +
+						desc + "\t" +
+						pwyNames.size() + "\t");
+
+				boolean first = true;
+				for (String name : pwyNames)
 				{
-					out.print (" \\\\\\ ");
+					if (!first)
+					{
+						out.print (" \\\\\\ ");
+					}
+					first = false;
+					out.print (name);
 				}
-				first = false;
-				out.print (name);
+				out.println();
 			}
-			out.println();
 		}
-		out.close();
+		finally
+		{
+			cursor.close();
+			out.close();
+		}
 	}
 
 }
@@ -0,0 +1,284 @@
+/*******************************************************************************
+ * PathVisio, a tool for data visualization and analysis using biological pathways
+ * Copyright 2006-2019 BiGCaT Bioinformatics
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.pathvisio.statistics;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.bridgedb.BridgeDb;
+import org.bridgedb.IDMapper;
+import org.bridgedb.IDMapperException;
+import org.bridgedb.IDMapperStack;
+import org.bridgedb.bio.DataSourceTxt;
+import org.pathvisio.core.debug.Logger;
+import org.pathvisio.core.preferences.PreferenceManager;
+import org.pathvisio.data.DataException;
+import org.pathvisio.desktop.gex.GexManager;
+import org.pathvisio.desktop.visualization.Criterion;
+
+/**
+ * Command line interface to the statistics, without the Swing dialog.
+ * <p>
+ * Tests any number of criteria against one dataset and one directory of pathways.
+ * The data is read once for all criteria, see {@link ZScoreCalculator}, and
+ * the results are written to one file per criterion.
+ */
+public class StatisticsCli
+{
+	public static void printUsage()
+	{
+		System.out.println ("PathVisio statistics\n" +
+				"Usage:\n" +
+				"\tjava org.pathvisio.statistics.StatisticsCli [options] <criterion> [<criterion>...]\n" +
+				"\n" +
+				"Options:\n" +
+				"\t-gex <file>       expression dataset (.pgex), required\n" +
+				"\t-pwdir <dir>      directory with pathways, searched recursively, required\n" +
+				"\t-gdb <file|uri>   identifier mapping database (.bridge/.pgdb file or BridgeDb connection string)\n" +
+				"\t-criteria <file>  read criteria from a file, one per line\n" +
+				"\t-out <dir>        directory for the results, default is the current directory\n" +
+				"\t-alternative      use the data-centric method instead of the MAPPFinder method\n" +
+				"\n" +
+				"A criterion is an expression such as \"[logFC] > 1 AND [P.Value] < 0.05\".\n" +
+				"Results are written to statistics-1.txt, statistics-2.txt, ... in the order of the criteria.\n" +
+				"Return codes:\n" +
+				"\t 0: OK\n" +
+				"\t-1: Parameter or file error\n" +
+				"\t-2: Calculation error\n"
+			);
+	}
+
+	/**
+	 * Read criteria from a text file, one expression per line.
+	 * Empty lines and lines starting with # are skipped.
+	 */
+	static List<String> readCriteria(File f) throws IOException
+	{
+		List<String> result = new ArrayList<String>();
+		BufferedReader reader = new BufferedReader(new FileReader(f));
+		try
+		{
+			String line;
+			while ((line = reader.readLine()) != null)
+			{
+				line = line.trim();
+				if (line.length() == 0 || line.startsWith("#")) continue;
+				result.add(line);
+			}
+		}
+		finally
+		{
+			reader.close();
+		}
+		return result;
+	}
+
+	/**
+	 * Connect to an identifier mapping database.
+	 * @param gdb a .bridge or .pgdb file, or a BridgeDb connection string.
+	 * If null, an empty mapper is returned, so only identifiers that occur in
+	 * the dataset as they are will match.
+	 */
+	static IDMapper connectIDMapper(String gdb) throws IDMapperException, ClassNotFoundException
+	{
+		if (gdb == null) return new IDMapperStack();
+		Class.forName("org.bridgedb.rdb.IDMapperRdb");
+		if (new File(gdb).exists())
+		{
+			return BridgeDb.connect("idmapper-pgdb:" + new File(gdb).getAbsolutePath());
+		}
+		Class.forName("org.bridgedb.file.IDMapperText");
+		return BridgeDb.connect(gdb);
+	}
+
+	/**
+	 * Parse criteria, checking the sample names against the dataset.
+	 * @throws IllegalArgumentException if an expression can't be parsed
+	 */
+	public static List<Criterion> parseCriteria(List<String> expressions, List<String> sampleNames)
+	{
+		List<Criterion> result = new ArrayList<Criterion>();
+		for (String expr : expressions)
+		{
+			Criterion crit = new Criterion();
+			String error = crit.setExpression(expr, sampleNames);
+			if (error != null)
+			{
+				throw new IllegalArgumentException("Invalid criterion " + expr + ": " + error);
+			}
+			result.add(crit);
+		}
+		return result;
+	}
+
+	/**
+	 * Save results in parallel, to one file per result.
+	 * @param results the results to save, e.g. from {@link ZScoreCalculator#calculateAllMappFinder()}
+	 * @param outDir directory to write to, result i is written to statistics-(i+1).txt
+	 * @return the files that were written, in the same order as the results
+	 */
+	public static List<File> saveAll(List<StatisticsResult> results, File outDir) throws IOException
+	{
+		List<File> files = new ArrayList<File>();
+		int nThreads = Math.max(1, Math.min(results.size(), Runtime.getRuntime().availableProcessors()));
+		ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+		try
+		{
+			List<Future<Void>> futures = new ArrayList<Future<Void>>();
+			for (int i = 0; i < results.size(); ++i)
+			{
+				final StatisticsResult result = results.get(i);
+				final File f = new File(outDir, "statistics-" + (i + 1) + ".txt");
+				files.add(f);
+				futures.add(executor.submit(new Callable<Void>()
+				{
+					public Void call() throws IOException
+					{
+						result.save(f);
+						return null;
+					}
+				}));
+			}
+			for (Future<Void> future : futures)
+			{
+				future.get();
+			}
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while saving results");
+		}
+		catch (ExecutionException e)
+		{
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) throw (IOException)cause;
+			throw new IllegalStateException(cause);
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+		return files;
+	}
+
+	public static void main(String[] args)
+	{
+		Logger.log.setStream (System.err);
+		Logger.log.setLogLevel (false, false, true, true, true, true);
+		Logger.log.setAsync (true);
+
+		File gexFile = null;
+		File pwDir = null;
+		File outDir = new File(".");
+		String gdb = null;
+		boolean mappFinder = true;
+		List<String> expressions = new ArrayList<String>();
+
+		boolean error = false;
+		try
+		{
+			for (int i = 0; i < args.length; ++i)
+			{
+				String arg = args[i];
+				if ("-gex".equals(arg)) gexFile = new File(args[++i]);
+				else if ("-pwdir".equals(arg)) pwDir = new File(args[++i]);
+				else if ("-gdb".equals(arg)) gdb = args[++i];
+				else if ("-out".equals(arg)) outDir = new File(args[++i]);
+				else if ("-criteria".equals(arg)) expressions.addAll(readCriteria(new File(args[++i])));
+				else if ("-alternative".equals(arg)) mappFinder = false;
+				else expressions.add(arg);
+			}
+		}
+		catch (ArrayIndexOutOfBoundsException e)
+		{
+			Logger.log.error ("Missing value for the last option");
+			error = true;
+		}
+		catch (IOException e)
+		{
+			Logger.log.error ("Unable to read criteria", e);
+			error = true;
+		}
+
+		if (gexFile == null || !gexFile.canRead())
+		{
+			Logger.log.error ("Unable to read dataset: " + gexFile);
+			error = true;
+		}
+		if (pwDir == null || !pwDir.isDirectory())
+		{
+			Logger.log.error ("Not a pathway directory: " + pwDir);
+			error = true;
+		}
+		if (expressions.size() == 0)
+		{
+			Logger.log.error ("Need at least one criterion");
+			error = true;
+		}
+		if (error)
+		{
+			printUsage();
+			System.exit(-1);
+		}
+
+		PreferenceManager.init();
+		DataSourceTxt.init();
+		GexManager gexManager = new GexManager();
+		// exit only after closing the dataset
+		int exitCode = 0;
+		try
+		{
+			gexManager.setCurrentGex(gexFile.getAbsolutePath(), false);
+			List<Criterion> crits = parseCriteria(expressions, gexManager.getCurrentGex().getSampleNames());
+			IDMapper mapper = connectIDMapper(gdb);
+
+			ZScoreCalculator calc = new ZScoreCalculator(crits, pwDir, gexManager.getCachedData(), mapper, null);
+			List<StatisticsResult> results = mappFinder ? calc.calculateAllMappFinder() : calc.calculateAllAlternative();
+
+			outDir.mkdirs();
+			for (File f : saveAll(results, outDir))
+			{
+				Logger.log.info ("Written " + f);
+			}
+		}
+		catch (IllegalArgumentException e)
+		{
+			Logger.log.error (e.getMessage());
+			exitCode = -1;
+		}
+		catch (Exception e)
+		{
+			Logger.log.error ("Statistics failed", e);
+			exitCode = -2;
+		}
+		finally
+		{
+			gexManager.close();
+		}
+		System.exit(exitCode);
+	}
+}
@@ -34,6 +34,9 @@ public class StatisticsPathwayResult implements RowWithProperties<Column>
 	private File f;
 	double permP = 0;
 	double adjP = 0;
+	double exactP = Double.NaN;
+	double fisherP = Double.NaN;
+	double fdr = Double.NaN;
 
 	/**
 	 * Get the pathway file.
@@ -60,6 +63,9 @@ public String getProperty(Column prop)
 		case PATHWAY_NAME: return name;
 		case PERMPVAL: return String.format ("%3.3f", (float)permP);
 		case ADJPVAL: return String.format ("%3.3f", (float)adjP);
+		case EXACTPVAL: return String.format ("%3.3g", exactP);
+		case FISHERPVAL: return String.format ("%3.3g", fisherP);
+		case FDR: return String.format ("%3.3g", fdr);
 		case ZSCORE: return String.format ("%3.2f", (float)z);
 		case PCT: return String.format("%3.2f%%", (n == 0 ? Float.NaN : 100.0 * (float)r / (float)n));
 		case FILE_NAME: return f.getName();
@@ -71,4 +77,10 @@ public double getZScore()
 	{
 		return z;
 	}
+
+	/** number of measured items in this pathway */
+	int getN() { return n; }
+
+	/** number of positive items in this pathway */
+	int getR() { return r; }
 }
@@ -458,7 +458,7 @@ private class ZScoreWorker extends SwingWorker <StatisticsResult, Void>
 				this.pk = pk;
 				calculator = new ZScoreCalculator (crit, pwDir, cache, gdb, pk);
 				temp = new StatisticsTableModel();
-				temp.setColumns(new Column[] {Column.PATHWAY_NAME, Column.R, Column.N, Column.TOTAL, Column.PCT, Column.ZSCORE, Column.PERMPVAL});
+				temp.setColumns(new Column[] {Column.PATHWAY_NAME, Column.R, Column.N, Column.TOTAL, Column.PCT, Column.ZSCORE, Column.PERMPVAL, Column.EXACTPVAL, Column.FDR});
 				tblResult.setModel(temp);
 				useMappFinder = PreferenceManager.getCurrent().getBoolean(StatisticsPreference.MAPPFINDER_COMPATIBILITY);
 			}
@@ -57,7 +57,14 @@ public void save (File f) throws IOException
 		out.println ("Data points meeting criterion (R): " + bigR);
 		out.println();
 
-		stm.printData(out);
+		try
+		{
+			stm.printData(out);
+		}
+		finally
+		{
+			out.close();
+		}
 	}
 
 	/**
@@ -45,11 +45,13 @@ public StatisticsTableModel() {
 			saveColumns = new Column[] {
 					Column.PATHWAY_NAME, Column.FILE_NAME, Column.R,
 					Column.N, Column.TOTAL, Column.PCT, Column.ZSCORE, Column.PERMPVAL,
+					Column.EXACTPVAL, Column.FISHERPVAL, Column.FDR,
 			};
 		} else {
 			saveColumns = new Column[] {
 					Column.PATHWAY_NAME, Column.R, Column.N,
 					Column.TOTAL, Column.PCT, Column.ZSCORE, Column.PERMPVAL,
+					Column.EXACTPVAL, Column.FISHERPVAL, Column.FDR,
 			};
 		}
 	}
@@ -18,21 +18,26 @@
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
 
 import org.bridgedb.IDMapper;
 import org.bridgedb.IDMapperException;
 import org.bridgedb.Xref;
 import org.pathvisio.core.debug.Logger;
+import org.pathvisio.core.debug.Metrics;
 import org.pathvisio.core.util.ProgressKeeper;
 import org.pathvisio.core.util.Stats;
 import org.pathvisio.data.DataException;
 import org.pathvisio.data.IRow;
+import org.pathvisio.data.ISample;
+import org.pathvisio.data.RowCursor;
 import org.pathvisio.desktop.gex.CachedData;
 import org.pathvisio.desktop.visualization.Criterion;
 import org.pathvisio.desktop.visualization.Criterion.CriterionException;
@@ -41,17 +46,45 @@
 /**
  * Calculates statistics on a set of Pathways, either step by step with intermediate results,
  * or all at once.
+ * <p>
+ * Several criteria can be calculated together. The pathways and the dataset are read only once,
+ * and each row of data is evaluated for all criteria at the same time.
+ * The result is one {@link StatisticsResult} per criterion.
+ * <p>
+ * Next to the zscore, each pathway gets an exact hypergeometric p-value for over-representation,
+ * a two-sided Fisher exact p-value, and a false discovery rate over all pathways.
+ * Xrefs are numbered, and pathways are stored as arrays of these numbers,
+ * so that scoring large pathway collections and the permutation test don't need any map lookups.
  */
 public class ZScoreCalculator
 {
+	private static final Metrics.Timer CALCULATE_TIMER = Metrics.timer("statistics.calculate");
+	private static final Metrics.Timer PERMUTE_TIMER = Metrics.timer("statistics.permute");
+	// rows fetched at once while scanning the whole dataset
+	private static final int SCAN_FETCH_SIZE = 1000;
+
 	private PathwayMap pwyMap;
-	private Map<Xref, RefInfo> dataMap;
-	private final StatisticsResult result;
+	private List<PathwayInfo> pathways;
+	// evaluation of each xref, by xref number
+	private RefInfo[] refInfos;
+	// for each pathway, the numbers of its xrefs
+	private int[][] members;
+	private final List<Criterion> crits;
+	private final List<StatisticsResult> results;
 	private final ProgressKeeper pk;
-	private Map<PathwayInfo, StatisticsPathwayResult> statsMap =
-		new HashMap<PathwayInfo, StatisticsPathwayResult>();
+	// one map per criterion
+	private final List<Map<PathwayInfo, StatisticsPathwayResult>> statsMaps;
 
 	public ZScoreCalculator(Criterion crit, File pwDir, CachedData gex, IDMapper gdb, ProgressKeeper pk)
+	{
+		this (Collections.singletonList(crit), pwDir, gex, gdb, pk);
+	}
+
+	/**
+	 * Calculate statistics for several criteria in one go.
+	 * @param crits the criteria, there will be one result for each of them, in the same order.
+	 */
+	public ZScoreCalculator(List<Criterion> crits, File pwDir, CachedData gex, IDMapper gdb, ProgressKeeper pk)
 	{
 		if (pk != null)
 		{
@@ -59,13 +92,21 @@ public ZScoreCalculator(Criterion crit, File pwDir, CachedData gex, IDMapper gdb
 			pk.setTaskName("Analyzing data");
 		}
 
-		result = new StatisticsResult();
-		result.crit = crit;
-		result.stm = new StatisticsTableModel();
-		result.stm.setColumns(new Column[] {Column.PATHWAY_NAME, Column.R, Column.N, Column.TOTAL, Column.PCT, Column.ZSCORE, Column.PERMPVAL});
-		result.pwDir = pwDir;
-		result.gex = gex;
-		result.gdb = gdb;
+		this.crits = new ArrayList<Criterion>(crits);
+		results = new ArrayList<StatisticsResult>();
+		statsMaps = new ArrayList<Map<PathwayInfo, StatisticsPathwayResult>>();
+		for (Criterion crit : crits)
+		{
+			StatisticsResult result = new StatisticsResult();
+			result.crit = crit;
+			result.stm = new StatisticsTableModel();
+			result.stm.setColumns(new Column[] {Column.PATHWAY_NAME, Column.R, Column.N, Column.TOTAL, Column.PCT, Column.ZSCORE, Column.PERMPVAL, Column.EXACTPVAL, Column.FDR});
+			result.pwDir = pwDir;
+			result.gex = gex;
+			result.gdb = gdb;
+			results.add(result);
+			statsMaps.add(new HashMap<PathwayInfo, StatisticsPathwayResult>());
+		}
 		this.pk = pk;
 	}
 
@@ -79,48 +120,54 @@ public ZScoreCalculator(Criterion crit, File pwDir, CachedData gex, IDMapper gdb
 	private abstract class Method
 	{
 		/**
-		 * calculate result.bigN and result.bigR
+		 * calculate bigN and bigR of all results
 		 */
 		public abstract void calculateTotals ()
 			throws IDMapperException, DataException;
 
 		/**
 		 * Do a permutation test to calculate permP and adjP
+		 * for all results
 		 */
 		public abstract void permute();
 
 		/**
-		 * calculate n and r for a single pathway.
+		 * calculate n and r for a single pathway and a single criterion.
 		 *
-		 * dataMap should already have been initialized
+		 * refInfos and members should already have been initialized
+		 * @param p index of the pathway
+		 * @param c index of the criterion
 		 */
-		public abstract StatisticsPathwayResult calculatePathway(PathwayInfo pi);
+		public abstract StatisticsPathwayResult calculatePathway(int p, int c);
 		
 		
 		public abstract String getDescription();
 	}
 
 	/**
-	 * Information about the result of evaluating a criterion on a xref.
+	 * Information about the result of evaluating the criteria on a xref.
 	 *
 	 * A given xref can have 0 or more measured probes associated with it,
-	 * and each measured probe can be positive or not.
+	 * and each measured probe can be positive or not, for each criterion.
 	 */
 	private static class RefInfo
 	{
 		final Set<String> probesMeasured;
-		final Set<String> probesPositive;
+		final List<Set<String>> probesPositive;
 
 		/**
 		 * Initialize.
 		 * @param aProbesMeasured must be >= 0
-		 * @param aProbesPostive must be >= 0, and <= aProbesMeasured.
+		 * @param aProbesPostive one set per criterion, each must be >= 0, and <= aProbesMeasured.
 		 */
-		RefInfo(Set<String> aProbesMeasured, Set<String> aProbesPositive)
+		RefInfo(Set<String> aProbesMeasured, List<Set<String>> aProbesPositive)
 		{
 			probesMeasured = aProbesMeasured;
 			probesPositive = aProbesPositive;
-			if (probesPositive.size() > probesMeasured.size()) throw new IllegalArgumentException();
+			for (Set<String> positive : probesPositive)
+			{
+				if (positive.size() > probesMeasured.size()) throw new IllegalArgumentException();
+			}
 		}
 
 		/**
@@ -131,20 +178,20 @@ public Set<String> getProbesMeasured() {
 		}
 
 		/**
-		 * Get the positive probes
+		 * Get the positive probes for criterion c
 		 */
-		public Set<String> getProbesPositive() {
-			return probesPositive;
+		public Set<String> getProbesPositive(int c) {
+			return probesPositive.get(c);
 		}
 
 		/**
-		 * Calculate the positive fraction of probes.
+		 * Calculate the positive fraction of probes for criterion c.
 		 * E.g if 2 out of 3 probes are positive, count only 2/3.
 		 * This is not the method Used by MAPPFinder.
 		 */
-		double getPositiveFraction()
+		double getPositiveFraction(int c)
 		{
-			return (double)probesPositive.size() / (double)probesMeasured.size();
+			return (double)probesPositive.get(c).size() / (double)probesMeasured.size();
 		}
 
 		/**
@@ -158,9 +205,9 @@ public Set<String> getProbesPositive() {
 		 *
 		 * For an alternative way, check getPositiveFraction
 		 */
-		boolean isPositive()
+		boolean isPositive(int c)
 		{
-			return probesPositive.size() > 0;
+			return probesPositive.get(c).size() > 0;
 		}
 
 		/**
@@ -173,7 +220,37 @@ boolean isMeasured()
 	}
 
 	/**
-	 * Checks if the given ref evaluates positive for the criterion
+	 * Evaluate all criteria on a row of data.
+	 * The sample values of the row are looked up only once.
+	 * A criterion that can't be evaluated counts as negative.
+	 * @param eval receives the result for each criterion.
+	 */
+	private void evaluateRow (IRow row, boolean[] eval)
+	{
+		evaluateRow(row.getByName(), eval);
+	}
+
+	/**
+	 * Evaluates a row of data, given as a map of sample name to value, for all criteria.
+	 */
+	private void evaluateRow (Map<String, Object> byName, boolean[] eval)
+	{
+		for (int c = 0; c < eval.length; ++c)
+		{
+			try
+			{
+				eval[c] = crits.get(c).evaluate(byName);
+			}
+			catch (CriterionException e)
+			{
+				eval[c] = false;
+				Logger.log.error ("Unknown error during statistics", e);
+			}
+		}
+	}
+
+	/**
+	 * Checks if the given ref evaluates positive for the criteria
 	 *
 	 * Assumes that ref has already been cached earlier in a call to
 	 * result.gex.cacheData(...)
@@ -181,9 +258,11 @@ boolean isMeasured()
 	private RefInfo evaluateRef (Xref srcRef)
 	{
 		Set<String> cGeneTotal = new HashSet<String>();
-		Set<String> cGenePositive = new HashSet<String>();
+		List<Set<String>> cGenePositive = new ArrayList<Set<String>>();
+		for (int c = 0; c < crits.size(); ++c) cGenePositive.add(new HashSet<String>());
+		boolean[] eval = new boolean[crits.size()];
 
-		List<? extends IRow> rows = result.gex.getData(srcRef);
+		List<? extends IRow> rows = results.get(0).gex.getData(srcRef);
 
 		if (rows != null)
 		{
@@ -191,15 +270,12 @@ private RefInfo evaluateRef (Xref srcRef)
 			{
 				if (pk != null && pk.isCancelled()) return null;
 				// Use group (line number) to identify a measurement
-				cGeneTotal.add(row.getGroup() + "");
-				try
+				String group = row.getGroup() + "";
+				cGeneTotal.add(group);
+				evaluateRow(row, eval);
+				for (int c = 0; c < eval.length; ++c)
 				{
-					boolean eval = result.crit.evaluate(row.getByName());
-					if (eval) cGenePositive.add(row.getGroup() + "");
-				}
-				catch (CriterionException e)
-				{
-					Logger.log.error ("Unknown error during statistics", e);
+					if (eval[c]) cGenePositive.get(c).add(group);
 				}
 			}
 
@@ -218,28 +294,57 @@ private class AlternativeMethod extends Method
 		/**
 		 * calculate bigN and bigR, based on the dataset.
 		 * This goes through every row of the dataset and counts the number
-		 * of total rows (bigN) and the number of rows meeting our criterion (bigR)
+		 * of total rows (bigN) and the number of rows meeting each criterion (bigR).
+		 * All criteria are evaluated in a single pass over the dataset.
 		 */
 		public void calculateTotals() throws IDMapperException, DataException
 		{
-			for (IRow d : result.gex.getIterator())
+			CachedData gex = results.get(0).gex;
+
+			// only read the samples that occur in the criteria
+			Set<String> symbols = new HashSet<String>();
+			for (Criterion crit : crits) symbols.addAll(crit.getSymbols());
+			List<ISample> samples = new ArrayList<ISample>();
+			for (String name : symbols)
 			{
-				if (pk != null && pk.isCancelled()) return;
-				try
+				ISample s = gex.findSample(name);
+				if (s != null) samples.add(s);
+			}
+
+			int bigN = 0;
+			int[] bigR = new int[crits.size()];
+			boolean[] eval = new boolean[crits.size()];
+			// re-used for each row
+			Map<String, Object> byName = new HashMap<String, Object>();
+			RowCursor cursor = gex.scan(samples, SCAN_FETCH_SIZE);
+			try
+			{
+				while (cursor.next())
 				{
-					result.bigN++;
-					boolean eval = result.crit.evaluate(d.getByName());
-					if (eval)
+					if (pk != null && pk.isCancelled()) return;
+					bigN++;
+					byName.clear();
+					for (int i = 0; i < samples.size(); ++i)
 					{
-						result.bigR++;
+						if (cursor.hasValue(i)) byName.put(samples.get(i).getName(), cursor.getValue(i));
+					}
+					evaluateRow(byName, eval);
+					for (int c = 0; c < eval.length; ++c)
+					{
+						if (eval[c]) bigR[c]++;
 					}
-				}
-				catch (CriterionException e)
-				{
-					Logger.log.error ("Problem during row handling ", e);
-				}
 
-				if (pk != null) pk.setProgress ((int)(0.1 * 100.0));
+					if (pk != null) pk.setProgress ((int)(0.1 * 100.0));
+				}
+			}
+			finally
+			{
+				cursor.close();
+			}
+			for (int c = 0; c < crits.size(); ++c)
+			{
+				results.get(c).bigN = bigN;
+				results.get(c).bigR = bigR[c];
 			}
 		}
 
@@ -257,22 +362,24 @@ public void permute()
 		 * <LI>r: the number of significant rows in the dataset that map to a gene in the pathway.
 		 * </UL>
 		 */
-		public StatisticsPathwayResult calculatePathway(PathwayInfo pi)
+		public StatisticsPathwayResult calculatePathway(int p, int c)
 		{
+			PathwayInfo pi = pathways.get(p);
 			Set<String> probesMeasured = new HashSet<String>();
 			Set<String> probesPositive = new HashSet<String>();
 
-			for (Xref ref : pi.getSrcRefs())
+			for (int i : members[p])
 			{
-				RefInfo refInfo = dataMap.get(ref);
+				RefInfo refInfo = refInfos[i];
 				probesMeasured.addAll(refInfo.getProbesMeasured());
-				probesPositive.addAll(refInfo.getProbesPositive());
+				probesPositive.addAll(refInfo.getProbesPositive(c));
 			}
 
 			int cPwyMeasured = probesMeasured.size();
 			int cPwyPositive = probesPositive.size();
 			int cPwyTotal = pi.getSrcRefs().size();
 
+			StatisticsResult result = results.get(c);
 			double zscore = Stats.zscore(cPwyMeasured, cPwyPositive, result.bigN, result.bigR);
 			StatisticsPathwayResult spr = new StatisticsPathwayResult(
 					pi.getFile(), pi.getName(),
@@ -290,24 +397,21 @@ public String getDescription()
 	 */
 	private class MappFinderMethod extends Method
 	{
-		/**
-		 * Shuffle the values of the map,
-		 * so that each K, V pair is (likely) broken up,
-		 * each K will (likely) get a new V.
-		 *
-		 * @param map: the map to be permuted. This value is modified directly.
-		 */
-		private <K, V> void permuteMap (Map<K, V> map)
-		{
-			List<V> values = new ArrayList<V>();
-			values.addAll (map.values());
-			Collections.shuffle (values);
+		// measured[i] and positive[c][i] for xref number i, copied from refInfos for speed
+		private boolean[] measured;
+		private boolean[][] positive;
 
-			int i = 0;
-			for (K key : map.keySet())
+		private void initFlags()
+		{
+			measured = new boolean[refInfos.length];
+			positive = new boolean[crits.size()][refInfos.length];
+			for (int i = 0; i < refInfos.length; ++i)
 			{
-				map.put (key, values.get(i));
-				i++;
+				measured[i] = refInfos[i].isMeasured();
+				for (int c = 0; c < crits.size(); ++c)
+				{
+					positive[c][i] = refInfos[i].isPositive(c);
+				}
 			}
 		}
 
@@ -317,50 +421,71 @@ private <K, V> void permuteMap (Map<K, V> map)
 		 * permutes the data 1000 times while keeping the labels fixed.
 		 * Calculate the rank of the actual zscore compared to the permuted zscores.
 		 * Two-tailed test, so checks for very low z-scores as well as very high z-scores.
+		 * <p>
+		 * A permutation is an array of xref numbers: xref i gets the data of xref perm[i].
+		 * Each permutation is shared by all criteria, which is fine because
+		 * the p-value of each criterion only depends on its own permuted zscores.
 		 */
 		public void permute()
 		{
-			// create a deep copy of dataMap.
-			Map<Xref, RefInfo> dataMap2 = new HashMap<Xref, RefInfo>();
-			for (Xref key : dataMap.keySet()) { dataMap2.put (key, dataMap.get(key)); }
+			int[] perm = new int[refInfos.length];
+			for (int i = 0; i < perm.length; ++i) perm[i] = i;
+			Random random = new Random();
 
 			// we count the number of times a zscore is extremer,
 			// i.e. further away from 0 than the actual zscore.
-			Map<PathwayInfo, Integer> extremer = new HashMap<PathwayInfo, Integer>();
-
-			for (PathwayInfo pi : pwyMap.getPathways()) extremer.put (pi, 0);
+			int nCrit = crits.size();
+			int[][] extremer = new int[pathways.size()][nCrit];
+			int[] cPwyPositive = new int[nCrit];
 
 			for (int i = 0; i < 999; ++i)
 			{
-				permuteMap (dataMap2);
+				// Fisher-Yates shuffle
+				for (int j = perm.length - 1; j > 0; --j)
+				{
+					int k = random.nextInt(j + 1);
+					int tmp = perm[j];
+					perm[j] = perm[k];
+					perm[k] = tmp;
+				}
 
-				for (PathwayInfo pi : pwyMap.getPathways())
+				for (int p = 0; p < pathways.size(); ++p)
 				{
 					int cPwyMeasured = 0;
-					int cPwyPositive = 0;
+					Arrays.fill(cPwyPositive, 0);
 
-					for (Xref ref : pi.getSrcRefs())
+					for (int m : members[p])
 					{
-						RefInfo refInfo = dataMap2.get(ref);
-						if (refInfo.isMeasured()) cPwyMeasured++;
-						if (refInfo.isPositive()) cPwyPositive++;
+						int ref = perm[m];
+						if (measured[ref]) cPwyMeasured++;
+						for (int c = 0; c < nCrit; ++c)
+						{
+							if (positive[c][ref]) cPwyPositive[c]++;
+						}
 					}
-					double zscore = Stats.zscore(cPwyMeasured, cPwyPositive, result.bigN, result.bigR);
-
-					// compare absolutes -> two-tailed test
-					if (Math.abs(zscore) > Math.abs((statsMap.get(pi)).getZScore()))
+					for (int c = 0; c < nCrit; ++c)
 					{
-						extremer.put (pi, extremer.get(pi) + 1);
+						StatisticsResult result = results.get(c);
+						double zscore = Stats.zscore(cPwyMeasured, cPwyPositive[c], result.bigN, result.bigR);
+
+						// compare absolutes -> two-tailed test
+						if (Math.abs(zscore) > Math.abs((statsMaps.get(c).get(pathways.get(p))).getZScore()))
+						{
+							extremer[p][c]++;
+						}
 					}
 				}
 			}
 
 			// report p-vals
-			for (PathwayInfo pi : pwyMap.getPathways())
+			for (int p = 0; p < pathways.size(); ++p)
 			{
-				double pval = (double)extremer.get(pi) / 1000.0;
-				StatisticsPathwayResult spr = statsMap.get(pi);
-				spr.permP = pval;
+				for (int c = 0; c < nCrit; ++c)
+				{
+					double pval = (double)extremer[p][c] / 1000.0;
+					StatisticsPathwayResult spr = statsMaps.get(c).get(pathways.get(p));
+					spr.permP = pval;
+				}
 			}
 		}
 
@@ -375,12 +500,16 @@ public String getDescription()
 		@Override
 		public void calculateTotals()
 		{
+			initFlags();
 			// go over all datanodes in all pathways
-			for (Xref ref : dataMap.keySet())
+			for (int c = 0; c < crits.size(); ++c)
 			{
-				RefInfo refInfo = dataMap.get(ref);
-				if (refInfo.isMeasured()) result.bigN++;
-				if (refInfo.isPositive()) result.bigR++;
+				StatisticsResult result = results.get(c);
+				for (int i = 0; i < refInfos.length; ++i)
+				{
+					if (measured[i]) result.bigN++;
+					if (positive[c][i]) result.bigR++;
+				}
 			}
 		}
 
@@ -391,19 +520,20 @@ public void calculateTotals()
 		 * <LI>r: the subset of n that has at least one significant row in the dataset.
 		 * </UL>
 		 */
-		public StatisticsPathwayResult calculatePathway(PathwayInfo pi)
+		public StatisticsPathwayResult calculatePathway(int p, int c)
 		{
+			PathwayInfo pi = pathways.get(p);
 			int cPwyMeasured = 0;
 			int cPwyPositive = 0;
-			int cPwyTotal = pi.getSrcRefs().size();
+			int cPwyTotal = members[p].length;
 
-			for (Xref ref : pi.getSrcRefs())
+			for (int i : members[p])
 			{
-				RefInfo refInfo = dataMap.get(ref);
-				if (refInfo.isMeasured()) cPwyMeasured++;
-				if (refInfo.isPositive()) cPwyPositive++;
+				if (measured[i]) cPwyMeasured++;
+				if (positive[c][i]) cPwyPositive++;
 			}
 
+			StatisticsResult result = results.get(c);
 			double zscore = Stats.zscore(cPwyMeasured, cPwyPositive, result.bigN, result.bigR);
 			StatisticsPathwayResult spr = new StatisticsPathwayResult(
 					pi.getFile(), pi.getName(),
@@ -412,21 +542,89 @@ public StatisticsPathwayResult calculatePathway(PathwayInfo pi)
 		}
 	}
 
+	/**
+	 * Number all xrefs in the pathways, evaluate each of them,
+	 * and translate the pathways to arrays of xref numbers.
+	 */
 	private void calculateDataMap()
 	{
-		dataMap = new HashMap<Xref, RefInfo>();
+		Set<Xref> srcRefs = pwyMap.getSrcRefs();
+		Map<Xref, Integer> index = new HashMap<Xref, Integer>();
+		refInfos = new RefInfo[srcRefs.size()];
 		// go over all datanodes in all pathways
-		for (Xref srcRef : pwyMap.getSrcRefs())
+		for (Xref srcRef : srcRefs)
 		{
 			if (pk != null && pk.isCancelled()) return;
-			RefInfo refInfo = evaluateRef (srcRef);
-			dataMap.put (srcRef, refInfo);
+			int i = index.size();
+			refInfos[i] = evaluateRef (srcRef);
+			index.put (srcRef, i);
+		}
+
+		pathways = pwyMap.getPathways();
+		members = new int[pathways.size()][];
+		for (int p = 0; p < pathways.size(); ++p)
+		{
+			Set<Xref> refs = pathways.get(p).getSrcRefs();
+			members[p] = new int[refs.size()];
+			int j = 0;
+			for (Xref ref : refs) members[p][j++] = index.get(ref);
+		}
+	}
+
+	/**
+	 * Calculate the exact p-values of all pathways, and the false discovery rate
+	 * over all pathways, separately for each criterion.
+	 * The log-factorial table is shared by all pathways and criteria.
+	 */
+	private void calculateExact()
+	{
+		int maxN = 0;
+		for (StatisticsResult result : results) maxN = Math.max(maxN, result.bigN);
+		double[] logFact = Stats.logFactorials(maxN);
+
+		for (int c = 0; c < crits.size(); ++c)
+		{
+			StatisticsResult result = results.get(c);
+			StatisticsPathwayResult[] sprs = new StatisticsPathwayResult[pathways.size()];
+			double[] pvals = new double[pathways.size()];
+			for (int p = 0; p < pathways.size(); ++p)
+			{
+				StatisticsPathwayResult spr = statsMaps.get(c).get(pathways.get(p));
+				sprs[p] = spr;
+				int n = spr.getN();
+				int r = spr.getR();
+				// can't happen with MappFinder, but the alternative method counts probes
+				if (n > result.bigN || r > n || result.bigR > result.bigN)
+				{
+					pvals[p] = Double.NaN;
+					continue;
+				}
+				spr.exactP = Stats.hypergeometricP(n, r, result.bigN, result.bigR, logFact);
+				spr.fisherP = Stats.fisherExactP(n, r, result.bigN, result.bigR, logFact);
+				pvals[p] = spr.exactP;
+			}
+			double[] fdr = Stats.benjaminiHochberg(pvals);
+			for (int p = 0; p < sprs.length; ++p) sprs[p].fdr = fdr[p];
+		}
+	}
+
+	private List<StatisticsResult> calculate(Method m) throws IDMapperException, DataException
+	{
+		long start = CALCULATE_TIMER.start();
+		try
+		{
+			return calculateImpl(m);
+		}
+		finally
+		{
+			CALCULATE_TIMER.stop(start);
 		}
 	}
 
-	private StatisticsResult calculate(Method m) throws IDMapperException, DataException
+	private List<StatisticsResult> calculateImpl(Method m) throws IDMapperException, DataException
 	{
-		result.methodDesc = m.getDescription();
+		for (StatisticsResult result : results) result.methodDesc = m.getDescription();
+		StatisticsResult first = results.get(0);
 
 		// read all pathways
 		if (pk != null)
@@ -435,7 +633,7 @@ private StatisticsResult calculate(Method m) throws IDMapperException, DataExcep
 			pk.setTaskName("Creating pathway list");
 			pk.setProgress(0);
 		}
-		pwyMap = new PathwayMap (result.pwDir);
+		pwyMap = new PathwayMap (first.pwDir);
 
 		// cache data for all pathways at once.
 		if (pk != null)
@@ -444,10 +642,10 @@ private StatisticsResult calculate(Method m) throws IDMapperException, DataExcep
 			pk.setTaskName("Reading dataset");
 			pk.setProgress(20);
 		}
-		result.gex.setMapper (result.gdb);
-		result.gex.syncSeed(pwyMap.getSrcRefs());
+		first.gex.setMapper (first.gdb);
+		first.gex.syncSeed(pwyMap.getSrcRefs());
 
-		// calculate dataMap
+		// evaluate all xrefs
 		if (pk != null)
 		{
 			if (pk.isCancelled()) return null;
@@ -463,21 +661,28 @@ private StatisticsResult calculate(Method m) throws IDMapperException, DataExcep
 			pk.setProgress(60);
 		}
 		m.calculateTotals();
-		Logger.log.info ("N: " + result.bigN + ", R: " + result.bigR);
+		for (StatisticsResult result : results)
+		{
+			Logger.log.info (result.crit.getExpression() + " N: " + result.bigN + ", R: " + result.bigR);
+		}
 
-		int i = 0;
-		for (PathwayInfo pi : pwyMap.getPathways())
+		for (int p = 0; p < pathways.size(); ++p)
 		{
+			PathwayInfo pi = pathways.get(p);
 			if (pk != null)
 			{
 				if (pk.isCancelled()) return null;
 				pk.setTaskName("Analyzing " + pi.getFile().getName());
-				pk.setProgress((int)((0.6 + (0.2 * (double)i / (double)pwyMap.getPathways().size())) * 100.0));
+				pk.setProgress((int)((0.6 + (0.2 * (double)p / (double)pathways.size())) * 100.0));
+			}
+			for (int c = 0; c < crits.size(); ++c)
+			{
+				StatisticsPathwayResult spr = m.calculatePathway(p, c);
+				statsMaps.get(c).put (pi, spr);
+				if (spr != null) results.get(c).stm.addRow (spr);
 			}
-			StatisticsPathwayResult spr = m.calculatePathway(pi);
-			statsMap.put (pi, spr);
-			if (spr != null) result.stm.addRow (spr);
 		}
+		calculateExact();
 
 		if (pk != null)
 		{
@@ -485,15 +690,23 @@ private StatisticsResult calculate(Method m) throws IDMapperException, DataExcep
 			pk.setTaskName("Calculating permutation P values");
 			pk.setProgress(80);
 		}
+		long permuteStart = PERMUTE_TIMER.start();
 		m.permute();
+		PERMUTE_TIMER.stop(permuteStart);
 
-		result.stm.sort();
+		for (StatisticsResult result : results) result.stm.sort();
 		if (pk != null)
 		{
 			pk.setProgress (100);
 			pk.setTaskName("Done");
 		}
-		return result;
+		return results;
+	}
+
+	/** first result of a calculation, or null if it was cancelled */
+	private static StatisticsResult first(List<StatisticsResult> results)
+	{
+		return results == null ? null : results.get(0);
 	}
 
 	/**
@@ -507,10 +720,28 @@ private StatisticsResult calculate(Method m) throws IDMapperException, DataExcep
 	 */
 	public StatisticsResult calculateAlternative() throws IDMapperException, DataException
 	{
-		return calculate (new AlternativeMethod());
+		return first (calculate (new AlternativeMethod()));
 	}
 
 	public StatisticsResult calculateMappFinder() throws IDMapperException, DataException
+	{
+		return first (calculate (new MappFinderMethod()));
+	}
+
+	/**
+	 * Same as {@link #calculateAlternative()}, for all criteria at once.
+	 * @return one result per criterion, in the order of the criteria, or null if cancelled.
+	 */
+	public List<StatisticsResult> calculateAllAlternative() throws IDMapperException, DataException
+	{
+		return calculate (new AlternativeMethod());
+	}
+
+	/**
+	 * Same as {@link #calculateMappFinder()}, for all criteria at once.
+	 * @return one result per criterion, in the order of the criteria, or null if cancelled.
+	 */
+	public List<StatisticsResult> calculateAllMappFinder() throws IDMapperException, DataException
 	{
 		return calculate (new MappFinderMethod());
 	}
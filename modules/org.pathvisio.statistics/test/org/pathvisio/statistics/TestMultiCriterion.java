@@ -0,0 +1,254 @@
+/*******************************************************************************
+ * PathVisio, a tool for data visualization and analysis using biological pathways
+ * Copyright 2006-2019 BiGCaT Bioinformatics
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.  You may obtain a copy
+ * of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package org.pathvisio.statistics;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import org.bridgedb.DataSource;
+import org.bridgedb.IDMapperStack;
+import org.bridgedb.Xref;
+import org.bridgedb.bio.DataSourceTxt;
+import org.pathvisio.core.preferences.PreferenceManager;
+import org.pathvisio.core.util.Stats;
+import org.pathvisio.data.DataException;
+import org.pathvisio.data.DataInterface;
+import org.pathvisio.data.IRow;
+import org.pathvisio.data.ISample;
+import org.pathvisio.data.RowCursor;
+import org.pathvisio.desktop.gex.CachedData;
+import org.pathvisio.desktop.visualization.Criterion;
+
+/**
+ * Checks that calculating several criteria at once gives the same
+ * results as calculating them one by one, on a small generated dataset.
+ */
+public class TestMultiCriterion extends TestCase
+{
+	static final String[] EXPRESSIONS = { "[fc] > 1.0", "[fc] < -1.0", "[p] < 0.05", "[fc] > 0.5 AND [p] < 0.2" };
+
+	File pwDir;
+	MemoryData data;
+
+	/** sample, identified by name */
+	static class MemorySample implements ISample
+	{
+		final String name;
+		final int id;
+		MemorySample(String name, int id) { this.name = name; this.id = id; }
+		public String getName() { return name; }
+		public Integer getId() { return id; }
+		public int getDataType() { return NUMBER_EXPR; }
+		public String getFactor() { return null; }
+		public int compareTo(ISample o) { return getId() - o.getId(); }
+	}
+
+	static class MemoryRow implements IRow
+	{
+		final Xref ref;
+		final int group;
+		final Map<String, Object> values = new HashMap<String, Object>();
+		MemoryRow(Xref ref, int group) { this.ref = ref; this.group = group; }
+		public Xref getXref() { return ref; }
+		public Object getSampleData(ISample s) { return values.get(s.getName()); }
+		public Map<String, Object> getByName() { return values; }
+		public Collection<? extends ISample> getSamples() { return SAMPLES; }
+		public int getGroup() { return group; }
+		public int compareTo(IRow o) { return group - o.getGroup(); }
+	}
+
+	static final List<MemorySample> SAMPLES = Arrays.asList(new MemorySample("fc", 0), new MemorySample("p", 1));
+
+	/** expression data held in memory */
+	static class MemoryData implements DataInterface
+	{
+		final List<IRow> rows = new ArrayList<IRow>();
+
+		public ISample getSample(int id) { return SAMPLES.get(id); }
+		public ISample findSample(String name)
+		{
+			for (ISample s : SAMPLES) if (s.getName().equals(name)) return s;
+			return null;
+		}
+		public List<String> getSampleNames() { return Arrays.asList("fc", "p"); }
+		public List<String> getSampleNames(int dataType) { return getSampleNames(); }
+		public List<? extends ISample> getOrderedSamples() { return SAMPLES; }
+		public Set<DataSource> getUsedDatasources()
+		{
+			Set<DataSource> result = new HashSet<DataSource>();
+			for (IRow row : rows) result.add(row.getXref().getDataSource());
+			return result;
+		}
+		public IRow getRow(int rowId) { return rows.get(rowId); }
+		public int getNrRow() { return rows.size(); }
+		public Map<Integer, ? extends ISample> getSamples()
+		{
+			Map<Integer, ISample> result = new HashMap<Integer, ISample>();
+			for (ISample s : SAMPLES) result.put(s.getId(), s);
+			return result;
+		}
+		public Collection<? extends IRow> getData(Set<Xref> destRefs)
+		{
+			List<IRow> result = new ArrayList<IRow>();
+			for (IRow row : rows) if (destRefs.contains(row.getXref())) result.add(row);
+			return result;
+		}
+		public Iterable<IRow> getIterator() { return rows; }
+		public RowCursor scan(List<? extends ISample> samples, int fetchSize) { return RowCursor.fromRows(rows, samples); }
+		public boolean isConnected() { return true; }
+		public String getDbName() { return "memory"; }
+		public void close() throws DataException {}
+	}
+
+	@Override
+	protected void setUp() throws Exception
+	{
+		PreferenceManager.init();
+		DataSourceTxt.init();
+		DataSource ds = DataSource.getExistingBySystemCode("L");
+		Random random = new Random(7);
+
+		data = new MemoryData();
+		for (int i = 0; i < 300; ++i)
+		{
+			// some genes are measured twice
+			MemoryRow row = new MemoryRow(new Xref("" + (i % 250), ds), i);
+			row.values.put("fc", random.nextGaussian());
+			row.values.put("p", random.nextDouble());
+			data.rows.add(row);
+		}
+
+		pwDir = File.createTempFile("stats", "");
+		pwDir.delete();
+		pwDir.mkdir();
+		for (int p = 0; p < 10; ++p)
+		{
+			PrintWriter out = new PrintWriter(new File(pwDir, "pathway" + p + ".gpml"));
+			out.println("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+			out.println("<Pathway xmlns=\"http://pathvisio.org/GPML/2013a\" Name=\"Pathway " + p + "\">");
+			for (int g = 0; g < 30; ++g)
+			{
+				// includes some genes that are not measured
+				out.println("<DataNode TextLabel=\"g" + g + "\" Type=\"GeneProduct\">");
+				out.println("<Xref Database=\"" + ds.getFullName() + "\" ID=\"" + random.nextInt(280) + "\"/>");
+				out.println("</DataNode>");
+			}
+			out.println("</Pathway>");
+			out.close();
+		}
+	}
+
+	@Override
+	protected void tearDown()
+	{
+		for (File f : pwDir.listFiles()) f.delete();
+		pwDir.delete();
+	}
+
+	private List<Criterion> criteria()
+	{
+		return StatisticsCli.parseCriteria(Arrays.asList(EXPRESSIONS), data.getSampleNames());
+	}
+
+	private void assertSameResults(StatisticsResult expected, StatisticsResult actual)
+	{
+		assertEquals(expected.getCriterion().getExpression(), actual.getCriterion().getExpression());
+		assertEquals(expected.getBigN(), actual.getBigN());
+		assertEquals(expected.getBigR(), actual.getBigR());
+		List<StatisticsPathwayResult> e = expected.getPathwayResults();
+		List<StatisticsPathwayResult> a = actual.getPathwayResults();
+		assertEquals(e.size(), a.size());
+		for (int i = 0; i < e.size(); ++i)
+		{
+			for (Column col : new Column[] { Column.PATHWAY_NAME, Column.N, Column.R, Column.TOTAL, Column.ZSCORE,
+					Column.EXACTPVAL, Column.FISHERPVAL, Column.FDR })
+			{
+				assertEquals(e.get(i).getProperty(col), a.get(i).getProperty(col));
+			}
+			// permutation p-values are random, but must be in range
+			double p = Double.parseDouble(a.get(i).getProperty(Column.PERMPVAL));
+			assertTrue(p >= 0 && p <= 1);
+		}
+	}
+
+	public void testAlternative() throws Exception
+	{
+		List<StatisticsResult> all = new ZScoreCalculator(criteria(), pwDir, new CachedData(data), new IDMapperStack(), null).calculateAllAlternative();
+		assertEquals(EXPRESSIONS.length, all.size());
+		for (int c = 0; c < EXPRESSIONS.length; ++c)
+		{
+			StatisticsResult single = new ZScoreCalculator(criteria().get(c), pwDir, new CachedData(data), new IDMapperStack(), null).calculateAlternative();
+			assertEquals(300, single.getBigN());
+			assertSameResults(single, all.get(c));
+		}
+	}
+
+	public void testMappFinder() throws Exception
+	{
+		List<StatisticsResult> all = new ZScoreCalculator(criteria(), pwDir, new CachedData(data), new IDMapperStack(), null).calculateAllMappFinder();
+		assertEquals(EXPRESSIONS.length, all.size());
+		for (int c = 0; c < EXPRESSIONS.length; ++c)
+		{
+			StatisticsResult single = new ZScoreCalculator(criteria().get(c), pwDir, new CachedData(data), new IDMapperStack(), null).calculateMappFinder();
+			assertSameResults(single, all.get(c));
+		}
+	}
+
+	public void testSaveAll() throws Exception
+	{
+		List<StatisticsResult> all = new ZScoreCalculator(criteria(), pwDir, new CachedData(data), new IDMapperStack(), null).calculateAllMappFinder();
+		List<File> files = StatisticsCli.saveAll(all, pwDir);
+		assertEquals(EXPRESSIONS.length, files.size());
+		for (File f : files)
+		{
+			assertTrue(f.exists());
+			assertTrue(f.length() > 0);
+		}
+	}
+
+	/** exact p-values must match a direct calculation, and the FDR must be ordered like the p-values */
+	public void testExact() throws Exception
+	{
+		List<StatisticsResult> all = new ZScoreCalculator(criteria(), pwDir, new CachedData(data), new IDMapperStack(), null).calculateAllMappFinder();
+		for (StatisticsResult result : all)
+		{
+			double[] logFact = Stats.logFactorials(result.getBigN());
+			List<StatisticsPathwayResult> sprs = result.getPathwayResults();
+			for (StatisticsPathwayResult a : sprs)
+			{
+				assertEquals(Stats.hypergeometricP(a.getN(), a.getR(), result.getBigN(), result.getBigR(), logFact), a.exactP, 1e-12);
+				assertEquals(Stats.fisherExactP(a.getN(), a.getR(), result.getBigN(), result.getBigR(), logFact), a.fisherP, 1e-12);
+				assertTrue(a.fdr >= a.exactP && a.fdr <= 1.0);
+				for (StatisticsPathwayResult b : sprs)
+				{
+					if (a.exactP < b.exactP) assertTrue(a.fdr <= b.fdr);
+				}
+			}
+		}
+	}
+}